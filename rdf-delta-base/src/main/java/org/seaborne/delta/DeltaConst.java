@@ -37,6 +37,13 @@ public class DeltaConst {
     public static final String EP_InitData     = "init-data";
     public static final String EP_Ping         = "$/ping";
     public static final String EP_RPC          = "$/rpc";
+    public static final String EP_Blob         = "$/blob";
+
+    // Path segments of patch log URLs:
+    //   /{name}/patch/{id}, /{name}/version/{version}, /{name}/info
+    public static final String EP_LogPatch     = "patch";
+    public static final String EP_LogVersion   = "version";
+    public static final String EP_LogInfo      = "info";
 
     // RPC calls - operation names.
     public static final String OP_PING           = "ping";
@@ -45,6 +52,7 @@ public class DeltaConst {
     public static final String OP_DESCR_DS       = "describe_datasource";
     public static final String OP_DESCR_LOG      = "describe_log";
     public static final String OP_LIST_LOG_INFO  = "list_log_info";
+    public static final String OP_AWAIT_LOG      = "await_log";
     public static final String OP_CREATE_DS      = "create_datasource";
     public static final String OP_REMOVE_DS      = "remove_datasource";
 
@@ -74,6 +82,7 @@ public class DeltaConst {
     public static final String F_DATA          = "data";
     public static final String F_URI           = "uri";
     public static final String F_LOG_TYPE      = "log_type";
+    public static final String F_TIMEOUT       = "timeout";
     // Some atomic JSON value.
     public static final String F_VALUE         = "value";
     // Some JSON array
@@ -88,11 +97,46 @@ public class DeltaConst {
     public static final String LOG_MEM         = "mem";
     public static final String LOG_SQL         = "sql";
     public static final String LOG_S3          = "s3";
+    public static final String LOG_SEGMENT     = "segment";
 
     // Properties used to define patch store providers.
     public static final String pDeltaFile      = "delta.file";
     public static final String pDeltaZk        = "delta.zk";
 
+    // Zookeeper patch store: "true" to append via a per-log leader lease rather than the log lock.
+    public static final String pDeltaZkLease   = "delta.zk.lease";
+
+    // Zookeeper patch store: "true" to pack the version index of new logs into bucket zNodes.
+    // Existing logs are converted offline ("dcmd zkbuckets").
+    public static final String pDeltaZkBuckets = "delta.zk.buckets";
+
+    // Zookeeper patch store with patch bodies in local files: directory for the files,
+    // and the URL of this server for other servers to fetch patch bodies from.
+    public static final String pDeltaBlobDir   = "delta.blob.dir";
+    public static final String pDeltaBlobURL   = "delta.blob.url";
+
+    // Segment patch store: segment file size, in bytes, and whether to migrate FileStore patch files.
+    public static final String pDeltaSegmentSize    = "delta.segment.size";
+    public static final String pDeltaSegmentMigrate = "delta.segment.migrate";
+
+    // Patch store property: format for storing patches, "text" (default), "binary" or
+    // "compact" (binary with compressed terms).
+    public static final String pDeltaPatchFormat = "delta.patch.format";
+
+    // Server property: largest patch, in bytes, accepted by append. Larger patches get a 413.
+    public static final String pDeltaPatchMaxSize = "delta.patch.maxsize";
+
+    // Server property: largest number of versions squashed into one patch. Larger ranges get a 413.
+    public static final String pDeltaSquashMaxVersions = "delta.squash.maxversions";
+
+    // Server property: size, in bytes, of the patch cache.
+    public static final String pDeltaPatchCache = "delta.patch.cache";
+
+    // Server property: directory for snapshots of the data sources, and the number of
+    // patches between snapshots. No directory, no snapshots.
+    public static final String pDeltaSnapshotDir      = "delta.snapshot.dir";
+    public static final String pDeltaSnapshotInterval = "delta.snapshot.interval";
+
     // HTTP query string.
     // Registration
     public static final String paramRef        = "ref";
@@ -102,6 +146,11 @@ public class DeltaConst {
     public static final String paramPatch      = "patch";
     public static final String paramDatasource = F_DATASOURCE;
     public static final String paramVersion    = "version";
+    // Version range, inclusive at both ends.
+    public static final String paramFrom       = "from";
+    public static final String paramTo         = "to";
+    // With "from" and "to": fetch the range as one patch of the net changes.
+    public static final String paramSquash     = "squash";
 
     // Symbols used to store information, e.g. in a dataset context.
 
@@ -123,6 +172,20 @@ public class DeltaConst {
                                                                             contentTypePatchTextAlt,
                                                                             contentTypePatchBinary);
 
+    // HTTP, in addition to HttpNames.
+    public static final String hETag                    = "ETag";
+    public static final String hIfNoneMatch             = "If-None-Match";
+    /** "Cache-Control" for a response that never changes, such as a patch fetched by id. */
+    public static final String cacheControlImmutable    = "public, max-age=31536000, immutable";
+    /** "Cache-Control" for a response that may be cached but must be checked with the server before use. */
+    public static final String cacheControlRevalidate   = "no-cache";
+    /** Response header: the version of the log a snapshot corresponds to. */
+    public static final String hSnapshotVersion         = "Delta-Snapshot-Version";
+    /** Response header: the id of the patch at the version a snapshot corresponds to. */
+    public static final String hSnapshotPatch           = "Delta-Snapshot-Patch";
+    /** Time, in seconds, that a cache may use a copy of the patch log info resource. */
+    public static final int    LOG_INFO_MAX_AGE         = 1;
+
     // Environment variable name for the runtime area for the Delta server.
     public static final String ENV_BASE        = "DELTA_BASE";
 
@@ -132,8 +195,50 @@ public class DeltaConst {
     // Environment variable name for the port number of the Delta server.
     public static final String ENV_PORT        = "DELTA_PORT";
 
-    /** The size of the server-wide LRU cache */
-    public static final int PATCH_CACHE_SIZE   = 1000;
+    /** The size, in bytes, of the server-wide LRU patch cache */
+    public static final long PATCH_CACHE_SIZE  = 64*1024*1024;
+
+    /** Client catch-up: the number of patches in each range request when prefetching */
+    public static final int FETCH_CHUNK_SIZE   = 100;
+
+    /** Client catch-up: the number of range requests fetched and parsed in parallel */
+    public static final int FETCH_WINDOW       = 4;
+
+    /** The number of patches appended to a log after which a new snapshot is made */
+    public static final long SNAPSHOT_INTERVAL = 1000;
+
+    /** Client: the number of pooled HTTP connections to a patch log server, per link */
+    public static final int HTTP_MAX_CONNECTIONS = 20;
+
+    /** Client: the time, in milliseconds, that an idle pooled HTTP connection is kept open */
+    public static final long HTTP_IDLE_TIMEOUT = 30*1000;
+
+    /** Blob patch store: the connect and read timeout, in milliseconds, for copying patch bodies between servers */
+    public static final int BLOB_PEER_TIMEOUT  = 5*1000;
+
+    /** Client: the time, in milliseconds, between syncs for {@code SyncPolicy.BACKGROUND} */
+    public static final long SYNC_INTERVAL     = 5*1000;
+
+    /** Client: the longest time, in milliseconds, a read transaction on stale data waits for the background sync */
+    public static final long STALE_SYNC_WAIT   = 5*1000;
+
+    /** The "Retry-After", in seconds, sent with a "503" for a patch log that is still being opened */
+    public static final int RETRY_AFTER        = 1;
+
+    /** The longest time, in milliseconds, that a server holds an "await version" request */
+    public static final long AWAIT_TIMEOUT_MAX = 60*1000;
+
+    /** The number of "await version" requests a server holds at once; more get a "503" */
+    public static final int AWAIT_MAX_WAITERS  = 100;
+
+    /** The size, in bytes, at which a segment file of the segment patch store is sealed */
+    public static final long SEGMENT_SIZE      = 64*1024*1024;
+
+    /** The largest patch, in bytes, that a server accepts, unless set by {@link #pDeltaPatchMaxSize} */
+    public static final long MAX_PATCH_SIZE    = 64*1024*1024;
+
+    /** The largest number of versions squashed into one patch, unless set by {@link #pDeltaSquashMaxVersions} */
+    public static final long SQUASH_MAX_VERSIONS = 1000;
 
     /** The version number when not set */
     public static long VERSION_UNSET    = -1;
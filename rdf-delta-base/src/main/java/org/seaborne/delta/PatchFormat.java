@@ -0,0 +1,261 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.atlas.web.MediaType;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.patch.PatchHeader;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+import org.seaborne.patch.binary.RDFPatchReaderBinary;
+import org.seaborne.patch.text.RDFPatchReaderText;
+
+/**
+ * The encodings of RDF Patch: text and binary (thrift).
+ * <p>
+ * Used for content negotiation on the wire, and for the choice of storage format in
+ * patch stores. {@link #TEXT} is the default everywhere.
+ * <p>
+ * {@link #COMPACT} is binary with the terms of data rows compressed. It has the binary
+ * content type: compressed patches are marked in the stream and are read by the binary
+ * reader. Readers from earlier releases can not read them, so it is only used when
+ * configured, for patch storage or for sending patches.
+ */
+public enum PatchFormat {
+    TEXT("text", DeltaConst.contentTypePatchText) {
+        @Override
+        public void write(OutputStream out, RDFPatch patch) { RDFPatchOps.write(out, patch); }
+
+        @Override
+        public RDFPatch read(InputStream input) { return RDFPatchOps.read(input); }
+
+        @Override
+        public PatchHeader readHeader(InputStream input) { return RDFPatchOps.readHeader(input); }
+
+        @Override
+        public void readPatches(InputStream input, Consumer<RDFPatch> action) { RDFPatchOps.readPatches(input, action); }
+
+        @Override
+        public void apply(InputStream input, RDFChanges changes) { new RDFPatchReaderText(input).apply(changes); }
+
+        @Override
+        public RDFChanges writer(OutputStream out) { return RDFPatchOps.textWriter(out); }
+    },
+
+    BINARY("binary", DeltaConst.contentTypePatchBinary) {
+        @Override
+        public void write(OutputStream out, RDFPatch patch) { RDFPatchOps.writeBinary(out, patch); }
+
+        @Override
+        public RDFPatch read(InputStream input) { return RDFPatchOps.readBinary(input); }
+
+        @Override
+        public PatchHeader readHeader(InputStream input) { return RDFPatchReaderBinary.readHeader(input); }
+
+        @Override
+        public void readPatches(InputStream input, Consumer<RDFPatch> action) { RDFPatchReaderBinary.readPatches(input, action); }
+
+        @Override
+        public void apply(InputStream input, RDFChanges changes) { RDFPatchReaderBinary.read(input, changes); }
+
+        @Override
+        public RDFChanges writer(OutputStream out) { return RDFPatchOps.binaryWriter(out); }
+    },
+
+    COMPACT("compact", DeltaConst.contentTypePatchBinary) {
+        @Override
+        public void write(OutputStream out, RDFPatch patch) {
+            RDFChanges c = writer(out);
+            c.start();
+            patch.apply(c);
+            c.finish();
+        }
+
+        @Override
+        public RDFPatch read(InputStream input) { return RDFPatchOps.readBinary(input); }
+
+        @Override
+        public PatchHeader readHeader(InputStream input) { return RDFPatchReaderBinary.readHeader(input); }
+
+        @Override
+        public void readPatches(InputStream input, Consumer<RDFPatch> action) { RDFPatchReaderBinary.readPatches(input, action); }
+
+        @Override
+        public void apply(InputStream input, RDFChanges changes) { RDFPatchReaderBinary.read(input, changes); }
+
+        @Override
+        public RDFChanges writer(OutputStream out) { return RDFPatchOps.binaryWriter(out, true); }
+    };
+
+    private final String name;
+    private final String contentType;
+
+    private PatchFormat(String name, String contentType) {
+        this.name = name;
+        this.contentType = contentType;
+    }
+
+    /** Short name, as used in configuration. */
+    public String getName()         { return name; }
+
+    /** The MIME type for this format. */
+    public String getContentType()  { return contentType; }
+
+    /** Write a patch in this format. */
+    public abstract void write(OutputStream out, RDFPatch patch);
+
+    /** Read a patch in this format. */
+    public abstract RDFPatch read(InputStream input);
+
+    /** Read the header of a patch in this format. */
+    public abstract PatchHeader readHeader(InputStream input);
+
+    /**
+     * Read a sequence of patches, written one after another, passing each to
+     * {@code action} in order.
+     */
+    public abstract void readPatches(InputStream input, Consumer<RDFPatch> action);
+
+    /** Stream a patch in this format to an {@link RDFChanges}. */
+    public abstract void apply(InputStream input, RDFChanges changes);
+
+    /**
+     * An {@link RDFChanges} that writes this format to an {@code OutputStream}.
+     * Call {@link RDFChanges#finish} to make sure all output has been written.
+     */
+    public abstract RDFChanges writer(OutputStream out);
+
+    /**
+     * Encode a patch as bytes in this format. A {@link SpooledPatch} already in this
+     * format is read from its file, not re-encoded.
+     */
+    public byte[] toBytes(RDFPatch patch) {
+        if ( patch instanceof SpooledPatch && ((SpooledPatch)patch).getFormat() == this )
+            return IOX.readAll(((SpooledPatch)patch).getPath());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(10*1024);
+        write(out, patch);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a patch, in any format, from bytes. The format is determined from the
+     * first byte: a text patch starts with a keyword letter, a comment or white space,
+     * which is never the first byte of a binary patch, compressed or not.
+     */
+    public static RDFPatch fromBytes(byte[] bytes) {
+        return detect(bytes).read(new ByteArrayInputStream(bytes));
+    }
+
+    /** Decode a patch header, in either format, from bytes. */
+    public static PatchHeader headerFromBytes(byte[] bytes) {
+        return detect(bytes).readHeader(new ByteArrayInputStream(bytes));
+    }
+
+    /** Determine the format of an encoded patch. */
+    public static PatchFormat detect(byte[] bytes) {
+        if ( bytes.length == 0 )
+            return TEXT;
+        switch(bytes[0]) {
+            case 'H': case 'T': case 'A': case 'D': case 'P':
+            case '#': case ' ': case '\t': case '\n': case '\r':
+                return TEXT;
+            default:
+                return BINARY;
+        }
+    }
+
+    /**
+     * Return the format for a content type; return null if the content type is not an
+     * RDF Patch type. A null content type is taken to be text. The binary content type
+     * is {@link #BINARY}, which also reads {@link #COMPACT} patches.
+     */
+    public static PatchFormat fromContentType(String contentTypeStr) {
+        if ( contentTypeStr == null )
+            return TEXT;
+        String ct = ContentType.create(contentTypeStr).getContentType();
+        if ( DeltaConst.contentTypePatchText.equalsIgnoreCase(ct) || DeltaConst.contentTypePatchTextAlt.equalsIgnoreCase(ct) )
+            return TEXT;
+        if ( DeltaConst.contentTypePatchBinary.equalsIgnoreCase(ct) )
+            return BINARY;
+        return null;
+    }
+
+    /**
+     * Choose the format for a response given the HTTP "Accept" header of the request.
+     * The patch type with the highest quality ("q") wins; on a tie, the first given.
+     * Text is used when there is no header, or when it does not name either format.
+     */
+    public static PatchFormat fromAccept(String acceptHeader) {
+        if ( acceptHeader == null || acceptHeader.isEmpty() )
+            return TEXT;
+        PatchFormat choice = null;
+        double choiceQ = 0;
+        for ( String item : acceptHeader.split(",") ) {
+            if ( item.trim().isEmpty() )
+                continue;
+            MediaType mt;
+            try {
+                mt = MediaType.create(item.trim());
+            } catch (RuntimeException ex) {
+                continue;
+            }
+            PatchFormat fmt = fromContentType(mt.getContentType());
+            if ( fmt == null )
+                continue;
+            double q = quality(mt);
+            if ( choice == null || q > choiceQ ) {
+                choice = fmt;
+                choiceQ = q;
+            }
+        }
+        return ( choice == null || choiceQ <= 0 ) ? TEXT : choice;
+    }
+
+    private static double quality(MediaType mt) {
+        String x = mt.getParameter("q");
+        if ( x == null )
+            return 1.0;
+        try {
+            return Double.parseDouble(x.trim());
+        } catch (NumberFormatException ex) {
+            return 1.0;
+        }
+    }
+
+    /**
+     * Return the format for a configuration name ("text", "binary" or "compact").
+     * A null name is the default, text.
+     */
+    public static PatchFormat fromName(String name) {
+        if ( name == null )
+            return TEXT;
+        for ( PatchFormat fmt : values() ) {
+            if ( fmt.name.equalsIgnoreCase(name.trim()) )
+                return fmt;
+        }
+        throw new DeltaConfigException("Unknown patch format: '"+name+"'");
+    }
+}
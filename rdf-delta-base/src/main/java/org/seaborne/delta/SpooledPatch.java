@@ -0,0 +1,216 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.web.HttpSC;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.patch.PatchHeader;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.changes.RDFChangesBase;
+
+/**
+ * A patch held in a temporary file, not in memory.
+ * <p>
+ * {@link #spool} copies an encoded patch to a file while parsing it, so the syntax is
+ * checked and the header is available without keeping the changes in memory. The patch
+ * is read again from the file each time it is applied.
+ * <p>
+ * Storage that keeps patches in the same format can use the file directly
+ * ({@link #getPath()}, {@link #getFormat()}) rather than re-encoding the patch.
+ * <p>
+ * {@link #close} deletes the file; the patch can not be used after that.
+ */
+public class SpooledPatch implements RDFPatch, AutoCloseable {
+    private static final int BUFSIZE = 64*1024;
+
+    private final Path path;
+    private final PatchFormat format;
+    private final PatchHeader header;
+    private final long length;
+
+    /**
+     * Copy a patch, encoded in {@code format}, from {@code input} to a temporary file.
+     * If the patch can not be parsed, the temporary file is removed and the exception
+     * passed on.
+     */
+    public static SpooledPatch spool(InputStream input, PatchFormat format) {
+        return spool(input, format, -1);
+    }
+
+    /**
+     * Copy a patch, as {@link #spool(InputStream, PatchFormat)}, failing with a
+     * {@link DeltaHttpException} (413) as soon as more than {@code maxLength} bytes
+     * have been read. A negative {@code maxLength} means no limit.
+     */
+    public static SpooledPatch spool(InputStream input, PatchFormat format, long maxLength) {
+        Path path;
+        try { path = Files.createTempFile("patch-", ".spool"); }
+        catch (IOException ex) { throw IOX.exception(ex); }
+        try {
+            HeaderCapture capture = new HeaderCapture();
+            long length;
+            try ( OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), BUFSIZE);
+                  TeeInputStream in = new TeeInputStream(new BufferedInputStream(input, BUFSIZE), out, maxLength) ) {
+                format.apply(in, capture);
+                // Anything the parser did not need.
+                byte[] buffer = new byte[BUFSIZE];
+                while ( in.read(buffer) != -1 ) {}
+                length = in.count;
+            }
+            return new SpooledPatch(path, format, new PatchHeader(capture.header), length);
+        } catch (IOException ex) {
+            delete(path);
+            throw IOX.exception(ex);
+        } catch (RuntimeException ex) {
+            delete(path);
+            throw ex;
+        }
+    }
+
+    private SpooledPatch(Path path, PatchFormat format, PatchHeader header, long length) {
+        this.path = path;
+        this.format = format;
+        this.header = header;
+        this.length = length;
+    }
+
+    /** The file holding the encoded patch. */
+    public Path getPath()           { return path; }
+
+    /** The encoding of the file. */
+    public PatchFormat getFormat()  { return format; }
+
+    /** The size of the file, in bytes. */
+    public long length()            { return length; }
+
+    @Override
+    public PatchHeader header() {
+        return header;
+    }
+
+    @Override
+    public void apply(RDFChanges changes) {
+        try ( InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFSIZE) ) {
+            format.apply(in, changes);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Not repeatable in the sense that the patch only exists until {@link #close}. */
+    @Override
+    public boolean repeatable() {
+        return false;
+    }
+
+    /** Remove the file. */
+    @Override
+    public void close() {
+        delete(path);
+    }
+
+    private static void delete(Path path) {
+        try { Files.deleteIfExists(path); }
+        catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    @Override
+    public String toString() {
+        return "SpooledPatch["+path+", "+format.getName()+", "+length+"]";
+    }
+
+    /** Record the header; the first setting of a field is used. */
+    private static class HeaderCapture extends RDFChangesBase {
+        final Map<String, Node> header = new HashMap<>();
+
+        @Override
+        public void header(String field, Node value) {
+            header.putIfAbsent(field, value);
+        }
+    }
+
+    /** Copy bytes to an {@code OutputStream} as they are read. */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream out;
+        private final long maxLength;
+        long count = 0;
+
+        TeeInputStream(InputStream in, OutputStream out, long maxLength) {
+            super(in);
+            this.out = out;
+            this.maxLength = maxLength;
+        }
+
+        private void checkLength() {
+            if ( maxLength >= 0 && count > maxLength )
+                throw new DeltaHttpException(HttpSC.REQUEST_ENTITY_TOO_LARGE_413, "Patch larger than "+maxLength+" bytes");
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if ( b != -1 ) {
+                out.write(b);
+                count++;
+                checkLength();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if ( n > 0 ) {
+                out.write(b, off, n);
+                count += n;
+                checkLength();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Read through so that the bytes are copied.
+            byte[] buffer = new byte[(int)Math.min(n, BUFSIZE)];
+            long skipped = 0;
+            while ( skipped < n ) {
+                int x = read(buffer, 0, (int)Math.min(buffer.length, n-skipped));
+                if ( x < 0 )
+                    break;
+                skipped += x;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -18,12 +18,20 @@
 package org.seaborne.delta.link;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.web.HttpSC;
 import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.DeltaHttpException;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
 import org.seaborne.delta.PatchLogInfo;
 import org.seaborne.delta.Version;
+import org.seaborne.patch.RDFChanges;
 import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.changes.RDFChangesSquash;
 
 /**
  * Interface to the server for the operations.
@@ -132,12 +140,103 @@ public interface DeltaLink {
     /** Get the current version: if this is an HTTP connection, this causes network traffic. */
     public default Version getCurrentVersion(Id dsRef) { return getPatchLogInfo(dsRef).getMaxVersion(); }
 
+    /**
+     * Wait until the patch log has a version later than {@code version}, or until
+     * {@code timeoutMillis} has passed, then return the details of the patch log (null if
+     * not registered). The caller compares the returned max version with {@code version}
+     * to see whether there has been a change.
+     * <p>
+     * This is the operation to use to follow a patch log without polling. This default
+     * implementation does not wait.
+     */
+    public default PatchLogInfo awaitVersion(Id dsRef, Version version, long timeoutMillis) {
+        return getPatchLogInfo(dsRef);
+    }
+
     /** Retrieve a patch by data source and version. */
     public RDFPatch fetch(Id dsRef, Version version);
 
     /** Retrieve a patch by data source and patch id. */
     public RDFPatch fetch(Id dsRef, Id patchId);
 
+    /**
+     * Retrieve the patches for versions {@code start} to {@code finish}, inclusive,
+     * passing each patch to {@code action} in version order. Versions that do not
+     * have a patch are skipped.
+     * <p>
+     * This is the operation to use to catch up over many versions. Implementations
+     * may fetch the whole range in one request; this default implementation fetches
+     * one patch at a time.
+     */
+    public default void fetch(Id dsRef, Version start, Version finish, Consumer<RDFPatch> action) {
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return;
+        for ( long ver = start.value() ; ver <= finish.value() ; ver++ ) {
+            RDFPatch patch = fetch(dsRef, Version.create(ver));
+            if ( patch != null )
+                action.accept(patch);
+        }
+    }
+
+    /**
+     * Send the changes of the patches for versions {@code start} to {@code finish},
+     * inclusive, to {@code changes}, in version order. Versions that do not have a
+     * patch are skipped.
+     * <p>
+     * Implementations may pass the changes on as they are read, without building each
+     * patch in memory; this default implementation applies each patch from
+     * {@link #fetch(Id, Version, Version, Consumer)}.
+     */
+    public default void applyPatches(Id dsRef, Version start, Version finish, RDFChanges changes) {
+        fetch(dsRef, start, finish, patch->patch.apply(changes));
+    }
+
+    /**
+     * Retrieve the net changes of the patches for versions {@code start} to
+     * {@code finish}, inclusive, as a single patch: only the last change to each quad
+     * and prefix is kept (see {@link RDFChangesSquash}). Applying it has the same effect
+     * as applying the patches in order. The patch has the id of the last patch and the
+     * previous of the first. Return null if there are no patches in the range.
+     * <p>
+     * This is the operation to use to catch up over a long stretch of history where
+     * the cost should depend on the net change, not the number of patches.
+     * Implementations may squash the patches remotely; this default implementation
+     * squashes the patches from {@link #applyPatches(Id, Version, Version, RDFChanges)}.
+     * <p>
+     * The net changes are held in memory, so the range is limited: a range of more than
+     * {@link DeltaConst#SQUASH_MAX_VERSIONS} versions (or the limit set for the server)
+     * is rejected with a {@link DeltaHttpException} "413"; fetch the patches instead.
+     */
+    public default RDFPatch fetchSquashed(Id dsRef, Version start, Version finish) {
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return null;
+        checkSquashRange(start, finish, DeltaConst.SQUASH_MAX_VERSIONS);
+        RDFChangesSquash squash = new RDFChangesSquash();
+        applyPatches(dsRef, start, finish, squash);
+        RDFPatch patch = squash.getRDFPatch();
+        return ( patch.getId() == null ) ? null : patch;
+    }
+
+    /**
+     * Check the range of a {@link #fetchSquashed} is at most {@code maxVersions} versions
+     * (no limit if negative), else throw a {@link DeltaHttpException} "413".
+     */
+    public static void checkSquashRange(Version start, Version finish, long maxVersions) {
+        if ( maxVersions >= 0 && finish.value()-start.value()+1 > maxVersions )
+            throw new DeltaHttpException(HttpSC.REQUEST_ENTITY_TOO_LARGE_413,
+                                         "Squash range ["+start+","+finish+"] is more than "+maxVersions+" versions");
+    }
+
+    /**
+     * Read the latest snapshot of a data source, sending the data to {@code dest}.
+     * A snapshot is the state after applying the patches of the log up to and including
+     * some version; the log entry for that version is returned. Return null, having
+     * sent nothing to {@code dest}, if there is no snapshot.
+     */
+    public default PatchInfo readSnapshot(Id dsRef, StreamRDF dest) {
+        return null;
+    }
+
     /**
      * Retrieve a URL to the initial state.
      * The log starts with this state.
@@ -18,12 +18,16 @@
 package org.seaborne.delta.link;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import org.apache.jena.riot.system.StreamRDF;
 import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
 import org.seaborne.delta.PatchLogInfo ;
 import org.seaborne.delta.Version;
+import org.seaborne.patch.RDFChanges;
 import org.seaborne.patch.RDFPatch ;
 
 /** Wrapper for {@link DeltaLink} which can be subclassed to provide
@@ -72,6 +76,11 @@ public class DeltaLinkWrapper implements DeltaLink {
         return execRtn(()->get().getPatchLogInfo(dsRef));
     }
 
+    @Override
+    public PatchLogInfo awaitVersion(Id dsRef, Version version, long timeoutMillis) {
+        return execRtn(()->get().awaitVersion(dsRef, version, timeoutMillis));
+    }
+
     @Override
     public List<DataSourceDescription> listDescriptions() {
         return execRtn(()->get().listDescriptions());
@@ -107,6 +116,26 @@ public class DeltaLinkWrapper implements DeltaLink {
         return execRtn(()->get().fetch(dsRef, patchId));
     }
 
+    @Override
+    public void fetch(Id dsRef, Version start, Version finish, Consumer<RDFPatch> action) {
+        exec(()->get().fetch(dsRef, start, finish, action));
+    }
+
+    @Override
+    public void applyPatches(Id dsRef, Version start, Version finish, RDFChanges changes) {
+        exec(()->get().applyPatches(dsRef, start, finish, changes));
+    }
+
+    @Override
+    public RDFPatch fetchSquashed(Id dsRef, Version start, Version finish) {
+        return execRtn(()->get().fetchSquashed(dsRef, start, finish));
+    }
+
+    @Override
+    public PatchInfo readSnapshot(Id dsRef, StreamRDF dest) {
+        return execRtn(()->get().readSnapshot(dsRef, dest));
+    }
+
     @Override
     public String initialState(Id dsRef) {
         return execRtn(()->get().initialState(dsRef));
@@ -18,6 +18,7 @@
 package org.seaborne.delta.link;
 
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.Id;
@@ -53,6 +54,10 @@ public class DeltaLog {
         return dLink.fetch(dsRef, version); 
     }
     
+    public void fetch(Version start, Version finish, Consumer<RDFPatch> action) {
+        dLink.fetch(dsRef, start, finish, action); 
+    }
+    
     public Version append(RDFPatch patch) {
         return dLink.append(dsRef, patch);
     }
@@ -26,6 +26,8 @@ import org.junit.runners.Suite ;
     , TestVersion.class
     , TestDatasetGraphWithAbort.class
     , TestPersistentState.class
+    , TestPatchFormat.class
+    , TestSpooledPatch.class
 })
 
 public class TS_DeltaBase { }
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.seaborne.delta;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.Test;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+public class TestPatchFormat {
+    private static Node id   = SSE.parseNode("<urn:uuid:0e7a8f4f-8e8b-4f1c-9b7e-2a1b1c0b7a01>");
+    private static Node prev = SSE.parseNode("<urn:uuid:0e7a8f4f-8e8b-4f1c-9b7e-2a1b1c0b7a00>");
+
+    private static RDFPatch patch() {
+        return RDFPatchOps.build(c->{
+            c.header("id", id);
+            c.header("prev", prev);
+            c.txnBegin();
+            c.addPrefix(null, "ex", "http://example/");
+            c.add(null, SSE.parseNode(":s"), SSE.parseNode(":p"), SSE.parseNode("'abc'@en"));
+            c.delete(SSE.parseNode(":g"), SSE.parseNode("_:b"), SSE.parseNode(":p"), SSE.parseNode("123"));
+            c.txnCommit();
+        });
+    }
+
+    @Test public void format_bytes_text() {
+        RDFPatch patch = patch();
+        byte[] bytes = PatchFormat.TEXT.toBytes(patch);
+        assertEquals(PatchFormat.TEXT, PatchFormat.detect(bytes));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(PatchFormat.fromBytes(bytes)));
+        assertEquals(id, PatchFormat.headerFromBytes(bytes).getId());
+    }
+
+    @Test public void format_bytes_binary() {
+        RDFPatch patch = patch();
+        byte[] bytes = PatchFormat.BINARY.toBytes(patch);
+        assertEquals(PatchFormat.BINARY, PatchFormat.detect(bytes));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(PatchFormat.fromBytes(bytes)));
+        assertEquals(id, PatchFormat.headerFromBytes(bytes).getId());
+        assertEquals(prev, PatchFormat.headerFromBytes(bytes).getPrevious());
+    }
+
+    @Test public void format_bytes_compact() {
+        RDFPatch patch = patch();
+        byte[] bytes = PatchFormat.COMPACT.toBytes(patch);
+        assertEquals(PatchFormat.BINARY, PatchFormat.detect(bytes));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(PatchFormat.fromBytes(bytes)));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(PatchFormat.BINARY.read(new ByteArrayInputStream(bytes))));
+        assertEquals(id, PatchFormat.headerFromBytes(bytes).getId());
+        assertEquals(prev, PatchFormat.headerFromBytes(bytes).getPrevious());
+    }
+
+    @Test public void format_content_type() {
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromContentType(null));
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromContentType(DeltaConst.contentTypePatchText));
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromContentType(DeltaConst.contentTypePatchTextAlt+"; charset=utf-8"));
+        assertEquals(PatchFormat.BINARY, PatchFormat.fromContentType(DeltaConst.contentTypePatchBinary));
+        assertNull(PatchFormat.fromContentType("text/plain"));
+    }
+
+    @Test public void format_accept() {
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromAccept(null));
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromAccept("*/*"));
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromAccept("text/plain"));
+        assertEquals(PatchFormat.BINARY, PatchFormat.fromAccept(DeltaConst.contentTypePatchBinary));
+        assertEquals(PatchFormat.BINARY, PatchFormat.fromAccept(DeltaConst.contentTypePatchBinary+", "+DeltaConst.contentTypePatchText+";q=0.5"));
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromAccept(DeltaConst.contentTypePatchText+", "+DeltaConst.contentTypePatchBinary+";q=0.5"));
+    }
+
+    @Test public void format_name() {
+        assertEquals(PatchFormat.TEXT, PatchFormat.fromName(null));
+        assertEquals(PatchFormat.BINARY, PatchFormat.fromName("Binary"));
+        assertEquals(PatchFormat.COMPACT, PatchFormat.fromName("compact"));
+    }
+
+    @Test(expected=DeltaConfigException.class)
+    public void format_name_bad() {
+        PatchFormat.fromName("json");
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.web.HttpSC;
+import org.junit.Test;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+public class TestSpooledPatch {
+    private static Node id   = SSE.parseNode("<urn:uuid:0e7a8f4f-8e8b-4f1c-9b7e-2a1b1c0b7a11>");
+    private static Node prev = SSE.parseNode("<urn:uuid:0e7a8f4f-8e8b-4f1c-9b7e-2a1b1c0b7a10>");
+
+    private static RDFPatch patch() {
+        return RDFPatchOps.build(c->{
+            c.header("id", id);
+            c.header("prev", prev);
+            c.txnBegin();
+            for ( int i = 0 ; i < 1000 ; i++ )
+                c.add(null, SSE.parseNode(":s"+i), SSE.parseNode(":p"), SSE.parseNode("'value "+i+"'"));
+            c.txnCommit();
+        });
+    }
+
+    @Test public void spool_text()      { spool(PatchFormat.TEXT); }
+
+    @Test public void spool_binary()    { spool(PatchFormat.BINARY); }
+
+    @Test public void spool_limit() {
+        byte[] bytes = PatchFormat.TEXT.toBytes(patch());
+        try ( SpooledPatch spooled = SpooledPatch.spool(new ByteArrayInputStream(bytes), PatchFormat.TEXT, bytes.length) ) {
+            assertEquals(bytes.length, spooled.length());
+        }
+        try {
+            SpooledPatch.spool(new ByteArrayInputStream(bytes), PatchFormat.TEXT, bytes.length-1);
+            fail("Expected 413");
+        } catch (DeltaHttpException ex) {
+            assertEquals(HttpSC.REQUEST_ENTITY_TOO_LARGE_413, ex.getStatusCode());
+        }
+    }
+
+    private static void spool(PatchFormat format) {
+        RDFPatch patch = patch();
+        byte[] bytes = format.toBytes(patch);
+        Path path;
+        try ( SpooledPatch spooled = SpooledPatch.spool(new ByteArrayInputStream(bytes), format) ) {
+            path = spooled.getPath();
+            assertTrue(Files.exists(path));
+            assertEquals(bytes.length, spooled.length());
+            assertEquals(id, spooled.getId());
+            assertEquals(prev, spooled.getPrevious());
+            assertFalse(spooled.repeatable());
+            // Applied from the file.
+            assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(spooled));
+            // Same format: the file bytes.
+            assertArrayEquals(bytes, format.toBytes(spooled));
+        }
+        assertFalse(Files.exists(path));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.openjdk.jmh.annotations.*;
+import org.seaborne.patch.changes.RDFChangesApply;
+import org.seaborne.patch.changes.RDFChangesExternalTxn;
+
+/**
+ * Apply a patch to a dataset, in one transaction, as a replica does when it catches up.
+ * Each invocation applies to a fresh, empty dataset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchApply {
+
+    @Param({"mem", "tdb2"})
+    public String dataset;
+
+    private DatasetGraph dsg;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        switch(dataset) {
+            case "mem":  dsg = DatasetGraphFactory.createTxnMem(); break;
+            case "tdb2": dsg = DatabaseMgr.createDatasetGraph(); break;
+            default: throw new IllegalArgumentException("Unknown dataset: "+dataset);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void teardown() {
+        dsg.close();
+    }
+
+    @Benchmark
+    public DatasetGraph apply(PatchState state) {
+        // The patch transaction markers are replaced by the one, outer, transaction.
+        Txn.executeWrite(dsg, ()->state.patch.apply(new RDFChangesExternalTxn(new RDFChangesApply(dsg))));
+        return dsg;
+    }
+}
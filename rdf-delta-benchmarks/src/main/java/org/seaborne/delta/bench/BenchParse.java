@@ -0,0 +1,56 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.bench;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.seaborne.patch.binary.RDFPatchReaderBinary;
+import org.seaborne.patch.changes.RDFChangesCounter;
+import org.seaborne.patch.text.RDFPatchReaderText;
+
+/** Parse throughput: text format vs binary format. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchParse {
+
+    @Benchmark
+    public RDFChangesCounter parseText(PatchState state) {
+        RDFChangesCounter counter = new RDFChangesCounter();
+        new RDFPatchReaderText(new ByteArrayInputStream(state.text)).apply(counter);
+        return counter;
+    }
+
+    @Benchmark
+    public RDFChangesCounter parseBinary(PatchState state) {
+        RDFChangesCounter counter = new RDFChangesCounter();
+        RDFPatchReaderBinary.read(new ByteArrayInputStream(state.binary), counter);
+        return counter;
+    }
+
+    @Benchmark
+    public RDFChangesCounter parseBinaryCompact(PatchState state) {
+        RDFChangesCounter counter = new RDFChangesCounter();
+        RDFPatchReaderBinary.read(new ByteArrayInputStream(state.binaryCompact), counter);
+        return counter;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.openjdk.jmh.annotations.*;
+import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.bench.PatchGenerator.TermShape;
+import org.seaborne.delta.server.local.*;
+import org.seaborne.delta.server.local.filestore.FileStore;
+import org.seaborne.delta.server.local.patchstores.PatchLogBase;
+import org.seaborne.delta.server.local.patchstores.file.PatchStoreProviderFile;
+import org.seaborne.delta.server.local.patchstores.mem.PatchLogIndexMem;
+import org.seaborne.delta.server.local.patchstores.mem.PatchStorageMem;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+/**
+ * Append to, and fetch from, a patch log in the in-memory and file patch stores.
+ * The fetch benchmark is run with and without the server patch cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchPatchLog {
+    private static final String DIR = "target/bench-patchlog";
+    // Number of patches in the log for the fetch benchmark.
+    private static final int LOG_SIZE = 1000;
+
+    @Param({"mem", "file"})
+    public String store;
+
+    @Param({"100"})
+    public int quads;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private PatchStore patchStore;
+    private PatchLog patchLog;
+    private RDFPatch body;
+    private Random random;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        PatchCache.configure(cache ? 64*1024*1024 : 0);
+        DataSourceDescription dsd = new DataSourceDescription(Id.create(), "bench", "http://example/bench");
+        switch(store) {
+            case "mem":
+                patchStore = null;
+                patchLog = new PatchLogBase(dsd, new PatchLogIndexMem(), new PatchStorageMem(), null);
+                break;
+            case "file": {
+                FileStore.resetTracked();
+                FileOps.ensureDir(DIR);
+                FileOps.clearAll(DIR);
+                LocalServerConfig config = LocalServers.configFile(DIR);
+                patchStore = new PatchStoreProviderFile().create(config);
+                patchStore.initialize(new DataRegistry("bench"), config);
+                patchLog = patchStore.createLog(dsd);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown store: "+store);
+        }
+        body = PatchGenerator.generate(quads, TermShape.MIXED, 42);
+        random = new Random(42);
+        for ( int i = 0 ; i < LOG_SIZE ; i++ )
+            appendOne();
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardown() {
+        patchLog.release();
+        if ( patchStore != null )
+            patchStore.shutdown();
+    }
+
+    private Version appendOne() {
+        Id latest = patchLog.getLatestId();
+        RDFPatch patch = RDFPatchOps.withHeader(body, Id.create().asNode(), latest == null ? null : latest.asNode());
+        return patchLog.append(patch);
+    }
+
+    @Benchmark
+    public Version append() {
+        return appendOne();
+    }
+
+    @Benchmark
+    public RDFPatch fetch() {
+        long v = 1 + random.nextInt(LOG_SIZE);
+        return patchLog.fetch(Version.create(v));
+    }
+}
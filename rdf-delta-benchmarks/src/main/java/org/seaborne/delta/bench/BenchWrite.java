@@ -0,0 +1,58 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.changes.RDFChangesWriter;
+import org.seaborne.patch.text.TokenWriter;
+import org.seaborne.patch.text.TokenWriterText;
+
+/** Serialization throughput: text format vs binary format. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchWrite {
+
+    @Benchmark
+    public byte[] writeText(PatchState state) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(state.text.length);
+        TokenWriter tokenWriter = new TokenWriterText(out);
+        RDFChanges writer = new RDFChangesWriter(tokenWriter);
+        writer.start();
+        state.patch.apply(writer);
+        writer.finish();
+        tokenWriter.flush();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeBinary(PatchState state) {
+        return PatchState.binary(state.patch, false);
+    }
+
+    @Benchmark
+    public byte[] writeBinaryCompact(PatchState state) {
+        return PatchState.binary(state.patch, true);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.seaborne.delta.Id;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchConst;
+import org.seaborne.patch.changes.RDFChangesCollector;
+
+/**
+ * Generate patches that look like the changes made by applications: a few namespaces,
+ * a small vocabulary of properties, subjects that recur, and one delete for every
+ * ten additions. The generator is deterministic for a given seed.
+ */
+public class PatchGenerator {
+
+    /** The kind of RDF terms in the object position. */
+    public enum TermShape {
+        /** IRI objects. */
+        IRI,
+        /** Typed and language-tagged literal objects. */
+        LITERAL,
+        /** Blank node subjects and objects. */
+        BNODE,
+        /** A mix of all the above, with some quads in named graphs. */
+        MIXED
+    }
+
+    private static final String[] NAMESPACES = {
+        "http://example.org/data/person/",
+        "http://example.org/data/organization/",
+        "http://example.org/data/place/",
+        "http://example.org/data/document/"
+    };
+
+    private static final String[] PROPERTIES = {
+        "http://xmlns.com/foaf/0.1/name",
+        "http://xmlns.com/foaf/0.1/knows",
+        "http://xmlns.com/foaf/0.1/mbox",
+        "http://xmlns.com/foaf/0.1/homepage",
+        "http://purl.org/dc/terms/title",
+        "http://purl.org/dc/terms/created",
+        "http://purl.org/dc/terms/creator",
+        "http://purl.org/dc/terms/subject",
+        "http://www.w3.org/1999/02/22-rdf-syntax-ns#type",
+        "http://www.w3.org/2000/01/rdf-schema#label",
+        "http://www.w3.org/2000/01/rdf-schema#comment",
+        "http://schema.org/location",
+        "http://schema.org/memberOf",
+        "http://schema.org/population",
+        "http://schema.org/dateModified",
+        "http://www.w3.org/2002/07/owl#sameAs"
+    };
+
+    private static final String[] LANGS = { "en", "fr", "de", "es" };
+
+    private static final String[] WORDS = {
+        "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+        "india", "juliet", "kilo", "lima", "mike", "november", "oscar", "papa"
+    };
+
+    /** Generate a patch of {@code quads} changes, with an id and the given previous id (may be null). */
+    public static RDFPatch generate(int quads, TermShape shape, long seed, Id previous) {
+        RDFChangesCollector c = new RDFChangesCollector();
+        c.header(RDFPatchConst.ID, Id.create().asNode());
+        if ( previous != null )
+            c.header(RDFPatchConst.PREV, previous.asNode());
+        c.txnBegin();
+        c.addPrefix(null, "foaf", "http://xmlns.com/foaf/0.1/");
+        c.addPrefix(null, "dct", "http://purl.org/dc/terms/");
+        generateQuads(quads, shape, seed).forEach(q->{
+            if ( q.isDelete )
+                c.delete(q.quad.getGraph(), q.quad.getSubject(), q.quad.getPredicate(), q.quad.getObject());
+            else
+                c.add(q.quad.getGraph(), q.quad.getSubject(), q.quad.getPredicate(), q.quad.getObject());
+        });
+        c.txnCommit();
+        return c.getRDFPatch();
+    }
+
+    /** Generate a patch with no previous id. */
+    public static RDFPatch generate(int quads, TermShape shape, long seed) {
+        return generate(quads, shape, seed, null);
+    }
+
+    static class Change {
+        final Quad quad;
+        final boolean isDelete;
+        Change(Quad quad, boolean isDelete) {
+            this.quad = quad;
+            this.isDelete = isDelete;
+        }
+    }
+
+    private static List<Change> generateQuads(int quads, TermShape shape, long seed) {
+        Random random = new Random(seed);
+        List<Change> changes = new ArrayList<>(quads);
+        List<Quad> added = new ArrayList<>(quads);
+        // Subjects recur: about one subject for every five quads.
+        int subjects = Math.max(1, quads/5);
+        for ( int i = 0 ; i < quads ; i++ ) {
+            if ( i % 10 == 9 && ! added.isEmpty() ) {
+                Quad quad = added.get(random.nextInt(added.size()));
+                changes.add(new Change(quad, true));
+                continue;
+            }
+            TermShape s = ( shape == TermShape.MIXED ) ? TermShape.values()[random.nextInt(3)] : shape;
+            Node g = graph(shape, random);
+            Node subj = subject(s, random.nextInt(subjects));
+            Node pred = NodeFactory.createURI(PROPERTIES[random.nextInt(PROPERTIES.length)]);
+            Node obj = object(s, random, subjects);
+            Quad quad = Quad.create(g, subj, pred, obj);
+            added.add(quad);
+            changes.add(new Change(quad, false));
+        }
+        return changes;
+    }
+
+    private static Node graph(TermShape shape, Random random) {
+        if ( shape == TermShape.MIXED && random.nextInt(4) == 0 )
+            return NodeFactory.createURI("http://example.org/graph/"+random.nextInt(8));
+        return null;
+    }
+
+    private static Node subject(TermShape shape, int idx) {
+        if ( shape == TermShape.BNODE )
+            return NodeFactory.createBlankNode("b"+idx);
+        return NodeFactory.createURI(NAMESPACES[idx % NAMESPACES.length]+idx);
+    }
+
+    private static Node object(TermShape shape, Random random, int subjects) {
+        switch (shape) {
+            case IRI:
+                return subject(shape, random.nextInt(subjects));
+            case BNODE:
+                return NodeFactory.createBlankNode("b"+random.nextInt(subjects));
+            case LITERAL:
+            default:
+                switch(random.nextInt(4)) {
+                    case 0:
+                        return NodeFactory.createLiteral(Integer.toString(random.nextInt(100000)), XSDDatatype.XSDinteger);
+                    case 1:
+                        return NodeFactory.createLiteral("2019-0"+(1+random.nextInt(9))+"-1"+random.nextInt(10)+"T12:00:00Z", XSDDatatype.XSDdateTime);
+                    case 2:
+                        return NodeFactory.createLiteral(words(random), LANGS[random.nextInt(LANGS.length)]);
+                    default:
+                        return NodeFactory.createLiteral(words(random));
+                }
+        }
+    }
+
+    private static String words(Random random) {
+        int n = 1+random.nextInt(6);
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < n ; i++ ) {
+            if ( i > 0 )
+                sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
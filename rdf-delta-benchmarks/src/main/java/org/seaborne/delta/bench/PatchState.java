@@ -0,0 +1,65 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.bench;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.jena.riot.thrift.TRDF;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.seaborne.delta.bench.PatchGenerator.TermShape;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+import org.seaborne.patch.binary.RDFChangesWriterBinary;
+
+/** A generated patch, and its encodings, shared by the benchmarks. */
+@State(Scope.Benchmark)
+public class PatchState {
+    @Param({"100", "10000"})
+    public int quads;
+
+    @Param({"IRI", "LITERAL", "MIXED"})
+    public TermShape shape;
+
+    public RDFPatch patch;
+    public byte[] text;
+    public byte[] binary;
+    public byte[] binaryCompact;
+
+    @Setup
+    public void setup() {
+        patch = PatchGenerator.generate(quads, shape, 42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFPatchOps.write(out, patch);
+        text = out.toByteArray();
+        binary = binary(patch, false);
+        binaryCompact = binary(patch, true);
+    }
+
+    /*package*/ static byte[] binary(RDFPatch patch, boolean compress) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFChanges writer = new RDFChangesWriterBinary(TRDF.protocol(out), compress);
+        writer.start();
+        patch.apply(writer);
+        writer.finish();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.client;
+
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+
+/**
+ * Listener for the patches of a {@link DeltaConnection} in asynchronous commit mode
+ * (see {@link DeltaConnection#setAsyncCommit}). Calls are made on the thread that sends
+ * the patches.
+ */
+public interface AsyncCommitListener {
+    /** A patch has been appended to the patch log at {@code version}. */
+    public default void sent(Id dsRef, Id patchId, Version version) {}
+
+    /**
+     * A patch was rejected by the patch log, for example because another writer has
+     * appended a patch since. No more patches are sent.
+     */
+    public default void failed(Id dsRef, Id patchId, DeltaException ex) {}
+}
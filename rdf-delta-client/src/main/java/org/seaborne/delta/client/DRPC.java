@@ -23,6 +23,7 @@ import java.io.IOException ;
 import java.util.Objects ;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.http.client.HttpClient;
 import org.apache.jena.atlas.io.IO ;
 import org.apache.jena.atlas.json.JSON ;
 import org.apache.jena.atlas.json.JsonException ;
@@ -46,6 +47,14 @@ public class DRPC {
     
     /** Send a JSON argument to a URL+name by POST and received a JSON object in return. */
     public static JsonValue rpc(String url, String opName, JsonValue arg) {
+        return rpc((HttpClient)null, url, opName, arg);
+    }
+
+    /**
+     * Send a JSON argument to a URL+name by POST, using the given HTTP client, and received a JSON object in return.
+     * If the HTTP client is null, the default client is used.
+     */
+    public static JsonValue rpc(HttpClient httpClient, String url, String opName, JsonValue arg) {
         JsonObject a = JSONX.buildObject((b)->{
 //            if ( token != null )
 //                b.key(F_TOKEN).value(token.asString());
@@ -53,11 +62,19 @@ public class DRPC {
             b.pair(F_OP_ID, Long.toString(counter.incrementAndGet()));
             b.pair(F_ARG, arg);
             }) ;
-        return rpc(url, a) ;
+        return rpc(httpClient, url, a) ;
     }
     
     /** Send a JSON object to a URL by POST and received a JSON object in return. */
     public static JsonValue rpc(String url, JsonObject object) {
+        return rpc((HttpClient)null, url, object);
+    }
+
+    /**
+     * Send a JSON object to a URL by POST, using the given HTTP client, and received a JSON object in return.
+     * If the HTTP client is null, the default client is used.
+     */
+    public static JsonValue rpc(HttpClient httpClient, String url, JsonObject object) {
         Objects.requireNonNull(url, "DRPC.rpc: Arg1 URL is null") ;
         Objects.requireNonNull(object, "DRPC.rpc: Arg2 JSON object is null") ;
 
@@ -66,7 +83,7 @@ public class DRPC {
         
         String argStr = JSON.toString(object) ;
         try (TypedInputStream x = 
-                 HttpOp.execHttpPostStream(url, WebContent.contentTypeJSON, argStr, WebContent.contentTypeJSON)
+                 HttpOp.execHttpPostStream(url, WebContent.contentTypeJSON, argStr, WebContent.contentTypeJSON, httpClient, null)
             ) {
             if ( x == null )
                 throw new JsonException("No response") ;
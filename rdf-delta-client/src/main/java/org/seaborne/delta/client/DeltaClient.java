@@ -106,14 +106,22 @@ public class DeltaClient {
     private Map<Id, DeltaConnection> connections = new ConcurrentHashMap<>();
 
     private void removeCache(Id id) {
-        connections.remove(id);
+        finish(connections.remove(id));
     }
 
     private void putCache(Id id, DeltaConnection dConn) {
+        DeltaConnection old;
         if ( dConn == null )
-            connections.remove(id);
+            old = connections.remove(id);
         else
-            connections.put(id, dConn);
+            old = connections.put(id, dConn);
+        if ( old != dConn )
+            finish(old);
+    }
+
+    private static void finish(DeltaConnection dConn) {
+        if ( dConn != null )
+            dConn.finish();
     }
 
     private DeltaConnection getCache(Id id) {
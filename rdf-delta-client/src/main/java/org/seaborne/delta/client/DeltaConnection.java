@@ -19,7 +19,16 @@ package org.seaborne.delta.client;
 
 import static java.lang.String.format;
 
+import java.nio.file.Path;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference ;
 import java.util.function.Consumer ;
 
@@ -31,6 +40,7 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.riot.system.StreamRDFLib;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.system.Txn;
 import org.apache.jena.web.HttpSC;
@@ -43,6 +53,7 @@ import org.seaborne.patch.RDFPatchConst;
 import org.seaborne.patch.changes.RDFChangesApply ;
 import org.seaborne.patch.changes.RDFChangesCollector;
 import org.seaborne.patch.changes.RDFChangesExternalTxn;
+import org.seaborne.patch.changes.RDFChangesWrapper;
 import org.seaborne.patch.system.DatasetGraphChanges;
 import org.seaborne.patch.system.RDFChangesSuppressEmpty;
 import org.slf4j.Logger;
@@ -76,6 +87,32 @@ public class DeltaConnection implements AutoCloseable {
 
     private boolean valid = false;
     private final SyncPolicy syncPolicy;
+    // Serialize syncs from transaction begin and from the NOTIFY watcher.
+    private final Object syncLock = new Object();
+    // SyncPolicy.NOTIFY : background thread that waits for new versions.
+    private volatile Thread watcher = null;
+    // Time for each long-poll request.
+    private static final long NOTIFY_WAIT = DeltaConst.AWAIT_TIMEOUT_MAX/2;
+    // Pause after an error before waiting again.
+    private static final long NOTIFY_PAUSE = 5*1000;
+    // SyncPolicy.BACKGROUND : scheduled syncs, and early syncs asked for by stale reads.
+    private volatile ScheduledExecutorService scheduler = null;
+    private final Object schedulerLock = new Object();
+    private volatile long syncInterval = DeltaConst.SYNC_INTERVAL;
+    // Read transactions do not see data older than this; 0 is "no bound".
+    private volatile long maxStaleness = 0;
+    // An early sync asked for by a read transaction; guarded by schedulerLock.
+    private Future<?> earlySync = null;
+    // How long, in milliseconds, a read transaction on stale data waits for the background sync.
+    private volatile long staleSyncWait = DeltaConst.STALE_SYNC_WAIT;
+    // Time of the last sync that brought this connection up to the version of the patch log; 0 for none.
+    private volatile long lastSyncTime = 0;
+    // Catch up with one squashed patch when at least this many versions behind. 0 is "never".
+    private volatile long squashCatchUp = 0;
+    // Asynchronous commit: patches go to the outbox and are sent in the background.
+    private volatile boolean asyncCommit = false;
+    // Created when first needed; null if there has been no asynchronous commit.
+    private volatile PatchOutbox outbox = null;
 
     /**
      * Connect to an existing {@code DataSource} with the {@link DatasetGraph} as local state.
@@ -141,6 +178,8 @@ public class DeltaConnection implements AutoCloseable {
             case NONE :     return (rw)->{} ;
             case TXN_RW :   return syncerTxnBeginRW();
             case TXN_W :    return syncerTxnBeginW();
+            case NOTIFY :   return syncerTxnBeginW();
+            case BACKGROUND:return syncerTxnBeginBackground();
             default :       throw new IllegalStateException();
         }
     }
@@ -178,6 +217,32 @@ public class DeltaConnection implements AutoCloseable {
         };
     }
 
+    /** Sync on W transaction begin; a R transaction never syncs itself.
+     * <p>
+     *  READ -> ask the background thread for an early sync when half way to the staleness
+     *  bound, and, when past it, wait for that sync for a limited time, or fail;
+     *  WRITE -> call {@code .sync()}.
+     */
+    private Consumer<ReadWrite> syncerTxnBeginBackground() {
+        return (rw)->{
+            switch(rw) {
+                case READ:
+                    long bound = maxStaleness;
+                    if ( bound <= 0 )
+                        break;
+                    long staleness = getStaleness();
+                    if ( staleness > bound )
+                        awaitStaleSync();
+                    else if ( staleness > bound/2 )
+                        requestSync();
+                    break;
+                case WRITE:
+                    this.sync();
+                    break;
+            }
+        };
+    }
+
     private void checkDeltaConnection() {
         if ( ! valid )
             throw new DeltaConfigException(format("[%s] DeltaConnection not valid", datasourceId));
@@ -209,7 +274,11 @@ public class DeltaConnection implements AutoCloseable {
                 throw new DeltaException(format("[%s] No id in txnCommit - either txnBegin not called or txnCommit called twice", datasourceId));
             }
             if ( super.header(RDFPatchConst.PREV) == null ) {
-                Id x = state.latestPatchId();
+                // Patches waiting to be sent come after the local state.
+                PatchOutbox queue = outbox;
+                Id x = ( queue == null ) ? null : queue.latestPatchId();
+                if ( x == null )
+                    x = state.latestPatchId();
                 if ( x != null )
                     super.header(RDFPatchConst.PREV, x.asNode());
             }
@@ -220,7 +289,11 @@ public class DeltaConnection implements AutoCloseable {
             //setLocalState(newVersion, patch.getId());
 
             try {
-                append(patch);
+                if ( asyncCommit )
+                    // On disk before the local commit happens.
+                    outbox().add(patch);
+                else
+                    append(patch);
             } catch(DeltaBadRequestException ex) {
                 FmtLog.warn(LOG, "Failed to commit: %s", ex.getMessage());
                 throw ex;
@@ -240,22 +313,306 @@ public class DeltaConnection implements AutoCloseable {
 
     /*package*/ void start() {
         checkDeltaConnection();
+        // Patches committed locally in an earlier run, not yet sent.
+        if ( base != null && PatchOutbox.hasPending(outboxPath()) )
+            outbox();
         trySyncIfAuto();
+        if ( syncPolicy == SyncPolicy.NOTIFY && base != null )
+            startWatcher();
+        if ( syncPolicy == SyncPolicy.BACKGROUND && base != null )
+            startScheduler();
+    }
+
+    /*package*/ void finish() {
+        stopWatcher();
+        stopScheduler();
+        PatchOutbox queue = outbox;
+        if ( queue != null )
+            queue.stop();
+    }
+
+    /** The outbox, created and started if necessary. */
+    private PatchOutbox outbox() {
+        PatchOutbox queue = outbox;
+        if ( queue != null )
+            return queue;
+        synchronized(this) {
+            if ( outbox == null ) {
+                PatchOutbox x = new PatchOutbox(datasourceId, outboxPath(), this::appendQueued);
+                x.start();
+                outbox = x;
+            }
+            return outbox;
+        }
+    }
+
+    private Path outboxPath() {
+        Path statePath = state.getStatePath();
+        return ( statePath == null ) ? null : statePath.resolveSibling(FN.OUTBOX);
+    }
+
+    /** Send a patch from the outbox. */
+    private Version appendQueued(RDFPatch patch) {
+        // Not while a sync is playing patches into the dataset.
+        synchronized(syncLock) {
+            return append$(patch);
+        }
+    }
+
+    /** Are there patches committed locally that have not been accepted by the patch log? */
+    private boolean hasPendingCommits() {
+        PatchOutbox queue = outbox;
+        return queue != null && ! queue.isEmpty();
+    }
+
+    private void startWatcher() {
+        Thread thread = new Thread(this::watch, "DeltaConnection-notify-"+datasourceId.toString());
+        thread.setDaemon(true);
+        watcher = thread;
+        thread.start();
+    }
+
+    private void stopWatcher() {
+        Thread thread = watcher;
+        watcher = null;
+        if ( thread != null )
+            thread.interrupt();
+    }
+
+    /** Wait for new versions of the patch log and sync when one appears. */
+    private void watch() {
+        Thread thisThread = Thread.currentThread();
+        while ( watcher == thisThread ) {
+            // Our own patches are being sent; sync after that.
+            if ( hasPendingCommits() ) {
+                pause(NOTIFY_PAUSE);
+                continue;
+            }
+            try {
+                PatchLogInfo info = dLink.awaitVersion(datasourceId, getLocalVersion(), NOTIFY_WAIT);
+                if ( watcher != thisThread )
+                    break;
+                if ( info == null ) {
+                    // Data source not found.
+                    pause(NOTIFY_PAUSE);
+                    continue;
+                }
+                remote.set(info);
+                if ( info.getMaxVersion().value() > getLocalVersion().value() )
+                    sync(info);
+                else
+                    lastSyncTime = System.currentTimeMillis();
+            } catch (RuntimeException ex) {
+                FmtLog.warn(LOG, "[%s] Notify: %s", datasourceId, ex.getMessage());
+                pause(NOTIFY_PAUSE);
+            }
+        }
+    }
+
+    private void startScheduler() {
+        synchronized(schedulerLock) {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r->{
+                Thread thread = new Thread(r, "DeltaConnection-sync-"+datasourceId.toString());
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = syncInterval;
+            executor.scheduleWithFixedDelay(this::backgroundSync, interval, interval, TimeUnit.MILLISECONDS);
+            scheduler = executor;
+        }
+    }
+
+    private void stopScheduler() {
+        synchronized(schedulerLock) {
+            ScheduledExecutorService executor = scheduler;
+            scheduler = null;
+            // A sync in progress completes.
+            if ( executor != null )
+                executor.shutdown();
+        }
+    }
+
+    /**
+     * Ask the background thread to sync now; does not wait. Return the future for that
+     * sync, shared by all the callers until it has run, or null if there is no
+     * background thread.
+     */
+    private Future<?> requestSync() {
+        synchronized(schedulerLock) {
+            ScheduledExecutorService executor = scheduler;
+            if ( executor == null )
+                return null;
+            Future<?> f = earlySync;
+            if ( f != null && ! f.isDone() )
+                return f;
+            try { f = executor.submit(this::backgroundSync); }
+            catch (RejectedExecutionException ex) { return null; }
+            earlySync = f;
+            return f;
+        }
+    }
+
+    /**
+     * For a read transaction that has found the data past the staleness bound: ask the
+     * background thread to sync and wait, at most {@link #getStaleSyncWait}, for it.
+     * The read transaction does not sync on its own thread.
+     * Throw a {@link DeltaException} if the data is still stale afterwards.
+     */
+    private void awaitStaleSync() {
+        // Local commits not yet sent: the local data is ahead of the patch log for
+        // those and the connection does not sync until they are sent.
+        if ( hasPendingCommits() )
+            return;
+        Future<?> f = requestSync();
+        long wait = staleSyncWait;
+        if ( f == null || wait <= 0 )
+            throw new DeltaException(format("[%s] Data is stale (%d ms)", datasourceId, getStaleness()));
+        try { f.get(wait, TimeUnit.MILLISECONDS); }
+        catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+        catch (ExecutionException | TimeoutException ex) { /* Still stale: see below. */ }
+        if ( isStale() && ! hasPendingCommits() )
+            throw new DeltaException(format("[%s] Data is stale (%d ms) and has not been brought up to date", datasourceId, getStaleness()));
+    }
+
+    /** Sync from the background thread. Errors are logged, and the next sync tries again. */
+    private void backgroundSync() {
+        // Our own patches are being sent; sync after that.
+        if ( hasPendingCommits() )
+            return;
+        try {
+            sync();
+        } catch (RuntimeException ex) {
+            FmtLog.warn(LOG, "[%s] Background sync: %s", datasourceId, ex.getMessage());
+        }
     }
 
-    /*package*/ void finish() { /*reset();*/ }
+    private static void pause(long millis) {
+        try { Thread.sleep(millis); }
+        catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+    }
 
     /** Send a patch to log server. */
-    public synchronized void append(RDFPatch patch) {
+    public void append(RDFPatch patch) {
+        append$(patch);
+    }
+
+    private synchronized Version append$(RDFPatch patch) {
         checkDeltaConnection();
         Version ver = dLink.append(datasourceId, patch);
         if ( ! Version.isValid(ver) )
             // Didn't happen.
-            return ;
+            return ver;
         Version ver0 = state.version();
         if ( ver0.value() >= ver.value() )
             FmtLog.warn(LOG, "[%s] Version did not advance: %d -> %d", datasourceId.toString(), ver0 , ver);
         state.updateState(ver, Id.fromNode(patch.getId()));
+        return ver;
+    }
+
+    /**
+     * Set asynchronous (write-behind) commit mode. In this mode, the patch for a
+     * transaction is written to a local outbox in the zone, and the transaction commits
+     * locally without waiting for the patch log server. The patches are sent in the
+     * background, in commit order.
+     * <p>
+     * This suits a single writer: while there are patches waiting to be sent, the
+     * connection does not sync from the patch log. If another writer has appended to
+     * the patch log, the next patch sent is rejected; the {@link AsyncCommitListener}
+     * is told, the futures of the waiting patches complete exceptionally, the patches
+     * stay in the outbox, and later commits fail until {@link #discardPendingCommits}
+     * is called.
+     * <p>
+     * Turning the mode off waits for the waiting patches to be sent.
+     * If the zone is not persistent, the outbox is in memory only.
+     */
+    public void setAsyncCommit(boolean async) {
+        checkDeltaConnection();
+        if ( async )
+            outbox();
+        else if ( this.asyncCommit )
+            awaitCommits(Long.MAX_VALUE);
+        this.asyncCommit = async;
+    }
+
+    public boolean isAsyncCommit() {
+        return asyncCommit;
+    }
+
+    /**
+     * A future for the last patch committed in asynchronous mode; it completes with
+     * the version when the patch log has accepted the patch (and so all earlier ones).
+     * Return a completed future for the local version if there are no patches waiting.
+     */
+    public CompletableFuture<Version> lastCommit() {
+        PatchOutbox queue = outbox;
+        CompletableFuture<Version> f = ( queue == null ) ? null : queue.latest();
+        return ( f != null ) ? f : CompletableFuture.completedFuture(getLocalVersion());
+    }
+
+    /** Number of patches committed locally and not yet accepted by the patch log. */
+    public int pendingCommits() {
+        PatchOutbox queue = outbox;
+        return ( queue == null ) ? 0 : queue.size();
+    }
+
+    /**
+     * Wait until all the patches committed in asynchronous mode have been accepted by
+     * the patch log, or the timeout. Throws the error if a patch has been rejected.
+     * Return true if there are no patches waiting to be sent.
+     */
+    public boolean awaitCommits(long timeoutMillis) {
+        PatchOutbox queue = outbox;
+        if ( queue == null )
+            return true;
+        boolean b;
+        try {
+            b = queue.await(timeoutMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return queue.isEmpty();
+        }
+        if ( queue.getFailure() != null )
+            throw queue.getFailure();
+        return b;
+    }
+
+    /**
+     * Recover from a rejected asynchronous commit. The patches waiting to be sent are
+     * dropped and, because the local data includes their changes, the local data is
+     * replaced by the data of the patch log (the latest snapshot, if any, and the patches
+     * after it). Commits can be made again afterwards.
+     * Return the number of patches dropped.
+     */
+    public int discardPendingCommits() {
+        checkDeltaConnection();
+        PatchOutbox queue = outbox;
+        if ( queue == null )
+            return 0;
+        int n = queue.discard();
+        if ( n > 0 )
+            resync();
+        return n;
+    }
+
+    /** Empty the local data and sync from the start of the patch log. */
+    private void resync() {
+        synchronized(syncLock) {
+            if ( base != null )
+                Txn.executeWrite(base, ()->base.clear());
+            setLocalState(Version.INIT, (Id)null);
+        }
+        FmtLog.info(LOG, "[%s] Resync from the patch log", datasourceId);
+        sync();
+    }
+
+    public void addAsyncCommitListener(AsyncCommitListener listener) {
+        outbox().addListener(listener);
+    }
+
+    public void removeAsyncCommitListener(AsyncCommitListener listener) {
+        PatchOutbox queue = outbox;
+        if ( queue != null )
+            queue.removeListener(listener);
     }
 
     public RDFPatch fetch(Version version) {
@@ -275,6 +632,8 @@ public class DeltaConnection implements AutoCloseable {
     public void sync(PatchLogInfo logInfo) {
         checkDeltaConnection();
         syncToVersion(logInfo.getMaxVersion());
+        if ( getLocalVersion().value() >= logInfo.getMaxVersion().value() )
+            lastSyncTime = System.currentTimeMillis();
     }
 
     /** Sync if the policy is not NONE, the manual mode.
@@ -296,6 +655,9 @@ public class DeltaConnection implements AutoCloseable {
     }
 
     public void sync() {
+        // Local changes not yet in the patch log; the next append finds any conflict.
+        if ( hasPendingCommits() )
+            return;
         try {
             checkDeltaConnection();
             PatchLogInfo logInfo = getPatchLogInfo();
@@ -336,56 +698,139 @@ public class DeltaConnection implements AutoCloseable {
         if ( localVer.value() >= version.value() )
             return;
         // bring up-to-date.
-
-        FmtLog.info(LOG, "Sync: Versions [%s, %s]", localVer, version);
-        playPatches(localVer.value()+1, version.value()) ;
+        synchronized(syncLock) {
+            // Check again - another thread may have synced.
+            localVer = getLocalVersion();
+            if ( localVer.value() >= version.value() )
+                return;
+            if ( hasPendingCommits() )
+                return;
+            // A new replica: start from the latest snapshot, if any, and play the patches after it.
+            if ( localVer.value() <= DeltaConst.VERSION_INIT && version.value() > DeltaConst.VERSION_FIRST ) {
+                loadSnapshot();
+                localVer = getLocalVersion();
+                if ( localVer.value() >= version.value() )
+                    return;
+            }
+            FmtLog.info(LOG, "Sync: Versions [%s, %s]", localVer, version);
+            playPatches(localVer.value()+1, version.value()) ;
+        }
         //FmtLog.info(LOG, "Now: Versions [%d, %d]", getLocalVersion(), remoteVer);
     }
 
+    /**
+     * Load the latest snapshot of the data source into an empty local dataset and set
+     * the local state to the version of the snapshot. If there is no snapshot, or it can
+     * not be read, the dataset is unchanged.
+     */
+    private void loadSnapshot() {
+        if ( base == null )
+            return;
+        try {
+            PatchInfo info = Txn.calculateWrite(base, ()->{
+                if ( ! base.isEmpty() )
+                    return null;
+                return dLink.readSnapshot(datasourceId, StreamRDFLib.dataset(base));
+            });
+            if ( info == null )
+                return;
+            FmtLog.info(LOG, "[%s] Snapshot: version %s", datasourceId, info.getVersion());
+            setLocalState(info.getVersion(), info.getPatch());
+        } catch (RuntimeException ex) {
+            FmtLog.warn(LOG, "[%s] Failed to load snapshot: %s", datasourceId, ex.getMessage());
+        }
+    }
+
     /** Play the patches (range is inclusive at both ends) */
     private void playPatches(long firstPatchVer, long lastPatchVer) {
-        Pair<Version, Node> p = play(datasourceId, base, target, dLink, firstPatchVer, lastPatchVer);
+        long squashAt = squashCatchUp;
+        Pair<Version, Node> p = null;
+        if ( squashAt > 0 && lastPatchVer-firstPatchVer+1 >= squashAt ) {
+            try {
+                p = playSquashed(datasourceId, base, target, dLink, firstPatchVer, lastPatchVer);
+            } catch (DeltaHttpException ex) {
+                if ( ex.getStatusCode() != HttpSC.REQUEST_ENTITY_TOO_LARGE_413 )
+                    throw ex;
+                // Too many versions for the server to squash: play each patch.
+                FmtLog.info(LOG, "[%s] Squash refused: %s", datasourceId, ex.getMessage());
+            }
+        }
+        if ( p == null )
+            p = play(datasourceId, base, target, dLink, firstPatchVer, lastPatchVer);
         Version patchLastVersion = p.car();
         Node patchLastIdNode = p.cdr();
+        if ( ! Version.isValid(patchLastVersion) )
+            // Nothing played.
+            return;
         setLocalState(patchLastVersion, patchLastIdNode);
     }
 
     /** Play patches, return details of the the last successfully applied one */
     private static Pair<Version, Node> play(Id datasourceId, DatasetGraph base, RDFChanges target, DeltaLink dLink, long minVersion, long maxVersion) {
-        // [Delta] replace with a one-shot "get all patches" operation.
         //FmtLog.debug(LOG, "Patch range [%d, %d]", minVersion, maxVersion);
 
         // Switch off transactions inside of each patch and execute as a single, overall transaction.
         RDFChanges c = new RDFChangesExternalTxn(target);
         if ( false )
             c = DeltaOps.print(c);
+        final RDFChanges changes = c;
+        Version start = Version.create(minVersion);
+        Version finish = Version.create(maxVersion);
         try {
             return Txn.calculateWrite(base, ()->{
-                Node patchLastIdNode = null;
-                Version patchLastVersion = Version.UNSET;
-
-                for ( long ver = minVersion ; ver <= maxVersion ; ver++ ) {
-                    //FmtLog.debug(LOG, "Play: patch=%s", ver);
-                    RDFPatch patch;
-                    Version verObj = Version.create(ver);
-                    try {
-                        patch = dLink.fetch(datasourceId, verObj);
-                        if ( patch == null ) {
-                            base.commit();
-                            FmtLog.info(LOG, "Play: %s patch=%s : not found", datasourceId, verObj);
-                            continue;
-                        }
-                    } catch (DeltaNotFoundException ex) {
-                        // Which ever way it is signalled.  This way means "bad datasourceId"
-                        FmtLog.info(LOG, "Play: %s patch=%s : not found (no datasource)", datasourceId, verObj);
-                        continue;
+                AtomicReference<Node> patchLastIdNode = new AtomicReference<>(null);
+                // Record the id of each patch as it goes by.
+                RDFChanges dest = new RDFChangesWrapper(changes) {
+                    @Override
+                    public void header(String field, Node value) {
+                        if ( RDFPatchConst.ID.equals(field) )
+                            patchLastIdNode.set(value);
+                        super.header(field, value);
                     }
-                    patch.apply(c);
-                    patchLastIdNode = patch.getId();
-                    patchLastVersion = verObj;
+                };
+                try {
+                    // Short ranges are streamed into the dataset as they are read.
+                    // Large ranges are fetched and parsed in parallel chunks ahead of
+                    // applying; patches are applied here, in order, as they arrive.
+                    PatchPrefetch.apply(dLink, datasourceId, start, finish, dest);
+                } catch (DeltaNotFoundException ex) {
+                    // Which ever way it is signalled.  This way means "bad datasourceId"
+                    FmtLog.info(LOG, "Play: %s patches=[%s,%s] : not found (no datasource)", datasourceId, start, finish);
+                }
+                if ( patchLastIdNode.get() == null ) {
+                    FmtLog.info(LOG, "Play: %s patches=[%s,%s] : not found", datasourceId, start, finish);
+                    return Pair.create(Version.UNSET, (Node)null);
+                }
+                // Versions may have gaps; the range has been played up to and including "finish".
+                return Pair.create(finish, patchLastIdNode.get());
+            });
+        } catch (Throwable th) {
+            FmtLog.warn(LOG, "Play: Problem for %s", datasourceId, th);
+            throw th;
+        }
+    }
+
+    /**
+     * Play the net changes of the patches as one patch, squashed by the server.
+     * Return details of the last version and its patch id.
+     */
+    private static Pair<Version, Node> playSquashed(Id datasourceId, DatasetGraph base, RDFChanges target, DeltaLink dLink, long minVersion, long maxVersion) {
+        Version start = Version.create(minVersion);
+        Version finish = Version.create(maxVersion);
+        try {
+            return Txn.calculateWrite(base, ()->{
+                RDFPatch patch = dLink.fetchSquashed(datasourceId, start, finish);
+                if ( patch == null ) {
+                    FmtLog.info(LOG, "Play: %s squashed=[%s,%s] : not found", datasourceId, start, finish);
+                    return Pair.create(Version.UNSET, (Node)null);
                 }
-                return Pair.create(patchLastVersion, patchLastIdNode);
+                patch.apply(new RDFChangesExternalTxn(target));
+                return Pair.create(finish, patch.getId());
             });
+        } catch (DeltaHttpException ex) {
+            if ( ex.getStatusCode() != HttpSC.REQUEST_ENTITY_TOO_LARGE_413 )
+                FmtLog.warn(LOG, "Play: Problem for %s", datasourceId, ex);
+            throw ex;
         } catch (Throwable th) {
             FmtLog.warn(LOG, "Play: Problem for %s", datasourceId, th);
             throw th;
@@ -397,6 +842,95 @@ public class DeltaConnection implements AutoCloseable {
         // Return to pool if pooled.
     }
 
+    /**
+     * Catch up by applying the net changes of the missing patches, as one patch squashed
+     * by the patch log server, when this connection is at least {@code minVersions}
+     * versions behind. Less is sent and applied when later patches undo or repeat the
+     * changes of earlier ones. Zero (the default) means always apply each patch.
+     */
+    public void setSquashCatchUp(long minVersions) {
+        this.squashCatchUp = Math.max(0, minVersions);
+    }
+
+    /** The number of versions behind at which to catch up with a squashed patch; 0 for never. */
+    public long getSquashCatchUp() {
+        return squashCatchUp;
+    }
+
+    /**
+     * Set the time, in milliseconds, between syncs from the background thread of
+     * {@link SyncPolicy#BACKGROUND}. The default is {@link DeltaConst#SYNC_INTERVAL}.
+     */
+    public void setSyncInterval(long millis) {
+        if ( millis <= 0 )
+            throw new DeltaConfigException(format("[%s] Sync interval must be positive: %d", datasourceId, millis));
+        synchronized(schedulerLock) {
+            this.syncInterval = millis;
+            if ( scheduler != null ) {
+                stopScheduler();
+                startScheduler();
+            }
+        }
+    }
+
+    /** The time, in milliseconds, between syncs from the background thread. */
+    public long getSyncInterval() {
+        return syncInterval;
+    }
+
+    /**
+     * Bound the staleness, in milliseconds, of the data seen by read transactions with
+     * {@link SyncPolicy#BACKGROUND}. A read transaction that starts when the last
+     * successful sync is older than half the bound asks the background thread to sync
+     * straight away, and does not wait. A read transaction that starts when the last
+     * successful sync is older than the bound asks for the same sync and waits for it,
+     * for at most {@link #getStaleSyncWait}; if the data is still stale, the read
+     * transaction fails with a {@link DeltaException}. Read transactions never sync on
+     * their own thread. While there are asynchronous commits still to send, the bound
+     * does not apply. Zero (the default) means no bound: syncs happen only every
+     * {@link #getSyncInterval} and reads never wait.
+     */
+    public void setMaxStaleness(long millis) {
+        this.maxStaleness = Math.max(0, millis);
+    }
+
+    /** The staleness bound, in milliseconds, for read transactions; 0 for none. */
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    /**
+     * Set how long, in milliseconds, a read transaction on data past the staleness bound
+     * waits for the background sync. Zero means do not wait: fail at once.
+     */
+    public void setStaleSyncWait(long millis) {
+        this.staleSyncWait = Math.max(0, millis);
+    }
+
+    /** How long, in milliseconds, a read transaction on stale data waits for the background sync. */
+    public long getStaleSyncWait() {
+        return staleSyncWait;
+    }
+
+    /**
+     * The time, in milliseconds, since this connection was last found to be at the
+     * version of the patch log. Return {@code Long.MAX_VALUE} if that has not happened.
+     */
+    public long getStaleness() {
+        long x = lastSyncTime;
+        return ( x == 0 ) ? Long.MAX_VALUE : System.currentTimeMillis() - x;
+    }
+
+    /** Is the data older than the {@link #setMaxStaleness staleness bound}? */
+    public boolean isStale() {
+        long bound = maxStaleness;
+        return bound > 0 && getStaleness() > bound;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
     public boolean isValid() {
         return valid;
     }
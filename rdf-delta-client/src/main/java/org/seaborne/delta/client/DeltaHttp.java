@@ -0,0 +1,71 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.seaborne.delta.DeltaConst;
+
+/**
+ * HTTP clients for talking to a patch log server.
+ * <p>
+ * Each client has a pool of keep-alive connections so that appends and fetches reuse
+ * connections rather than paying for TCP (and TLS) setup on every request. Idle
+ * connections are closed after {@link DeltaConst#HTTP_IDLE_TIMEOUT} milliseconds.
+ */
+public class DeltaHttp {
+
+    private static CloseableHttpClient shared = null;
+
+    /**
+     * A client shared by everything that does not have its own, such as an
+     * {@link RDFChangesHTTP} created outside a {@link DeltaLinkHTTP}.
+     * Do not close it.
+     */
+    public static synchronized CloseableHttpClient sharedClient() {
+        if ( shared == null )
+            shared = pooledClient(DeltaConst.HTTP_MAX_CONNECTIONS);
+        return shared;
+    }
+
+    /**
+     * Create a client with a pool of keep-alive connections, with at most
+     * {@code maxConnections} connections to any one server. The caller is responsible
+     * for closing the client.
+     */
+    public static CloseableHttpClient pooledClient(int maxConnections) {
+        if ( maxConnections <= 0 )
+            throw new IllegalArgumentException("Max connections must be positive: "+maxConnections);
+        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
+        connManager.setDefaultMaxPerRoute(maxConnections);
+        connManager.setMaxTotal(Math.max(maxConnections, 2*DeltaConst.HTTP_MAX_CONNECTIONS));
+        // Check connections that have been idle before reuse; the server may have closed them.
+        connManager.setValidateAfterInactivity(1000);
+        return HttpClients.custom()
+            .useSystemProperties()
+            .setConnectionManager(connManager)
+            .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+            .evictExpiredConnections()
+            .evictIdleConnections(DeltaConst.HTTP_IDLE_TIMEOUT, TimeUnit.MILLISECONDS)
+            .build();
+    }
+}
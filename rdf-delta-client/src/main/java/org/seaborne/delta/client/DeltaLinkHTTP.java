@@ -19,38 +19,56 @@ package org.seaborne.delta.client;
 
 import static java.lang.String.format;
 
-import java.io.InputStream ;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier ;
 import java.util.stream.Collectors;
 
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.jena.atlas.io.IO ;
 import org.apache.jena.atlas.json.JSON;
 import org.apache.jena.atlas.json.JsonArray;
 import org.apache.jena.atlas.json.JsonObject ;
 import org.apache.jena.atlas.json.JsonValue ;
 import org.apache.jena.atlas.logging.FmtLog ;
 import org.apache.jena.atlas.web.HttpException ;
+import org.apache.jena.atlas.web.TypedInputStream ;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.web.HttpOp ;
 import org.apache.jena.web.HttpSC ;
 import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.Delta;
 import org.seaborne.delta.DeltaConst;
 import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.DeltaHttpException;
 import org.seaborne.delta.DeltaOps;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.PatchInfo;
 import org.seaborne.delta.PatchLogInfo;
 import org.seaborne.delta.Version;
+import org.seaborne.delta.lib.IOX;
 import org.seaborne.delta.lib.JSONX;
 import org.seaborne.delta.link.DeltaLink;
 import org.seaborne.delta.link.DeltaLinkListener;
 import org.seaborne.delta.link.DeltaNotConnectedException ;
+import org.seaborne.patch.RDFChanges;
 import org.seaborne.patch.RDFPatch ;
 import org.seaborne.patch.changes.RDFChangesCollector ;
-import org.seaborne.patch.text.RDFPatchReaderText ;
 
 /**
  * Implementation of {@link DeltaLink} that encodes operations
@@ -64,6 +82,17 @@ public class DeltaLinkHTTP implements DeltaLink {
     private final String remoteReceive;
     private final String remoteData;
 
+    // Format for sending patches, and preferred format for receiving them.
+    private final PatchFormat patchFormat;
+
+    // Pooled, keep-alive, HTTP connections to the server. Created on first use.
+    private final int maxConnections;
+    private CloseableHttpClient httpClient = null;
+    // Reusable buffers for sending patches, at most one per connection.
+    private final Queue<RDFChangesHTTP.Buffer> buffers = new ConcurrentLinkedQueue<>();
+    // Buffers that have grown larger than this are not kept.
+    private static final int MAX_POOLED_BUFFER = 4*1024*1024;
+
     private Id clientId = null;
     private boolean linkOpen = false;
 
@@ -72,17 +101,41 @@ public class DeltaLinkHTTP implements DeltaLink {
     private final static JsonObject emptyObject = new JsonObject();
 
     public static DeltaLink connect(String serverURL) {
+        return connect(serverURL, PatchFormat.TEXT);
+    }
+
+    /**
+     * Connect to a server, using {@code patchFormat} to send patches and asking for
+     * patches in that format when fetching. The server may reply in another format.
+     * {@link PatchFormat#COMPACT} sends compressed binary patches, which servers from
+     * earlier releases can not read, and asks for binary patches.
+     */
+    public static DeltaLink connect(String serverURL, PatchFormat patchFormat) {
+        return connect(serverURL, patchFormat, DeltaConst.HTTP_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Connect to a server, using {@code patchFormat} to send patches and with at most
+     * {@code maxConnections} HTTP connections open to the server at once.
+     * Connections are kept open and reused until the link is closed.
+     */
+    public static DeltaLink connect(String serverURL, PatchFormat patchFormat, int maxConnections) {
         Objects.requireNonNull(serverURL, "DelatLinkHTTP: Null URL for the server");
+        Objects.requireNonNull(patchFormat, "DelatLinkHTTP: Null patch format");
         if ( ! serverURL.startsWith("http://") && ! serverURL.startsWith("https://") )
             throw new IllegalArgumentException("Bad server URL: '"+serverURL+"'");
-        DeltaLink link = new DeltaLinkHTTP(serverURL);
+        if ( maxConnections <= 0 )
+            throw new IllegalArgumentException("Max connections must be positive: "+maxConnections);
+        DeltaLink link = new DeltaLinkHTTP(serverURL, patchFormat, maxConnections);
         link.start();
         return link;
     }
 
-    private DeltaLinkHTTP(String serverURL) {
+    private DeltaLinkHTTP(String serverURL, PatchFormat patchFormat, int maxConnections) {
         if ( ! serverURL.endsWith("/" ))
             serverURL= serverURL+"/";
+        this.patchFormat = patchFormat;
+        this.maxConnections = maxConnections;
 
         this.remoteServer = serverURL;
         // One URL
@@ -102,6 +155,19 @@ public class DeltaLinkHTTP implements DeltaLink {
     @Override
     public void close() {
         linkOpen = false;
+        synchronized(this) {
+            if ( httpClient != null )
+                IO.close(httpClient);
+            httpClient = null;
+        }
+        buffers.clear();
+    }
+
+    /** The HTTP client for this link, with its own connection pool. */
+    private synchronized CloseableHttpClient httpClient() {
+        if ( httpClient == null )
+            httpClient = DeltaHttp.pooledClient(maxConnections);
+        return httpClient;
     }
 
     @Override
@@ -139,10 +205,22 @@ public class DeltaLinkHTTP implements DeltaLink {
         }
     }
 
-    private RDFChangesHTTP createRDFChanges(Id dsRef) {
+    private RDFChangesHTTP createRDFChanges(Id dsRef, RDFChangesHTTP.Buffer buffer) {
         Objects.requireNonNull(dsRef);
         checkLink();
-        return new RDFChangesHTTP(dsRef.toSchemeString("ds:"), calcChangesURL(dsRef));
+        return new RDFChangesHTTP(dsRef.toSchemeString("ds:"), calcChangesURL(dsRef), patchFormat, httpClient(), buffer);
+    }
+
+    private RDFChangesHTTP.Buffer takeBuffer() {
+        RDFChangesHTTP.Buffer buffer = buffers.poll();
+        return ( buffer != null ) ? buffer : new RDFChangesHTTP.Buffer(RDFChangesHTTP.Buffer.INITIAL_SIZE);
+    }
+
+    private void returnBuffer(RDFChangesHTTP.Buffer buffer) {
+        if ( buffer.capacity() > MAX_POOLED_BUFFER || buffers.size() >= maxConnections )
+            return;
+        buffer.reset();
+        buffers.offer(buffer);
     }
 
     /** Calculate the patch log URL */
@@ -156,11 +234,16 @@ public class DeltaLinkHTTP implements DeltaLink {
 
         long t1 = System.currentTimeMillis();
         String str = retry(()->{
-                            RDFChangesHTTP remote = createRDFChanges(dsRef);
-                            // [NET] Network point
-                            // If not re-applyable, we need a copy.
-                            patch.apply(remote);
-                            return remote.getResponse();
+                            RDFChangesHTTP.Buffer buffer = takeBuffer();
+                            try {
+                                RDFChangesHTTP remote = createRDFChanges(dsRef, buffer);
+                                // [NET] Network point
+                                // If not re-applyable, we need a copy.
+                                patch.apply(remote);
+                                return remote.getResponse();
+                            } finally {
+                                returnBuffer(buffer);
+                            }
                         },
                         ()->patch.repeatable(),
                         ()->"Retry append patch.", ()->"Failed to append patch : "+dsRef);
@@ -187,36 +270,128 @@ public class DeltaLinkHTTP implements DeltaLink {
     public RDFPatch fetch(Id dsRef, Version version) {
         if ( !Version.isValid(version) )
             return null;
-        RDFPatch patch = fetchCommon(dsRef, DeltaConst.paramVersion, version.asParam());
+        RDFPatch patch = fetchCommon(dsRef, DeltaConst.EP_LogVersion, version.asParam());
         event(listener->listener.fetchByVersion(dsRef, version, patch));
         return patch;
     }
 
     @Override
     public RDFPatch fetch(Id dsRef, Id patchId) {
-        RDFPatch patch = fetchCommon(dsRef, DeltaConst.paramPatch, patchId.asParam());
+        RDFPatch patch = fetchCommon(dsRef, DeltaConst.EP_LogPatch, patchId.asParam());
         event(listener->listener.fetchById(dsRef, patchId, patch));
         return patch;
     }
 
+    /**
+     * Fetch a range of patches in one request.
+     * The patches are parsed and passed to {@code action} as they arrive.
+     */
+    @Override
+    public void fetch(Id dsRef, Version start, Version finish, Consumer<RDFPatch> action) {
+        fetchRange(dsRef, start, finish, (format, in)->format.readPatches(in, action));
+    }
+
+    /**
+     * Fetch a range of patches in one request.
+     * The changes are passed to {@code changes} as they are read from the response;
+     * no patch is built in memory.
+     */
+    @Override
+    public void applyPatches(Id dsRef, Version start, Version finish, RDFChanges changes) {
+        fetchRange(dsRef, start, finish, (format, in)->format.apply(in, changes));
+    }
+
+    /**
+     * Fetch the net changes of a range of patches as one patch.
+     * The server squashes the patches, so only the net changes are sent.
+     */
+    @Override
+    public RDFPatch fetchSquashed(Id dsRef, Version start, Version finish) {
+        checkLink();
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return null;
+        String url = remoteReceive;
+        url = createURL(url, DeltaConst.paramDatasource, dsRef.asParam());
+        url = String.format("%s?%s=%s&%s=%s&%s=true", url, DeltaConst.paramFrom, start.asParam(), DeltaConst.paramTo, finish.asParam(),
+                            DeltaConst.paramSquash);
+        final String s = url;
+        FmtLog.info(Delta.DELTA_HTTP_LOG, "Fetch squashed: %s [%s,%s] [%s]", dsRef, start, finish, url);
+        try {
+            return retry(()->{
+                // [NET] Network point
+                TypedInputStream in = HttpOp.execHttpGet(s, acceptHeader(), httpClient(), null) ;
+                if ( in == null )
+                    return null ;
+                try {
+                    RDFChangesCollector collector = new RDFChangesCollector();
+                    responseFormat(in).apply(in, collector);
+                    return collector.getRDFPatch();
+                } finally {
+                    IO.close(in);
+                }
+            }, ()->true, ()->"Retry fetch squashed patch.", ()->"Failed to fetch squashed patch.");
+        }
+        catch ( HttpException ex) {
+            if ( ex.getResponseCode() == HttpSC.NOT_FOUND_404 )
+                return null ;
+            if ( ex.getResponseCode() == HttpSC.REQUEST_ENTITY_TOO_LARGE_413 )
+                // Range too large for the server to squash.
+                throw new DeltaHttpException(ex.getResponseCode(), ex.getMessage());
+            throw ex;
+        }
+    }
+
+    private void fetchRange(Id dsRef, Version start, Version finish, BiConsumer<PatchFormat, InputStream> reader) {
+        checkLink();
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return;
+        String url = remoteReceive;
+        url = createURL(url, DeltaConst.paramDatasource, dsRef.asParam());
+        url = String.format("%s?%s=%s&%s=%s", url, DeltaConst.paramFrom, start.asParam(), DeltaConst.paramTo, finish.asParam());
+        final String s = url;
+        FmtLog.info(Delta.DELTA_HTTP_LOG, "Fetch request: %s [%s,%s] [%s]", dsRef, start, finish, url);
+        try {
+            // Not retried: the response may have been partly used already.
+            // [NET] Network point
+            TypedInputStream in = HttpOp.execHttpGet(s, acceptHeader(), httpClient(), null) ;
+            if ( in == null )
+                return ;
+            try {
+                reader.accept(responseFormat(in), in);
+            } finally {
+                IO.close(in);
+            }
+        }
+        catch ( HttpException ex) {
+            if ( ex.getResponseCode() == HttpSC.NOT_FOUND_404 )
+                return ;
+            throw ex;
+        }
+    }
+
     private RDFPatch fetchCommon(Id dsRef, String param, String paramStr) {
         checkLink();
 
         String url = remoteReceive;
         url = createURL(url, DeltaConst.paramDatasource, dsRef.asParam());
-        url = appendURL(url, paramStr);
+        // Canonical patch URL, "/{name}/patch/{id}" or "/{name}/version/{version}",
+        // which HTTP caches can keep.
+        url = appendURL(url, param+"/"+paramStr);
         final String s = url;
         FmtLog.info(Delta.DELTA_HTTP_LOG, "Fetch request: %s %s=%s [%s]", dsRef, param, paramStr, url);
         try {
             RDFPatch patch =  retry(()->{
                 // [NET] Network point
-                InputStream in = HttpOp.execHttpGet(s) ;
+                TypedInputStream in = HttpOp.execHttpGet(s, acceptHeader(), httpClient(), null) ;
                 if ( in == null )
                     return null ;
-                RDFPatchReaderText pr = new RDFPatchReaderText(in) ;
-                RDFChangesCollector collector = new RDFChangesCollector();
-                pr.apply(collector);
-                return collector.getRDFPatch();
+                try {
+                    RDFChangesCollector collector = new RDFChangesCollector();
+                    responseFormat(in).apply(in, collector);
+                    return collector.getRDFPatch();
+                } finally {
+                    IO.close(in);
+                }
             }, ()->true, ()->"Retry fetch patch.", ()->"Failed to fetch patch.");
             return patch;
         }
@@ -228,6 +403,24 @@ public class DeltaLinkHTTP implements DeltaLink {
         }
     }
 
+    /** The patch format used by this link. */
+    public PatchFormat getPatchFormat() {
+        return patchFormat;
+    }
+
+    /** HTTP "Accept" header for fetching patches: the preferred format first, then the other. */
+    private String acceptHeader() {
+        if ( patchFormat != PatchFormat.TEXT )
+            return DeltaConst.contentTypePatchBinary+", "+DeltaConst.contentTypePatchText+";q=0.5";
+        return DeltaConst.contentTypePatchText+", "+DeltaConst.contentTypePatchBinary+";q=0.5";
+    }
+
+    /** Format of a response, from its content type. Servers that do not say send text. */
+    private static PatchFormat responseFormat(TypedInputStream in) {
+        PatchFormat fmt = PatchFormat.fromContentType(in.getContentType());
+        return fmt == null ? PatchFormat.TEXT : fmt;
+    }
+
     private static String appendURL(String url, String string) {
         if ( url.endsWith("/") )
             return url+string;
@@ -239,6 +432,42 @@ public class DeltaLinkHTTP implements DeltaLink {
         return url.replace("{"+param+"}", value);
     }
 
+    /**
+     * Read the latest snapshot of a data source from the server. The version and patch
+     * the snapshot corresponds to are in the response headers.
+     */
+    @Override
+    public PatchInfo readSnapshot(Id dsRef, StreamRDF dest) {
+        checkLink();
+        String url = initialState(dsRef);
+        FmtLog.info(Delta.DELTA_HTTP_LOG, "Snapshot request: %s [%s]", dsRef, url);
+        HttpGet request = new HttpGet(url);
+        // [NET] Network point
+        try ( CloseableHttpResponse response = httpClient().execute(request) ) {
+            int sc = response.getStatusLine().getStatusCode();
+            if ( sc == HttpSC.NOT_FOUND_404 )
+                return null;
+            if ( sc < 200 || sc > 299 )
+                throw new DeltaHttpException(sc, response.getStatusLine().getReasonPhrase());
+            Header versionHeader = response.getFirstHeader(DeltaConst.hSnapshotVersion);
+            Header patchHeader = response.getFirstHeader(DeltaConst.hSnapshotPatch);
+            if ( versionHeader == null || patchHeader == null ) {
+                // Not a snapshot.
+                EntityUtils.consume(response.getEntity());
+                return null;
+            }
+            Version version = Version.create(Long.parseLong(versionHeader.getValue()));
+            Id patchId = Id.fromString(patchHeader.getValue());
+            // Any gzip content encoding is removed by the HTTP client.
+            try ( InputStream in = response.getEntity().getContent() ) {
+                RDFDataMgr.parse(dest, in, Lang.RDFTHRIFT);
+            }
+            return new PatchInfo(patchId, version, null);
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        }
+    }
+
     @Override
     public String initialState(Id dsRef) {
         return String.format("%s?%s=%s", remoteData, DeltaConst.paramDatasource, dsRef.asParam());
@@ -356,6 +585,27 @@ public class DeltaLinkHTTP implements DeltaLink {
         return getPatchLogInfo(arg);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is a long-poll request; the server holds the request for at most
+     * {@link DeltaConst#AWAIT_TIMEOUT_MAX} milliseconds.
+     */
+    @Override
+    public PatchLogInfo awaitVersion(Id dsRef, Version version, long timeoutMillis) {
+        checkLink();
+        long timeout = Math.max(0, Math.min(timeoutMillis, DeltaConst.AWAIT_TIMEOUT_MAX));
+        JsonObject arg = JSONX.buildObject((b) -> {
+            b.key(DeltaConst.F_DATASOURCE).value(dsRef.asPlainString());
+            b.key(DeltaConst.F_VERSION).value(version.asJson());
+            b.key(DeltaConst.F_TIMEOUT).value(timeout);
+        });
+        JsonObject obj = rpcOnce(DeltaConst.OP_AWAIT_LOG, arg);
+        if ( obj.isEmpty() )
+            return null;
+        return PatchLogInfo.fromJson(obj);
+    }
+
     private PatchLogInfo getPatchLogInfo(JsonObject arg) {
         JsonObject obj = rpc(DeltaConst.OP_DESCR_LOG, arg);
         if ( obj.isEmpty() )
@@ -373,7 +623,7 @@ public class DeltaLinkHTTP implements DeltaLink {
     private JsonValue rpcToValue(String opName, JsonObject arg) {
         JsonObject argx = ( arg == null ) ? emptyObject : arg;
         // [NET] Network point
-        return retry(()->DRPC.rpc(remoteServer + DeltaConst.EP_RPC, opName, argx),
+        return retry(()->DRPC.rpc(httpClient(), remoteServer + DeltaConst.EP_RPC, opName, argx),
                      ()->true,
                      ()->format("Retry : %s",opName),
                      ()->format("Failed : %s %s",opName,JSON.toStringFlat(argx))
@@ -391,7 +641,7 @@ public class DeltaLinkHTTP implements DeltaLink {
     private JsonValue rpcOnceToValue(String opName, JsonObject arg) {
         JsonObject argx = ( arg == null ) ? emptyObject : arg;
         // [NET] Network point
-        return DRPC.rpc(remoteServer + DeltaConst.EP_RPC, opName, argx);
+        return DRPC.rpc(httpClient(), remoteServer + DeltaConst.EP_RPC, opName, argx);
     }
 
     private <X> void event(Consumer<DeltaLinkListener> action) {
@@ -25,5 +25,8 @@ class FN {
     /** Name of the file holding the persistent state, client DeltaConnection. */
     public static final String STATE      = "state";
     
+    /** Directory of patches committed locally and not yet sent, client DeltaConnection. */
+    public static final String OUTBOX     = "outbox";
+    
 
 }
@@ -0,0 +1,381 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.client;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.web.HttpSC;
+import org.seaborne.delta.*;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+import org.slf4j.Logger;
+
+/**
+ * Outbound queue of patches for a {@link DeltaConnection} in asynchronous commit mode.
+ * <p>
+ * A patch is written to a file in the outbox directory, and forced to disk, before
+ * {@link #add} returns, so patches committed locally survive a restart. A single
+ * background thread sends the patches in order, one after another; each file is deleted
+ * once the patch log has accepted the patch. Patches left from an earlier run are sent
+ * first.
+ * <p>
+ * Network and server errors are retried, as are other 4xx responses, such as 404 while a
+ * log is still being opened by the server, or 401/403. If the patch log rejects a patch
+ * (400), for example because another writer has appended a patch so the "prev" of the
+ * queued patch is not the head of the log, the queue stops: the patch and those after it
+ * stay in the outbox and further additions are refused until they are discarded
+ * ({@link #discard}).
+ * <p>
+ * If there is no directory (the zone is not persistent), the queue is in memory only.
+ */
+/*package*/ class PatchOutbox {
+    private static Logger LOG = Delta.DELTA_CLIENT;
+
+    private static final String PREFIX = "patch-";
+    private static final String SUFFIX = ".rdfp";
+    private static final String TMP    = ".tmp";
+    // Pause after a send error before trying again.
+    private static final long RETRY_PAUSE = 1000;
+
+    private static class Entry {
+        final long seq;
+        final Path path;
+        final RDFPatch patch;
+        final CompletableFuture<Version> future = new CompletableFuture<>();
+        Entry(long seq, Path path, RDFPatch patch) {
+            this.seq = seq;
+            this.path = path;
+            this.patch = patch;
+        }
+    }
+
+    private final Id datasourceId;
+    private final Path directory;
+    private final Function<RDFPatch, Version> sender;
+    private final List<AsyncCommitListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by "this".
+    private final Deque<Entry> queue = new ArrayDeque<>();
+    private long nextSeq = 1;
+    private DeltaException failure = null;
+    // Set while a rejection is being reported, before "failure" is published.
+    private boolean stopping = false;
+    private Thread thread = null;
+
+    /**
+     * Create an outbox, with any patches left in {@code directory} from an earlier run
+     * queued in order. The sender is not started.
+     */
+    /*package*/ PatchOutbox(Id datasourceId, Path directory, Function<RDFPatch, Version> sender) {
+        this.datasourceId = datasourceId;
+        this.directory = directory;
+        this.sender = sender;
+        if ( directory != null ) {
+            IOX.ensureDirectory(directory);
+            recover();
+        }
+    }
+
+    /** Are there any files in the outbox directory? */
+    /*package*/ static boolean hasPending(Path directory) {
+        if ( directory == null || ! Files.isDirectory(directory) )
+            return false;
+        return ! scan(directory, PREFIX+"*"+SUFFIX).isEmpty();
+    }
+
+    private void recover() {
+        scan(directory, PREFIX+"*"+TMP).forEach(PatchOutbox::delete);
+        List<Path> files = scan(directory, PREFIX+"*"+SUFFIX);
+        files.sort((p1, p2)->Long.compare(seq(p1), seq(p2)));
+        for ( Path p : files ) {
+            RDFPatch patch;
+            try ( InputStream in = Files.newInputStream(p) ) {
+                patch = RDFPatchOps.collect(RDFPatchOps.read(in));
+            } catch (IOException ex) {
+                throw IOX.exception(ex);
+            }
+            long seq = seq(p);
+            queue.add(new Entry(seq, p, patch));
+            nextSeq = Math.max(nextSeq, seq+1);
+        }
+        if ( ! queue.isEmpty() )
+            FmtLog.info(LOG, "[%s] Outbox: %d patches to send", datasourceId, queue.size());
+    }
+
+    /*package*/ void addListener(AsyncCommitListener listener) {
+        listeners.add(listener);
+    }
+
+    /*package*/ void removeListener(AsyncCommitListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Add a patch to the queue. When this returns, the patch is on disk. The future
+     * completes with the version when the patch log has accepted the patch.
+     */
+    /*package*/ synchronized CompletableFuture<Version> add(RDFPatch patch) {
+        if ( failure != null || stopping )
+            throw new DeltaException("Asynchronous commit has failed"+(failure == null ? "" : ": "+failure.getMessage()));
+        long seq = nextSeq++;
+        Path path = null;
+        if ( directory != null ) {
+            path = directory.resolve(String.format("%s%010d%s", PREFIX, seq, SUFFIX));
+            write(path, patch);
+        }
+        Entry entry = new Entry(seq, path, patch);
+        queue.add(entry);
+        notifyAll();
+        return entry.future;
+    }
+
+    /** The id of the last patch queued, or null if the queue is empty. */
+    /*package*/ synchronized Id latestPatchId() {
+        Entry e = queue.peekLast();
+        return ( e == null ) ? null : Id.fromNode(e.patch.getId());
+    }
+
+    /** The future for the last patch queued, or null if the queue is empty. */
+    /*package*/ synchronized CompletableFuture<Version> latest() {
+        Entry e = queue.peekLast();
+        return ( e == null ) ? null : e.future;
+    }
+
+    /** Number of patches not yet accepted by the patch log. */
+    /*package*/ synchronized int size() {
+        return queue.size();
+    }
+
+    /*package*/ synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /** The error that stopped the queue, or null. */
+    /*package*/ synchronized DeltaException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Wait until all the queued patches have been sent, or the queue has stopped on an
+     * error, or the timeout. Return true if the queue is empty.
+     */
+    /*package*/ synchronized boolean await(long timeoutMillis) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        // Avoid overflow for "wait forever" (Long.MAX_VALUE).
+        long finish = ( timeoutMillis > Long.MAX_VALUE-now ) ? Long.MAX_VALUE : now+timeoutMillis;
+        while ( ! queue.isEmpty() && failure == null ) {
+            long remaining = finish-System.currentTimeMillis();
+            if ( remaining <= 0 )
+                break;
+            wait(remaining);
+        }
+        return queue.isEmpty();
+    }
+
+    /** Start the sender thread, if not already running. */
+    /*package*/ synchronized void start() {
+        if ( thread != null )
+            return;
+        Thread t = new Thread(this::run, "DeltaConnection-outbox-"+datasourceId);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /** Stop the sender thread. Patches not yet sent stay in the outbox. */
+    /*package*/ void stop() {
+        Thread t;
+        synchronized(this) {
+            t = thread;
+            thread = null;
+            notifyAll();
+        }
+        if ( t != null )
+            t.interrupt();
+    }
+
+    private synchronized boolean running() {
+        return thread == Thread.currentThread();
+    }
+
+    private void run() {
+        while ( running() ) {
+            Entry entry;
+            synchronized(this) {
+                while ( queue.isEmpty() && thread == Thread.currentThread() ) {
+                    try { wait(); }
+                    catch (InterruptedException ex) { return; }
+                }
+                entry = queue.peekFirst();
+            }
+            if ( entry == null )
+                return;
+            Version version;
+            try {
+                version = sender.apply(entry.patch);
+            } catch (DeltaHttpException ex) {
+                if ( isRejected(ex) ) {
+                    rejected(entry, ex);
+                    return;
+                }
+                retryLater(ex);
+                continue;
+            } catch (RuntimeException ex) {
+                retryLater(ex);
+                continue;
+            }
+            if ( ! Version.isValid(version) ) {
+                retryLater(new DeltaException("No version in append response"));
+                continue;
+            }
+            if ( entry.path != null )
+                delete(entry.path);
+            // Complete and notify before removing the entry so that anyone woken by
+            // await() sees the outcome.
+            Id patchId = Id.fromNode(entry.patch.getId());
+            entry.future.complete(version);
+            listeners.forEach(x->x.sent(datasourceId, patchId, version));
+            synchronized(this) {
+                // The queue may have been discarded while sending.
+                if ( queue.peekFirst() == entry )
+                    queue.pollFirst();
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The patch log has refused the patch itself: {@code PatchValidation} answers 400
+     * when the patch does not follow the head of the log. Sending it again does not help.
+     */
+    private static boolean isRejected(DeltaHttpException ex) {
+        return ex.getStatusCode() == HttpSC.BAD_REQUEST_400;
+    }
+
+    private void rejected(Entry entry, DeltaHttpException ex) {
+        Id patchId = Id.fromNode(entry.patch.getId());
+        FmtLog.warn(LOG, "[%s] Patch rejected: %s : %s", datasourceId, patchId, ex.getMessage());
+        List<Entry> remaining;
+        synchronized(this) {
+            // Refuse additions while the queued futures and the listeners are told.
+            stopping = true;
+            thread = null;
+            remaining = new ArrayList<>(queue);
+        }
+        remaining.forEach(e->e.future.completeExceptionally(ex));
+        listeners.forEach(x->x.failed(datasourceId, patchId, ex));
+        // Only now publish the failure and wake any waiters.
+        synchronized(this) {
+            failure = ex;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Drop all the queued patches, deleting their files, and clear any failure so that
+     * patches can be added again. The futures of the dropped patches complete
+     * exceptionally. Return the number of patches dropped.
+     */
+    /*package*/ int discard() {
+        stop();
+        List<Entry> dropped;
+        synchronized(this) {
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            failure = null;
+            stopping = false;
+            notifyAll();
+        }
+        DeltaException ex = new DeltaException("Discarded from the outbox");
+        dropped.forEach(e->{
+            if ( e.path != null )
+                delete(e.path);
+            e.future.completeExceptionally(ex);
+        });
+        if ( ! dropped.isEmpty() )
+            FmtLog.warn(LOG, "[%s] Outbox: %d patches discarded", datasourceId, dropped.size());
+        start();
+        return dropped.size();
+    }
+
+    private void retryLater(RuntimeException ex) {
+        FmtLog.warn(LOG, "[%s] Failed to send patch (will retry): %s", datasourceId, ex.getMessage());
+        try { Thread.sleep(RETRY_PAUSE); }
+        catch (InterruptedException ex2) { Thread.currentThread().interrupt(); }
+    }
+
+    /** Write a file and force it to disk, via a temporary file so it appears complete or not at all. */
+    private static void write(Path path, RDFPatch patch) {
+        Path tmp = path.resolveSibling(path.getFileName().toString()+TMP);
+        try {
+            try ( FileOutputStream fout = new FileOutputStream(tmp.toFile()) ) {
+                OutputStream out = new BufferedOutputStream(fout);
+                RDFPatchOps.write(out, patch);
+                out.flush();
+                fout.getFD().sync();
+            }
+            IOX.move(tmp, path);
+        } catch (IOException ex) {
+            delete(tmp);
+            throw IOX.exception(ex);
+        }
+    }
+
+    private static long seq(Path path) {
+        String fn = path.getFileName().toString();
+        String x = fn.substring(PREFIX.length(), fn.length()-SUFFIX.length());
+        try {
+            return Long.parseLong(x);
+        } catch (NumberFormatException ex) {
+            throw new DeltaException("Bad outbox file name: "+path);
+        }
+    }
+
+    private static List<Path> scan(Path directory, String glob) {
+        List<Path> files = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob) ) {
+            stream.forEach(files::add);
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        }
+        return files;
+    }
+
+    private static void delete(Path path) {
+        try { Files.deleteIfExists(path); }
+        catch (IOException ex) {
+            FmtLog.warn(LOG, "Failed to delete %s", path);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.seaborne.delta.Delta;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.slf4j.Logger;
+
+/**
+ * Fetch a range of patches in chunks, with up to {@code window} chunks being fetched and
+ * parsed in parallel ahead of the caller. Patches are passed to the action on the
+ * calling thread, strictly in version order.
+ * <p>
+ * At most {@code window} chunks of {@code chunkSize} patches are held in memory at any
+ * one time; a new chunk is requested only when an earlier one has been passed to the
+ * action.
+ */
+/*package*/ class PatchPrefetch {
+    private static Logger LOG = Delta.DELTA_CLIENT;
+
+    // Shared by all connections. The fetch tasks never wait on each other, so a
+    // fixed number of threads can not deadlock.
+    private static final ExecutorService executor =
+        Executors.newFixedThreadPool(DeltaConst.FETCH_WINDOW, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger(0);
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PatchPrefetch-"+counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    /**
+     * Fetch patches for versions {@code start} to {@code finish}, inclusive, and pass
+     * them to {@code action} in version order. Short ranges are fetched with one request.
+     */
+    /*package*/ static void fetch(DeltaLink dLink, Id dsRef, Version start, Version finish, Consumer<RDFPatch> action) {
+        fetch(dLink, dsRef, start, finish, DeltaConst.FETCH_CHUNK_SIZE, DeltaConst.FETCH_WINDOW, action);
+    }
+
+    /*package*/ static void fetch(DeltaLink dLink, Id dsRef, Version start, Version finish, int chunkSize, int window, Consumer<RDFPatch> action) {
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return;
+        long first = start.value();
+        long last = finish.value();
+        if ( last - first < chunkSize || window <= 1 ) {
+            dLink.fetch(dsRef, start, finish, action);
+            return;
+        }
+        FmtLog.debug(LOG, "Prefetch: %s [%d,%d] chunk=%d window=%d", dsRef, first, last, chunkSize, window);
+        Deque<Future<List<RDFPatch>>> pending = new ArrayDeque<>(window);
+        long next = first;
+        try {
+            for ( ;; ) {
+                // Keep the window full.
+                while ( pending.size() < window && next <= last ) {
+                    Version lo = Version.create(next);
+                    Version hi = Version.create(Math.min(next+chunkSize-1, last));
+                    pending.add(executor.submit(()->fetchChunk(dLink, dsRef, lo, hi)));
+                    next = hi.value()+1;
+                }
+                Future<List<RDFPatch>> chunk = pending.poll();
+                if ( chunk == null )
+                    break;
+                get(chunk).forEach(action);
+            }
+        } finally {
+            // On error, abandon the chunks not yet applied.
+            pending.forEach(f->f.cancel(true));
+        }
+    }
+
+    /**
+     * Send the changes of the patches for versions {@code start} to {@code finish},
+     * inclusive, to {@code changes} in version order. Short ranges are streamed from
+     * one request without building the patches; longer ranges are fetched ahead in
+     * chunks as for {@link #fetch}.
+     */
+    /*package*/ static void apply(DeltaLink dLink, Id dsRef, Version start, Version finish, RDFChanges changes) {
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return;
+        if ( finish.value() - start.value() < DeltaConst.FETCH_CHUNK_SIZE || DeltaConst.FETCH_WINDOW <= 1 ) {
+            dLink.applyPatches(dsRef, start, finish, changes);
+            return;
+        }
+        fetch(dLink, dsRef, start, finish, patch->patch.apply(changes));
+    }
+
+    private static List<RDFPatch> fetchChunk(DeltaLink dLink, Id dsRef, Version lo, Version hi) {
+        List<RDFPatch> patches = new ArrayList<>();
+        dLink.fetch(dsRef, lo, hi, patches::add);
+        return patches;
+    }
+
+    private static List<RDFPatch> get(Future<List<RDFPatch>> chunk) {
+        try {
+            return chunk.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause;
+            if ( cause instanceof Error )
+                throw (Error)cause;
+            throw new DeltaException("Prefetch failed", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DeltaException("Prefetch interrupted");
+        }
+    }
+}
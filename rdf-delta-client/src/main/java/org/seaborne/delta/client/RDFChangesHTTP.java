@@ -30,31 +30,35 @@ import org.apache.http.StatusLine ;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.atlas.logging.FmtLog;
 import org.apache.jena.graph.Node;
 import org.seaborne.delta.*;
 import org.seaborne.delta.lib.IOX ;
+import org.seaborne.patch.RDFChanges;
 import org.seaborne.patch.RDFPatchConst;
+import org.seaborne.patch.changes.RDFChangesWrapper;
 import org.seaborne.patch.changes.RDFChangesWriter;
 import org.slf4j.Logger;
 
-/** Collect the bytes of a change stream, then write to HTTP */ 
-public class RDFChangesHTTP extends RDFChangesWriter {
-    
-    // This should be tied to the DeltaLink and have that control text/binary.
+/**
+ * Collect the bytes of a change stream, then write to HTTP.
+ * The patch is sent in the {@link PatchFormat} given when this object is created, text by default.
+ */
+public class RDFChangesHTTP extends RDFChangesWrapper {
     
     private static final Logger LOG = Delta.DELTA_HTTP_LOG;
-    private final CloseableHttpClient httpClient = HttpClients.createDefault();
-    private final ByteArrayOutputStream bytes ;
+    private final CloseableHttpClient httpClient;
+    private final Buffer bytes ;
     // Count to match up begin-commit.
     private int txnDepth = 0 ;
     private final Runnable resetAction;
     private final Supplier<String> urlSupplier;
     private final String destLabel ;
+    private final PatchFormat format ;
     // Used to coordinate with reading patches in.
     private final Object syncObject;
     private StatusLine statusLine       = null;
@@ -68,7 +72,20 @@ public class RDFChangesHTTP extends RDFChangesWriter {
     
     /** Send changes to a specific URL */
     public RDFChangesHTTP(String label, String urlstr) {
-        this(label, ()->urlstr, null);
+        this(label, urlstr, PatchFormat.TEXT);
+    }
+
+    /** Send changes to a specific URL, encoded in the given format. */
+    public RDFChangesHTTP(String label, String urlstr, PatchFormat format) {
+        this(label, null, ()->urlstr, null, format);
+    }
+
+    /**
+     * Send changes to a specific URL, encoded in the given format, using an HTTP client
+     * and a buffer owned by the caller. Neither is closed by this object.
+     */
+    /*package*/ RDFChangesHTTP(String label, String urlstr, PatchFormat format, CloseableHttpClient httpClient, Buffer buffer) {
+        this(label, null, ()->urlstr, null, format, httpClient, buffer);
     }
 
     // resetAction (on 401) not currently enabled.
@@ -85,11 +102,18 @@ public class RDFChangesHTTP extends RDFChangesWriter {
     
     /** Send changes to a supplied URL, with an action a specific action on any 401 and sync'ed on a specific object  */
     private RDFChangesHTTP(String label, Object syncObject, Supplier<String> urlSupplier, Runnable resetAction) {
-        this(label, syncObject, urlSupplier, resetAction, new ByteArrayOutputStream(100*1024));
+        this(label, syncObject, urlSupplier, resetAction, PatchFormat.TEXT);
     }
 
-    private RDFChangesHTTP(String label, Object syncObject, Supplier<String> urlSupplier, Runnable resetAction, ByteArrayOutputStream out) {
-        super(DeltaOps.tokenWriter(out));
+    private RDFChangesHTTP(String label, Object syncObject, Supplier<String> urlSupplier, Runnable resetAction, PatchFormat format) {
+        this(label, syncObject, urlSupplier, resetAction, format, DeltaHttp.sharedClient(), new Buffer(Buffer.INITIAL_SIZE));
+    }
+
+    private RDFChangesHTTP(String label, Object syncObject, Supplier<String> urlSupplier, Runnable resetAction, PatchFormat format,
+                           CloseableHttpClient httpClient, Buffer out) {
+        super(writer(format, out));
+        this.httpClient = httpClient;
+        this.format = format;
         this.syncObject = (syncObject!=null) ? syncObject : new Object();
         this.resetAction = resetAction;
         this.urlSupplier = urlSupplier;
@@ -97,6 +121,27 @@ public class RDFChangesHTTP extends RDFChangesWriter {
         this.bytes = out;
         reset();
     }
+
+    private static RDFChanges writer(PatchFormat format, ByteArrayOutputStream out) {
+        if ( format == PatchFormat.TEXT )
+            return new RDFChangesWriter(DeltaOps.tokenWriter(out));
+        return format.writer(out);
+    }
+
+    /** The format used to send patches. */
+    public PatchFormat getFormat() {
+        return format;
+    }
+
+    /** Flush any buffered output to the collected bytes. */
+    public void flush() {
+        RDFChanges w = get();
+        if ( w instanceof RDFChangesWriter )
+            ((RDFChangesWriter)w).flush();
+        else
+            // Binary: finish flushes the encoder.
+            w.finish();
+    }
     
     @Override
     public void header(String field, Node value) {
@@ -172,11 +217,31 @@ public class RDFChangesHTTP extends RDFChangesWriter {
     
     private void reset() {
         patchId = null ;
+        // Discard anything buffered in the writer as well.
+        flush();
         bytes.reset();
     }
 
-    private byte[] collected() {
-        return bytes.toByteArray();
+    private Buffer collected() {
+        flush();
+        return bytes;
+    }
+
+    /**
+     * The buffer for the bytes of a patch. It can be reused for a later patch; the
+     * bytes are sent from the buffer, without copying.
+     */
+    /*package*/ static class Buffer extends ByteArrayOutputStream {
+        /*package*/ static final int INITIAL_SIZE = 100*1024;
+
+        /*package*/ Buffer(int size) { super(size); }
+
+        /** The current size of the underlying byte array. */
+        /*package*/ synchronized int capacity() { return buf.length; }
+
+        /*package*/ synchronized HttpEntity entity(ContentType contentType) {
+            return new ByteArrayEntity(buf, 0, count, contentType);
+        }
     }
     
     public void send() {
@@ -236,18 +301,18 @@ public class RDFChangesHTTP extends RDFChangesWriter {
     private void send$() {
         long number = counter.incrementAndGet();
         
-        byte[] bytes = collected();
+        Buffer bytes = collected();
         String idStr;
         
         if ( patchId != null )
             idStr = Id.str(patchId);
         else
             idStr = Long.toString(number);
-        FmtLog.info(LOG, "Send patch %s (%d bytes) -> %s", idStr, bytes.length, destLabel);
+        FmtLog.info(LOG, "Send patch %s (%d bytes) -> %s", idStr, bytes.size(), destLabel);
         
         if ( false ) {
             if ( LOG.isDebugEnabled() ) {
-                String s = new String(bytes, StandardCharsets.UTF_8);
+                String s = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
                 LOG.debug("== Sending ...");
                 // Do NOT close!
                 IndentedWriter w = IndentedWriter.stdout;
@@ -265,7 +330,7 @@ public class RDFChangesHTTP extends RDFChangesWriter {
         int attempts = 0 ;
         for(;;) {
             HttpPost postRequest = new HttpPost(urlSupplier.get());
-            postRequest.setEntity(new ByteArrayEntity(bytes));
+            postRequest.setEntity(bytes.entity(ContentType.create(format.getContentType())));
 
             try(CloseableHttpResponse r = httpClient.execute(postRequest) ) {
                 attempts++;
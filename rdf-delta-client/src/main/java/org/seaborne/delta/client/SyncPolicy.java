@@ -17,6 +17,8 @@
 
 package org.seaborne.delta.client;
 
+import org.seaborne.delta.DeltaConfigException;
+
 /**
  * When to synchronize with a patch log.
  * {@link DeltaConnection} provide the option of syncing automagtically on transaction begin.
@@ -25,6 +27,23 @@ package org.seaborne.delta.client;
  * <li>{@code NONE} No automatic sync, all done by the application.
  * <li>{@code TXN_RW} When a transaction starts (sync attempt for a READ transaction suppresses network errors). 
  * <li>{@code TXN_RW} When a wite-transaction starts. 
+ * <li>{@code NOTIFY} When the patch log server reports a new version, and when a wite-transaction starts.
+ * A background thread waits on the server with {@link org.seaborne.delta.link.DeltaLink#awaitVersion}.
+ * <li>{@code BACKGROUND} Periodically, from a background thread, and when a wite-transaction starts.
+ * Read transactions do not contact the patch log server; if the data is older than the
+ * staleness bound, they wait for the background thread to sync, or fail; see
+ * {@link DeltaConnection#setSyncInterval} and {@link DeltaConnection#setMaxStaleness}.
  * </ul>
  */
-public enum SyncPolicy { NONE, TXN_RW, TXN_W }
\ No newline at end of file
+public enum SyncPolicy {
+    NONE, TXN_RW, TXN_W, NOTIFY, BACKGROUND ;
+
+    /** Find a {@code SyncPolicy} by name, ignoring case. */
+    public static SyncPolicy fromName(String name) {
+        for ( SyncPolicy policy : values() ) {
+            if ( policy.name().equalsIgnoreCase(name.trim()) )
+                return policy;
+        }
+        throw new DeltaConfigException("Unknown sync policy: '"+name+"'");
+    }
+}
@@ -19,35 +19,36 @@ package org.seaborne.delta.client.assembler;
 
 import static org.apache.jena.sparql.util.graph.GraphUtils.exactlyOneProperty;
 import static org.apache.jena.sparql.util.graph.GraphUtils.getAsStringValue;
+import static org.seaborne.delta.DeltaConst.symDeltaConnection;
 import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaChanges;
+import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaMaxStaleness;
+import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaPatchFormat;
 import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaPatchLog;
 import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaStorage;
+import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaSyncInterval;
+import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaSyncPolicy;
 import static org.seaborne.delta.client.assembler.VocabDelta.pDeltaZone;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.jena.assembler.Assembler;
 import org.apache.jena.assembler.Mode;
 import org.apache.jena.assembler.assemblers.AssemblerBase;
 import org.apache.jena.assembler.exceptions.AssemblerException;
 import org.apache.jena.atlas.lib.ListUtils;
-import org.apache.jena.atlas.lib.NotImplemented;
 import org.apache.jena.atlas.logging.FmtLog;
-import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.tdb.base.file.Location;
 import org.seaborne.delta.Delta;
+import org.seaborne.delta.DeltaConfigException;
+import org.seaborne.delta.PatchFormat;
 import org.seaborne.delta.client.DeltaConnection;
-import org.seaborne.delta.client.DeltaLinkHTTP;
 import org.seaborne.delta.client.LocalStorageType;
-import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.delta.client.SyncPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +63,10 @@ public class DeltaAssembler extends AssemblerBase implements Assembler {
      *     delta:patchlog "ABC"
      *     delta:zone "file path"
      *     delta:storage "mem", "file", "tdb" zone info.
+     *     delta:patchFormat "text" or "binary" (optional)
+     *     delta:syncPolicy "none", "txn_rw", "txn_w", "notify" or "background" (optional)
+     *     delta:syncInterval milliseconds (optional, for "background")
+     *     delta:maxStaleness milliseconds (optional, for "background")
      *
      * If delta:changes is a list with more than one element, then that is used to build a
      * switchable DelatLink to replicated delta servers.
@@ -101,21 +106,64 @@ public class DeltaAssembler extends AssemblerBase implements Assembler {
             zoneLocation = Location.create(zoneLocationStr);
         }
 
-        // Build.
-        DatasetGraph dsg = LibBuildDC.setupDataset(dsName, zoneLocation, storage, deltaServers);
-        Dataset dataset = DatasetFactory.wrap(dsg);
+        // delta:patchFormat - optional.
+        PatchFormat patchFormat = PatchFormat.TEXT;
+        if ( root.hasProperty(pDeltaPatchFormat) ) {
+            if ( ! exactlyOneProperty(root, pDeltaPatchFormat) )
+                throw new AssemblerException(root, "Multiple patch formats given");
+            String patchFormatStr = getAsStringValue(root, pDeltaPatchFormat);
+            try {
+                patchFormat = PatchFormat.fromName(patchFormatStr);
+            } catch (DeltaConfigException ex) {
+                throw new AssemblerException(root, "Unrecognized patch format '"+patchFormatStr+"'");
+            }
+        }
 
-        //  Poll for changes as well. Not implemented (yet).
-//      if ( root.hasProperty(pPollForChanges) ) {
-//          if ( ! exactlyOneProperty(root, pPollForChanges) )
-//              throw new AssemblerException(root, "Multiple places to poll for chnages") ;
-//          String source = getStringValue(root, pPollForChanges) ;
-//          forkUpdateFetcher(source, dsgSub) ;
-//      }
+        // delta:syncPolicy - optional.
+        SyncPolicy syncPolicy = SyncPolicy.TXN_RW;
+        if ( root.hasProperty(pDeltaSyncPolicy) ) {
+            if ( ! exactlyOneProperty(root, pDeltaSyncPolicy) )
+                throw new AssemblerException(root, "Multiple sync policies given");
+            String syncPolicyStr = getAsStringValue(root, pDeltaSyncPolicy);
+            try {
+                syncPolicy = SyncPolicy.fromName(syncPolicyStr);
+            } catch (DeltaConfigException ex) {
+                throw new AssemblerException(root, "Unrecognized sync policy '"+syncPolicyStr+"'");
+            }
+        }
 
+        // delta:syncInterval, delta:maxStaleness - optional.
+        long syncInterval = getMillis(root, pDeltaSyncInterval);
+        long maxStaleness = getMillis(root, pDeltaMaxStaleness);
+
+        // Build.
+        DatasetGraph dsg = LibBuildDC.setupDataset(dsName, zoneLocation, storage, deltaServers, patchFormat, syncPolicy);
+        DeltaConnection deltaConnection = dsg.getContext().get(symDeltaConnection);
+        if ( syncInterval > 0 )
+            deltaConnection.setSyncInterval(syncInterval);
+        if ( maxStaleness > 0 )
+            deltaConnection.setMaxStaleness(maxStaleness);
+        Dataset dataset = DatasetFactory.wrap(dsg);
         return dataset;
     }
 
+    /** Get a time in milliseconds; return -1 if the property is not present. */
+    private static long getMillis(Resource r, Property p) {
+        if ( ! r.hasProperty(p) )
+            return -1;
+        if ( ! exactlyOneProperty(r, p) )
+            throw new AssemblerException(r, "Multiple values for "+p.getLocalName());
+        String str = getAsStringValue(r, p);
+        try {
+            long x = Long.parseLong(str.trim());
+            if ( x <= 0 )
+                throw new AssemblerException(r, "Not a positive time for "+p.getLocalName()+": '"+str+"'");
+            return x;
+        } catch (NumberFormatException ex) {
+            throw new AssemblerException(r, "Not a number for "+p.getLocalName()+": '"+str+"'");
+        }
+    }
+
     private List<String> getAsMultiStringValue(Resource r, Property p) {
         Statement stmt = r.getProperty(p) ;
         if ( stmt == null )
@@ -137,26 +185,4 @@ public class DeltaAssembler extends AssemblerBase implements Assembler {
         }));
         return xs;
     }
-
-    // Poll for changes.
-    private static void UNUSED_CURRENTLY_forkUpdateFetcher(String source, DatasetGraph dsg) {
-        if ( true ) {
-            Log.warn(DeltaAssembler.class, "forkUpdateFetcher not set up");
-            if ( true ) return;
-            throw new NotImplemented("NEED THE STATE AREA; NEED THE DATASOURCE ID; NEED THE CLIENT ID");
-        }
-        DeltaLink dc = DeltaLinkHTTP.connect(source) ;
-        DeltaConnection client = null;
-        Runnable r = ()->{
-            try { client.sync(); }
-            catch (Exception ex) {
-                Delta.DELTA_LOG.warn("Failed to sync with the change server: "+ex.getMessage()) ;
-//                // Delay this task ; extra 3s + the time interval of 2s.
-//                Dones not work as expected.
-//                Lib.sleep(5*1000);
-            }
-        } ;
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1) ;
-        executor.scheduleWithFixedDelay(r, 2, 2, TimeUnit.SECONDS) ;
-    }
 }
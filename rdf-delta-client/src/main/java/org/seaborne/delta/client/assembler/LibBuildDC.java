@@ -23,6 +23,7 @@ import java.util.List;
 import org.apache.jena.atlas.web.HttpException;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.tdb.base.file.Location;
+import org.seaborne.delta.PatchFormat;
 import org.seaborne.delta.client.DeltaClient;
 import org.seaborne.delta.client.DeltaLinkHTTP;
 import org.seaborne.delta.client.DeltaLinkSwitchable;
@@ -35,20 +36,29 @@ public class LibBuildDC {
 
     /** Build a Delta-backed datasets at a zone location. */
     public static DatasetGraph setupDataset(String dsName, Location zoneLocation, LocalStorageType storage, List<String> destURLs) {
+        return setupDataset(dsName, zoneLocation, storage, destURLs, PatchFormat.TEXT);
+    }
+
+    /** Build a Delta-backed datasets at a zone location, exchanging patches with the servers in {@code patchFormat}. */
+    public static DatasetGraph setupDataset(String dsName, Location zoneLocation, LocalStorageType storage, List<String> destURLs, PatchFormat patchFormat) {
+        return setupDataset(dsName, zoneLocation, storage, destURLs, patchFormat, SyncPolicy.TXN_RW);
+    }
+
+    /** Build a Delta-backed datasets at a zone location, keeping in step with the patch log by {@code syncPolicy}. */
+    public static DatasetGraph setupDataset(String dsName, Location zoneLocation, LocalStorageType storage, List<String> destURLs, PatchFormat patchFormat, SyncPolicy syncPolicy) {
         // Link to log server.
         DeltaLink deltaLink;
         if ( destURLs.size() == 1 )
-            deltaLink = DeltaLinkHTTP.connect(destURLs.get(0));
+            deltaLink = DeltaLinkHTTP.connect(destURLs.get(0), patchFormat);
         else {
             List<DeltaLink> links = new ArrayList<>(destURLs.size());
             for ( String destURL  : destURLs )
-                links.add(DeltaLinkHTTP.connect(destURL));
+                links.add(DeltaLinkHTTP.connect(destURL, patchFormat));
             deltaLink = new DeltaLinkSwitchable(links);
         }
 
         Zone zone = Zone.connect(zoneLocation);
         DeltaClient deltaClient = DeltaClient.create(zone, deltaLink);
-        SyncPolicy syncPolicy = SyncPolicy.TXN_RW;
         try { deltaLink.ping(); }
         catch (HttpException ex) {
             // rc < 0 : failed to connect - ignore?
@@ -56,15 +56,24 @@ public class VocabDelta {
     // Storage type("mem", tdb", "tdb2", "external").
     public static final Property pDeltaStorage          = Vocab.property(getURI(), "storage") ;
 
-    // Whether and how often to poll for changes.
-    //public static final Property pPollForChanges        = Vocab.property(NS, "poll") ;
-
     // Zone location for local copy.
     public static final Property pDeltaZone             = Vocab.property(getURI(), "zone") ;
 
     // Name of the patch log.
     public static final Property pDeltaPatchLog         = Vocab.property(getURI(), "patchlog") ;
 
+    // Patch format to use with the patch log server ("text", "binary"). Optional; default "text".
+    public static final Property pDeltaPatchFormat      = Vocab.property(getURI(), "patchFormat") ;
+
+    // When to sync with the patch log ("none", "txn_rw", "txn_w", "notify", "background"). Optional; default "txn_rw".
+    public static final Property pDeltaSyncPolicy       = Vocab.property(getURI(), "syncPolicy") ;
+
+    // Milliseconds between syncs for "background". Optional.
+    public static final Property pDeltaSyncInterval     = Vocab.property(getURI(), "syncInterval") ;
+
+    // Milliseconds after which a read asks for an early sync for "background". Optional.
+    public static final Property pDeltaMaxStaleness     = Vocab.property(getURI(), "maxStaleness") ;
+
     private static volatile boolean initialized = false ;
 
     static { init() ; }
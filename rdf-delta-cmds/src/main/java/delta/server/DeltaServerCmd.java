@@ -57,6 +57,7 @@ public class DeltaServerCmd {
     private static ArgDecl argPort              = new ArgDecl(true, "port");
 
     private static ArgDecl argBase              = new ArgDecl(true, "base");
+    private static ArgDecl argSegments          = new ArgDecl(false, "segments");
     private static ArgDecl argMem               = new ArgDecl(false, "mem");
     private static ArgDecl argZk                = new ArgDecl(true, "zk");
     private static ArgDecl argZkPort            = new ArgDecl(true, "zkPort", "zkport");
@@ -127,6 +128,7 @@ public class DeltaServerCmd {
         cla.add(argJetty);
 
         cla.add(argBase);
+        cla.add(argSegments);
 
         cla.add(argMem);
 
@@ -148,12 +150,13 @@ public class DeltaServerCmd {
             cmdLineWarning("Warning: ignoring positional arguments");
 
         if ( cla.contains(argHelp) ) {
-            System.err.println("Usage: server [--port=NNNN | --jetty=FILE] [--base=DIR] [--mem] [--zk=connectionString [--zkPort=NNN] [--zkData=DIR] ]");
+            System.err.println("Usage: server [--port=NNNN | --jetty=FILE] [--base=DIR [--segments]] [--mem] [--zk=connectionString [--zkPort=NNN] [--zkData=DIR] ]");
             String msg = StrUtils.strjoinNL
                 ("        --port              Port number for the patch server."
                 ,"        --jetty=FILE        File name of a jetty.xml configuration file."
                 ,"File based patch server:"
                 ,"        --base=DIR          File system directory"
+                ,"        --segments          Store patches in segment files (existing patch files are migrated)"
                 ,"Simple testing"
                 ,"        --mem               Run a single server with in-memory index and patch storage."
                 ,"Zookeeper index server:"
@@ -187,8 +190,10 @@ public class DeltaServerCmd {
         int x = 0 ;
         if ( cla.contains(argBase) ) {
             x++;
-            provider = FILE;
+            provider = cla.contains(argSegments) ? Provider.SEGMENT : FILE;
         }
+        else if ( cla.contains(argSegments) )
+            cmdLineError("--segments requires --base");
         if ( cla.contains(argZk) ) {
             x++;
             if ( cla.contains(argS3Bucket) )
@@ -222,7 +227,8 @@ public class DeltaServerCmd {
 
         // Providers
         switch(provider) {
-            case FILE : {
+            case FILE :
+            case SEGMENT : {
                 String directory = cla.getValue(argBase);
                 Path base = Paths.get(directory).toAbsolutePath();
                 if ( ! Files.exists(base) )
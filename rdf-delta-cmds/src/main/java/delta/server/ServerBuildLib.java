@@ -24,6 +24,7 @@ import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.logging.FmtLog;
 import org.seaborne.delta.Delta;
 import org.seaborne.delta.DeltaConfigException;
+import org.seaborne.delta.DeltaConst;
 import org.seaborne.delta.link.DeltaLink;
 import org.seaborne.delta.server.http.DeltaServer;
 import org.seaborne.delta.server.http.Provider;
@@ -35,6 +36,7 @@ import org.seaborne.delta.server.local.PatchStoreMgr;
 import org.seaborne.delta.server.local.PatchStoreProvider;
 import org.seaborne.delta.server.local.patchstores.file.PatchStoreProviderFile;
 import org.seaborne.delta.server.local.patchstores.mem.PatchStoreProviderMem;
+import org.seaborne.delta.server.local.patchstores.segment.PatchStoreProviderSegment;
 import org.seaborne.delta.server.local.patchstores.zk.PatchStoreProviderZk;
 import org.seaborne.delta.server.s3.PatchStoreProviderZkS3;
 import org.seaborne.delta.server.s3.S3;
@@ -73,6 +75,13 @@ public /*package*/ class ServerBuildLib {
                 localServerConfig = LocalServers.configFile(deltaServerConfig.fileBase);
                 providerLabel = "file["+deltaServerConfig.fileBase+"]";
                 break;
+            case SEGMENT :
+                psp = installProvider(new PatchStoreProviderSegment());
+                localServerConfig = LocalServerConfig.create(LocalServers.configSegment(deltaServerConfig.fileBase))
+                    .setProperty(DeltaConst.pDeltaSegmentMigrate, "true")
+                    .build();
+                providerLabel = "segment["+deltaServerConfig.fileBase+"]";
+                break;
             case MEM :
                 psp = installProvider(new PatchStoreProviderMem());
                 localServerConfig = LocalServers.configMem();
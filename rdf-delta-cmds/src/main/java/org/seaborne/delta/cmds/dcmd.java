@@ -44,7 +44,7 @@ public class dcmd {
             case "-h" :
             case "-help" :
             case "--help" :
-                System.err.println("Commands: server, ls, mk, rm, list, get, add, parse, r2p, p2r");
+                System.err.println("Commands: server, ls, mk, rm, list, get, add, cat, squash, parse, r2p, p2r, bench, zkbuckets");
                 return;
         }
 
@@ -90,6 +90,9 @@ public class dcmd {
             case "p2u":
                 cmdExec = "patch2update";
                 break;
+            case "bench":
+                cmdExec = "patchbench";
+                break;
         }
 
         // Execute sub-command
@@ -102,11 +105,14 @@ public class dcmd {
             case "getpatch":        getpatch.main(argsSub); break;
 
             case "catpatch":        catpatch.main(argsSub); break;
+            case "squash":          squash.main(argsSub); break;
 
             case "rdf2patch":       rdf2patch.main(argsSub); break;
             case "patch2rdf":       patch2rdf.main(argsSub); break;
             case "patch2update":    patch2update.main(argsSub); break;
             case "parse":           patchparse.main(argsSub); break;
+            case "patchbench":      patchbench.main(argsSub); break;
+            case "zkbuckets":       zkbuckets.main(argsSub); break;
             case "patchserver":
                 delta.server.DeltaServerCmd.main(argsSub); break;
             case "fuseki":
@@ -0,0 +1,144 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.cmds;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream ;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import jena.cmd.ArgDecl ;
+import jena.cmd.CmdException ;
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.riot.thrift.TRDF;
+import org.apache.jena.sys.JenaSystem;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+import org.seaborne.patch.binary.RDFChangesWriterBinary;
+
+/**
+ * Compare the size and the encode/decode time of the patch encodings over a corpus of
+ * patch files (text or binary) given on the command line.
+ */
+public class patchbench extends CmdPatch
+{
+    static { JenaSystem.init(); LogCtl.setCmdLogging() ; }
+
+    static ArgDecl argRounds = new ArgDecl(true, "rounds");
+
+    public static void main(String... args) {
+        new patchbench(args).mainRun();
+    }
+
+    private final List<RDFPatch> corpus = new ArrayList<>();
+    private int rounds = 10;
+
+    public patchbench(String[] argv) {
+        super(argv) ;
+        super.add(argRounds, "--rounds N", "Number of timed rounds (default 10)");
+    }
+
+    @Override
+    protected String getCommandName() {
+        return "patchbench";
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        super.processModulesAndArgs();
+        if ( contains(argRounds) ) {
+            try {
+                rounds = Integer.parseInt(getValue(argRounds));
+            } catch (NumberFormatException ex) {
+                throw new CmdException("Bad --rounds: "+getValue(argRounds));
+            }
+            if ( rounds <= 0 )
+                throw new CmdException("--rounds must be positive");
+        }
+    }
+
+    @Override
+    protected void execOne(String source, InputStream input) {
+        byte[] bytes = IO.readWholeFile(input);
+        corpus.add(PatchFormat.fromBytes(bytes));
+    }
+
+    private static class Encoding {
+        final String name;
+        final Function<RDFPatch, byte[]> encoder;
+        final Function<byte[], RDFPatch> decoder;
+        Encoding(String name, Function<RDFPatch, byte[]> encoder, Function<byte[], RDFPatch> decoder) {
+            this.name = name;
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+    }
+
+    private static byte[] binary(RDFPatch patch, boolean compress) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(10*1024);
+        RDFChanges writer = new RDFChangesWriterBinary(TRDF.protocol(out), compress);
+        writer.start();
+        patch.apply(writer);
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    @Override
+    protected void execFinish() {
+        if ( corpus.isEmpty() )
+            throw new CmdException("No patches");
+        List<Encoding> encodings = new ArrayList<>();
+        encodings.add(new Encoding("text", PatchFormat.TEXT::toBytes, b->RDFPatchOps.read(new ByteArrayInputStream(b))));
+        encodings.add(new Encoding("binary", p->binary(p, false), b->RDFPatchOps.readBinary(new ByteArrayInputStream(b))));
+        encodings.add(new Encoding("binary-compact", p->binary(p, true), b->RDFPatchOps.readBinary(new ByteArrayInputStream(b))));
+
+        System.out.printf("Patches: %d, rounds: %d\n", corpus.size(), rounds);
+        System.out.printf("%-16s %14s %12s %12s\n", "Encoding", "Bytes", "Encode(ms)", "Decode(ms)");
+        for ( Encoding enc : encodings ) {
+            List<byte[]> encoded = new ArrayList<>(corpus.size());
+            long size = 0;
+            for ( RDFPatch patch : corpus ) {
+                byte[] b = enc.encoder.apply(patch);
+                encoded.add(b);
+                size += b.length;
+            }
+            // Warm up.
+            run(enc, encoded, 2);
+            long t1 = System.nanoTime();
+            for ( int i = 0 ; i < rounds ; i++ )
+                corpus.forEach(enc.encoder::apply);
+            long t2 = System.nanoTime();
+            run(enc, encoded, rounds);
+            long t3 = System.nanoTime();
+            System.out.printf("%-16s %,14d %12.2f %12.2f\n", enc.name, size, (t2-t1)/1e6/rounds, (t3-t2)/1e6/rounds);
+        }
+    }
+
+    private void run(Encoding enc, List<byte[]> encoded, int N) {
+        for ( int i = 0 ; i < N ; i++ ) {
+            for ( byte[] b : encoded )
+                enc.decoder.apply(b);
+            corpus.forEach(enc.encoder::apply);
+        }
+    }
+}
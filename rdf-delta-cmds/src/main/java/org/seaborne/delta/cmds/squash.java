@@ -0,0 +1,90 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.cmds;
+
+import static java.lang.String.format;
+
+import jena.cmd.CmdException ;
+import org.seaborne.delta.DeltaNotFoundException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchLogInfo;
+import org.seaborne.delta.Version;
+import org.seaborne.patch.RDFPatch ;
+import org.seaborne.patch.RDFPatchOps ;
+
+/**
+ * Output the net changes of a range of patches of a log as a single patch: a checkpoint
+ * patch that has the same effect as the patches it replaces. The range defaults to the
+ * whole log.
+ */
+public class squash extends DeltaCmd {
+
+    public static void main(String... args) {
+        new squash(args).mainRun();
+    }
+
+    public squash(String[] argv) {
+        super(argv) ;
+        super.add(argLogName);
+        super.add(argDataSourceURI);
+    }
+
+    @Override
+    protected String getSummary() {
+        return getCommandName()+" --server URL --dsrc NAME [FROM [TO]]";
+    }
+
+    @Override
+    protected void execCmd() {
+        Id dsRef = getDescription().getId();
+        PatchLogInfo logInfo = dLink.getPatchLogInfo(dsRef);
+        if ( ! logInfo.getMinVersion().isValid() || ! logInfo.getMaxVersion().isValid() )
+            throw new CmdException(getCommandName()+" : Empty log");
+
+        if ( getPositional().size() > 2 )
+            throw new CmdException(getCommandName()+" : Too many arguments");
+        Version start = ( getPositional().size() >= 1 ) ? version(getPositional().get(0)) : logInfo.getMinVersion();
+        Version finish = ( getPositional().size() >= 2 ) ? version(getPositional().get(1)) : logInfo.getMaxVersion();
+        if ( start.value() > finish.value() )
+            throw new CmdException(format("%s : Bad range: [%s,%s]", getCommandName(), start, finish));
+
+        RDFPatch patch;
+        try {
+            patch = dLink.fetchSquashed(dsRef, start, finish);
+        } catch (DeltaNotFoundException ex) {
+            throw new CmdException(format("%s : %s patches=[%s,%s] : not found (no datasource)", getCommandName(), dsRef, start, finish));
+        }
+        if ( patch == null )
+            throw new CmdException(format("%s : %s patches=[%s,%s] : not found", getCommandName(), dsRef, start, finish));
+        RDFPatchOps.write(System.out, patch);
+    }
+
+    private Version version(String str) {
+        try {
+            return Version.create(Long.parseLong(str));
+        } catch (NumberFormatException ex) {
+            throw new CmdException(getCommandName()+" : Invalid version: "+str);
+        }
+    }
+
+    @Override
+    protected void checkForMandatoryArgs() {
+        if ( !contains(argLogName) && ! contains(argDataSourceURI) )
+            throw new CmdException("Required: one of --"+argLogName.getKeyName()+" or --"+argDataSourceURI.getKeyName());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.cmds;
+
+import jena.cmd.ArgDecl ;
+import jena.cmd.CmdException ;
+import jena.cmd.CmdGeneral ;
+import org.apache.curator.framework.CuratorFramework ;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.sys.JenaSystem ;
+import org.seaborne.delta.DeltaException ;
+import org.seaborne.delta.server.local.patchstores.zk.PatchLogIndexZk ;
+import org.seaborne.delta.zk.Zk ;
+
+/**
+ * Convert logs in a Zookeeper patch store to the bucket layout of the version index.
+ * This works directly on Zookeeper; run it with no patch server using the logs.
+ */
+public class zkbuckets extends CmdGeneral
+{
+    static { JenaSystem.init(); LogCtl.setCmdLogging() ; }
+
+    static ArgDecl argZk = new ArgDecl(true, "zk");
+
+    public static void main(String... args) {
+        new zkbuckets(args).mainRun();
+    }
+
+    private String connectString = null;
+
+    public zkbuckets(String[] argv) {
+        super(argv) ;
+        super.add(argZk, "--zk=CONNECT", "Zookeeper connection string");
+    }
+
+    @Override
+    protected String getCommandName() {
+        return "zkbuckets";
+    }
+
+    @Override
+    protected String getSummary() {
+        return getCommandName()+" --zk=CONNECT LOG..." ;
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        super.processModulesAndArgs();
+        if ( ! contains(argZk) )
+            throw new CmdException("Required: --zk=CONNECT");
+        connectString = getValue(argZk);
+        if ( getPositional().isEmpty() )
+            throw new CmdException("No log names");
+    }
+
+    @Override
+    protected void exec() {
+        CuratorFramework client = Zk.curator(connectString);
+        try {
+            for ( String name : getPositional() ) {
+                try {
+                    if ( PatchLogIndexZk.migrateToBuckets(client, name) )
+                        System.out.println("Converted "+name);
+                    else
+                        System.out.println("Already uses buckets: "+name);
+                } catch (DeltaException ex) {
+                    throw new CmdException(ex.getMessage());
+                }
+            }
+        } finally { client.close(); }
+    }
+}
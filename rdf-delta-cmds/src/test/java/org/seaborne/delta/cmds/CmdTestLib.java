@@ -17,11 +17,13 @@
 
 package org.seaborne.delta.cmds;
 
+import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.net.BindException;
 
 import delta.server.DeltaServerCmd;
 import org.apache.jena.atlas.io.NullOutputStream;
+import org.apache.jena.atlas.lib.StrUtils;
 import org.seaborne.delta.lib.LibX;
 
 public class CmdTestLib {
@@ -36,6 +38,17 @@ public class CmdTestLib {
         execNoOutput(()->cmd(args));
     }
 
+    /** Run a command and return what it writes to stdout. */
+    static String cmdOutput(String...args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream x = System.out;
+        try {
+            System.setOut(new PrintStream(out, true));
+            cmd(args);
+        } finally { System.setOut(x); }
+        return StrUtils.fromUTF8bytes(out.toByteArray());
+    }
+
     static void execNoOutput(Runnable action) {
         PrintStream x = System.out;
         try {
@@ -20,18 +20,27 @@ package org.seaborne.delta.cmds;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.seaborne.delta.cmds.CmdTestLib.cmdOutput;
 import static org.seaborne.delta.cmds.CmdTestLib.cmdq;
 
+import java.io.ByteArrayInputStream;
 import java.util.List;
 
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Node;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.Id;
 import org.seaborne.delta.PatchLogInfo;
 import org.seaborne.delta.client.DeltaLinkHTTP;
 import org.seaborne.delta.lib.LibX;
 import org.seaborne.delta.link.DeltaLink;
 import org.seaborne.delta.link.DeltaLog;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+import org.seaborne.patch.changes.PatchSummary;
 
 /** Set up a server and perform tests of commands on it. */
 
@@ -69,4 +78,26 @@ public class TestCmds {
         DataSourceDescription dsd1 = dLink.getDataSourceDescriptionByName(LOG_NAME);
         assertNull(dsd1);
     }
+
+    @Test public void cmd_squash() {
+        String LOG_NAME = "ABC_3";
+        cmdq("mk", "--server="+serverURL, LOG_NAME);
+        Id dsRef = dLink.getDataSourceDescriptionByName(LOG_NAME).getId();
+        RDFPatch patch1 = patch(null, "A <x:s> <x:p> 1 .\nA <x:s> <x:p> 2 .\n");
+        dLink.append(dsRef, patch1);
+        RDFPatch patch2 = patch(patch1.getId(), "D <x:s> <x:p> 1 .\nA <x:s> <x:p> 2 .\n");
+        dLink.append(dsRef, patch2);
+
+        String out = cmdOutput("squash", "--server="+serverURL, "--log="+LOG_NAME);
+        RDFPatch squashed = RDFPatchOps.read(new ByteArrayInputStream(StrUtils.asUTF8bytes(out)));
+        assertEquals(patch2.getId(), squashed.getId());
+        PatchSummary summary = RDFPatchOps.summary(squashed);
+        assertEquals(1, summary.getCountAddData());
+        assertEquals(1, summary.getCountDeleteData());
+    }
+
+    private static RDFPatch patch(Node prev, String changes) {
+        RDFPatch body = RDFPatchOps.read(new ByteArrayInputStream(StrUtils.asUTF8bytes("TX .\n"+changes+"TC .\n")));
+        return RDFPatchOps.withHeader(body, Id.create().asNode(), prev);
+    }
 }
@@ -18,7 +18,6 @@
 package org.seaborne.delta.fuseki;
 
 import static java.lang.String.format;
-import static org.seaborne.delta.DeltaConst.contentTypePatchBinary;
 import static org.seaborne.delta.DeltaConst.ctPatchBinary;
 import static org.seaborne.delta.DeltaConst.ctPatchText;
 
@@ -36,12 +35,12 @@ import org.apache.jena.riot.WebContent;
 import org.apache.jena.riot.web.HttpNames;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.web.HttpSC;
+import org.seaborne.delta.PatchFormat;
 import org.seaborne.patch.PatchException;
 import org.seaborne.patch.RDFChanges;
 import org.seaborne.patch.changes.PatchTxnAbortException;
 import org.seaborne.patch.changes.RDFChangesApply;
 import org.seaborne.patch.changes.RDFChangesExternalTxn;
-import org.seaborne.patch.text.RDFPatchReaderText ;
 
 /** A Fuseki service to receive and apply a patch. */
 public class PatchApplyService extends ActionREST {
@@ -84,8 +83,6 @@ public class PatchApplyService extends ActionREST {
 
         if ( ! ctPatchText.equals(contentType) && ! ctPatchBinary.equals(contentType) )
             ServletOps.error(HttpSC.UNSUPPORTED_MEDIA_TYPE_415, "Allowed Content-types are "+ctPatchText+" or "+ctPatchBinary+", not "+ctStr);
-        if ( ctPatchBinary.equals(contentType) )
-            ServletOps.error(HttpSC.UNSUPPORTED_MEDIA_TYPE_415, contentTypePatchBinary+" not supported yet");
     }
 
     protected void operation(HttpAction action) {
@@ -135,19 +132,20 @@ public class PatchApplyService extends ActionREST {
      */
     private void applyRDFPatch(HttpAction action, WithPatchTxn withPatchTxn) {
         try {
-            String ct = action.getRequest().getContentType();
-            // If triples or quads, maybe POST.
+            // Validated to be text or binary RDF Patch; anything else is read as text.
+            PatchFormat format = PatchFormat.fromContentType(action.getRequest().getContentType());
+            if ( format == null )
+                format = PatchFormat.TEXT;
 
             InputStream input = action.request.getInputStream();
             DatasetGraph dsg = action.getDataset();
 
-            RDFPatchReaderText pr = new RDFPatchReaderText(input);
             RDFChanges changes = new RDFChangesApply(dsg);
             // External transaction. Suppress patch recorded TX and TC.
             if ( withPatchTxn == WithPatchTxn.EXTERNAL_TXN )
                 changes = new RDFChangesExternalTxn(changes);
 
-            pr.apply(changes);
+            format.apply(input, changes);
             ServletOps.success(action);
         }
         catch (PatchTxnAbortException ex) {
@@ -18,7 +18,6 @@
 package org.seaborne.delta.fuseki;
 
 import static java.lang.String.format;
-import static org.seaborne.delta.DeltaConst.contentTypePatchBinary;
 import static org.seaborne.delta.DeltaConst.ctPatchBinary;
 import static org.seaborne.delta.DeltaConst.ctPatchText;
 
@@ -43,6 +42,7 @@ import org.apache.jena.riot.WebContent;
 import org.apache.jena.riot.out.NodeFmtLib;
 import org.apache.jena.riot.web.HttpNames;
 import org.apache.jena.web.HttpSC;
+import org.seaborne.delta.PatchFormat;
 import org.seaborne.patch.RDFPatch;
 import org.seaborne.patch.RDFPatchOps;
 import org.seaborne.patch.filelog.FilePolicy;
@@ -113,8 +113,6 @@ public class PatchWriteServlet extends ActionBase {
         ContentType contentType = ( ctStr != null ) ? ContentType.create(ctStr) : ctPatchText;
         if ( ! ctPatchText.equals(contentType) && ! ctPatchBinary.equals(contentType) )
             ServletOps.error(HttpSC.UNSUPPORTED_MEDIA_TYPE_415, "Allowed Content-types are "+ctPatchText+" or "+ctPatchBinary+", not "+ctStr);
-        if ( ctPatchBinary.equals(contentType) )
-            ServletOps.error(HttpSC.UNSUPPORTED_MEDIA_TYPE_415, contentTypePatchBinary+" not supported yet");
     }
 
     protected void operation(HttpAction action) {
@@ -140,10 +138,12 @@ public class PatchWriteServlet extends ActionBase {
 
     private void actOnRDFPatch(HttpAction action) {
         try {
-            String ct = action.getRequest().getContentType();
+            PatchFormat format = PatchFormat.fromContentType(action.getRequest().getContentType());
+            if ( format == null )
+                format = PatchFormat.TEXT;
             InputStream input = action.request.getInputStream();
 
-            RDFPatch patch = RDFPatchOps.read(input);
+            RDFPatch patch = format.read(input);
             try ( OutputStream out = output.output() ) {
                 String fn = output.currentFilename().getFileName().toString();
                 if ( action.verbose ) {
@@ -18,8 +18,10 @@
 package org.seaborne.delta.server.s3;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -27,24 +29,36 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
 
+import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.riot.web.HttpNames;
 import org.apache.jena.web.HttpSC;
 import org.seaborne.delta.DeltaConfigException;
-import org.seaborne.delta.DeltaConst;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.SpooledPatch;
+import org.seaborne.delta.lib.IOX;
 import org.seaborne.delta.server.local.patchstores.PatchStorage;
 import org.seaborne.patch.RDFPatch;
-import org.seaborne.patch.RDFPatchOps;
 
 public class PatchStorageS3 implements PatchStorage {
 
     private final AmazonS3 client;
     private String bucketName;
     private String prefix;
+    private final PatchFormat format;
 
     public PatchStorageS3(AmazonS3 client, String bucketName, String prefix) {
+        this(client, bucketName, prefix, PatchFormat.TEXT);
+    }
+
+    /**
+     * Patch storage with patches written in {@code format}.
+     * Patches in either format can be read, so the format of a log can be changed.
+     */
+    public PatchStorageS3(AmazonS3 client, String bucketName, String prefix, PatchFormat format) {
         this.client = client;
+        this.format = format;
         this.bucketName = bucketName;
         if ( ! prefix.endsWith("/") )
             prefix = prefix+"/";
@@ -53,17 +67,33 @@ public class PatchStorageS3 implements PatchStorage {
             throw new DeltaConfigException("Bucket does not exist or is not accessible");
     }
 
-    private String idToKey(Id id) {
+    protected AmazonS3 client()         { return client; }
+    protected String bucketName()       { return bucketName; }
+    protected PatchFormat format()      { return format; }
+
+    protected String idToKey(Id id) {
         return prefix+id.asParam();
     }
 
     @Override
     public Stream<Id> find() {
-        ObjectListing objects = client.listObjects(bucketName, prefix);
-        return
+        // A listing returns at most 1000 keys; follow the continuation token for the rest.
+        List<Id> ids = new ArrayList<>();
+        ListObjectsV2Request request = new ListObjectsV2Request()
+            .withBucketName(bucketName)
+            .withPrefix(prefix)
+            .withMaxKeys(S3Const.LIST_PAGE_SIZE);
+        for ( ;; ) {
+            ListObjectsV2Result objects = client.listObjectsV2(request);
             objects.getObjectSummaries().stream()
                 .map(s->keyToId(s))
-                .filter(Objects::nonNull);
+                .filter(Objects::nonNull)
+                .forEach(ids::add);
+            if ( ! objects.isTruncated() || objects.getNextContinuationToken() == null )
+                break;
+            request.setContinuationToken(objects.getNextContinuationToken());
+        }
+        return ids.stream();
     }
 
     private Id keyToId(S3ObjectSummary summary) {
@@ -84,26 +114,39 @@ public class PatchStorageS3 implements PatchStorage {
     @Override
     public void store(Id key, RDFPatch value) {
         String s3Key = idToKey(key);
-        ByteArrayOutputStream out = new ByteArrayOutputStream(10*1024);
-        RDFPatchOps.write(out, value);
-        byte[] bytes = out.toByteArray();
+        if ( value instanceof SpooledPatch && ((SpooledPatch)value).getFormat() == format ) {
+            // Upload the spooled file as it is.
+            SpooledPatch spooled = (SpooledPatch)value;
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentType(format.getContentType());
+            client.putObject(new PutObjectRequest(bucketName, s3Key, spooled.getPath().toFile()).withMetadata(metadata));
+            return;
+        }
+        byte[] bytes = format.toBytes(value);
         InputStream in = new ByteArrayInputStream(bytes);
         ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentType(DeltaConst.contentTypePatchText);
+        metadata.setContentType(format.getContentType());
         metadata.setContentLength(bytes.length);
         client.putObject(bucketName, s3Key, in, metadata);
     }
 
     @Override
     public RDFPatch fetch(Id key) {
+        byte[] bytes = fetchBytes(key);
+        // Detect the format from the bytes: the content type of older objects may not be set.
+        return ( bytes == null ) ? null : PatchFormat.fromBytes(bytes);
+    }
+
+    /** Get the bytes of a patch from S3; return null if there is no such patch. */
+    protected byte[] fetchBytes(Id key) {
         String s3Key = idToKey(key);
         try {
             S3Object x = client.getObject(bucketName, s3Key);
-            x.getObjectMetadata();
-            S3ObjectInputStream input = x.getObjectContent();
-            RDFPatch patch = RDFPatchOps.read(input);
-            return patch;
+            try ( S3ObjectInputStream input = x.getObjectContent() ) {
+                return IO.readWholeFile(input);
+            }
         }
+        catch (IOException ex) { throw IOX.exception(ex); }
         catch (AmazonServiceException awsEx) {
             switch (awsEx.getStatusCode()) {
                 case HttpSC.NOT_FOUND_404 :
@@ -116,7 +159,6 @@ public class PatchStorageS3 implements PatchStorage {
             }
             throw awsEx;
         }
-
     }
 
     @Override
@@ -0,0 +1,196 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.s3;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.ext.com.google.common.cache.Cache;
+import org.apache.jena.ext.com.google.common.cache.CacheBuilder;
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.SpooledPatch;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PatchStorageS3} with asynchronous S3 access.
+ * <ul>
+ * <li>{@link #store} starts the upload and returns; {@link #flush} waits for the uploads.
+ * Large patches are uploaded in parts.
+ * <li>When patches are read in order, the next patches are fetched ahead of being asked for.
+ * </ul>
+ * The threads, and the limit on the number of S3 requests in progress, are shared by all
+ * the logs of the patch store (see {@link S3Pool}).
+ */
+public class PatchStorageS3Async extends PatchStorageS3 {
+    private static Logger LOG = LoggerFactory.getLogger(PatchStorageS3Async.class);
+
+    private final S3Pool pool;
+    // Uploads not yet flushed, with the patch so it can be fetched before the upload finishes.
+    private final Map<Id, Pending> pending = new ConcurrentHashMap<>();
+    // Patches fetched ahead. Bounded, in case they are never asked for.
+    private final Cache<Id, CompletableFuture<byte[]>> prefetched;
+
+    private static class Pending {
+        // One of bytes or a spooled patch.
+        final byte[] bytes;
+        final SpooledPatch spooled;
+        final CompletableFuture<Void> upload;
+        Pending(byte[] bytes, SpooledPatch spooled, CompletableFuture<Void> upload) {
+            this.bytes = bytes;
+            this.spooled = spooled;
+            this.upload = upload;
+        }
+
+        RDFPatch patch() {
+            return ( bytes != null ) ? PatchFormat.fromBytes(bytes) : RDFPatchOps.collect(spooled);
+        }
+    }
+
+    /*package*/ PatchStorageS3Async(S3Pool pool, String bucketName, String prefix, PatchFormat format) {
+        super(pool.client, bucketName, prefix, format);
+        this.pool = pool;
+        this.prefetched = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(1, 4*pool.prefetch))
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+    }
+
+    @Override
+    public void store(Id key, RDFPatch value) {
+        String s3Key = idToKey(key);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(format().getContentType());
+        byte[] bytes = null;
+        SpooledPatch spooled = null;
+        PutObjectRequest request;
+        if ( value instanceof SpooledPatch && ((SpooledPatch)value).getFormat() == format() ) {
+            // Upload from the spooled file; the file is only read a part at a time.
+            // The file exists until the append, which includes the flush, finishes.
+            spooled = (SpooledPatch)value;
+            request = new PutObjectRequest(bucketName(), s3Key, spooled.getPath().toFile()).withMetadata(metadata);
+        } else {
+            bytes = format().toBytes(value);
+            metadata.setContentLength(bytes.length);
+            request = new PutObjectRequest(bucketName(), s3Key, new ByteArrayInputStream(bytes), metadata);
+        }
+        pool.uploads.acquireUninterruptibly();
+        CompletableFuture<Void> upload;
+        try {
+            upload = CompletableFuture.runAsync(()->{
+                try {
+                    pool.transferManager.upload(request).waitForCompletion();
+                } catch (InterruptedException ex) {
+                    throw new DeltaException("Interrupted: upload "+s3Key);
+                }
+            }, pool.executor);
+        } catch (RuntimeException ex) {
+            pool.uploads.release();
+            throw ex;
+        }
+        upload.whenComplete((x, ex)->pool.uploads.release());
+        pending.put(key, new Pending(bytes, spooled, upload));
+    }
+
+    @Override
+    public Stream<Id> find() {
+        // Include the patches still being uploaded.
+        return Stream.concat(super.find(), new ArrayList<>(pending.keySet()).stream()).distinct();
+    }
+
+    @Override
+    public void flush() {
+        List<Throwable> failures = new ArrayList<>();
+        List<Id> keys = new ArrayList<>(pending.keySet());
+        for ( Id key : keys ) {
+            Pending p = pending.get(key);
+            if ( p == null )
+                continue;
+            try {
+                p.upload.join();
+            } catch (CompletionException ex) {
+                FmtLog.warn(LOG, "Upload failed: %s : %s", key, ex.getCause().getMessage());
+                failures.add(ex.getCause());
+            }
+            pending.remove(key);
+        }
+        if ( ! failures.isEmpty() )
+            throw new DeltaException("Failed to store "+failures.size()+" patch(es) in S3", failures.get(0));
+    }
+
+    @Override
+    public RDFPatch fetch(Id key) {
+        Pending p = pending.get(key);
+        if ( p != null )
+            return p.patch();
+        byte[] bytes = null;
+        CompletableFuture<byte[]> f = prefetched.asMap().remove(key);
+        if ( f != null ) {
+            try {
+                bytes = f.join();
+            } catch (CompletionException ex) {
+                // Try again, directly.
+                FmtLog.debug(LOG, "Prefetch failed: %s : %s", key, ex.getCause().getMessage());
+            }
+        }
+        if ( bytes == null )
+            bytes = fetchBytes(key);
+        return ( bytes == null ) ? null : PatchFormat.fromBytes(bytes);
+    }
+
+    @Override
+    public int prefetchWindow() {
+        return pool.prefetch;
+    }
+
+    @Override
+    public void prefetch(List<Id> ids) {
+        for ( Id id : ids ) {
+            if ( pending.containsKey(id) )
+                continue;
+            prefetched.asMap().computeIfAbsent(id, k->CompletableFuture.supplyAsync(()->fetchBytes(k), pool.executor));
+        }
+    }
+
+    @Override
+    public void delete(Id id) {
+        pending.remove(id);
+        prefetched.invalidate(id);
+        super.delete(id);
+    }
+
+    @Override
+    public void release() {
+        prefetched.invalidateAll();
+    }
+}
@@ -17,9 +17,7 @@
 
 package org.seaborne.delta.server.s3;
 
-import static org.seaborne.delta.server.s3.S3Const.pBucketName;
-import static org.seaborne.delta.server.s3.S3Const.pPrefix;
-import static org.seaborne.delta.server.s3.S3Const.pRegion;
+import static org.seaborne.delta.server.s3.S3Const.*;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.util.StringUtils;
@@ -47,11 +45,18 @@ public class PatchStoreProviderZkS3 extends PatchStoreProviderZk {
         final String prefix;
         final String bucketName;  //DNS name,lower case.
         final AmazonS3 client;
+        // Async mode, or null.
+        final S3Pool pool;
 
         public DetailsS3(String bucketName, String prefix, AmazonS3 client) {
+            this(bucketName, prefix, client, null);
+        }
+
+        DetailsS3(String bucketName, String prefix, AmazonS3 client, S3Pool pool) {
             this.prefix = prefix;
             this.bucketName = bucketName;
             this.client = client;
+            this.pool = pool;
         }
     }
 
@@ -85,10 +90,29 @@ public class PatchStoreProviderZkS3 extends PatchStoreProviderZk {
             prefixStr = DEFAULT_PREFIX;
         String prefix = (prefixStr!=null) ? prefixStr : DEFAULT_PREFIX;
         AmazonS3 client = S3.buildS3(configuration);
-        return new DetailsS3(bucketName, prefix, client);
+        S3Pool pool = null;
+        if ( Boolean.parseBoolean(configuration.getProperty(pAsync)) ) {
+            int threads = (int)number(configuration, pThreads, THREADS);
+            int prefetch = (int)number(configuration, pPrefetch, PREFETCH);
+            long multipartSize = number(configuration, pMultipartSize, MULTIPART_SIZE);
+            pool = new S3Pool(client, threads, prefetch, multipartSize);
+        }
+        return new DetailsS3(bucketName, prefix, client, pool);
         //return access.computeIfAbsent(bucketName, n->new DetailsS3(bucketName, prefix, client));
     }
 
+    private static long number(LocalServerConfig configuration, String name, long dftValue) {
+        String x = configuration.getProperty(name);
+        if ( StringUtils.isNullOrEmpty(x) )
+            return dftValue;
+        try {
+            return Long.parseLong(x.trim());
+        } catch (NumberFormatException ex) {
+            FmtLog.warn(Delta.DELTA_LOG, "Bad value for %s: '%s'", name, x);
+            return dftValue;
+        }
+    }
+
     /** Long name */
     @Override
     public String getProviderName() {
@@ -105,6 +129,8 @@ public class PatchStoreProviderZkS3 extends PatchStoreProviderZk {
     public PatchStorage newPatchStorage(DataSourceDescription dsd, PatchStore patchStore, LocalServerConfig configuration) {
         DetailsS3 s3 = ((PatchStoreZkS3)patchStore).access();
         String logPrefix = s3.prefix+dsd.getName()+"/";
-        return new PatchStorageS3(s3.client, s3.bucketName, logPrefix);
+        if ( s3.pool != null )
+            return new PatchStorageS3Async(s3.pool, s3.bucketName, logPrefix, configuration.getPatchFormat());
+        return new PatchStorageS3(s3.client, s3.bucketName, logPrefix, configuration.getPatchFormat());
     }
 }
@@ -32,4 +32,11 @@ public class PatchStoreZkS3 extends PatchStoreZk {
     }
 
     public DetailsS3 access() { return s3; }
+
+    @Override
+    protected void closeStore() {
+        if ( s3.pool != null )
+            s3.pool.shutdown();
+        super.closeStore();
+    }
 }
@@ -24,6 +24,11 @@ package org.seaborne.delta.server.s3;
  *   delta.s3.region        Required.
  *   delta.s3.bucket_name   Required.
  *   delta.s3.prefix        Defaults to "patches/"
+ *
+ *   delta.s3.async         "true" for asynchronous reads and writes (see PatchStorageS3Async)
+ *   delta.s3.threads       Maximum S3 requests in progress, async mode.
+ *   delta.s3.prefetch      Patches to read ahead when patches are read in order, async mode.
+ *   delta.s3.multipart_size  Patches larger than this, in bytes, are uploaded in parts of this size, async mode.
  *   
  *   The default S3CredentialsProviderChain is used unless: 
  *   delta.s3.credentials_file
@@ -44,4 +49,18 @@ public class S3Const {
     public static final String   pRegion            = "delta.s3.region";
     public static final String   pCredentialFile    = "delta.s3.credentials_file";
     public static final String   pCredentialProfile = "delta.s3.credentials_profile";    
+
+    // Async mode
+    public static final String   pAsync             = "delta.s3.async";
+    public static final String   pThreads           = "delta.s3.threads";
+    public static final String   pPrefetch          = "delta.s3.prefetch";
+    public static final String   pMultipartSize     = "delta.s3.multipart_size";
+
+    public static final int      THREADS            = 8;
+    public static final int      PREFETCH           = 8;
+    // S3 requires parts, except the last, to be at least 5Mbytes.
+    public static final long     MULTIPART_SIZE     = 8*1024*1024;
+
+    // Maximum keys returned by one S3 listing request.
+    public static final int      LIST_PAGE_SIZE     = 1000;
 }
@@ -0,0 +1,70 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.s3;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+
+/**
+ * The threads and transfer manager shared by the {@link PatchStorageS3Async} of each
+ * log of a patch store.
+ * <p>
+ * At most {@code threads} S3 requests are in progress at a time, and a writer waits when
+ * {@code threads} uploads are already outstanding. Uploads larger than
+ * {@code multipartSize} bytes are sent in parts of that size, in parallel.
+ */
+class S3Pool {
+    private static final AtomicInteger threadCount = new AtomicInteger(0);
+
+    final AmazonS3 client;
+    final ExecutorService executor;
+    final TransferManager transferManager;
+    final Semaphore uploads;
+    final int prefetch;
+
+    S3Pool(AmazonS3 client, int threads, int prefetch, long multipartSize) {
+        this.client = client;
+        this.executor = Executors.newFixedThreadPool(threads, S3Pool::thread);
+        this.transferManager = TransferManagerBuilder.standard()
+            .withS3Client(client)
+            .withMultipartUploadThreshold(multipartSize)
+            .withMinimumUploadPartSize(multipartSize)
+            .withExecutorFactory(()->Executors.newFixedThreadPool(threads, S3Pool::thread))
+            .build();
+        this.uploads = new Semaphore(threads);
+        this.prefetch = prefetch;
+    }
+
+    private static Thread thread(Runnable r) {
+        Thread t = new Thread(r, "PatchStorageS3-"+threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        // The S3 client is not shutdown.
+        transferManager.shutdownNow(false);
+    }
+}
@@ -35,6 +35,11 @@ public class S3T {
     static String BUCKET_NAME = "some-bucket";
 
     public static Pair<PatchStore, S3Mock> setup() {
+        return setup(false);
+    }
+
+    /** Setup, with {@link PatchStorageS3Async} if {@code async} is true. */
+    public static Pair<PatchStore, S3Mock> setup(boolean async) {
         TestingServer server = ZkT.localServer();
         String connectString = "localhost:" + server.getPort();
         int port = LibX.choosePort();
@@ -62,6 +67,12 @@ public class S3T {
             .endpoint(endpoint)
             .build();
         LocalServerConfig config = S3.configZkS3(connectString, cfg);
+        if ( async ) {
+            config = LocalServerConfig.create(config)
+                .setProperty(S3Const.pAsync, "true")
+                .setProperty(S3Const.pPrefetch, "2")
+                .build();
+        }
 
         PatchStoreProvider provider = new PatchStoreProviderZkS3();
         PatchStore patchStore = provider.create(config);
@@ -26,6 +26,8 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestPatchStorageS3.class
     , TestPatchLogZkS3.class
+    , TestPatchStorageS3Async.class
+    , TestPatchLogZkS3Async.class
     , TestPatchStoreZkS3.class
 })
 
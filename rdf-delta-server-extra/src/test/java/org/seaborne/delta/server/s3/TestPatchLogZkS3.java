@@ -34,11 +34,15 @@ public class TestPatchLogZkS3 extends AbstractTestPatchLog {
     private S3Mock s3Mock ;
 
     @Before public void beforeZkS3() {
-        Pair<PatchStore, S3Mock> pair = S3T.setup();
+        Pair<PatchStore, S3Mock> pair = setup();
         patchStore = pair.getLeft();
         s3Mock = pair.getRight();
     }
 
+    protected Pair<PatchStore, S3Mock> setup() {
+        return S3T.setup();
+    }
+
     @After public void afterZkS3() {
         patchStore.shutdown();
         if ( s3Mock != null )
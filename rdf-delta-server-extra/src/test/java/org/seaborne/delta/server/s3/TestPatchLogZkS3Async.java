@@ -0,0 +1,60 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.findify.s3mock.S3Mock;
+import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.graph.Node;
+import org.junit.Test;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.server.local.PatchCache;
+import org.seaborne.delta.server.local.PatchLog;
+import org.seaborne.delta.server.local.PatchStore;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+public class TestPatchLogZkS3Async extends TestPatchLogZkS3 {
+
+    @Override
+    protected Pair<PatchStore, S3Mock> setup() {
+        return S3T.setup(true);
+    }
+
+    // Read the log in order, with prefetching.
+    @Test public void patchLogS3Async_range() {
+        PatchLog patchLog = patchLog();
+        RDFPatch patch = null;
+        for ( int i = 0 ; i < 5 ; i++ ) {
+            Node prev = ( patch == null ) ? null : patch.getId();
+            patch = RDFPatchOps.withHeader(RDFPatchOps.emptyPatch(), Id.create().asNode(), prev);
+            patchLog.append(patch);
+        }
+        PatchCache.get().clear();
+        List<RDFPatch> patches = patchLog.range(Version.FIRST, Version.create(5)).collect(Collectors.toList());
+        assertEquals(5, patches.size());
+        patches.forEach(p->assertNotNull(p));
+        assertEquals(patch.getId(), patches.get(4).getId());
+    }
+}
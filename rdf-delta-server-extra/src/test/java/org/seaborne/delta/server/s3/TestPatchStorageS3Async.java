@@ -0,0 +1,114 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.s3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.services.s3.AmazonS3;
+
+import io.findify.s3mock.S3Mock;
+import org.apache.jena.atlas.logging.LogCtl;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.server.local.LocalServerConfig;
+import org.seaborne.delta.server.local.patchstores.PatchStorage;
+import org.seaborne.delta.server.patchstores.AbstractTestPatchStorage;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+import org.seaborne.patch.changes.RDFChangesCollector;
+
+public class TestPatchStorageS3Async extends AbstractTestPatchStorage {
+    static { LogCtl.setJavaLogging(); }
+
+    private static String testRegion = "uk-bristol-1";
+    private static String testBucketName = "delta";
+    private static String testPrefix = "patches/";
+
+    private int port = TestPatchStorageS3.choosePort();
+    private S3Mock s3Mock;
+    private String endpoint = "http://localhost:"+port+"/";
+    private AmazonS3 aws;
+    private S3Pool pool;
+
+    @Before public void before() {
+        s3Mock = new S3Mock.Builder().withPort(port).withInMemoryBackend().build();
+        s3Mock.start();
+        S3Config cfg = S3Config.create()
+            .bucketName(testBucketName)
+            .region(testRegion)
+            .endpoint(endpoint)
+            .build();
+        LocalServerConfig config = S3.configZkS3("", cfg);
+        aws = S3.buildS3(config);
+        S3.ensureBucketExists(aws, testBucketName);
+        // Small parts so that the test patches are uploaded in parts.
+        pool = new S3Pool(aws, 4, 2, 1024);
+   }
+
+    @After public void after() {
+        pool.shutdown();
+        s3Mock.shutdown();
+    }
+
+    @Override
+    protected PatchStorage patchStorage() {
+        return new PatchStorageS3Async(pool, testBucketName, testPrefix, PatchFormat.TEXT);
+    }
+
+    @Test public void patchStorageS3Async_multipart() {
+        PatchStorage storage = patchStorage();
+        RDFChangesCollector c = new RDFChangesCollector();
+        c.txnBegin();
+        for ( int i = 0 ; i < 200 ; i++ ) {
+            Node n = NodeFactory.createURI("http://example/s"+i);
+            c.add(null, n, n, NodeFactory.createLiteral("Object number "+i));
+        }
+        c.txnCommit();
+        RDFPatch patch = RDFPatchOps.withHeader(c.getRDFPatch(), Id.create().asNode(), null);
+        Id id = Id.fromNode(patch.getId());
+        storage.store(id, patch);
+        storage.flush();
+        // Read with the synchronous storage.
+        RDFPatch patch2 = new PatchStorageS3(aws, testBucketName, testPrefix).fetch(id);
+        assertNotNull(patch2);
+        assertArrayEquals(PatchFormat.TEXT.toBytes(patch), PatchFormat.TEXT.toBytes(patch2));
+    }
+
+    @Test public void patchStorageS3Async_prefetch() {
+        PatchStorage storage = patchStorage();
+        List<Id> ids = new ArrayList<>();
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            Id id = Id.create();
+            storage.store(id, RDFPatchOps.emptyPatch());
+            ids.add(id);
+        }
+        storage.flush();
+        storage.prefetch(ids);
+        ids.forEach(id->assertNotNull(storage.fetch(id)));
+    }
+}
@@ -39,6 +39,8 @@ import org.seaborne.delta.Id;
  *  <li><tt>dataset</tt> &ndash; Id or URI for the datasource
  *  <li><tt>patch</tt> &ndash; patch id (for fetch)
  *  <li><tt>version</tt> &ndash; version number
+ *  <li><tt>from</tt>, <tt>to</tt> &ndash; version range, inclusive (for fetch)
+ *  <li><tt>squash</tt> &ndash; fetch the version range as one patch of the net changes
  *  <li><tt>ref</tt> &ndash; pointer to predefined arguments [Not Implemented]
  *  <li><tt>zone</tt> &ndash; pointer to predefined arguments [Not Implemented]
  *  </ul>
@@ -65,14 +67,20 @@ public class Args {
         Id patchId =    Id.fromStringOrNull(patchIdStr);
         Id clientId =   Id.fromStringOrNull(clientIdStr);
         Long version =  (versionStr == null)  ? null : Long.parseLong(versionStr);
-        return new Args(request, datasourceName, patchId, version, clientId, tokenStr);
+        Long versionFrom = parseRangeParam(request, DeltaConst.paramFrom);
+        Long versionTo = parseRangeParam(request, DeltaConst.paramTo);
+        return new Args(request, datasourceName, patchId, version, versionFrom, versionTo, clientId, tokenStr);
     }
 
     /** Process an HTTP request to extract the arguments.
      * Two styles are supported: the preferred RESTful coatainer style:
      *      * <ul>
      * <li>Append patch: {@code POST} to <tt>/{name}/</tt>
-     * <li>Get patch: {@code GET} from <tt>/{name}/log/{id or version}</tt>
+     * <li>Get patch: {@code GET} from <tt>/{name}/patch/{id}</tt> or <tt>/{name}/version/{version}</tt>
+     * <li>Get patch: {@code GET} from <tt>/{name}/{id or version}</tt>
+     * <li>Get patches: {@code GET} from <tt>/{name}?from={version}&amp;to={version}</tt>
+ * <li>Get the net changes of patches: {@code GET} from <tt>/{name}?from={version}&amp;to={version}&amp;squash=true</tt>
+     * <li>Get the log info: {@code GET} from <tt>/{name}/info</tt>
      * </ul>
      * but also the same information using query string parameters:
      * <ul>
@@ -103,19 +111,27 @@ public class Args {
             try { version = Long.parseLong(versionStr); }
             catch (NumberFormatException ex) { errorBadRequest("Can't parse version: "+versionStr) ; }
         }
+        Long versionFrom = parseRangeParam(request, DeltaConst.paramFrom);
+        Long versionTo = parseRangeParam(request, DeltaConst.paramTo);
+        boolean squash = Boolean.parseBoolean(request.getParameter(DeltaConst.paramSquash));
 
         /* Now the preferred URI:
          *     /servlet/{name}/
-         *     /servlet/{name}/patch/{version}
          *     /servlet/{name}/patch/{id}
+         *     /servlet/{name}/version/{version}
+         *     /servlet/{name}/info
+         * and the short form:
+         *     /servlet/{name}/{id or version}
          */
 
         String uri = request.getRequestURI();
         String x = getTrailing(request);
         if ( x.isEmpty() ) {
             // No name.
-            return new Args(request, datasourceName, patchId, version, clientId, tokenStr);
+            return new Args(request, datasourceName, patchId, version, versionFrom, versionTo, clientId, tokenStr, false, false, squash);
         }
+        boolean canonical = false;
+        boolean logInfo = false;
 
         if ( ! x.startsWith("/") )
             errorBadRequest("Bad URI: "+uri);
@@ -134,24 +150,57 @@ public class Args {
         // Cant happen?
         if ( z.length == 0 ) throw new IllegalArgumentException("zero length URI split array") ;
         if ( z.length == 1 ) errorBadRequest("No name given");
-        if ( z.length > 3 )
+        if ( z.length > 4 )
             errorBadRequest("URI path has too many components.");
-        // Case length 2 or 3.
+        // Case length 2, 3 or 4.
         datasourceName = z[1];
         if ( z.length == 3 ) {
             String patchStr = z[2];
 
             if ( patchStr.isEmpty() )
                 errorBadRequest("Patch ref empty");
-            if ( Id.maybeUUID(patchStr) ) {
+            if ( patchStr.equals(DeltaConst.EP_LogInfo) ) {
+                logInfo = true;
+            } else if ( Id.maybeUUID(patchStr) ) {
                 patchId = Id.parseId(patchStr, null);
                 if ( patchId == null )
-                    errorBadRequest("Can't parse id: "+versionStr);
+                    errorBadRequest("Can't parse id: "+patchStr);
             } else {
                 version = parseVersion(patchStr, null);
             }
         }
-        return new Args(request, datasourceName, patchId, version, clientId, tokenStr);
+        if ( z.length == 4 ) {
+            // Canonical URLs for a single patch.
+            String kind = z[2];
+            String patchStr = z[3];
+            switch(kind) {
+                case DeltaConst.EP_LogPatch:
+                    patchId = Id.maybeUUID(patchStr) ? Id.parseId(patchStr, null) : null;
+                    if ( patchId == null )
+                        errorBadRequest("Can't parse id: "+patchStr);
+                    break;
+                case DeltaConst.EP_LogVersion:
+                    version = parseVersion(patchStr, null);
+                    if ( version == null )
+                        errorBadRequest("Can't parse version: "+patchStr);
+                    break;
+                default:
+                    errorBadRequest("Bad URI: "+uri);
+            }
+            canonical = true;
+        }
+        return new Args(request, datasourceName, patchId, version, versionFrom, versionTo, clientId, tokenStr, canonical, logInfo, squash);
+    }
+
+    /** Version range query string parameter : "from" or "to". */
+    private static Long parseRangeParam(HttpServletRequest request, String paramName) {
+        String str = request.getParameter(paramName);
+        if ( str == null )
+            return null;
+        Long x = parseVersion(str, null);
+        if ( x == null )
+            errorBadRequest("Can't parse version range parameter: "+paramName+"="+str);
+        return x;
     }
 
     private static UUID parseUUID(String patchStr, UUID dft) {
@@ -205,10 +254,27 @@ public class Args {
     public final String datasourceName;
     public final Id patchId;
     public final Long version;
+    public final Long versionFrom;
+    public final Long versionTo;
     public final Id clientId;
     public final String token;
+    /** The request used a canonical patch URL: <tt>/{name}/patch/{id}</tt> or <tt>/{name}/version/{version}</tt>. */
+    public final boolean canonical;
+    /** The request is for the patch log info resource, <tt>/{name}/info</tt>. */
+    public final boolean logInfo;
+    /** The request is for the net changes of a version range as one patch. */
+    public final boolean squash;
 
     public Args(HttpServletRequest request, String datasourceName, Id patchId, Long verStr, Id clientId, String token) {
+        this(request, datasourceName, patchId, verStr, null, null, clientId, token);
+    }
+
+    public Args(HttpServletRequest request, String datasourceName, Id patchId, Long verStr, Long verFrom, Long verTo, Id clientId, String token) {
+        this(request, datasourceName, patchId, verStr, verFrom, verTo, clientId, token, false, false, false);
+    }
+
+    public Args(HttpServletRequest request, String datasourceName, Id patchId, Long verStr, Long verFrom, Long verTo, Id clientId, String token,
+                boolean canonical, boolean logInfo, boolean squash) {
         super();
         this.url = ServerLib.url(request);
         this.method = request.getMethod().toUpperCase(Locale.ROOT);
@@ -224,7 +290,12 @@ public class Args {
         this.datasourceName = datasourceName;
         this.patchId = patchId;
         this.version = verStr;
+        this.versionFrom = verFrom;
+        this.versionTo = verTo;
         this.clientId = clientId;
         this.token = token;
+        this.canonical = canonical;
+        this.logInfo = logInfo;
+        this.squash = squash;
     }
 }
@@ -32,6 +32,7 @@ import org.apache.jena.riot.web.HttpNames ;
 import org.apache.jena.web.HttpSC;
 import org.seaborne.delta.Delta ;
 import org.seaborne.delta.DeltaBadRequestException ;
+import org.seaborne.delta.DeltaConst ;
 import org.seaborne.delta.DeltaHttpException ;
 import org.seaborne.delta.Id ;
 import org.seaborne.delta.link.DeltaLink;
@@ -94,7 +95,7 @@ public abstract class DeltaServlet extends HttpServlet {
         } catch (DeltaHttpException ex) {
             // doCommon() should handle these.
             Delta.DELTA_LOG.error("HTTP exception: "+ex.getStatusCode()+ " -- "+ex.getMessage());
-            try { resp.sendError(ex.getStatusCode(), ex.getMessage()) ; } catch (IOException ex2) {}
+            try { sendError(resp, ex) ; } catch (IOException ex2) {}
         } catch (ActionErrorException ex) {
             // Should not happen - comes from ServletOps, not DeltaAction.
             Delta.DELTA_LOG.error("HTTP exception: "+ex.getRC()+" -- "+ex.getMessage());
@@ -158,8 +159,15 @@ public abstract class DeltaServlet extends HttpServlet {
         }
         catch (DeltaHttpException ex) {
             logger.info(ex.getStatusCode()+" "+ex.getMessage());
-            resp.sendError(ex.getStatusCode(), ex.getMessage());
+            sendError(resp, ex);
         }
         // Unexpected exceptions case handled by service()
     }
+
+    /** Send an error response. A "503" (e.g. log still being opened) says when to try again. */
+    private static void sendError(HttpServletResponse resp, DeltaHttpException ex) throws IOException {
+        if ( ex.getStatusCode() == HttpSC.SERVICE_UNAVAILABLE_503 )
+            resp.setHeader(HttpNames.hRetryAfter, Integer.toString(DeltaConst.RETRY_AFTER));
+        resp.sendError(ex.getStatusCode(), ex.getMessage());
+    }
 }
@@ -38,9 +38,15 @@ import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.Delta;
 import org.seaborne.delta.DeltaBadPatchException;
 import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.DeltaHttpException;
 import org.seaborne.delta.DeltaNotFoundException;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.PatchLogInfo;
+import org.seaborne.delta.SpooledPatch;
 import org.seaborne.delta.Version;
+import org.seaborne.delta.server.local.DeltaLinkLocal;
+import org.seaborne.delta.server.local.StoredPatch;
 import org.seaborne.patch.PatchException;
 import org.seaborne.patch.RDFPatch ;
 import org.seaborne.patch.RDFPatchOps ;
@@ -56,7 +62,9 @@ public class LogOp {
         if ( dsRef == null )
             throw new DeltaNotFoundException("No such datasource: '"+action.httpArgs.datasourceName+"'");
 
-        RDFPatch patch;
+        // The patch is spooled to a temporary file, not held in memory. Only the header
+        // is kept; the changes are read from the file by the patch storage.
+        SpooledPatch patch;
         try {
             patch = readPatch(action);
         } catch (IOException ex) {
@@ -67,6 +75,14 @@ public class LogOp {
             throw ex;
         }
 
+        try {
+            append(action, dsRef, patch);
+        } finally {
+            patch.close();
+        }
+    }
+
+    private static void append(DeltaAction action, Id dsRef, RDFPatch patch) throws IOException {
         Node patchId = patch.getId();
         if ( false )
             RDFPatchOps.write(System.out, patch);
@@ -74,9 +90,7 @@ public class LogOp {
         try {
             Version version = action.dLink.append(dsRef, patch);
 
-            // Location of patch in "container/patch/id" form.
-            //String location = action.request.getRequestURI()+"/patch/"+ref.asPlainString();
-            String location = action.request.getRequestURI()+"?version="+version;
+            String location = location(action, version);
 
             JsonValue rslt = JsonBuilder.create()
                 .startObject()
@@ -103,11 +117,33 @@ public class LogOp {
         }
     }
 
-    private static RDFPatch readPatch(DeltaAction action) throws IOException {
+    /**
+     * Location of the new patch. When the append used the "/{name}" URL, this is
+     * the canonical "/{name}/version/{version}" URL.
+     */
+    private static String location(DeltaAction action, Version version) {
+        String uri = action.request.getRequestURI();
+        if ( action.request.getParameter(DeltaConst.paramDatasource) != null )
+            return uri+"?version="+version;
+        if ( uri.endsWith("/") )
+            uri = uri.substring(0, uri.length()-1);
+        return uri+"/"+DeltaConst.EP_LogVersion+"/"+version.value();
+    }
+
+    private static SpooledPatch readPatch(DeltaAction action) throws IOException {
         HttpServletRequest request = action.request;
         long byteLength = request.getContentLengthLong();
+        // Unset or unrecognized content types are read as text.
+        PatchFormat format = PatchFormat.fromContentType(request.getContentType());
+        if ( format == null )
+            format = PatchFormat.TEXT;
+        // Reject patches over the server limit before they are stored: the limit
+        // bounds the memory used by patch storage that holds the encoded patch.
+        long maxLength = maxPatchSize(action);
+        if ( maxLength >= 0 && byteLength > maxLength )
+            throw new DeltaHttpException(HttpSC.REQUEST_ENTITY_TOO_LARGE_413, "Patch larger than "+maxLength+" bytes");
         try ( CountingInputStream in = new CountingInputStream(request.getInputStream()); ) {
-            RDFPatch patch = RDFPatchOps.read(in);
+            SpooledPatch patch = SpooledPatch.spool(in, format, maxLength);
             if ( byteLength != -1L ) {
                 if ( in.getByteCount() != byteLength )
                     FmtLog.warn(LOG, "[%d] Length mismatch: Read: %d : Content-Length: %d", action.id, in.getByteCount(),  byteLength);
@@ -116,6 +152,12 @@ public class LogOp {
         }
     }
 
+    private static long maxPatchSize(DeltaAction action) {
+        if ( action.dLink instanceof DeltaLinkLocal )
+            return ((DeltaLinkLocal)action.dLink).getLocalServer().getConfig().getMaxPatchSize();
+        return DeltaConst.MAX_PATCH_SIZE;
+    }
+
     private static Id idForDatasource(DeltaAction action) {
         String datasourceName = action.httpArgs.datasourceName;
         if ( Id.maybeUUID(datasourceName) ) {
@@ -136,31 +178,228 @@ public class LogOp {
         Id dsRef = idForDatasource(action);
         if ( dsRef == null )
             throw new DeltaNotFoundException("No such datasource: '"+action.httpArgs.datasourceName+"'");
-        RDFPatch patch;
+        Id patchId = action.httpArgs.patchId;
+        Version ver = ( patchId == null && action.httpArgs.version != null ) ? Version.create(action.httpArgs.version) : null;
+        if ( patchId == null && ver == null )
+            DeltaAction.errorBadRequest("No id and no version in patch fetch request");
+        FmtLog.info(LOG, "Patch:fetch Dest=%s, Patch=%s", dsRef, patchId != null ? patchId : ver);
+
+        PatchFormat format = responseFormat(action);
+        // A patch fetched by id never changes. A log deleted and created again reuses
+        // version numbers but has a new id, so the canonical version URL keyed by the log
+        // id, "/{id}/version/{version}", never changes either once the version has been
+        // committed; only committed versions are found. Other forms of fetch by version
+        // are keyed by the log name and are revalidated.
+        boolean immutable = ( patchId != null ) ||
+                            ( action.httpArgs.canonical && dsRef.asPlainString().equals(action.httpArgs.datasourceName) );
+
+        // Conditional GETs are only answered once the patch has been found, so a
+        // missing or deleted patch is "404", whatever the "If-None-Match".
 
-        if ( action.httpArgs.patchId != null ) {
-            Id patchId = action.httpArgs.patchId;
-            FmtLog.info(LOG, "Patch:fetch Dest=%s, Patch=%s", dsRef, patchId);
+        // If the patch is stored in the format asked for, send the stored bytes:
+        // no parsing and no writing.
+        StoredPatch stored = fetchStored(action, dsRef, patchId, ver);
+        if ( stored != null && stored.getFormat() == format ) {
+            if ( notModified(action, etag(stored.getId(), format), immutable) )
+                return;
+            setPatchHeaders(action, format, stored.getId(), immutable);
+            action.response.setContentLengthLong(stored.length());
+            OutputStream out = action.response.getOutputStream();
+            stored.writeTo(out);
+            IO.flush(out);
+            return;
+        }
+
+        RDFPatch patch;
+        if ( patchId != null ) {
             patch = action.dLink.fetch(dsRef, patchId);
             if ( patch == null )
                 throw new DeltaNotFoundException("Patch not found: id="+patchId);
-        } else if ( action.httpArgs.version != null ) {
-            Version ver = Version.create(action.httpArgs.version);
-            FmtLog.info(LOG, "Patch:fetch Dest=%s, Patch=%s", dsRef, ver);
+        } else {
             patch = action.dLink.fetch(dsRef, ver);
             if ( patch == null )
                 throw new DeltaNotFoundException("Patch not found: version="+action.httpArgs.version);
-        } else {
-            DeltaAction.errorBadRequest("No id and no version in patch fetch request");
-            patch = null;
         }
 
+        Id id = patch.getId() == null ? null : Id.fromNode(patch.getId());
+        if ( id != null && notModified(action, etag(id, format), immutable) )
+            return;
+        setPatchHeaders(action, format, id, immutable);
         OutputStream out = action.response.getOutputStream();
+        format.write(out, patch);
+        // Not "close".
+        IO.flush(out);
+    }
+
+    /** The patch as stored, if the server keeps patches in an encoded form, else null. */
+    private static StoredPatch fetchStored(DeltaAction action, Id dsRef, Id patchId, Version version) {
+        if ( ! ( action.dLink instanceof DeltaLinkLocal ) )
+            return null;
+        DeltaLinkLocal dLink = (DeltaLinkLocal)action.dLink;
+        return ( patchId != null ) ? dLink.fetchStored(dsRef, patchId) : dLink.fetchStored(dsRef, version);
+    }
+
+    /**
+     * Response headers for a single patch. The entity tag is the patch id and the
+     * format. An immutable patch can be cached indefinitely; otherwise a cache must
+     * check with the server, using the entity tag, before reusing its copy.
+     */
+    private static void setPatchHeaders(DeltaAction action, PatchFormat format, Id patchId, boolean immutable) {
         //action.response.setCharacterEncoding(WebContent.charsetUTF8);
         action.response.setStatus(HttpSC.OK_200);
-        action.response.setContentType(DeltaConst.contentTypePatchText);
-        RDFPatchOps.write(out, patch);
+        action.response.setContentType(format.getContentType());
+        action.response.setHeader(HttpNames.hVary, HttpNames.hAccept);
+        if ( patchId != null )
+            action.response.setHeader(DeltaConst.hETag, etag(patchId, format));
+        action.response.setHeader(HttpNames.hCacheControl, immutable ? DeltaConst.cacheControlImmutable : DeltaConst.cacheControlRevalidate);
+    }
+
+    /**
+     * Conditional GET: if the request "If-None-Match" header matches the entity tag,
+     * send "304 Not Modified" and return true.
+     */
+    private static boolean notModified(DeltaAction action, String etag, boolean immutable) {
+        return notModified(action, etag, immutable ? DeltaConst.cacheControlImmutable : DeltaConst.cacheControlRevalidate);
+    }
+
+    private static boolean notModified(DeltaAction action, String etag, String cacheControl) {
+        String ifNoneMatch = action.request.getHeader(DeltaConst.hIfNoneMatch);
+        if ( ifNoneMatch == null || ! matchETag(ifNoneMatch, etag) )
+            return false;
+        FmtLog.info(LOG, "[%d] Not modified: %s", action.id, etag);
+        action.response.setStatus(HttpSC.NOT_MODIFIED_304);
+        action.response.setHeader(HttpNames.hVary, HttpNames.hAccept);
+        action.response.setHeader(DeltaConst.hETag, etag);
+        action.response.setHeader(HttpNames.hCacheControl, cacheControl);
+        return true;
+    }
+
+    /** Test an "If-None-Match" header against an entity tag (weak comparison). */
+    /*package*/ static boolean matchETag(String ifNoneMatch, String etag) {
+        for ( String x : ifNoneMatch.split(",") ) {
+            x = x.trim();
+            if ( x.equals("*") )
+                return true;
+            if ( x.startsWith("W/") )
+                x = x.substring(2);
+            if ( x.equals(etag) )
+                return true;
+        }
+        return false;
+    }
+
+    /** Entity tag: there is a different representation for each format. */
+    /*package*/ static String etag(Id patchId, PatchFormat format) {
+        return "\""+patchId.asPlainString()+"-"+format.getName()+"\"";
+    }
+
+    /**
+     * Execute a fetch of a range of versions, assuming the action has been verified that
+     * it is a range fetch operation. The patches are written one after another in a single
+     * response, in version order. If there is no "to" version, the range runs to the
+     * latest version at the time of the request.
+     */
+    public static void fetchRange(DeltaAction action) throws IOException {
+        Id dsRef = idForDatasource(action);
+        if ( dsRef == null )
+            throw new DeltaNotFoundException("No such datasource: '"+action.httpArgs.datasourceName+"'");
+        Version[] range = versionRange(action, dsRef);
+        Version start = range[0];
+        Version finish = range[1];
+        FmtLog.info(LOG, "[%d] Patch:fetch Dest=%s, Range=[%s,%s]", action.id, dsRef, start, finish);
+
+        PatchFormat format = responseFormat(action);
+        OutputStream out = action.response.getOutputStream();
+        action.response.setStatus(HttpSC.OK_200);
+        action.response.setContentType(format.getContentType());
+        action.response.setHeader(HttpNames.hVary, HttpNames.hAccept);
+        // No Content-Length: the response is sent chunked as the patches are written.
+        action.dLink.fetch(dsRef, start, finish, patch->format.write(out, patch));
         // Not "close".
         IO.flush(out);
     }
+
+    /**
+     * Execute a fetch of the net changes of a range of versions, as one patch, assuming
+     * the action has been verified that it is a range fetch operation. Changes that later
+     * patches in the range overwrite are dropped, so the size of the response depends on
+     * the net change, not the number of patches. A range of more versions than the
+     * server squashes gets a 413.
+     */
+    public static void fetchSquashed(DeltaAction action) throws IOException {
+        Id dsRef = idForDatasource(action);
+        if ( dsRef == null )
+            throw new DeltaNotFoundException("No such datasource: '"+action.httpArgs.datasourceName+"'");
+        Version[] range = versionRange(action, dsRef);
+        Version start = range[0];
+        Version finish = range[1];
+        FmtLog.info(LOG, "[%d] Patch:squash Dest=%s, Range=[%s,%s]", action.id, dsRef, start, finish);
+        RDFPatch patch = action.dLink.fetchSquashed(dsRef, start, finish);
+        if ( patch == null )
+            throw new DeltaNotFoundException("No patches: '"+action.httpArgs.datasourceName+"' ["+start+","+finish+"]");
+        PatchFormat format = responseFormat(action);
+        OutputStream out = action.response.getOutputStream();
+        action.response.setStatus(HttpSC.OK_200);
+        action.response.setContentType(format.getContentType());
+        action.response.setHeader(HttpNames.hVary, HttpNames.hAccept);
+        format.write(out, patch);
+        IO.flush(out);
+    }
+
+    /**
+     * The version range of a range fetch. If there is no "to" version, the range runs
+     * to the latest version at the time of the request.
+     */
+    private static Version[] versionRange(DeltaAction action, Id dsRef) {
+        long from = Math.max(action.httpArgs.versionFrom, DeltaConst.VERSION_FIRST);
+        long to;
+        if ( action.httpArgs.versionTo != null )
+            to = action.httpArgs.versionTo;
+        else {
+            PatchLogInfo info = action.dLink.getPatchLogInfo(dsRef);
+            if ( info == null )
+                throw new DeltaNotFoundException("No such datasource: '"+action.httpArgs.datasourceName+"'");
+            to = info.getMaxVersion().value();
+        }
+        if ( to < from )
+            DeltaAction.errorBadRequest("Bad version range: from="+from+" to="+to);
+        return new Version[] { Version.create(from), Version.create(to) };
+    }
+
+    /**
+     * The patch log info as a JSON resource. It changes whenever a patch is appended,
+     * so caches may only use a copy for a short time ({@link DeltaConst#LOG_INFO_MAX_AGE}
+     * seconds); after that, they can revalidate with the entity tag.
+     */
+    public static void logInfo(DeltaAction action) throws IOException {
+        Id dsRef = idForDatasource(action);
+        if ( dsRef == null )
+            throw new DeltaNotFoundException("No such datasource: '"+action.httpArgs.datasourceName+"'");
+        PatchLogInfo info = action.dLink.getPatchLogInfo(dsRef);
+        if ( info == null )
+            throw new DeltaNotFoundException("No such datasource: '"+action.httpArgs.datasourceName+"'");
+        String etag = etag(info);
+        String cacheControl = "public, max-age="+DeltaConst.LOG_INFO_MAX_AGE;
+        if ( notModified(action, etag, cacheControl) )
+            return;
+        action.response.setStatus(HttpSC.OK_200);
+        action.response.setContentType(WebContent.contentTypeJSON);
+        action.response.setHeader(DeltaConst.hETag, etag);
+        action.response.setHeader(HttpNames.hCacheControl, cacheControl);
+        OutputStream out = action.response.getOutputStream();
+        JSON.write(out, info.asJson());
+        IO.flush(out);
+    }
+
+    /** Entity tag for the log info: the log and its latest version. */
+    private static String etag(PatchLogInfo info) {
+        Id latest = info.getLatestPatch();
+        return "\""+info.getDataSourceId().asPlainString()+"-"+info.getMaxVersion().value()
+                +"-"+(latest == null ? "" : latest.asPlainString())+"\"";
+    }
+
+    /** Choose the patch format of a response from the request "Accept" header. */
+    private static PatchFormat responseFormat(DeltaAction action) {
+        return PatchFormat.fromAccept(action.request.getHeader(HttpNames.hAccept));
+    }
 }
@@ -62,6 +62,7 @@ public /*package*/ class PatchLogServer {
     private final String jettyConfigFile;
     // Shared across servlets.
     private final DeltaLink deltaLink;
+    private final S_DRPC servletRPC;
 
     /*package*/ PatchLogServer(String jettyConfig, int port, DeltaLink dLink) {
         DPS.init();
@@ -91,11 +92,15 @@ public /*package*/ class PatchLogServer {
                                                    ));
 
         // Other
-        addServlet(handler, "/"+DeltaConst.EP_RPC, new S_DRPC(this.deltaLink));
+        servletRPC = new S_DRPC(this.deltaLink);
+        addServlet(handler, "/"+DeltaConst.EP_RPC, servletRPC);
         //addServlet(handler, "/restart", new S_Restart());
 
         addServlet(handler, "/"+DeltaConst.EP_Ping, new S_Ping());  //-- See also the "ping" DRPC.
 
+        // Patch bodies for other servers. "/$/blob/NAME/HASH"
+        addServlet(handler, "/"+DeltaConst.EP_Blob+"/*", new S_Blob(this.deltaLink));
+
         // Initial data. "/init-data?datasource=..."
         addServlet(handler, "/"+DeltaConst.EP_InitData, new S_Data(this.deltaLink));
 
@@ -210,6 +215,8 @@ public /*package*/ class PatchLogServer {
 
     /*package*/ void stop() {
         try {
+            // Release long-poll requests so the server stops promptly.
+            servletRPC.stopWaiting();
             server.stop();
             Delta.DELTA_LOG.info("DeltaServer stopped");
             deltaLink.close();
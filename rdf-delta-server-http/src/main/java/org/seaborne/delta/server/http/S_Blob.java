@@ -0,0 +1,88 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.http;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.riot.WebContent;
+import org.apache.jena.web.HttpSC;
+import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.delta.server.local.DeltaLinkLocal;
+import org.seaborne.delta.server.local.PatchStore;
+import org.seaborne.delta.server.local.patchstores.zk.PatchStoreZkBlob;
+
+/**
+ * Serve patch bodies, by log name and SHA-256, to other patch servers:
+ * {@code GET $/blob/NAME/HASH}, and accept copies of new patch bodies from them:
+ * {@code PUT $/blob/NAME/HASH}.
+ * Only a server using a {@link PatchStoreZkBlob} has patch bodies to serve.
+ */
+public class S_Blob extends HttpServlet {
+    private final DeltaLink dLink;
+
+    public S_Blob(DeltaLink dLink) { this.dLink = dLink; }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        PatchStoreZkBlob patchStore = patchStore();
+        String pathInfo = req.getPathInfo();
+        String[] parts = ( pathInfo == null ) ? new String[0] : pathInfo.substring(1).split("/");
+        if ( patchStore == null || parts.length != 2 ) {
+            resp.sendError(HttpSC.NOT_FOUND_404, "Not found");
+            return;
+        }
+        byte[] bytes = patchStore.readBlob(parts[0], parts[1]);
+        if ( bytes == null ) {
+            resp.sendError(HttpSC.NOT_FOUND_404, "Not found");
+            return;
+        }
+        resp.setStatus(HttpSC.OK_200);
+        resp.setContentType(WebContent.contentTypeOctets);
+        resp.setContentLength(bytes.length);
+        resp.getOutputStream().write(bytes);
+    }
+
+    @Override
+    protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        PatchStoreZkBlob patchStore = patchStore();
+        String pathInfo = req.getPathInfo();
+        String[] parts = ( pathInfo == null ) ? new String[0] : pathInfo.substring(1).split("/");
+        if ( patchStore == null || parts.length != 2 ) {
+            resp.sendError(HttpSC.NOT_FOUND_404, "Not found");
+            return;
+        }
+        byte[] bytes = IO.readWholeFile(req.getInputStream());
+        if ( ! patchStore.copyBlob(parts[0], parts[1], bytes) ) {
+            resp.sendError(HttpSC.BAD_REQUEST_400, "Bad patch body");
+            return;
+        }
+        resp.setStatus(HttpSC.NO_CONTENT_204);
+    }
+
+    private PatchStoreZkBlob patchStore() {
+        if ( ! ( dLink instanceof DeltaLinkLocal ) )
+            return null;
+        PatchStore patchStore = ((DeltaLinkLocal)dLink).getLocalServer().getPatchStore();
+        return ( patchStore instanceof PatchStoreZkBlob ) ? (PatchStoreZkBlob)patchStore : null;
+    }
+}
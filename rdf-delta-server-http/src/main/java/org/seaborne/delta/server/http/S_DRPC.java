@@ -25,6 +25,7 @@ import java.io.InputStream ;
 import java.io.OutputStream ;
 import java.io.PrintStream ;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
 import javax.servlet.http.HttpServletRequest ;
 import javax.servlet.http.HttpServletResponse ;
@@ -52,10 +53,21 @@ public class S_DRPC extends DeltaServlet {
     private static JsonObject resultTrue = JSONX.buildObject(b -> b.key(F_VALUE).value(true));
     private static JsonObject resultFalse = JSONX.buildObject(b-> b.key(F_VALUE).value(false));
 
+    // Long-poll requests wait in slices of this length so they can be released.
+    private static final long AWAIT_SLICE = 1000;
+    private volatile boolean stopping = false;
+    // Each waiting request holds a server thread: limit how many there are.
+    private final Semaphore awaitPermits = new Semaphore(AWAIT_MAX_WAITERS);
+
     public S_DRPC(DeltaLink engine) {
         super(engine) ;
     }
 
+    /** Release any waiting "await" requests, and do not wait in future requests. */
+    /*package*/ void stopWaiting() {
+        stopping = true;
+    }
+
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         doCommon(req, resp);
@@ -107,6 +119,7 @@ public class S_DRPC extends DeltaServlet {
             case OP_LIST_LOG_INFO:
             case OP_DESCR_DS:
             case OP_DESCR_LOG:
+            case OP_AWAIT_LOG:
             case OP_CREATE_DS:
             case OP_REMOVE_DS:
                 break;
@@ -144,6 +157,11 @@ public class S_DRPC extends DeltaServlet {
                     infoLogThisRPC = ! OP_LIST_LOG_INFO.equals(lastOpName);
                     rslt = listPatchLogInfo(action);
                     break ;
+                case OP_AWAIT_LOG:
+                    // Long poll - don't log.
+                    infoLogThisRPC = false;
+                    rslt = awaitPatchLog(action);
+                    break ;
                 case OP_LIST_DSD:
                     rslt = listDataSourcesDescriptions(action);
                     break ;
@@ -265,6 +283,36 @@ public class S_DRPC extends DeltaServlet {
         return logInfo.asJson();
     }
 
+    // { datasource, version, timeout } -> patch log info, when the log is later than version or on timeout.
+    private JsonValue awaitPatchLog(DeltaAction action) {
+        String dataSourceId = getFieldAsString(action, F_DATASOURCE);
+        Id dsRef = Id.fromString(dataSourceId);
+        Version version = Version.fromJson(action.rpcArg, F_VERSION, Version.UNSET);
+        long timeout = JSONX.getLong(action.rpcArg, F_TIMEOUT, AWAIT_TIMEOUT_MAX);
+        timeout = Math.max(0, Math.min(timeout, AWAIT_TIMEOUT_MAX));
+        if ( ! awaitPermits.tryAcquire() )
+            throw new DeltaHttpException(HttpSC.SERVICE_UNAVAILABLE_503, "Too many waiting requests");
+        try {
+            long finish = System.currentTimeMillis() + timeout;
+            for ( ;; ) {
+                long remaining = stopping ? 0 : finish - System.currentTimeMillis();
+                PatchLogInfo logInfo;
+                try {
+                    logInfo = action.dLink.awaitVersion(dsRef, version, Math.max(0, Math.min(remaining, AWAIT_SLICE)));
+                } catch (DeltaNotFoundException ex) {
+                    // Removed while waiting.
+                    logInfo = null;
+                }
+                if ( logInfo == null )
+                    return noResults;
+                if ( logInfo.getMaxVersion().value() > version.value() || remaining <= AWAIT_SLICE )
+                    return logInfo.asJson();
+            }
+        } finally {
+            awaitPermits.release();
+        }
+    }
+
     private JsonValue listPatchLogInfo(DeltaAction action) {
         List<PatchLogInfo> info = action.dLink.listPatchLogInfo();
         return JSONX.buildObject(b->{
@@ -20,27 +20,37 @@ package org.seaborne.delta.server.http;
 import java.io.FileNotFoundException ;
 import java.io.IOException;
 import java.io.InputStream ;
+import java.io.OutputStream ;
 import java.nio.file.Files ;
 import java.nio.file.NoSuchFileException ;
 import java.nio.file.Path ;
 import java.nio.file.Paths ;
+import java.util.zip.GZIPInputStream ;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils ;
 import org.apache.jena.atlas.lib.IRILib ;
+import org.apache.jena.atlas.logging.FmtLog ;
 import org.apache.jena.atlas.web.ContentType ;
 import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.web.HttpNames ;
 import org.apache.jena.web.HttpSC ;
 import org.seaborne.delta.Delta;
+import org.seaborne.delta.DeltaConst;
 import org.seaborne.delta.DeltaNotFoundException ;
 import org.seaborne.delta.Id ;
 import org.seaborne.delta.link.DeltaLink;
 import org.seaborne.delta.server.local.DataSource;
+import org.seaborne.delta.server.local.DeltaLinkLocal;
+import org.seaborne.delta.server.local.Snapshot;
 import org.slf4j.Logger ;
 
-/** Data over HTTP. */ 
+/**
+ * Data over HTTP: the latest snapshot of a data source, if the server keeps snapshots,
+ * otherwise the initial data.
+ */
 public class S_Data extends HttpOperationBase {
     static private Logger LOG = Delta.getDeltaLogger("Data") ;
     
@@ -66,8 +76,18 @@ public class S_Data extends HttpOperationBase {
     @Override
     protected void executeAction(DeltaAction action) throws IOException {
         LOG.info("GET "+action.getURL());
+        if ( action.httpArgs.datasourceName == null )
+            DeltaAction.errorBadRequest("No data source");
         Id dsRef = Id.fromString(action.httpArgs.datasourceName);
+        // The latest snapshot, if the server keeps them.
+        Snapshot snapshot = ( action.dLink instanceof DeltaLinkLocal ) ? ((DeltaLinkLocal)action.dLink).getSnapshot(dsRef) : null;
+        if ( snapshot != null ) {
+            sendSnapshot(action, snapshot);
+            return;
+        }
         String filenameIRI = determineData(action, dsRef);
+        if ( filenameIRI == null )
+            throw new DeltaNotFoundException(action.getURL());
         ContentType ct = RDFLanguages.guessContentType(filenameIRI) ;
         String fn = IRILib.IRIToFilename(filenameIRI);
         Path path = Paths.get(fn);
@@ -80,6 +100,33 @@ public class S_Data extends HttpOperationBase {
         }
     }
     
+    /**
+     * Send a snapshot, with the log version and patch id it corresponds to in the
+     * response headers. The compressed file is sent as it is if the client accepts
+     * gzip encoding.
+     */
+    private static void sendSnapshot(DeltaAction action, Snapshot snapshot) throws IOException {
+        FmtLog.info(LOG, "[%d] Snapshot %s version %s", action.id, snapshot.getLogId(), snapshot.getVersion());
+        action.response.setStatus(HttpSC.OK_200);
+        action.response.setContentType(Snapshot.contentType);
+        action.response.setHeader(DeltaConst.hSnapshotVersion, Long.toString(snapshot.getVersion().value()));
+        action.response.setHeader(DeltaConst.hSnapshotPatch, snapshot.getPatchId().asPlainString());
+        // A later request may get a later snapshot.
+        action.response.setHeader(HttpNames.hCacheControl, DeltaConst.cacheControlRevalidate);
+        OutputStream out = action.response.getOutputStream();
+        String acceptEncoding = action.request.getHeader(HttpNames.hAcceptEncoding);
+        if ( acceptEncoding != null && acceptEncoding.contains("gzip") ) {
+            action.response.setHeader(HttpNames.hContentEncoding, "gzip");
+            action.response.setContentLengthLong(snapshot.length());
+            snapshot.writeTo(out);
+        } else {
+            try ( InputStream in = new GZIPInputStream(Files.newInputStream(snapshot.getPath())) ) {
+                IOUtils.copy(in, out);
+            }
+        }
+        out.flush();
+    }
+
     /** Decide which data to return.
      *  Default is the initial data for a {@link DataSource}.
      */
@@ -29,8 +29,13 @@ import org.slf4j.Logger;
 
 /** Servlet for both append and fetch patches - the RDF Patch protocol.
  *    <tt>POST /{name}/</tt> -- append patch.
+ *    <tt>GET  /{name}/patch/{id}</tt> -- get patch
+ *    <tt>GET  /{name}/version/{version}</tt> -- get patch
  *    <tt>GET  /{name}/id</tt> -- get patch
  *    <tt>GET  /{name}/version</tt> -- get patch
+ *    <tt>GET  /{name}?from=version&amp;to=version</tt> -- get patches, inclusive range
+ *    <tt>GET  /{name}?from=version&amp;to=version&amp;squash=true</tt> -- get the net changes of the range as one patch
+ *    <tt>GET  /{name}/info</tt> -- get the patch log info
  */
 public class S_Log extends HttpOperationBase {
     
@@ -48,6 +53,8 @@ public class S_Log extends HttpOperationBase {
     @Override
     protected void validateAction(Args httpArgs) {
         if ( isFetchOperation(httpArgs) ) return ;
+        if ( isRangeOperation(httpArgs) ) return ;
+        if ( isLogInfoOperation(httpArgs) ) return ;
         if ( isAppendOperation(httpArgs) ) return ;
         DeltaAction.errorBadRequest("Not a log fetch or append operation : "+httpArgs.url); 
     }
@@ -56,6 +63,12 @@ public class S_Log extends HttpOperationBase {
     protected void executeAction(DeltaAction action) throws IOException {
         if ( isFetchOperation(action) )
             LogOp.fetch(action);
+        else if ( isRangeOperation(action.httpArgs) && action.httpArgs.squash )
+            LogOp.fetchSquashed(action);
+        else if ( isRangeOperation(action.httpArgs) )
+            LogOp.fetchRange(action);
+        else if ( isLogInfoOperation(action.httpArgs) )
+            LogOp.logInfo(action);
         else
             LogOp.append(action);
     }
@@ -99,9 +112,24 @@ public class S_Log extends HttpOperationBase {
             && (args.patchId != null || args.version != null ) ;
     }
 
+    private boolean isRangeOperation(Args args) {
+        return isLogOperation(args)
+            && args.method.equals(HttpNames.METHOD_GET)
+            && (args.patchId == null && args.version == null)
+            && ! args.logInfo
+            && args.versionFrom != null ;
+    }
+
+    private boolean isLogInfoOperation(Args args) {
+        return isLogOperation(args)
+            && args.method.equals(HttpNames.METHOD_GET)
+            && args.logInfo ;
+    }
+
     private boolean isAppendOperation(Args args) {
         return isLogOperation(args)
+            && ! args.logInfo
             && (args.method.equals(HttpNames.METHOD_POST) || args.method.equals(HttpNames.METHOD_PATCH))
-            && (args.patchId == null && args.version == null);
+            && (args.patchId == null && args.version == null && args.versionFrom == null);
     }
 }
@@ -24,7 +24,9 @@ import org.seaborne.delta.Delta;
 import org.seaborne.delta.server.local.filestore.FileStore;
 import org.seaborne.delta.server.local.patchstores.file.PatchStoreProviderFile;
 import org.seaborne.delta.server.local.patchstores.mem.PatchStoreProviderMem;
+import org.seaborne.delta.server.local.patchstores.segment.PatchStoreProviderSegment;
 import org.seaborne.delta.server.local.patchstores.zk.PatchStoreProviderZk;
+import org.seaborne.delta.server.local.patchstores.zk.PatchStoreProviderZkBlob;
 import org.seaborne.delta.server.system.DeltaSystem;
 import org.slf4j.Logger;
 
@@ -38,11 +40,15 @@ public class DPS {
     public static String PatchStoreFileProvider = "PatchStore/File";
     public static String PatchStoreMemProvider  = "PatchStore/Mem";
     public static String PatchStoreZkProvider  = "PatchStore/Zk";
+    public static String PatchStoreZkBlobProvider = "PatchStore/ZkBlob";
+    public static String PatchStoreSegmentProvider = "PatchStore/Segment";
 
     // Short names.
     public static String pspFile = "file";
     public static String pspMem  = "mem";
     public static String pspZk   = "zk";
+    public static String pspZkBlob = "zkblob";
+    public static String pspSegment = "segment";
 
 
     public static void init() {
@@ -80,6 +86,8 @@ public class DPS {
         providers.add(new PatchStoreProviderFile());
         providers.add(new PatchStoreProviderMem());
         providers.add(new PatchStoreProviderZk());
+        providers.add(new PatchStoreProviderZkBlob());
+        providers.add(new PatchStoreProviderSegment());
 
         providers.forEach(psp->{
             LOG.debug("Provider: "+psp.getProviderName());
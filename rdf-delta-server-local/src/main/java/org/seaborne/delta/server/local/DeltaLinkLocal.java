@@ -21,21 +21,26 @@ import static org.apache.jena.atlas.lib.ListUtils.toList;
 import static org.seaborne.delta.Id.str;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.riot.system.StreamRDF;
 import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.DeltaNotFoundException;
 import org.seaborne.delta.DeltaOps;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
 import org.seaborne.delta.PatchLogInfo;
 import org.seaborne.delta.Version;
 import org.seaborne.delta.link.DeltaLink;
 import org.seaborne.delta.link.DeltaLinkListener;
 import org.seaborne.delta.link.DeltaNotConnectedException;
 import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.changes.RDFChangesSquash;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +62,12 @@ public class DeltaLinkLocal implements DeltaLink {
 
     private Set<DeltaLinkListener> listeners = ConcurrentHashMap.newKeySet();
 
+    // Monitors for threads waiting in awaitVersion, by data source.
+    private final Map<Id, Object> versionMonitors = new ConcurrentHashMap<>();
+    // Appends made by other servers (e.g. a Zookeeper cluster) do not cause a local
+    // append event so waiting threads periodically check the patch log.
+    private static final long AWAIT_RECHECK = 1000;
+
     public static DeltaLink connect(LocalServer localServer) {
         return new DeltaLinkLocal(localServer);
     }
@@ -64,6 +75,17 @@ public class DeltaLinkLocal implements DeltaLink {
     private DeltaLinkLocal(LocalServer localServer) {
         this.localServer = localServer;
         this.linkOpen = true;
+        addListener(new DeltaLinkListener() {
+            @Override
+            public void append(Id dsRef, Version version, RDFPatch patch) {
+                notifyVersion(dsRef);
+            }
+            @Override
+            public void removeDataSource(Id dsRef) {
+                notifyVersion(dsRef);
+                versionMonitors.remove(dsRef);
+            }
+        });
     }
 
     @Override
@@ -163,6 +185,51 @@ public class DeltaLinkLocal implements DeltaLink {
         return source.getPatchLog().getInfo();
     }
 
+    @Override
+    public PatchLogInfo awaitVersion(Id dsRef, Version version, long timeoutMillis) {
+        checkLink();
+        Object monitor = versionMonitors.computeIfAbsent(dsRef, x->new Object());
+        PatchLogInfo info = null;
+        try {
+            info = awaitVersion(monitor, dsRef, version, timeoutMillis);
+            return info;
+        } finally {
+            // The data source has gone (possibly removed by another server): drop its monitor.
+            if ( info == null )
+                versionMonitors.remove(dsRef, monitor);
+        }
+    }
+
+    private PatchLogInfo awaitVersion(Object monitor, Id dsRef, Version version, long timeoutMillis) {
+        long finish = System.currentTimeMillis() + timeoutMillis;
+        synchronized(monitor) {
+            for ( ;; ) {
+                PatchLogInfo info = getPatchLogInfo(dsRef);
+                if ( info == null || info.getMaxVersion().value() > version.value() )
+                    return info;
+                long remaining = finish - System.currentTimeMillis();
+                if ( remaining <= 0 || ! linkOpen )
+                    return info;
+                try {
+                    monitor.wait(Math.min(remaining, AWAIT_RECHECK));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return info;
+                }
+            }
+        }
+    }
+
+    /** Wake up any threads waiting for a new version of the patch log. */
+    private void notifyVersion(Id dsRef) {
+        Object monitor = versionMonitors.get(dsRef);
+        if ( monitor == null )
+            return;
+        synchronized(monitor) {
+            monitor.notifyAll();
+        }
+    }
+
     @Override
     public Version append(Id dsRef, RDFPatch rdfPatch) {
         checkLink();
@@ -180,6 +247,7 @@ public class DeltaLinkLocal implements DeltaLink {
 
             long t2 = System.currentTimeMillis();
             afterWrite(source, rdfPatch, version, (t2 - t1));
+            localServer.getSnapshots().appended(source, version);
             event(listener-> listener.append(dsRef, version, rdfPatch));
             return version;
         }
@@ -260,6 +328,88 @@ public class DeltaLinkLocal implements DeltaLink {
         return patch;
     }
 
+    /**
+     * Retrieve a patch by patchId, as it is stored, for sending on without parsing it.
+     * Return null if there is no such patch or the patch log does not support this;
+     * see {@link PatchLog#fetchStored(Id)}.
+     */
+    public StoredPatch fetchStored(Id dsRef, Id patchId) {
+        checkLink();
+        DataSource source = getDataSourceOrNull(dsRef);
+        if ( source == null )
+            return null;
+        return source.getPatchLog().fetchStored(patchId);
+    }
+
+    /** Retrieve a patch by version, as it is stored; see {@link #fetchStored(Id, Id)}. */
+    public StoredPatch fetchStored(Id dsRef, Version version) {
+        checkLink();
+        DataSource source = getDataSourceOrNull(dsRef);
+        if ( source == null )
+            return null;
+        if ( !Version.isValid(version) )
+            return null;
+        return source.getPatchLog().fetchStored(version);
+    }
+
+    /** The latest snapshot of a data source, or null if there is none. */
+    public Snapshot getSnapshot(Id dsRef) {
+        checkLink();
+        if ( getDataSourceOrNull(dsRef) == null )
+            return null;
+        return localServer.getSnapshots().latest(dsRef);
+    }
+
+    /**
+     * Make a snapshot of a data source at its latest version, and return it.
+     * Return null if the log is empty or the server does not keep snapshots.
+     */
+    public Snapshot createSnapshot(Id dsRef) {
+        checkLink();
+        DataSource source = getDataSource(dsRef);
+        return localServer.getSnapshots().create(source);
+    }
+
+    @Override
+    public PatchInfo readSnapshot(Id dsRef, StreamRDF dest) {
+        Snapshot snapshot = getSnapshot(dsRef);
+        if ( snapshot == null )
+            return null;
+        snapshot.read(dest);
+        return new PatchInfo(snapshot.getPatchId(), snapshot.getVersion(), null);
+    }
+
+    /** Retrieve patches by version range, start and finish inclusive. */
+    @Override
+    public void fetch(Id dsRef, Version start, Version finish, Consumer<RDFPatch> action) {
+        checkLink();
+        DataSource source = getDataSourceOrNull(dsRef);
+        if ( source == null )
+            return;
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return;
+        devlog(LOG, "fetch: Dest=%s, [%s,%s]", source, start, finish);
+        try ( Stream<RDFPatch> patches = source.getPatchLog().range(start, finish) ) {
+            patches.forEach(action);
+        }
+    }
+
+    /**
+     * Squash a range of patches, of no more versions than the server allows
+     * (see {@link LocalServerConfig#getMaxSquashVersions}).
+     */
+    @Override
+    public RDFPatch fetchSquashed(Id dsRef, Version start, Version finish) {
+        checkLink();
+        if ( !Version.isValid(start) || !Version.isValid(finish) )
+            return null;
+        DeltaLink.checkSquashRange(start, finish, localServer.getConfig().getMaxSquashVersions());
+        RDFChangesSquash squash = new RDFChangesSquash();
+        applyPatches(dsRef, start, finish, squash);
+        RDFPatch patch = squash.getRDFPatch();
+        return ( patch.getId() == null ) ? null : patch;
+    }
+
     private RDFPatch fetchCommon(Id dsRef, Id patchId, Version version) {
         checkLink();
         DataSource source = getDataSourceOrNull(dsRef);
@@ -31,11 +31,13 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors ;
 
 import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.web.HttpSC;
 import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.Delta;
 import org.seaborne.delta.DeltaBadRequestException;
 import org.seaborne.delta.DeltaConfigException;
 import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.DeltaHttpException;
 import org.seaborne.delta.Id;
 import org.seaborne.delta.PatchLogInfo;
 import org.seaborne.delta.server.system.DeltaSystem ;
@@ -82,6 +84,7 @@ public class LocalServer {
     private Object serverLock = new Object();
 
     private final PatchStore patchStore;
+    private final Snapshots snapshots;
 
 //    /** Create a {@code LocalServer} using the given configuration file. */
 //    public static LocalServer create(String confFile) {
@@ -141,6 +144,7 @@ public class LocalServer {
 
     /** Make a LocalServer; this includes initializing the patch store */
     private static LocalServer newLocalServer(LocalServerConfig config, PatchStore patchStore, DataRegistry dataRegistry) {
+        PatchCache.configure(config);
         initializePatchStore(patchStore, dataRegistry, config);
         LocalServer lServer = new LocalServer(config, patchStore, dataRegistry);
         servers.add(lServer);
@@ -162,6 +166,7 @@ public class LocalServer {
         this.serverConfig = config;
         this.dataRegistry = dataRegistry;
         this.patchStore = patchStore;
+        this.snapshots = Snapshots.create(config);
         // For multiple localservers in one process.
         this.label = "ls-"+instancecounter.incrementAndGet();
     }
@@ -200,6 +205,7 @@ public class LocalServer {
 
     private void shutdown$() {
         dataRegistry.clear();
+        snapshots.shutdown();
         getPatchStore().shutdown();
     }
 
@@ -234,6 +240,11 @@ public class LocalServer {
         patchStore.sync();
     }
 
+    /** The snapshots of the data sources of this server. */
+    public Snapshots getSnapshots() {
+        return snapshots;
+    }
+
     public PatchStore getPatchStore() {
         return patchStore;
     }
@@ -243,6 +254,8 @@ public class LocalServer {
         devlog(LOG, "getDataSource(%s)", dsRef);
         checkActive();
         DataSource ds = actionSyncPatchStore(()->dataRegistry.get(dsRef));
+        if ( ds == null && patchStore.isOpening(dsRef) )
+            throw opening(dsRef.toString());
         return dataSource(ds);
     }
 
@@ -250,9 +263,16 @@ public class LocalServer {
         devlog(LOG, "getDataSourceByName(%s)", name);
         checkActive();
         DataSource ds = actionSyncPatchStore(()->dataRegistry.getByName(name));
+        if ( ds == null && patchStore.isOpening(name) )
+            throw opening(name);
         return dataSource(ds);
     }
 
+    /** A log that the patch store has found but not finished opening: try again later. */
+    private static DeltaHttpException opening(String log) {
+        return new DeltaHttpException(HttpSC.SERVICE_UNAVAILABLE_503, "Patch log is being opened: "+log);
+    }
+
     public DataSource getDataSourceByURI(String uri) {
         devlog(LOG, "getDataSourceByURI(%s)", uri);
         checkActive();
@@ -392,6 +412,7 @@ private void removeDataSource$(Id dsRef) {
             PatchStore patchStore = datasource.getPatchStore();
             // This does the dataRegsitry remove.
             patchStore.release(datasource.getPatchLog());
+            snapshots.delete(dsRef);
             disabledDatasources.add(dsRef);
         }
     }
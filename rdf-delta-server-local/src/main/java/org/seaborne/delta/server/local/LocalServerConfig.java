@@ -32,6 +32,7 @@ import org.apache.jena.atlas.json.JsonObject;
 import org.seaborne.delta.Delta;
 import org.seaborne.delta.DeltaConfigException;
 import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.PatchFormat;
 import org.seaborne.delta.lib.JSONX;
 import org.slf4j.Logger;
 
@@ -72,6 +73,42 @@ public class LocalServerConfig {
         return properties.getProperty(key);
     }
 
+    /**
+     * The format for storing patches, from the property {@link DeltaConst#pDeltaPatchFormat}.
+     * The default is text.
+     */
+    public PatchFormat getPatchFormat() {
+        return PatchFormat.fromName(getProperty(DeltaConst.pDeltaPatchFormat));
+    }
+
+    /**
+     * The largest patch, in bytes, that the server accepts, from the property
+     * {@link DeltaConst#pDeltaPatchMaxSize}. The default is {@link DeltaConst#MAX_PATCH_SIZE}.
+     */
+    public long getMaxPatchSize() {
+        return getLongProperty(DeltaConst.pDeltaPatchMaxSize, DeltaConst.MAX_PATCH_SIZE);
+    }
+
+    /**
+     * The largest number of versions that the server squashes into one patch, from the
+     * property {@link DeltaConst#pDeltaSquashMaxVersions}. The default is
+     * {@link DeltaConst#SQUASH_MAX_VERSIONS}.
+     */
+    public long getMaxSquashVersions() {
+        return getLongProperty(DeltaConst.pDeltaSquashMaxVersions, DeltaConst.SQUASH_MAX_VERSIONS);
+    }
+
+    private long getLongProperty(String key, long dftValue) {
+        String x = getProperty(key);
+        if ( x == null )
+            return dftValue;
+        try {
+            return Long.parseLong(x.trim());
+        } catch (NumberFormatException ex) {
+            throw new DeltaConfigException("Bad value for "+key+": '"+x+"'");
+        }
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
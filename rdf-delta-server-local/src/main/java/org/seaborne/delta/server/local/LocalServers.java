@@ -38,6 +38,14 @@ public class LocalServers {
             .build();
     }
 
+    /** {@link LocalServerConfig} for a {@link LocalServer} with a segment file patch store. */ 
+    public static LocalServerConfig configSegment(String directory) {
+        return LocalServerConfig.create()
+            .setProperty(DeltaConst.pDeltaFile, directory)
+            .setLogProvider(DPS.PatchStoreSegmentProvider)
+            .build();
+    }
+
     /** {@link LocalServerConfig} for a {@link LocalServer} with a memory-based patch store. */ 
     public static LocalServerConfig configMem() {
         return LocalServerConfig.create()
@@ -64,6 +72,11 @@ public class LocalServers {
         return createFile(dirPath.toString());
     }
 
+    /** Create a {@link LocalServer} with a segment file {@link PatchStore}. */ 
+    public static LocalServer createSegment(String directory) {
+        return create(configSegment(directory));
+    }
+
     /** Create a {@link LocalServer} with an in-memory {@link PatchStore}. */ 
     public static LocalServer createMem() {
         return create(configMem());
@@ -17,43 +17,214 @@
 
 package org.seaborne.delta.server.local;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.ext.com.google.common.cache.Cache;
+import org.apache.jena.ext.com.google.common.cache.CacheBuilder;
+import org.apache.jena.ext.com.google.common.cache.CacheStats;
+import org.apache.jena.ext.com.google.common.cache.RemovalCause;
 import org.apache.jena.graph.Node;
+import org.seaborne.delta.DeltaConst;
 import org.seaborne.delta.Id;
 import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.changes.RDFChangesBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Server-wide cache of patches */ 
+/**
+ * Server-wide cache of patches, keyed by (log, patch id).
+ * <p>
+ * The cache is bounded by the estimated size in bytes of the patches it holds, and
+ * evicts least recently used patches. Patches are immutable, so entries never become
+ * stale; a log's entries are removed when the log is released or deleted.
+ * <p>
+ * The default bound is {@link DeltaConst#PATCH_CACHE_SIZE} bytes; it can be changed with
+ * the server configuration property {@link DeltaConst#pDeltaPatchCache}.
+ */
 public class PatchCache {
     private static Logger  LOG     = LoggerFactory.getLogger(PatchCache.class);
-    
-//    private Cache<Node, RDFPatch> patchCache;
-//    private PatchCache() { 
-//        patchCache = CacheFactory.createCache(DPConst.PATCH_CACHE_SIZE);
-//        patchCache.setDropHandler((node,patch)->LOG.info("Cache drop patch: "+Id.fromNode(node)));
-//    }
-    
-    private ConcurrentHashMap<Node, RDFPatch> patchCache;
-    private PatchCache() { 
-        patchCache = new ConcurrentHashMap<>();
-        //patchCache.setDropHandler((node,patch)->LOG.info("Cache drop patch: "+Id.fromNode(node)));
-    }
-    private static PatchCache singleton = new PatchCache();
-    
-    public static  PatchCache get() { return singleton ; } 
-    
-    public RDFPatch get(Id id) {
-        //return patchCache.getIfPresent(id.asNode());
-        return patchCache.get(id.asNode());
-    }
-
-    public void put(Id id, RDFPatch patch) {
-        put(id.asNode(), patch);
-    }
-
-    public void put(Node node, RDFPatch patch) {
-        patchCache.put(node, patch);
+
+    private static PatchCache singleton = new PatchCache(DeltaConst.PATCH_CACHE_SIZE);
+
+    public static PatchCache get() { return singleton ; }
+
+    /**
+     * Set the server-wide cache to a new size, in bytes.
+     * The current contents are dropped. A size of zero disables caching.
+     */
+    public static void configure(long maxBytes) {
+        singleton = new PatchCache(maxBytes);
+        FmtLog.info(LOG, "Patch cache: %,d bytes", maxBytes);
+    }
+
+    /** Set the server-wide cache from the server configuration, if it has a setting. */
+    public static void configure(LocalServerConfig config) {
+        String x = config.getProperty(DeltaConst.pDeltaPatchCache);
+        if ( x == null )
+            return;
+        try {
+            configure(Long.parseLong(x.trim()));
+        } catch (NumberFormatException ex) {
+            FmtLog.warn(LOG, "Bad value for %s: '%s'", DeltaConst.pDeltaPatchCache, x);
+        }
+    }
+
+    // A cached patch and its estimated size, calculated once when the patch is put in the cache.
+    private static class Entry {
+        final RDFPatch patch;
+        final int size;
+        Entry(RDFPatch patch, int size) {
+            this.patch = patch;
+            this.size = size;
+        }
+    }
+
+    private final long maxBytes;
+    private final Cache<Pair<Id, Id>, Entry> patchCache;
+    // Running total of the estimated size of the cache contents.
+    private final AtomicLong bytes = new AtomicLong(0);
+
+    private PatchCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.patchCache = CacheBuilder.newBuilder()
+            .maximumWeight(Math.max(0, maxBytes))
+            .weigher((Pair<Id, Id> key, Entry entry)->entry.size)
+            .removalListener(notification->{
+                if ( notification.getValue() != null )
+                    bytes.addAndGet(-notification.getValue().size);
+                if ( notification.getCause() == RemovalCause.SIZE )
+                    FmtLog.debug(LOG, "Cache drop patch: %s", notification.getKey().cdr());
+            })
+            .recordStats()
+            .build();
+    }
+
+    /** Get a patch from the cache; return null if it is not cached. */
+    public RDFPatch get(Id logId, Id patchId) {
+        Entry entry = patchCache.getIfPresent(Pair.create(logId, patchId));
+        return ( entry == null ) ? null : entry.patch;
+    }
+
+    /** Test whether a patch is in the cache, without counting as a lookup. */
+    public boolean contains(Id logId, Id patchId) {
+        return patchCache.asMap().containsKey(Pair.create(logId, patchId));
+    }
+
+    /** Put a patch into the cache. Patches that can not be replayed are not cached. */
+    public void put(Id logId, Id patchId, RDFPatch patch) {
+        if ( maxBytes <= 0 || patch == null || ! patch.repeatable() )
+            return;
+        Pair<Id, Id> key = Pair.create(logId, patchId);
+        if ( patchCache.asMap().containsKey(key) )
+            return;
+        Entry entry = new Entry(patch, estimateSize(patch));
+        if ( patchCache.asMap().putIfAbsent(key, entry) == null )
+            bytes.addAndGet(entry.size);
+    }
+
+    /** Remove all the patches for a log. */
+    public void invalidate(Id logId) {
+        patchCache.asMap().keySet().removeIf(key->logId.equals(key.car()));
+    }
+
+    /** Remove everything. */
+    public void clear() {
+        patchCache.invalidateAll();
+    }
+
+    /** Number of lookups that found a patch. */
+    public long hitCount()          { return stats().hitCount(); }
+
+    /** Number of lookups that did not find a patch. */
+    public long missCount()         { return stats().missCount(); }
+
+    /** Number of patches evicted to keep within the size bound. */
+    public long evictionCount()     { return stats().evictionCount(); }
+
+    /** Number of patches in the cache. */
+    public long size()              { return patchCache.size(); }
+
+    /** Estimated size of the cache contents, in bytes. */
+    public long estimatedBytes()    { return bytes.get(); }
+
+    /** Maximum size of the cache, in bytes. */
+    public long maxBytes()          { return maxBytes; }
+
+    private CacheStats stats() {
+        return patchCache.stats();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PatchCache[size=%d, bytes=%d/%d, hits=%d, misses=%d, evictions=%d]",
+                             size(), estimatedBytes(), maxBytes, hitCount(), missCount(), evictionCount());
+    }
+
+    // Overhead per change and per RDF term.
+    private static final int ITEM_BYTES = 32;
+    private static final int NODE_BYTES = 16;
+
+    /**
+     * Estimate the in-memory size of a patch. This is approximately the size of the patch
+     * in the text format with an allowance for per-object overheads.
+     */
+    /*package*/ static int estimateSize(RDFPatch patch) {
+        SizeEstimator est = new SizeEstimator();
+        patch.apply(est);
+        return (int)Math.min(Integer.MAX_VALUE, est.bytes);
+    }
+
+    private static class SizeEstimator extends RDFChangesBase {
+        long bytes = ITEM_BYTES;
+
+        @Override
+        public void header(String field, Node value) {
+            bytes += ITEM_BYTES + field.length() + size(value);
+        }
+
+        @Override
+        public void add(Node g, Node s, Node p, Node o) {
+            bytes += ITEM_BYTES + size(g) + size(s) + size(p) + size(o);
+        }
+
+        @Override
+        public void delete(Node g, Node s, Node p, Node o) {
+            bytes += ITEM_BYTES + size(g) + size(s) + size(p) + size(o);
+        }
+
+        @Override
+        public void addPrefix(Node graph, String prefix, String uriStr) {
+            bytes += ITEM_BYTES + size(graph) + prefix.length() + uriStr.length();
+        }
+
+        @Override
+        public void deletePrefix(Node graph, String prefix) {
+            bytes += ITEM_BYTES + size(graph) + prefix.length();
+        }
+
+        @Override
+        public void txnBegin()  { bytes += ITEM_BYTES; }
+
+        @Override
+        public void txnCommit() { bytes += ITEM_BYTES; }
+
+        @Override
+        public void txnAbort()  { bytes += ITEM_BYTES; }
+
+        private static int size(Node n) {
+            if ( n == null )
+                return 0;
+            if ( n.isURI() )
+                return NODE_BYTES + n.getURI().length();
+            if ( n.isLiteral() )
+                return NODE_BYTES + n.getLiteralLexicalForm().length()
+                                  + n.getLiteralDatatypeURI().length()
+                                  + n.getLiteralLanguage().length();
+            if ( n.isBlank() )
+                return NODE_BYTES + n.getBlankNodeLabel().length();
+            return NODE_BYTES;
+        }
     }
 }
@@ -94,6 +94,22 @@ public interface PatchLog {
     /** Get a patch by version (version number may change across restarts). */
     public RDFPatch fetch(Version version) ;
 
+    /**
+     * Get a patch by {@code Id} as it is stored, for sending on without parsing it.
+     * Return null if the patch is not found, if the log does not keep patches in an
+     * encoded form, or if the bytes are not held locally, in which case use
+     * {@link #fetch(Id)}, which goes through the patch cache.
+     */
+    public default StoredPatch fetchStored(Id patchId) {
+        return null;
+    }
+
+    /** Get a patch by version as it is stored; see {@link #fetchStored(Id)}. */
+    public default StoredPatch fetchStored(Version version) {
+        Id id = find(version);
+        return id == null ? null : fetchStored(id);
+    }
+
     /** Get patches by range - start/finish are inclusive */
     public Stream<RDFPatch> range(Id start, Id finish) ;
 
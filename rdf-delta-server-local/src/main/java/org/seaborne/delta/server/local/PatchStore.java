@@ -134,6 +134,19 @@ public abstract class PatchStore {
         return ListUtils.toList(dataRegistry.dataSources().map(log->log.getDescription()));
     }
 
+    /**
+     * Whether the named log is known to the patch store but is still being opened,
+     * and so is not yet in the {@link DataRegistry}.
+     */
+    public boolean isOpening(String name) {
+        return false;
+    }
+
+    /** Whether the log is known to the patch store but is still being opened. */
+    public boolean isOpening(Id dsRef) {
+        return false;
+    }
+
     // XXX Implement getDataSource(String name) : use in PatchStoreZk.
     //public DataSourceDescription getDataSource(String name) { return null; }
 
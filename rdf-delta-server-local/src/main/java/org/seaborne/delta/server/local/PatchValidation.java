@@ -67,11 +67,18 @@ public class PatchValidation {
     @FunctionalInterface public interface BadHandler { void bad(String fmt, Object ...args) ; }
     
     public static void validateNewPatch(PatchLog log, Id patchId, Id previousId, BadHandler action) {
+        validateNewPatch(log, log.getLatestId(), patchId, previousId, action);
+    }
+
+    /**
+     * Validate a new patch against a given head of the log. The head may be ahead of
+     * the log itself, for example, when a batch of patches is being added.
+     */
+    public static void validateNewPatch(PatchLog log, Id logHead, Id patchId, Id previousId, BadHandler action) {
         if ( patchId == null )
             action.bad("Patch: No id");
         if ( log.contains(patchId) )
             action.bad("Patch already exists: patch=%s", patchId);
-        Id logHead = log.getLatestId();
         // Works if previousId == null.
         if ( ! Objects.equals(logHead, previousId) ) {
             action.bad("Previous not current: log head=%s : patch previous=%s",logHead, previousId);
@@ -0,0 +1,105 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.WebContent;
+import org.apache.jena.riot.system.StreamRDF;
+import org.seaborne.delta.DeltaNotFoundException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.lib.IOX;
+
+/**
+ * A snapshot of a data source: the state of the dataset after applying the patches of
+ * the log up to and including {@link #getVersion()}. The snapshot is held in a file as
+ * gzip-compressed RDF Thrift.
+ *
+ * @see Snapshots
+ */
+public final class Snapshot {
+    /** Content type of the snapshot data, after decompression. */
+    public static final String contentType = WebContent.contentTypeRDFThrift;
+
+    private final Id logId;
+    private final Version version;
+    private final Id patchId;
+    private final Path file;
+
+    /*package*/ Snapshot(Id logId, Version version, Id patchId, Path file) {
+        this.logId = Objects.requireNonNull(logId);
+        this.version = Objects.requireNonNull(version);
+        this.patchId = Objects.requireNonNull(patchId);
+        this.file = Objects.requireNonNull(file);
+    }
+
+    /** The data source. */
+    public Id getLogId()            { return logId; }
+
+    /** The version of the last patch included in the snapshot. */
+    public Version getVersion()     { return version; }
+
+    /** The id of the last patch included in the snapshot. */
+    public Id getPatchId()          { return patchId; }
+
+    /** The file of compressed data. */
+    public Path getPath()           { return file; }
+
+    /** The size, in bytes, of the compressed data. */
+    public long length() {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException ex) {
+            throw new DeltaNotFoundException("Snapshot has been removed: "+file);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Write the compressed data to {@code out}. {@code out} is not closed. */
+    public void writeTo(OutputStream out) throws IOException {
+        try {
+            Files.copy(file, out);
+        } catch (NoSuchFileException ex) {
+            throw new DeltaNotFoundException("Snapshot has been removed: "+file);
+        }
+    }
+
+    /** Parse the snapshot, sending the triples, quads and prefixes to {@code dest}. */
+    public void read(StreamRDF dest) {
+        try ( InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))) ) {
+            RDFDataMgr.parse(dest, in, Lang.RDFTHRIFT);
+        } catch (NoSuchFileException ex) {
+            throw new DeltaNotFoundException("Snapshot has been removed: "+file);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot["+logId+", "+version+", "+patchId+"]";
+    }
+}
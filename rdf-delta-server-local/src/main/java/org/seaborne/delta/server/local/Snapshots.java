@@ -0,0 +1,329 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchLogInfo;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.changes.RDFChangesApply;
+import org.seaborne.patch.changes.RDFChangesExternalTxn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The snapshots of the data sources of a server.
+ * <p>
+ * A snapshot is the state of the dataset after applying the patches of a log up to
+ * some version. A new replica can load the latest snapshot and then play only the
+ * patches after it, rather than the whole log.
+ * <p>
+ * Snapshots are kept in the directory given by the server configuration property
+ * {@link DeltaConst#pDeltaSnapshotDir}, in a sub-directory for each log. A new
+ * snapshot is made in the background when a log has had
+ * {@link DeltaConst#pDeltaSnapshotInterval} patches (default
+ * {@link DeltaConst#SNAPSHOT_INTERVAL}) appended since the last one. A snapshot is
+ * made by loading the previous snapshot and applying the patches since into a
+ * temporary TDB2 database in the log's snapshot directory, so the memory used does not
+ * grow with the size of the dataset.
+ * <p>
+ * If no directory is configured, there are no snapshots.
+ */
+public class Snapshots {
+    private static Logger LOG = LoggerFactory.getLogger(Snapshots.class);
+
+    private static final String PREFIX  = "snapshot-";
+    private static final String SUFFIX  = ".rt.gz";
+    // Number of snapshot files kept for each log.
+    private static final int KEEP = 2;
+    // Sub-directory of a log's snapshot directory for the database used to build a snapshot.
+    private static final String BUILD = "build";
+
+    /** Snapshots as set by the server configuration. */
+    public static Snapshots create(LocalServerConfig config) {
+        String dir = config.getProperty(DeltaConst.pDeltaSnapshotDir);
+        if ( dir == null )
+            return none();
+        long interval = DeltaConst.SNAPSHOT_INTERVAL;
+        String x = config.getProperty(DeltaConst.pDeltaSnapshotInterval);
+        if ( x != null ) {
+            try {
+                interval = Long.parseLong(x.trim());
+            } catch (NumberFormatException ex) {
+                FmtLog.warn(LOG, "Bad value for %s: '%s'", DeltaConst.pDeltaSnapshotInterval, x);
+            }
+        }
+        Path path = Paths.get(dir);
+        IOX.ensureDirectory(path);
+        FmtLog.info(LOG, "Snapshots: %s (every %d patches)", path, interval);
+        return new Snapshots(path, interval);
+    }
+
+    /** No snapshots. */
+    public static Snapshots none() {
+        return new Snapshots(null, 0);
+    }
+
+    private final Path directory;
+    private final long interval;
+    // Latest snapshot of each log, or empty if the log has none.
+    private final Map<Id, Optional<Snapshot>> latest = new ConcurrentHashMap<>();
+    // Logs with a snapshot being made in the background.
+    private final Set<Id> inProgress = ConcurrentHashMap.newKeySet();
+    private ExecutorService executor = null;
+
+    /**
+     * Snapshots in {@code directory}, made every {@code interval} patches.
+     * An interval of zero means snapshots are only made by calling {@link #create}.
+     */
+    public Snapshots(Path directory, long interval) {
+        this.directory = directory;
+        this.interval = interval;
+    }
+
+    /** Whether this server keeps snapshots. */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /** The latest snapshot of a log, or null if there is none. */
+    public Snapshot latest(Id logId) {
+        if ( ! isEnabled() )
+            return null;
+        return latest.computeIfAbsent(logId, id->Optional.ofNullable(scan(id))).orElse(null);
+    }
+
+    /**
+     * Make a snapshot of the log at its latest version, and return it.
+     * Return null if the log is empty or snapshots are not enabled.
+     */
+    public Snapshot create(DataSource source) {
+        if ( ! isEnabled() )
+            return null;
+        Id logId = source.getId();
+        PatchLog log = source.getPatchLog();
+        // One snapshot at a time.
+        synchronized(this) {
+            PatchLogInfo info = log.getInfo();
+            Version version = info.getMaxVersion();
+            Id patchId = info.getLatestPatch();
+            if ( patchId == null || version.value() < DeltaConst.VERSION_FIRST )
+                return null;
+            Snapshot previous = latest(logId);
+            if ( previous != null && previous.getVersion().value() >= version.value() )
+                return previous;
+
+            long t1 = System.currentTimeMillis();
+            Path dir = directory.resolve(logId.asPlainString());
+            IOX.ensureDirectory(dir);
+            Path file = dir.resolve(filename(version, patchId));
+            Path tmp = dir.resolve(file.getFileName()+".tmp");
+            // Left over from a snapshot that did not finish.
+            Path build = dir.resolve(BUILD);
+            if ( Files.exists(build) )
+                IOX.deleteAll(build);
+            IOX.ensureDirectory(build);
+            DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(build.toString());
+            try {
+                long start = Math.max(DeltaConst.VERSION_FIRST, info.getMinVersion().value());
+                if ( previous != null ) {
+                    Txn.executeWrite(dsg, ()->previous.read(StreamRDFLib.dataset(dsg)));
+                    start = previous.getVersion().value()+1;
+                }
+                Version first = Version.create(start);
+                RDFChanges changes = new RDFChangesExternalTxn(new RDFChangesApply(dsg));
+                Txn.executeWrite(dsg, ()->{
+                    try ( Stream<RDFPatch> patches = log.range(first, version) ) {
+                        patches.forEach(patch->patch.apply(changes));
+                    }
+                });
+                try ( OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))) ) {
+                    Txn.executeRead(dsg, ()->write(dsg, out));
+                } catch (IOException ex) {
+                    IOX.run(()->Files.deleteIfExists(tmp));
+                    throw IOX.exception(ex);
+                }
+            } finally {
+                TDBInternal.expel(dsg);
+                IOX.deleteAll(build);
+            }
+            IOX.move(tmp, file);
+
+            Snapshot snapshot = new Snapshot(logId, version, patchId, file);
+            latest.put(logId, Optional.of(snapshot));
+            long t2 = System.currentTimeMillis();
+            FmtLog.info(LOG, "Snapshot: %s version %s (%.3fs)", source.getName(), version, (t2-t1)/1000.0);
+            removeOld(dir);
+            return snapshot;
+        }
+    }
+
+    /** A patch has been appended to a log: make a snapshot in the background if it is time for one. */
+    /*package*/ void appended(DataSource source, Version version) {
+        if ( ! isEnabled() || interval <= 0 )
+            return;
+        Snapshot snapshot = latest(source.getId());
+        long since = version.value() - ( snapshot == null ? DeltaConst.VERSION_INIT : snapshot.getVersion().value() );
+        if ( since < interval )
+            return;
+        Id logId = source.getId();
+        if ( ! inProgress.add(logId) )
+            return;
+        executor().submit(()->{
+            try {
+                create(source);
+            } catch (Throwable th) {
+                FmtLog.warn(LOG, th, "Snapshot failed: %s", source.getName());
+            } finally {
+                inProgress.remove(logId);
+            }
+        });
+    }
+
+    /** Remove all the snapshots of a log. */
+    public void delete(Id logId) {
+        if ( ! isEnabled() )
+            return;
+        latest.remove(logId);
+        Path dir = directory.resolve(logId.asPlainString());
+        if ( Files.exists(dir) )
+            IOX.deleteAll(dir);
+    }
+
+    /** Stop making snapshots. */
+    public synchronized void shutdown() {
+        if ( executor != null )
+            executor.shutdownNow();
+        executor = null;
+    }
+
+    private synchronized ExecutorService executor() {
+        if ( executor == null ) {
+            executor = Executors.newSingleThreadExecutor(r->{
+                Thread thread = new Thread(r, "DeltaSnapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /** Write the dataset, with the prefixes of the default graph. */
+    private static void write(DatasetGraph dsg, OutputStream out) {
+        StreamRDF stream = StreamRDFWriter.getWriterStream(out, RDFFormat.RDF_THRIFT);
+        stream.start();
+        Graph dft = dsg.getDefaultGraph();
+        dft.getPrefixMapping().getNsPrefixMap().forEach(stream::prefix);
+        Iterator<Quad> iter = dsg.find();
+        while ( iter.hasNext() )
+            stream.quad(iter.next());
+        stream.finish();
+    }
+
+    private static String filename(Version version, Id patchId) {
+        return String.format("%s%010d-%s%s", PREFIX, version.value(), patchId.asPlainString(), SUFFIX);
+    }
+
+    /** Find the latest snapshot file of a log. */
+    private Snapshot scan(Id logId) {
+        Snapshot snapshot = null;
+        for ( Snapshot s : list(logId, directory.resolve(logId.asPlainString())) ) {
+            if ( snapshot == null || s.getVersion().value() > snapshot.getVersion().value() )
+                snapshot = s;
+        }
+        return snapshot;
+    }
+
+    /** Remove all but the latest {@link #KEEP} snapshots. */
+    private static void removeOld(Path dir) {
+        List<Snapshot> snapshots = list(null, dir);
+        if ( snapshots.size() <= KEEP )
+            return;
+        snapshots.sort((s1, s2)->s1.getVersion().compareTo(s2.getVersion()));
+        for ( Snapshot s : snapshots.subList(0, snapshots.size()-KEEP) ) {
+            try {
+                Files.deleteIfExists(s.getPath());
+            } catch (IOException ex) {
+                FmtLog.warn(LOG, "Can't delete snapshot: %s", s.getPath());
+            }
+        }
+    }
+
+    private static List<Snapshot> list(Id logId, Path dir) {
+        List<Snapshot> snapshots = new ArrayList<>();
+        if ( ! Files.isDirectory(dir) )
+            return snapshots;
+        Id id = ( logId != null ) ? logId : Id.fromString(dir.getFileName().toString());
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX+"*"+SUFFIX) ) {
+            for ( Path f : stream ) {
+                String fn = f.getFileName().toString();
+                String x = fn.substring(PREFIX.length(), fn.length()-SUFFIX.length());
+                int idx = x.indexOf('-');
+                if ( idx < 0 ) {
+                    FmtLog.warn(LOG, "Can't parse snapshot file name: %s", f);
+                    continue;
+                }
+                try {
+                    Version version = Version.create(Long.parseLong(x.substring(0, idx)));
+                    Id patchId = Id.fromString(x.substring(idx+1));
+                    snapshots.add(new Snapshot(id, version, patchId, f));
+                } catch (RuntimeException ex) {
+                    FmtLog.warn(LOG, "Can't parse snapshot file name: %s", f);
+                }
+            }
+        } catch (IOException ex) {
+            FmtLog.warn(LOG, "Can't inspect directory: %s", dir);
+            throw IOX.exception(ex);
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+
+/**
+ * A patch as it is held in storage: the encoded bytes, in memory or in a region of a
+ * file. This is used to send a patch without parsing it and writing it out again.
+ * <p>
+ * A file region is sent with {@link FileChannel#transferTo}.
+ */
+public final class StoredPatch {
+    private final Id id;
+    private final PatchFormat format;
+    private final byte[] bytes;
+    private final Path file;
+    private final long offset;
+    private final long length;
+
+    /** A patch held as bytes. */
+    public static StoredPatch of(Id id, PatchFormat format, byte[] bytes) {
+        Objects.requireNonNull(bytes);
+        return new StoredPatch(id, format, bytes, null, 0, bytes.length);
+    }
+
+    /** A patch held as {@code length} bytes of a file, starting at {@code offset}. */
+    public static StoredPatch of(Id id, PatchFormat format, Path file, long offset, long length) {
+        Objects.requireNonNull(file);
+        return new StoredPatch(id, format, null, file, offset, length);
+    }
+
+    private StoredPatch(Id id, PatchFormat format, byte[] bytes, Path file, long offset, long length) {
+        this.id = Objects.requireNonNull(id);
+        this.format = Objects.requireNonNull(format);
+        this.bytes = bytes;
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** The id of the patch. */
+    public Id getId()               { return id; }
+
+    /** The encoding of the stored patch. */
+    public PatchFormat getFormat()  { return format; }
+
+    /** The size, in bytes, of the stored patch. */
+    public long length()            { return length; }
+
+    /** Write the stored bytes to {@code out}. {@code out} is not closed. */
+    public void writeTo(OutputStream out) throws IOException {
+        if ( bytes != null ) {
+            out.write(bytes);
+            return;
+        }
+        try ( FileChannel ch = FileChannel.open(file, StandardOpenOption.READ) ) {
+            // Not closed: that would close "out".
+            WritableByteChannel dest = Channels.newChannel(out);
+            long posn = offset;
+            long remaining = length;
+            while ( remaining > 0 ) {
+                long n = ch.transferTo(posn, remaining, dest);
+                if ( n <= 0 )
+                    throw new IOException("Short read: "+file+" : expected "+length+" bytes, sent "+(length-remaining));
+                posn += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StoredPatch["+id+", "+format.getName()+", "+length+( file != null ? ", "+file : "" )+"]";
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.filestore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.lib.IOX;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only file of {@link IndexRecord IndexRecords}, stored as fixed size records
+ * each with a checksum.
+ * <p>
+ * When opened, the file is checked and any incomplete or damaged records at the end
+ * of the file, left by a crash during a write, are removed.
+ * <p>
+ * Record layout (64 bytes, big-endian):
+ * <pre>
+ *   version   8
+ *   id       16
+ *   prev     16  (all zeros if there is no previous patch)
+ *   segment   4
+ *   length    4
+ *   offset    8
+ *   flags     4
+ *   crc       4  (CRC32 of the bytes before it)
+ * </pre>
+ */
+public class IndexFile {
+    private static Logger LOG = LoggerFactory.getLogger(IndexFile.class);
+
+    public static final int RECORD_SIZE = 64;
+    private static final int CRC_POSN   = RECORD_SIZE - Integer.BYTES;
+    private static final int ID_BYTES   = 16;
+    // Flag bit for "has a previous".
+    private static final int FLAG_PREV  = 0x1;
+
+    private final Path path;
+    // Null until the file exists: the file is created by the first append.
+    private FileChannel channel;
+    private final List<IndexRecord> records;
+    private boolean closed = false;
+
+    /**
+     * Open an index file. If it does not exist, it is created when records are first
+     * appended. Damaged records at the end of the file are removed.
+     */
+    public static IndexFile open(Path path) {
+        if ( ! Files.exists(path) )
+            return new IndexFile(path, null, new ArrayList<>());
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            List<IndexRecord> records = readAll(path, channel);
+            return new IndexFile(path, channel, records);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    public static boolean exists(Path path) {
+        return Files.exists(path);
+    }
+
+    private IndexFile(Path path, FileChannel channel, List<IndexRecord> records) {
+        this.path = path;
+        this.channel = channel;
+        this.records = records;
+    }
+
+    /** The records of the file when it was opened. */
+    public List<IndexRecord> records() {
+        return records;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /** Append records, and force them to persistent storage. */
+    public synchronized void append(List<IndexRecord> entries) {
+        if ( entries.isEmpty() )
+            return;
+        ByteBuffer bb = ByteBuffer.allocate(entries.size()*RECORD_SIZE);
+        entries.forEach(r->encode(r, bb));
+        bb.flip();
+        try {
+            FileChannel channel = channel();
+            long posn = channel.size();
+            while(bb.hasRemaining())
+                posn += channel.write(bb, posn);
+            channel.force(false);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Keep the first {@code count} records and remove the rest. */
+    public synchronized void truncate(long count) {
+        if ( channel == null )
+            return;
+        try {
+            channel.truncate(count*RECORD_SIZE);
+            channel.force(false);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Number of records in the file. */
+    public synchronized long size() {
+        if ( channel == null )
+            return 0;
+        try {
+            return channel.size()/RECORD_SIZE;
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    public synchronized void close() {
+        closed = true;
+        try {
+            if ( channel != null && channel.isOpen() )
+                channel.close();
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    private FileChannel channel() throws IOException {
+        if ( channel == null ) {
+            if ( closed )
+                throw new ClosedChannelException();
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /** Close and remove the file. */
+    public synchronized void delete() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    private static List<IndexRecord> readAll(Path path, FileChannel channel) throws IOException {
+        long size = channel.size();
+        long count = size/RECORD_SIZE;
+        List<IndexRecord> records = new ArrayList<>((int)Math.min(count, Integer.MAX_VALUE));
+        ByteBuffer bb = ByteBuffer.allocate(RECORD_SIZE);
+        long posn = 0;
+        for ( long i = 0 ; i < count ; i++ ) {
+            bb.clear();
+            while(bb.hasRemaining()) {
+                if ( channel.read(bb, posn+bb.position()) < 0 )
+                    break;
+            }
+            bb.flip();
+            IndexRecord r = decode(bb);
+            if ( r == null ) {
+                FmtLog.warn(LOG, "Bad record %d in %s: truncating", i, path);
+                break;
+            }
+            records.add(r);
+            posn += RECORD_SIZE;
+        }
+        if ( posn != size ) {
+            if ( posn == count*RECORD_SIZE )
+                FmtLog.warn(LOG, "Incomplete record at end of %s: truncating", path);
+            channel.truncate(posn);
+            channel.force(false);
+        }
+        return records;
+    }
+
+    private static void encode(IndexRecord r, ByteBuffer bb) {
+        int start = bb.position();
+        bb.putLong(r.version);
+        putId(bb, r.id);
+        putId(bb, r.prev);
+        bb.putInt(r.segment);
+        bb.putInt(r.length);
+        bb.putLong(r.offset);
+        bb.putInt(r.prev == null ? 0 : FLAG_PREV);
+        bb.putInt(crc(bb, start));
+    }
+
+    private static IndexRecord decode(ByteBuffer bb) {
+        if ( bb.remaining() < RECORD_SIZE )
+            return null;
+        if ( bb.getInt(CRC_POSN) != crc(bb, 0) )
+            return null;
+        long version = bb.getLong();
+        Id id = getId(bb);
+        Id prev = getId(bb);
+        int segment = bb.getInt();
+        int length = bb.getInt();
+        long offset = bb.getLong();
+        int flags = bb.getInt();
+        if ( (flags & FLAG_PREV) == 0 )
+            prev = null;
+        return new IndexRecord(version, id, prev, segment, offset, length);
+    }
+
+    private static void putId(ByteBuffer bb, Id id) {
+        if ( id == null ) {
+            bb.put(new byte[ID_BYTES]);
+            return;
+        }
+        byte[] b = id.asBytes();
+        if ( b.length != ID_BYTES )
+            throw new IllegalArgumentException("Id is not a UUID: "+id);
+        bb.put(b);
+    }
+
+    private static Id getId(ByteBuffer bb) {
+        byte[] b = new byte[ID_BYTES];
+        bb.get(b);
+        return Id.fromBytes(b);
+    }
+
+    // CRC32 of the record bytes before the CRC slot.
+    private static int crc(ByteBuffer bb, int start) {
+        byte[] b = Arrays.copyOfRange(bb.array(), bb.arrayOffset()+start, bb.arrayOffset()+start+CRC_POSN);
+        CRC32 crc = new CRC32();
+        crc.update(b);
+        return (int)crc.getValue();
+    }
+}
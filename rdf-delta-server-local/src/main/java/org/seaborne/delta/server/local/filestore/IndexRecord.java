@@ -0,0 +1,64 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.filestore;
+
+import java.util.Objects;
+
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
+import org.seaborne.delta.Version;
+
+/**
+ * Entry in an {@link IndexFile}: the version, id and previous id of a patch, and where
+ * the patch is stored. For storage that does not have a location within a file, use
+ * {@link #NO_SEGMENT}.
+ */
+public class IndexRecord {
+    public static final int NO_SEGMENT = -1;
+
+    public final long version;
+    public final Id id;
+    // Null for the first patch of a log.
+    public final Id prev;
+    public final int segment;
+    public final long offset;
+    public final int length;
+
+    public IndexRecord(long version, Id id, Id prev, int segment, long offset, int length) {
+        this.version = version;
+        this.id = Objects.requireNonNull(id, "id");
+        this.prev = prev;
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** Index entry with no storage location. */
+    public IndexRecord(long version, Id id, Id prev) {
+        this(version, id, prev, NO_SEGMENT, 0, 0);
+    }
+
+    public PatchInfo asPatchInfo() {
+        return new PatchInfo(id, Version.create(version), prev);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IndexRecord[%d, %s, %s, seg=%d, off=%d, len=%d]", version, id, prev, segment, offset, length);
+    }
+}
@@ -17,19 +17,27 @@
 
 package org.seaborne.delta.server.local.patchstores;
 
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
-import org.apache.jena.atlas.lib.NotImplemented;
 import org.apache.jena.atlas.logging.FmtLog;
 import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaException;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
 import org.seaborne.delta.PatchLogInfo;
 import org.seaborne.delta.Version;
+import org.seaborne.delta.server.local.PatchCache;
 import org.seaborne.delta.server.local.PatchLog;
 import org.seaborne.delta.server.local.PatchStore;
 import org.seaborne.delta.server.local.PatchValidation;
+import org.seaborne.delta.server.local.StoredPatch;
 import org.seaborne.patch.RDFPatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -130,6 +138,11 @@ public class PatchLogBase implements PatchLog {
         return patchStore;
     }
 
+    /** The {@link PatchLogIndex} of this log. */
+    public PatchLogIndex getPatchLogIndex() {
+        return logIndex;
+    }
+
     @Override
     public boolean contains(Id patchId) {
         return false;
@@ -142,24 +155,155 @@ public class PatchLogBase implements PatchLog {
 //        RDFPatchOps.write(System.err, patch);
 //        System.err.println("<<append");
 
-        return patchLogLockRtn(()->{
+        // Group commit: concurrent appends are queued and the thread that gets the
+        // append lock commits all the queued patches as one batch, taking the log lock
+        // once. Threads whose patch was committed by another thread's batch find it is
+        // done when they get the append lock.
+        PendingAppend entry = new PendingAppend(patch);
+        appendQueue.add(entry);
+        synchronized(appendLock) {
+            while ( ! entry.result.isDone() )
+                appendBatch(nextBatch());
+        }
+        try {
+            return entry.result.join();
+        } catch (CompletionException ex) {
+            if ( ex.getCause() instanceof RuntimeException )
+                throw (RuntimeException)ex.getCause();
+            throw new DeltaException(ex.getCause());
+        }
+    }
+
+    /** Maximum number of patches in one batch. */
+    private static final int MAX_BATCH = 100;
+
+    // Last version fetched, to detect reading patches in order.
+    private final AtomicLong lastFetchVersion = new AtomicLong(Version.UNSET.value());
+
+    private final Object appendLock = new Object();
+    private final Queue<PendingAppend> appendQueue = new ConcurrentLinkedQueue<>();
+
+    /** A patch waiting to be added to the log, and the result for the caller. */
+    private static class PendingAppend {
+        final RDFPatch patch;
+        final CompletableFuture<Version> result = new CompletableFuture<>();
+        PendingAppend(RDFPatch patch) { this.patch = patch; }
+    }
+
+    private List<PendingAppend> nextBatch() {
+        List<PendingAppend> batch = new ArrayList<>();
+        PendingAppend e;
+        while ( batch.size() < MAX_BATCH && (e = appendQueue.poll()) != null )
+            batch.add(e);
+        return batch;
+    }
+
+    /** Add a batch of patches to the log, inside one acquisition of the log lock. */
+    private void appendBatch(List<PendingAppend> batch) {
+        if ( batch.isEmpty() )
+            return;
+        try {
+            patchLogLock(()->appendBatchLocked(batch));
+        } catch (RuntimeException ex) {
+            batch.forEach(e->e.result.completeExceptionally(ex));
+        }
+        // In case the log lock did not run the action.
+        batch.forEach(e->e.result.completeExceptionally(new DeltaException("Patch not appended: "+Id.str(e.patch.getId()))));
+    }
+
+    private void appendBatchLocked(List<PendingAppend> batch) {
+        if ( appendBatchAttempt(batch, true) )
+            return;
+        // Another server has appended and the log index has caught up: check the
+        // batch again against the new head of the log.
+        appendBatchAttempt(batch, false);
+    }
+
+    /**
+     * Validate, store and save a batch. Return false, having saved nothing and completed
+     * nothing that depends on the head of the log, if this is the first attempt and the
+     * log index turned out to be behind the log.
+     */
+    private boolean appendBatchAttempt(List<PendingAppend> batch, boolean firstAttempt) {
+        // The head of the log, including patches accepted earlier in this batch.
+        Id head = isEmpty() ? null : getLatestId();
+        Id headPrev = logIndex.getPreviousId();
+        Version headVersion = getLatestVersion();
+        Version startVersion = headVersion;
+        Version nextVersion = logIndex.nextVersion();
+
+        List<PendingAppend> accepted = new ArrayList<>(batch.size());
+        List<PatchInfo> entries = new ArrayList<>(batch.size());
+        // Patches that failed validation; only reported once the head is known to be current.
+        Map<PendingAppend, RuntimeException> rejected = new LinkedHashMap<>();
+        for ( PendingAppend entry : batch ) {
+            if ( entry.result.isDone() )
+                continue;
+            RDFPatch patch = entry.patch;
             Id thisId = Id.fromNode(patch.getId());
             Id prevId = Id.fromNode(patch.getPrevious());
-
-            // Is it a reply of the last patch?
-            if ( ! isEmpty() && getLatestId().equals(thisId) ) {
-                if ( ! Objects.equals(prevId, logIndex.getPreviousId()) )
-                    FmtLog.warn(LOG, "Patch id matches log head, but patch previous does not match log previous id");
-                return getLatestVersion();
+            try {
+                // Is it a reply of the last patch?
+                if ( head != null && head.equals(thisId) ) {
+                    if ( ! Objects.equals(prevId, headPrev) )
+                        FmtLog.warn(LOG, "Patch id matches log head, but patch previous does not match log previous id");
+                    if ( entries.isEmpty() )
+                        // The saved log head.
+                        entry.result.complete(headVersion);
+                    else
+                        // The head is earlier in this batch; complete after the save.
+                        accepted.add(entry);
+                    continue;
+                }
+                PatchValidation.validateNewPatch(this, head, thisId, prevId, PatchValidation::badPatchEx);
+                patchStorage.store(thisId, patch);
+            } catch (RuntimeException ex) {
+                rejected.put(entry, ex);
+                continue;
             }
+            Version version = nextVersion;
+            nextVersion = nextVersion.inc();
+            entries.add(new PatchInfo(thisId, version, prevId));
+            accepted.add(entry);
+            headPrev = prevId;
+            head = thisId;
+            headVersion = version;
+        }
 
-            PatchValidation.validateNewPatch(this, thisId, prevId, PatchValidation::badPatchEx);
-            patchStorage.store(thisId, patch);
-            Version version = logIndex.nextVersion();
-            // This is the commit point. Indeside the log lock.
-            logIndex.save(version, thisId, prevId);
-            return version;
+        // A patch that does not follow the head may follow a head this server has not seen.
+        if ( firstAttempt && ! rejected.isEmpty() ) {
+            logIndex.syncVersionInfo();
+            if ( ! startVersion.equals(getLatestVersion()) )
+                return false;
+        }
+
+        // Patch storage may be writing asynchronously.
+        patchStorage.flush();
+        if ( ! entries.isEmpty() ) {
+            try {
+                // This is the commit point. Inside the log lock.
+                logIndex.save(entries);
+            } catch (PatchLogChangedException ex) {
+                if ( firstAttempt )
+                    return false;
+                throw ex;
+            }
+        }
+        rejected.forEach((entry, ex)->entry.result.completeExceptionally(ex));
+
+        Map<Id, Version> versions = new HashMap<>();
+        entries.forEach(e->versions.put(e.getPatch(), e.getVersion()));
+        accepted.forEach(entry->{
+            Id id = idOf(entry);
+            // Recent patches are the ones most likely to be fetched.
+            PatchCache.get().put(logId, id, entry.patch);
+            entry.result.complete(versions.get(id));
         });
+        return true;
+    }
+
+    private static Id idOf(PendingAppend entry) {
+        return Id.fromNode(entry.patch.getId());
     }
 
     protected void patchLogLock(Runnable action) {
@@ -172,7 +316,13 @@ public class PatchLogBase implements PatchLog {
 
     @Override
     public RDFPatch fetch(Id patchId) {
-        return patchStorage.fetch(patchId);
+        RDFPatch patch = PatchCache.get().get(logId, patchId);
+        if ( patch != null )
+            return patch;
+        patch = patchStorage.fetch(patchId);
+        if ( patch != null )
+            PatchCache.get().put(logId, patchId, patch);
+        return patch;
     }
 
     @Override
@@ -180,21 +330,68 @@ public class PatchLogBase implements PatchLog {
         Id id = find(version);
         if ( id == null )
             return null;
+        fetched(version);
         return fetch(id);
     }
 
+    @Override
+    public StoredPatch fetchStored(Id patchId) {
+        return patchStorage.fetchStored(patchId);
+    }
+
+    /** Stored bytes by version; if the storage has none, {@link #fetch(Version)} is used instead. */
+    @Override
+    public StoredPatch fetchStored(Version version) {
+        Id id = find(version);
+        if ( id == null )
+            return null;
+        StoredPatch stored = fetchStored(id);
+        if ( stored != null )
+            fetched(version);
+        return stored;
+    }
+
+    /** Record a fetch by version; if patches are being read in order, prefetch the next ones. */
+    private void fetched(Version version) {
+        if ( lastFetchVersion.getAndSet(version.value()) == version.value()-1 )
+            prefetch(version);
+    }
+
+    /** Patches are being read in order: tell the storage about the next ones. */
+    private void prefetch(Version version) {
+        int window = patchStorage.prefetchWindow();
+        if ( window <= 0 )
+            return;
+        long hi = Math.min(version.value()+window, getLatestVersion().value());
+        List<Id> ids = new ArrayList<>();
+        for ( long v = version.value()+1 ; v <= hi ; v++ ) {
+            Id id = logIndex.versionToId(Version.create(v));
+            if ( id != null && ! PatchCache.get().contains(logId, id) )
+                ids.add(id);
+        }
+        if ( ! ids.isEmpty() )
+            patchStorage.prefetch(ids);
+    }
+
     @Override
     public Stream<RDFPatch> range(Id start, Id finish) {
-        // Assuming start < finish.
-        throw new NotImplemented();
-        //return null;
+        Version vStart = find(start);
+        Version vFinish = find(finish);
+        if ( ! Version.isValid(vStart) || ! Version.isValid(vFinish) )
+            return Stream.empty();
+        return range(vStart, vFinish);
     }
 
     @Override
     public Stream<RDFPatch> range(Version start, Version finish) {
-        // Increment and probe.
-        throw new NotImplemented();
-        //return null;
+        // Increment and probe. Patches are fetched as the stream is consumed.
+        long lo = Math.max(start.value(), getEarliestVersion().value());
+        long hi = Math.min(finish.value(), getLatestVersion().value());
+        if ( isEmpty() || lo > hi )
+            return Stream.empty();
+        return LongStream.rangeClosed(lo, hi)
+            .mapToObj(v->fetch(Version.create(v)))
+            .filter(Objects::nonNull);
     }
 
     @Override
@@ -209,19 +406,22 @@ public class PatchLogBase implements PatchLog {
 
     @Override
     public Version find(Id id) {
-        // XXX PatchLogBase.find(Id)
-        FmtLog.warn(LOG, "Not implemented (yet). find(Id)");
-        return Version.UNSET;
+        PatchInfo info = logIndex.getPatchInfo(id);
+        if ( info == null || info.getVersion() == null )
+            return Version.UNSET;
+        return info.getVersion();
     }
 
     @Override
     public void delete() {
+        PatchCache.get().invalidate(logId);
         logIndex.delete();
         patchStorage.delete();
     }
 
     @Override
     public void release() {
+        PatchCache.get().invalidate(logId);
         logIndex.release();
         patchStorage.release();
     }
@@ -0,0 +1,31 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores;
+
+import org.apache.jena.web.HttpSC;
+import org.seaborne.delta.DeltaHttpException;
+
+/**
+ * A {@link PatchLogIndex} did not save entries because the log was changed elsewhere
+ * (another server appended). The index has caught up with the log when this is thrown.
+ * If it reaches a client, it is a "503": try again.
+ */
+public class PatchLogChangedException extends DeltaHttpException
+{
+    public PatchLogChangedException(String msg) { super(HttpSC.SERVICE_UNAVAILABLE_503, msg) ; }
+}
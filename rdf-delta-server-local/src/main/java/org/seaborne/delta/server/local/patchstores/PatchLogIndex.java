@@ -17,6 +17,7 @@
 
 package org.seaborne.delta.server.local.patchstores;
 
+import java.util.List;
 import java.util.function.Supplier;
 
 import org.seaborne.delta.DeltaConst;
@@ -46,6 +47,15 @@ public interface PatchLogIndex {
     /** Save the new head of log information. */
     public void save(Version version, Id patch, Id prev);
 
+    /**
+     * Save a batch of new log entries, in version order. The last entry becomes the
+     * head of the log. Implementations can override this to update the persistent state
+     * in one operation.
+     */
+    public default void save(List<PatchInfo> entries) {
+        entries.forEach(e->save(e.getVersion(), e.getPatch(), e.getPrevious()));
+    }
+
     /**
      * Get the earliest version in the log.
      * Returns {@link DeltaConst#VERSION_INIT} when the log is empty.
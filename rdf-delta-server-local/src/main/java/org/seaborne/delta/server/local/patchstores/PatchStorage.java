@@ -22,6 +22,7 @@ import java.util.stream.Stream;
 
 import org.apache.jena.atlas.lib.ListUtils;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.server.local.StoredPatch;
 import org.seaborne.patch.RDFPatch;
 
 /**
@@ -37,8 +38,31 @@ public interface PatchStorage {
     /** Get a patch */
     public RDFPatch fetch(Id key);
     
+    /**
+     * Get a committed patch as it is stored, without parsing it, from local storage.
+     * Return null if there is no such patch, if this storage does not hold patches in an
+     * encoded form, or if getting the bytes needs a round trip to another service; the
+     * caller then uses {@link #fetch}, which goes through the patch cache.
+     */
+    public default StoredPatch fetchStored(Id key) { return null; }
+
     /** Delete a patch */
     public void delete(Id id);
+
+    /**
+     * Wait until the patches passed to {@link #store} are stored.
+     * Storage that writes patches asynchronously throws an exception here if any write failed.
+     */
+    public default void flush() { }
+
+    /**
+     * The number of patches after the current one that are worth asking for with
+     * {@link #prefetch} when patches are being read in order. Zero means "do not prefetch".
+     */
+    public default int prefetchWindow() { return 0; }
+
+    /** Hint that these patches are about to be fetched. */
+    public default void prefetch(List<Id> ids) { }
     
     /** Release all the patches and any other state for this {@code PatchStorage} */
     public default void release() { }
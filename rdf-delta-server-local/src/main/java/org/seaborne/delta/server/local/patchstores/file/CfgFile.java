@@ -151,7 +151,7 @@ public class CfgFile {
      * Set up a disk file area for the data source
      * @param patchStore
      */
-    /*package*/ static Path setupDataSourceByFile(Path root, PatchStore patchStore, DataSourceDescription dsd) {
+    public static Path setupDataSourceByFile(Path root, PatchStore patchStore, DataSourceDescription dsd) {
         // Disk file setup.
         // Eventually this fixed code needs to move to PatchStoreFile or a library and be invoked from PatchStoreFile.
 
@@ -192,7 +192,7 @@ public class CfgFile {
     private static final String DELETE_MARKER = "-deleted";
 
     /** Retire an on-disk log file area */
-    /*package*/ static void retire(Path pathLog) {
+    public static void retire(Path pathLog) {
 //        if ( true ) {
 //            // Mark unavailable.
 //            Path disabled = pathLog.resolve(ConstDISABLED);
@@ -28,6 +28,9 @@ class FileNames {
     /** Relative path name in a DataSource for the log area. */
     public static final String LOG             = "Log";
     
+    /** Index of patch versions, ids and previous ids in a patch log area. */
+    public static final String LOG_INDEX       = "headers.idx";
+
     /** Marker file for "deletes" data sources (they are only hidden) */  
     public static final String DISABLED        = "disabled";
 }
@@ -21,15 +21,15 @@ import static org.seaborne.delta.DeltaConst.VERSION_INIT ;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
-import java.util.Iterator ;
-import java.util.Map ;
-import java.util.Objects ;
-import java.util.concurrent.ConcurrentHashMap ;
+import java.nio.file.Path;
+import java.util.*;
 import java.util.stream.LongStream ;
 import java.util.stream.Stream;
 
 import org.apache.jena.atlas.lib.InternalErrorException ;
+import org.apache.jena.atlas.lib.ListUtils;
 import org.apache.jena.atlas.logging.FmtLog;
 import org.apache.jena.ext.com.google.common.collect.BiMap;
 import org.apache.jena.ext.com.google.common.collect.HashBiMap;
@@ -38,11 +38,15 @@ import org.apache.jena.tdb.base.file.Location;
 import org.seaborne.delta.*;
 import org.seaborne.delta.lib.IOX;
 import org.seaborne.delta.server.local.DataSource ;
+import org.seaborne.delta.server.local.PatchCache;
 import org.seaborne.delta.server.local.PatchLog;
 import org.seaborne.delta.server.local.PatchStore;
 import org.seaborne.delta.server.local.PatchValidation;
+import org.seaborne.delta.server.local.StoredPatch;
 import org.seaborne.delta.server.local.filestore.FileEntry;
 import org.seaborne.delta.server.local.filestore.FileStore;
+import org.seaborne.delta.server.local.filestore.IndexFile;
+import org.seaborne.delta.server.local.filestore.IndexRecord;
 import org.seaborne.patch.PatchHeader;
 import org.seaborne.patch.RDFPatch;
 import org.seaborne.patch.RDFPatchOps;
@@ -72,7 +76,8 @@ public class PatchLogFile implements PatchLog {
     // Forward, backwards chain?
     // c.g. HistoryEntry
     private BiMap<Id, Version> idToVersion =  Maps.synchronizedBiMap(HashBiMap.create());
-    private Map<Id, PatchHeader> headers = new ConcurrentHashMap<>();
+    // Persistent record of (version, id, prev) so startup does not need to read every patch.
+    private final IndexFile indexFile;
 
     private Id latestId = null;
     private Version latestVersion = Version.UNSET;
@@ -86,6 +91,7 @@ public class PatchLogFile implements PatchLog {
         this.dsd = dsd;
         this.logId = dsd.getId();
         this.fileStore = FileStore.attach(location, "patch");
+        this.indexFile = IndexFile.open(IOX.asPath(location).resolve(FileNames.LOG_INDEX));
         this.patchStore = patchStore;
         initFromFileStore();
     }
@@ -95,45 +101,100 @@ public class PatchLogFile implements PatchLog {
         return logId;
     }
 
+    /**
+     * Set up the in-memory state from the index file. The index is checked against the
+     * patch files and any patch files written after the last index entry (crash between
+     * writing the patch and the index) are added. If the index does not match the patch
+     * files, it is rebuilt by reading the header of every patch.
+     */
     private void initFromFileStore() {
-        Iterator<Long> iter = fileStore.getIndexes().iterator();
-        PatchHeader previous = null;
-        for ( ; iter.hasNext() ; ) {
-            long idx = iter.next();
-            try ( InputStream in = fileStore.open(idx) ) {
-                PatchHeader patchHeader = RDFPatchReaderText.readerHeader(in);
-                if ( patchHeader == null ) {
-                    FmtLog.error(LOG, "Can't read header: idx=%d", idx);
-                    continue;
-                }
-                Id id = Id.fromNode(patchHeader.getId());
-                if ( id == null ) {
-                    FmtLog.error(LOG, "Can't find id: idx=%d: id=%s", idx, id);
-                    continue;
-                }
-                else {
-                    if ( contains(id) ) {
-                        FmtLog.error(LOG, "Duplicate: idx=%d: id=%s", idx, id);
-                    }
-                }
-
-                Id prev = Id.fromNode(patchHeader.getPrevious());
-                if ( prev != null ) {
-                    // We process entries in order so we should have seen previous by now.
-                    if ( ! contains(prev) ) {
-                        FmtLog.error(LOG, "Can't find previous: idx=%d: id=%s, prev=%s", idx, id, prev);
-                        continue;
-                    }
-                }
-                headers.put(id, patchHeader);
-                Version ver = Version.create(idx);
-                idToVersion.put(id, ver);
-                latestId = id;
-                latestVersion = ver;
+        List<Long> indexes = ListUtils.toList(fileStore.getIndexes());
+        List<IndexRecord> records = indexFile.records();
+        if ( ! validIndex(records, indexes) ) {
+            FmtLog.warn(LOG, "Rebuilding patch index: %s", fileStore.getPath());
+            indexFile.truncate(0);
+            records = Collections.emptyList();
+        }
+        records.forEach(this::load);
+        long lastIndexed = records.isEmpty() ? VERSION_INIT : records.get(records.size()-1).version;
+        List<IndexRecord> additions = new ArrayList<>();
+        for ( long idx : indexes ) {
+            if ( idx <= lastIndexed )
+                continue;
+            IndexRecord r = readEntry(idx);
+            if ( r == null )
+                continue;
+            load(r);
+            additions.add(r);
+        }
+        indexFile.append(additions);
+    }
+
+    /**
+     * Check the index records refer to patch files, in order, and that the last record
+     * matches the header of its patch file.
+     */
+    private boolean validIndex(List<IndexRecord> records, List<Long> indexes) {
+        if ( records.isEmpty() )
+            return true;
+        if ( records.size() > indexes.size() )
+            return false;
+        Set<Long> files = new HashSet<>(indexes);
+        long prevVersion = VERSION_INIT;
+        for ( IndexRecord r : records ) {
+            if ( r.version <= prevVersion || ! files.contains(r.version) )
+                return false;
+            prevVersion = r.version;
+        }
+        IndexRecord last = records.get(records.size()-1);
+        PatchHeader patchHeader = readHeader(last.version);
+        return patchHeader != null
+            && Objects.equals(last.id, Id.fromNode(patchHeader.getId()))
+            && Objects.equals(last.prev, Id.fromNode(patchHeader.getPrevious()));
+    }
+
+    private void load(IndexRecord r) {
+        Version ver = Version.create(r.version);
+        idToVersion.put(r.id, ver);
+        latestId = r.id;
+        latestVersion = ver;
+    }
+
+    /** Read the header of a patch file and check it; return null if not valid. */
+    private IndexRecord readEntry(long idx) {
+        PatchHeader patchHeader = readHeader(idx);
+        if ( patchHeader == null ) {
+            FmtLog.error(LOG, "Can't read header: idx=%d", idx);
+            return null;
+        }
+        Id id = Id.fromNode(patchHeader.getId());
+        if ( id == null ) {
+            FmtLog.error(LOG, "Can't find id: idx=%d: id=%s", idx, id);
+            return null;
+        }
+        else {
+            if ( contains(id) ) {
+                FmtLog.error(LOG, "Duplicate: idx=%d: id=%s", idx, id);
+            }
+        }
+
+        Id prev = Id.fromNode(patchHeader.getPrevious());
+        if ( prev != null ) {
+            // We process entries in order so we should have seen previous by now.
+            if ( ! contains(prev) ) {
+                FmtLog.error(LOG, "Can't find previous: idx=%d: id=%s, prev=%s", idx, id, prev);
+                return null;
             }
-            catch (NoSuchFileException ex) {}
-            catch (IOException ex) {}
         }
+        return new IndexRecord(idx, id, prev);
+    }
+
+    private PatchHeader readHeader(long idx) {
+        try ( InputStream in = fileStore.open(idx) ) {
+            return RDFPatchReaderText.readerHeader(in);
+        }
+        catch (DeltaNotFoundException ex) { return null; }
+        catch (IOException ex) { return null; }
     }
 
     @Override
@@ -193,12 +254,15 @@ public class PatchLogFile implements PatchLog {
 
     @Override
     public void delete() {
+        indexFile.close();
         CfgFile.retire(fileStore.getPath());
         release();
     }
 
     @Override
     public void release() {
+        PatchCache.get().invalidate(logId);
+        indexFile.close();
         fileStore.release();
     }
 
@@ -250,11 +314,12 @@ public class PatchLogFile implements PatchLog {
 
         Version version = Version.create(entry.version);
         validateVersionNotInUse(version);
+        indexFile.append(Collections.singletonList(new IndexRecord(version.value(), patchId, previousId)));
         idToVersion.put(patchId, version);
-        headers.put(patchId, patch.header());
         latestId = patchId;
         latestVersion = version;
         validateLatest();
+        PatchCache.get().put(logId, patchId, patch);
         return version;
     }
 
@@ -268,13 +333,10 @@ public class PatchLogFile implements PatchLog {
     public Stream<RDFPatch> range(Id start, Id finish) {
         Version startVersion = idToVersion.get(start);
         Version finishVersion = idToVersion.get(finish);
-        if ( startVersion == null ) {}
-        if ( finishVersion == null ) {}
+        if ( startVersion == null || finishVersion == null )
+            return Stream.empty();
         // Isolation not necessary. Patch files are immutable once written.
-        return
-            LongStream
-                .rangeClosed(startVersion.value(), finishVersion.value())
-                .mapToObj(v->fetch(fileStore, v));
+        return range$(startVersion, finishVersion);
     }
 
     @Override
@@ -288,10 +350,14 @@ public class PatchLogFile implements PatchLog {
     }
 
     private Stream<RDFPatch> range$(Version startVersion, Version finishVersion) {
+        // Limit to the versions in the log.
+        long lo = Math.max(startVersion.value(), getEarliestVersion().value());
+        long hi = Math.min(finishVersion.value(), getLatestVersion().value());
         return
             LongStream
-                .rangeClosed(startVersion.value(), finishVersion.value())
-                .mapToObj(v->fetch(fileStore, v));
+                .rangeClosed(lo, hi)
+                .mapToObj(v->fetch(fileStore, v))
+                .filter(Objects::nonNull);
     }
 
     public FileStore getFileStore() {
@@ -327,8 +393,16 @@ public class PatchLogFile implements PatchLog {
         if ( version > getLatestVersion().value() )
             return null;
 
+        Id patchId = idToVersion.inverse().get(Version.create(version));
+        if ( patchId != null ) {
+            RDFPatch patch = PatchCache.get().get(logId, patchId);
+            if ( patch != null )
+                return patch;
+        }
         try ( InputStream in = fileStore.open((int)version) ) {
             RDFPatch patch = RDFPatchOps.read(in) ;
+            if ( patchId != null )
+                PatchCache.get().put(logId, patchId, patch);
             return patch;
         }
         catch ( DeltaNotFoundException ex)  // Our internal 404.
@@ -338,6 +412,24 @@ public class PatchLogFile implements PatchLog {
         }
     }
 
+    /** The patch file, sent as it is. Patch files are always text. */
+    @Override
+    public StoredPatch fetchStored(Id patchId) {
+        Version version = idToVersion.get(patchId);
+        if ( version == null )
+            return null;
+        if ( version.value() < getEarliestVersion().value() || version.value() > getLatestVersion().value() )
+            return null;
+        Path path = fileStore.filename(version.value());
+        try {
+            return StoredPatch.of(patchId, PatchFormat.TEXT, path, 0, Files.size(path));
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        }
+    }
+
     @Override
     public Version find(Id id) {
         Version x = idToVersion.get(id);
@@ -24,6 +24,7 @@ import java.util.stream.Stream;
 import org.seaborne.delta.Id;
 import org.seaborne.delta.server.local.patchstores.PatchStorage;
 import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
 
 /**
  * Patch store in-memory, nothing persisted. 
@@ -41,6 +42,9 @@ public class PatchStorageMem implements PatchStorage {
 
     @Override
     public void store(Id key, RDFPatch value) {
+        // Keep a copy of a patch that can only be read while the append is in progress.
+        if ( ! value.repeatable() )
+            value = RDFPatchOps.collect(value);
         store.put(key, value);
     }
 
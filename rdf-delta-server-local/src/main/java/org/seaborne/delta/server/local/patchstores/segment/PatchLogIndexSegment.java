@@ -0,0 +1,130 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.segment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.server.local.filestore.IndexRecord;
+import org.seaborne.delta.server.local.patchstores.PatchLogIndex;
+
+/**
+ * {@link PatchLogIndex} for a {@link SegmentLog}. Saving a log entry writes the patch,
+ * staged by {@link PatchStorageSegment}, and the index record.
+ */
+public class PatchLogIndexSegment implements PatchLogIndex {
+    private final Object lock = new Object();
+    private final SegmentLog segmentLog;
+
+    public PatchLogIndexSegment(SegmentLog segmentLog) {
+        this.segmentLog = segmentLog;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return segmentLog.isEmpty();
+    }
+
+    @Override
+    public Version nextVersion() {
+        return getCurrentVersion().inc();
+    }
+
+    @Override
+    public void save(Version version, Id patch, Id prev) {
+        save(Collections.singletonList(new PatchInfo(patch, version, prev)));
+    }
+
+    @Override
+    public void save(List<PatchInfo> entries) {
+        segmentLog.commit(entries);
+    }
+
+    @Override
+    public Version getEarliestVersion() {
+        IndexRecord r = segmentLog.getEarliest();
+        return r == null ? Version.INIT : Version.create(r.version);
+    }
+
+    @Override
+    public Id getEarliestId() {
+        IndexRecord r = segmentLog.getEarliest();
+        return r == null ? null : r.id;
+    }
+
+    @Override
+    public Version getCurrentVersion() {
+        IndexRecord r = segmentLog.getLatest();
+        return r == null ? Version.INIT : Version.create(r.version);
+    }
+
+    @Override
+    public Id getCurrentId() {
+        IndexRecord r = segmentLog.getLatest();
+        return r == null ? null : r.id;
+    }
+
+    @Override
+    public Id getPreviousId() {
+        IndexRecord r = segmentLog.getLatest();
+        return r == null ? null : r.prev;
+    }
+
+    @Override
+    public Id versionToId(Version version) {
+        IndexRecord r = segmentLog.get(version.value());
+        return r == null ? null : r.id;
+    }
+
+    @Override
+    public PatchInfo getPatchInfo(Id id) {
+        IndexRecord r = segmentLog.get(id);
+        return r == null ? null : r.asPatchInfo();
+    }
+
+    @Override
+    public void release() {
+        segmentLog.release();
+    }
+
+    @Override
+    public void delete() {
+        segmentLog.delete();
+    }
+
+    @Override
+    public void runWithLock(Runnable action) {
+        synchronized(lock) {
+            action.run();
+        }
+    }
+
+    @Override
+    public <X> X runWithLockRtn(Supplier<X> action) {
+        synchronized(lock) {
+            return action.get();
+        }
+    }
+
+    @Override
+    public void syncVersionInfo() {}
+}
@@ -0,0 +1,77 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.segment;
+
+import java.util.stream.Stream;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.server.local.StoredPatch;
+import org.seaborne.delta.server.local.patchstores.PatchStorage;
+import org.seaborne.patch.RDFPatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PatchStorage} for a {@link SegmentLog}. Storing a patch stages it; it is
+ * written to the segment files when the {@link PatchLogIndexSegment} saves the log entry.
+ * Segments are append-only so individual patches can not be deleted.
+ */
+public class PatchStorageSegment implements PatchStorage {
+    private static Logger LOG = LoggerFactory.getLogger(PatchStorageSegment.class);
+    private final SegmentLog segmentLog;
+
+    public PatchStorageSegment(SegmentLog segmentLog) {
+        this.segmentLog = segmentLog;
+    }
+
+    @Override
+    public Stream<Id> find() {
+        return segmentLog.ids();
+    }
+
+    @Override
+    public void store(Id key, RDFPatch value) {
+        segmentLog.stage(key, value);
+    }
+
+    @Override
+    public RDFPatch fetch(Id key) {
+        return segmentLog.fetch(key);
+    }
+
+    @Override
+    public StoredPatch fetchStored(Id key) {
+        return segmentLog.fetchStored(key);
+    }
+
+    @Override
+    public void delete(Id id) {
+        FmtLog.warn(LOG, "Can't delete a single patch from a segment log: %s", id);
+    }
+
+    @Override
+    public void release() {
+        segmentLog.release();
+    }
+
+    @Override
+    public void delete() {
+        segmentLog.delete();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.segment;
+
+import java.nio.file.Paths;
+
+import org.apache.jena.atlas.lib.InternalErrorException;
+import org.apache.jena.atlas.logging.FmtLog;
+import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.server.local.*;
+import org.seaborne.delta.server.local.patchstores.PatchLogIndex;
+import org.seaborne.delta.server.local.patchstores.PatchStorage;
+
+public class PatchStoreProviderSegment implements PatchStoreProvider {
+
+    @Override
+    public PatchStore create(LocalServerConfig config) {
+        String fileArea = config.getProperty(DeltaConst.pDeltaFile);
+        if ( fileArea == null )
+            return null;
+        long segmentSize = segmentSize(config);
+        boolean migrate = Boolean.parseBoolean(config.getProperty(DeltaConst.pDeltaSegmentMigrate));
+        return new PatchStoreSegment(Paths.get(fileArea), segmentSize, migrate, config.getPatchFormat(), this);
+    }
+
+    private static long segmentSize(LocalServerConfig config) {
+        String x = config.getProperty(DeltaConst.pDeltaSegmentSize);
+        if ( x == null )
+            return DeltaConst.SEGMENT_SIZE;
+        try {
+            long size = Long.parseLong(x.trim());
+            // Segments are read with memory mapped buffers.
+            if ( size > 0 && size <= Integer.MAX_VALUE )
+                return size;
+        } catch (NumberFormatException ex) {}
+        FmtLog.warn(DPS.LOG, "Bad value for %s: '%s'", DeltaConst.pDeltaSegmentSize, x);
+        return DeltaConst.SEGMENT_SIZE;
+    }
+
+    @Override
+    public String getProviderName() {
+        return DPS.PatchStoreSegmentProvider;
+    }
+
+    @Override
+    public String getShortName() {
+        return DPS.pspSegment;
+    }
+
+    // PatchStoreSegment creates the index and storage for a log together
+    // because they share the SegmentLog. It does not call these.
+
+    @Override
+    public PatchLogIndex newPatchLogIndex(DataSourceDescription dsd, PatchStore patchStore, LocalServerConfig configuration) {
+        throw new InternalErrorException("PatchStoreProviderSegment.newPatchLogIndex");
+    }
+
+    @Override
+    public PatchStorage newPatchStorage(DataSourceDescription dsd, PatchStore patchStore, LocalServerConfig configuration) {
+        throw new InternalErrorException("PatchStoreProviderSegment.newPatchStorage");
+    }
+}
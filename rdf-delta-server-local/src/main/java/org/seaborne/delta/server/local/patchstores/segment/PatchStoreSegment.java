@@ -0,0 +1,130 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.segment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.tdb.base.file.Location;
+import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaConfigException;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.delta.server.local.LocalServerConfig;
+import org.seaborne.delta.server.local.PatchLog;
+import org.seaborne.delta.server.local.PatchStore;
+import org.seaborne.delta.server.local.PatchStoreProvider;
+import org.seaborne.delta.server.local.filestore.FileStore;
+import org.seaborne.delta.server.local.patchstores.PatchLogBase;
+import org.seaborne.delta.server.local.patchstores.file.CfgFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PatchStore} where each patch log is stored in segment files with an index
+ * (see {@link SegmentLog}). The disk layout of the server area is the same as for the
+ * file-based patch store; each patch log area can be migrated from the one-file-per-patch
+ * layout.
+ */
+public class PatchStoreSegment extends PatchStore {
+    private static Logger LOG = LoggerFactory.getLogger(PatchStoreSegment.class);
+
+    // Number of patches written in one step during migration.
+    private static final int MIGRATE_BATCH = 1000;
+    // The basename of patch files used by PatchLogFile.
+    private static final String FILESTORE_BASENAME = "patch";
+
+    private final Path serverRoot;
+    private final long segmentSize;
+    private final boolean migrate;
+    private final PatchFormat format;
+
+    public PatchStoreSegment(String location, long segmentSize, boolean migrate, PatchStoreProvider provider) {
+        this(Paths.get(location), segmentSize, migrate, PatchFormat.TEXT, provider);
+    }
+
+    public PatchStoreSegment(Path location, long segmentSize, boolean migrate, PatchFormat format, PatchStoreProvider provider) {
+        super(provider);
+        IOX.ensureDirectory(location);
+        this.serverRoot = location;
+        this.segmentSize = segmentSize;
+        this.migrate = migrate;
+        this.format = format;
+    }
+
+    @Override
+    protected List<DataSourceDescription> initialize(LocalServerConfig config) {
+        return CfgFile.scanForLogs(serverRoot, this);
+    }
+
+    @Override
+    protected PatchLog newPatchLog(DataSourceDescription dsd) {
+        Path patchLogArea = serverRoot.resolve(dsd.getName());
+        if ( ! Files.exists(patchLogArea) )
+            CfgFile.setupDataSourceByFile(serverRoot, this, dsd);
+        SegmentLog segmentLog = SegmentLog.attach(patchLogArea, segmentSize, format);
+        try {
+            migrateFileStore(patchLogArea, segmentLog);
+        } catch (RuntimeException ex) {
+            segmentLog.release();
+            throw ex;
+        }
+        return new PatchLogBase(dsd, new PatchLogIndexSegment(segmentLog), new PatchStorageSegment(segmentLog), this);
+    }
+
+    /** Move the patches of a file-based patch log area into the segment log. */
+    private void migrateFileStore(Path patchLogArea, SegmentLog segmentLog) {
+        FileStore fileStore = FileStore.attach(Location.create(patchLogArea.toString()), FILESTORE_BASENAME);
+        try {
+            if ( fileStore.isEmpty() )
+                return;
+            if ( ! migrate )
+                throw new DeltaConfigException("Patch files found in "+patchLogArea+" : set "+DeltaConst.pDeltaSegmentMigrate+"=true to migrate them to segments");
+            FmtLog.info(LOG, "Migrate patch files: %s", patchLogArea);
+            segmentLog.migrate(fileStore, MIGRATE_BATCH);
+            // Committed to the segment log : remove the patch files.
+            fileStore.getIndexes().forEach(idx->{
+                try { Files.deleteIfExists(fileStore.filename(idx)); }
+                catch (IOException ex) { throw IOX.exception(ex); }
+            });
+        } finally {
+            fileStore.release();
+        }
+    }
+
+    @Override
+    protected void delete(PatchLog patchLog) {
+        Path patchLogArea = serverRoot.resolve(patchLog.getDescription().getName());
+        patchLog.delete();
+        CfgFile.retire(patchLogArea);
+    }
+
+    @Override
+    protected void startStore() {}
+
+    @Override
+    protected void closeStore() {}
+
+    @Override
+    protected void deleteStore() {}
+}
@@ -0,0 +1,587 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.segment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.PatchInfo;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.delta.server.local.StoredPatch;
+import org.seaborne.delta.server.local.filestore.FileStore;
+import org.seaborne.delta.server.local.filestore.IndexFile;
+import org.seaborne.delta.server.local.filestore.IndexRecord;
+import org.seaborne.patch.PatchHeader;
+import org.seaborne.patch.RDFPatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The on-disk storage for one patch log: a sequence of append-only segment files
+ * holding the patches, and a sidecar {@link IndexFile} recording, for each version, the
+ * patch id, its previous id and the location of the patch in the segments.
+ * <p>
+ * Each patch in a segment is a frame:
+ * <pre>
+ *   length    4  (of the patch bytes)
+ *   crc       4  (CRC32 of the patch bytes)
+ *   version   8
+ *   patch     length bytes
+ * </pre>
+ * Patches are written in the {@link PatchFormat} given when the log is attached. Reading
+ * detects the format of each patch, so a log can hold patches in both formats.
+ * A patch is committed when its index record has been written. Patches are written, and
+ * the segment forced, before the index records, so the index never refers to data that
+ * is not on disk. On attach, any data in the segments after the last indexed patch is
+ * removed. If the index file is missing, it is rebuilt by scanning the segments.
+ * <p>
+ * Patches are read from sealed segments using a memory mapped buffer per segment; the
+ * active segment is read with positional reads. Segments are kept below 2GB, the limit
+ * of a mapped buffer: the segment size is capped at {@link #MAX_SEGMENT_SIZE} and a
+ * segment that is too large to map (for example, written with a larger segment size) is
+ * read with positional reads.
+ */
+public class SegmentLog {
+    private static Logger LOG = LoggerFactory.getLogger(SegmentLog.class);
+
+    /*package*/ static final String SEGMENT_BASENAME = "segment";
+    /*package*/ static final String INDEX_FILENAME = "segments.idx";
+    private static final int FRAME_HEADER = 2*Integer.BYTES + Long.BYTES;
+    /** The largest segment: a segment, including a single large patch, never goes past this size. */
+    public static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final PatchFormat format;
+    private IndexFile indexFile;
+
+    private final Map<Id, IndexRecord> byId = new ConcurrentHashMap<>();
+    private final Map<Long, IndexRecord> byVersion = new ConcurrentHashMap<>();
+    private volatile IndexRecord earliest = null;
+    private volatile IndexRecord latest = null;
+
+    // Patches stored but not yet committed by an index update.
+    private final Map<Id, byte[]> staged = new ConcurrentHashMap<>();
+
+    // Sealed segments, mapped on first use.
+    private final Map<Integer, MappedByteBuffer> mapped = new ConcurrentHashMap<>();
+    private int currentSegment;
+    private FileChannel currentChannel = null;
+    private long currentSize;
+    private boolean released = false;
+
+    /**
+     * Attach to the segment log in a directory, creating it if necessary. This
+     * performs recovery: incomplete writes are removed and a missing index is rebuilt.
+     */
+    public static SegmentLog attach(Path directory, long segmentSize) {
+        return attach(directory, segmentSize, PatchFormat.TEXT);
+    }
+
+    /**
+     * Attach to the segment log in a directory, creating it if necessary, writing new
+     * patches in {@code format}.
+     */
+    public static SegmentLog attach(Path directory, long segmentSize, PatchFormat format) {
+        IOX.ensureDirectory(directory);
+        return new SegmentLog(directory, segmentSize, format);
+    }
+
+    /** Test whether a directory has a segment log. */
+    public static boolean exists(Path directory) {
+        return IndexFile.exists(directory.resolve(INDEX_FILENAME)) || ! scanForSegments(directory).isEmpty();
+    }
+
+    private SegmentLog(Path directory, long segmentSize, PatchFormat format) {
+        this.directory = directory;
+        this.segmentSize = Math.min(segmentSize, MAX_SEGMENT_SIZE);
+        this.format = format;
+        Path indexPath = directory.resolve(INDEX_FILENAME);
+        List<Integer> segments = scanForSegments(directory);
+        boolean rebuild = ! IndexFile.exists(indexPath) && ! segments.isEmpty();
+        this.indexFile = IndexFile.open(indexPath);
+        List<IndexRecord> records = rebuild ? rebuildIndex(segments) : checkIndex(segments);
+        records.forEach(this::index);
+        // Remove anything after the last committed patch.
+        int lastSegment = 1;
+        long lastSize = 0;
+        if ( latest != null ) {
+            lastSegment = latest.segment;
+            lastSize = latest.offset + FRAME_HEADER + latest.length;
+        }
+        for ( int seg : segments ) {
+            if ( seg > lastSegment )
+                deleteSegment(seg);
+        }
+        truncateSegment(lastSegment, lastSize);
+        this.currentSegment = lastSegment;
+        this.currentSize = lastSize;
+        FmtLog.debug(LOG, "SegmentLog: %s: %d patches, %d segments", directory, byVersion.size(), lastSegment);
+    }
+
+    // Drop index records that refer to data that is not in the segments.
+    private List<IndexRecord> checkIndex(List<Integer> segments) {
+        List<IndexRecord> records = indexFile.records();
+        int n = records.size();
+        while ( n > 0 ) {
+            IndexRecord r = records.get(n-1);
+            Path path = segmentPath(r.segment);
+            try {
+                if ( Files.exists(path) && Files.size(path) >= r.offset + FRAME_HEADER + r.length )
+                    break;
+            } catch (IOException ex) { throw IOX.exception(ex); }
+            FmtLog.warn(LOG, "Index record with no segment data: %s", r);
+            n--;
+        }
+        if ( n != records.size() ) {
+            indexFile.truncate(n);
+            records = records.subList(0, n);
+        }
+        return records;
+    }
+
+    // Recreate the index by scanning the segments.
+    private List<IndexRecord> rebuildIndex(List<Integer> segments) {
+        FmtLog.info(LOG, "Rebuilding segment index: %s", directory);
+        List<IndexRecord> records = new ArrayList<>();
+        Id prevId = null;
+        for ( int seg : segments ) {
+            Path path = segmentPath(seg);
+            try ( FileChannel ch = FileChannel.open(path, StandardOpenOption.READ) ) {
+                long size = ch.size();
+                long posn = 0;
+                boolean damaged = false;
+                while ( posn < size ) {
+                    ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+                    byte[] bytes = readFrame(ch, posn, size, header);
+                    if ( bytes == null ) {
+                        FmtLog.warn(LOG, "Damaged patch at %s:%d: truncating", path, posn);
+                        damaged = true;
+                        break;
+                    }
+                    long version = header.getLong(2*Integer.BYTES);
+                    PatchHeader patchHeader = PatchFormat.headerFromBytes(bytes);
+                    Id id = Id.fromNode(patchHeader.getId());
+                    Id prev = Id.fromNode(patchHeader.getPrevious());
+                    if ( prev == null && prevId != null )
+                        FmtLog.warn(LOG, "No previous for patch %s (version %d)", id, version);
+                    records.add(new IndexRecord(version, id, prev, seg, posn, bytes.length));
+                    prevId = id;
+                    posn += FRAME_HEADER + bytes.length;
+                }
+                if ( damaged )
+                    break;
+            } catch (IOException ex) { throw IOX.exception(ex); }
+        }
+        indexFile.append(records);
+        return records;
+    }
+
+    // Read a frame; return null if it is incomplete or damaged.
+    private static byte[] readFrame(FileChannel ch, long posn, long size, ByteBuffer header) throws IOException {
+        if ( posn + FRAME_HEADER > size )
+            return null;
+        readFully(ch, header, posn);
+        int length = header.getInt(0);
+        int crc = header.getInt(Integer.BYTES);
+        if ( length < 0 || posn + FRAME_HEADER + length > size )
+            return null;
+        ByteBuffer bb = ByteBuffer.allocate(length);
+        readFully(ch, bb, posn+FRAME_HEADER);
+        byte[] bytes = bb.array();
+        if ( crc(bytes) != crc )
+            return null;
+        return bytes;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer bb, long posn) throws IOException {
+        while ( bb.hasRemaining() ) {
+            if ( ch.read(bb, posn+bb.position()) < 0 )
+                throw new IOException("Unexpected end of file");
+        }
+    }
+
+    private void index(IndexRecord r) {
+        byId.put(r.id, r);
+        byVersion.put(r.version, r);
+        if ( earliest == null )
+            earliest = r;
+        latest = r;
+    }
+
+    public boolean isEmpty() {
+        return latest == null;
+    }
+
+    /** The earliest committed entry, or null if the log is empty. */
+    public IndexRecord getEarliest() {
+        return earliest;
+    }
+
+    /** The latest committed entry, or null if the log is empty. */
+    public IndexRecord getLatest() {
+        return latest;
+    }
+
+    public IndexRecord get(Id id) {
+        return byId.get(id);
+    }
+
+    public IndexRecord get(long version) {
+        return byVersion.get(version);
+    }
+
+    /** The ids of committed patches, in no particular order. */
+    public Stream<Id> ids() {
+        return byId.keySet().stream();
+    }
+
+    /** Number of committed patches. */
+    public long size() {
+        return byVersion.size();
+    }
+
+    /**
+     * Record the patch data for a patch, ready for {@link #commit}.
+     * Nothing is written until commit.
+     */
+    public void stage(Id id, RDFPatch patch) {
+        staged.put(id, encode(patch));
+    }
+
+    /**
+     * Write the staged patches for the entries to the segments, then add the entries to
+     * the index. The entries must be in version order. Staged patches not committed are
+     * discarded.
+     */
+    public synchronized void commit(List<PatchInfo> entries) {
+        try {
+            List<IndexRecord> records = new ArrayList<>(entries.size());
+            for ( PatchInfo info : entries ) {
+                byte[] bytes = staged.get(info.getPatch());
+                if ( bytes == null )
+                    throw new DeltaException("No patch data for "+info.getPatch());
+                records.add(new IndexRecord(info.getVersion().value(), info.getPatch(), info.getPrevious(), 0, 0, bytes.length));
+            }
+            List<byte[]> data = new ArrayList<>(entries.size());
+            entries.forEach(info->data.add(staged.get(info.getPatch())));
+            append(records, data);
+        } finally {
+            staged.clear();
+        }
+    }
+
+    /** Append patches, in version order, as given by their headers. */
+    /*package*/ synchronized void append(List<IndexRecord> entries, List<byte[]> data) {
+        checkNotReleased();
+        if ( entries.isEmpty() )
+            return;
+        int startSegment = currentSegment;
+        long startSize = currentSize;
+        List<IndexRecord> records = new ArrayList<>(entries.size());
+        try {
+            for ( int i = 0 ; i < entries.size() ; i++ ) {
+                IndexRecord e = entries.get(i);
+                byte[] bytes = data.get(i);
+                if ( FRAME_HEADER + (long)bytes.length > MAX_SEGMENT_SIZE )
+                    throw new DeltaException("Patch too large for a segment: "+e.id+" ("+bytes.length+" bytes)");
+                if ( currentSize > 0 && currentSize + FRAME_HEADER + bytes.length > segmentSize )
+                    nextSegment();
+                long offset = currentSize;
+                writeFrame(e.version, bytes);
+                records.add(new IndexRecord(e.version, e.id, e.prev, currentSegment, offset, bytes.length));
+            }
+            channel().force(false);
+        } catch (IOException | RuntimeException ex) {
+            rollback(startSegment, startSize);
+            throw (ex instanceof IOException) ? IOX.exception((IOException)ex) : (RuntimeException)ex;
+        }
+        // Commit point.
+        indexFile.append(records);
+        records.forEach(this::index);
+    }
+
+    private void writeFrame(long version, byte[] bytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        header.putInt(bytes.length);
+        header.putInt(crc(bytes));
+        header.putLong(version);
+        header.flip();
+        ByteBuffer body = ByteBuffer.wrap(bytes);
+        FileChannel ch = channel();
+        long posn = currentSize;
+        while ( header.hasRemaining() )
+            posn += ch.write(header, posn);
+        while ( body.hasRemaining() )
+            posn += ch.write(body, posn);
+        currentSize = posn;
+    }
+
+    private FileChannel channel() throws IOException {
+        if ( currentChannel == null )
+            currentChannel = FileChannel.open(segmentPath(currentSegment),
+                                              StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return currentChannel;
+    }
+
+    // Seal the current segment and start a new one.
+    private void nextSegment() throws IOException {
+        if ( currentChannel != null ) {
+            currentChannel.force(false);
+            currentChannel.close();
+            currentChannel = null;
+        }
+        currentSegment++;
+        currentSize = 0;
+        FmtLog.debug(LOG, "New segment: %s", segmentPath(currentSegment));
+    }
+
+    // Remove any data written after (segment, size).
+    private void rollback(int segment, long size) {
+        try {
+            if ( currentChannel != null )
+                currentChannel.close();
+        } catch (IOException ex) {}
+        currentChannel = null;
+        for ( int seg = segment+1 ; seg <= currentSegment ; seg++ )
+            deleteSegment(seg);
+        truncateSegment(segment, size);
+        currentSegment = segment;
+        currentSize = size;
+    }
+
+    /**
+     * Read a committed patch; return null if there is no such patch.
+     * Staged patches are not returned: they are not in the log until {@link #commit}.
+     */
+    public RDFPatch fetch(Id id) {
+        IndexRecord r = byId.get(id);
+        if ( r == null )
+            return null;
+        return decode(read(r));
+    }
+
+    /**
+     * A committed patch as a region of its segment file; return null if there is no
+     * such committed patch.
+     */
+    public StoredPatch fetchStored(Id id) {
+        IndexRecord r = byId.get(id);
+        if ( r == null )
+            return null;
+        if ( r.length == 0 )
+            return StoredPatch.of(id, format, new byte[0]);
+        // Migrated patches keep the format they had, so look at the first byte.
+        byte[] first = new byte[1];
+        try {
+            readAt(r.segment, r.offset + FRAME_HEADER, ByteBuffer.wrap(first));
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        return StoredPatch.of(id, PatchFormat.detect(first), segmentPath(r.segment), r.offset + FRAME_HEADER, r.length);
+    }
+
+    private byte[] read(IndexRecord r) {
+        byte[] bytes = new byte[r.length];
+        try {
+            readAt(r.segment, r.offset + FRAME_HEADER, ByteBuffer.wrap(bytes));
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        return bytes;
+    }
+
+    // Fill the buffer with bytes from a segment, starting at a position.
+    private void readAt(int segment, long posn, ByteBuffer dst) throws IOException {
+        checkNotReleased();
+        if ( segment == currentSegment ) {
+            synchronized(this) {
+                // Check again: the segment may have been sealed.
+                if ( segment == currentSegment ) {
+                    readFully(channel(), dst, posn);
+                    return;
+                }
+            }
+        }
+        ByteBuffer bb = segmentBuffer(segment);
+        if ( bb != null ) {
+            bb.position(Math.toIntExact(posn));
+            bb.limit(Math.toIntExact(posn + dst.remaining()));
+            dst.put(bb);
+            return;
+        }
+        try ( FileChannel ch = FileChannel.open(segmentPath(segment), StandardOpenOption.READ) ) {
+            readFully(ch, dst, posn);
+        }
+    }
+
+    // A buffer for reading a sealed segment, or null if the segment is too large to map.
+    private ByteBuffer segmentBuffer(int segment) throws IOException {
+        MappedByteBuffer bb = mapped.get(segment);
+        if ( bb == null ) {
+            try ( FileChannel ch = FileChannel.open(segmentPath(segment), StandardOpenOption.READ) ) {
+                long size = ch.size();
+                if ( size > MAX_SEGMENT_SIZE )
+                    return null;
+                bb = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            mapped.put(segment, bb);
+        }
+        // Independent position for each reader.
+        return bb.duplicate();
+    }
+
+    /** Release in-process resources. */
+    public synchronized void release() {
+        if ( released )
+            return;
+        released = true;
+        try {
+            if ( currentChannel != null )
+                currentChannel.close();
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        currentChannel = null;
+        indexFile.close();
+        mapped.clear();
+        staged.clear();
+    }
+
+    /** Release and remove the segment files and the index. */
+    public synchronized void delete() {
+        release();
+        byId.clear();
+        byVersion.clear();
+        earliest = null;
+        latest = null;
+        scanForSegments(directory).forEach(this::deleteSegment);
+        indexFile.delete();
+    }
+
+    private void checkNotReleased() {
+        if ( released )
+            throw new DeltaException("SegmentLog released: "+directory);
+    }
+
+    /**
+     * Copy the patches of a {@link FileStore} into this (empty) segment log, keeping their
+     * version numbers. Patches already in the segment log, from an earlier, interrupted
+     * migration, are skipped. The files in the {@code FileStore} are not changed.
+     */
+    public void migrate(FileStore fileStore, int batchSize) {
+        long start = isEmpty() ? Long.MIN_VALUE : getLatest().version;
+        List<IndexRecord> entries = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        Iterator<Long> iter = fileStore.getIndexes().iterator();
+        long count = 0;
+        while ( iter.hasNext() ) {
+            long idx = iter.next();
+            if ( idx <= start )
+                continue;
+            byte[] bytes = IOX.readAll(fileStore.filename(idx));
+            PatchHeader header = PatchFormat.headerFromBytes(bytes);
+            Id id = Id.fromNode(header.getId());
+            if ( id == null ) {
+                FmtLog.error(LOG, "Can't find id: idx=%d", idx);
+                continue;
+            }
+            entries.add(new IndexRecord(idx, id, Id.fromNode(header.getPrevious())));
+            data.add(bytes);
+            count++;
+            if ( entries.size() >= batchSize ) {
+                append(entries, data);
+                entries.clear();
+                data.clear();
+            }
+        }
+        append(entries, data);
+        FmtLog.info(LOG, "Migrated %d patches from %s", count, fileStore);
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s-%06d", SEGMENT_BASENAME, segment));
+    }
+
+    private void deleteSegment(int segment) {
+        mapped.remove(segment);
+        try {
+            Files.deleteIfExists(segmentPath(segment));
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    private void truncateSegment(int segment, long size) {
+        Path path = segmentPath(segment);
+        if ( ! Files.exists(path) )
+            return;
+        try ( FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE) ) {
+            if ( ch.size() > size ) {
+                FmtLog.warn(LOG, "Removing uncommitted data: %s (%d bytes)", path, ch.size() - size);
+                ch.truncate(size);
+                ch.force(false);
+            }
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Segment numbers, sorted low to high. */
+    private static List<Integer> scanForSegments(Path directory) {
+        List<Integer> segments = new ArrayList<>();
+        if ( ! Files.isDirectory(directory) )
+            return segments;
+        String prefix = SEGMENT_BASENAME+"-";
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix+"*") ) {
+            for ( Path f : stream ) {
+                String fn = f.getFileName().toString();
+                try {
+                    segments.add(Integer.parseInt(fn.substring(prefix.length())));
+                } catch (NumberFormatException ex) {
+                    FmtLog.warn(LOG, "Can't parse filename: %s", f);
+                }
+            }
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        segments.sort(Integer::compareTo);
+        return segments;
+    }
+
+    private byte[] encode(RDFPatch patch) {
+        return format.toBytes(patch);
+    }
+
+    private static RDFPatch decode(byte[] bytes) {
+        return PatchFormat.fromBytes(bytes);
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int)crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SegmentLog[%s, patches=%d, segment=%d]", directory, byVersion.size(), currentSegment);
+    }
+}
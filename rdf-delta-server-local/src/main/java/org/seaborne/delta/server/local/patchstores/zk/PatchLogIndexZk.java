@@ -20,19 +20,29 @@ package org.seaborne.delta.server.local.patchstores.zk;
 import static org.seaborne.delta.zk.Zk.zkPath;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
 import org.apache.jena.atlas.json.JSON;
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.lib.ListUtils;
+import org.apache.jena.atlas.lib.StrUtils;
 import org.apache.jena.atlas.logging.FmtLog;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
 import org.seaborne.delta.*;
 import org.seaborne.delta.lib.JSONX;
 import org.seaborne.delta.server.local.PatchStore;
 import org.seaborne.delta.server.local.patchstores.PatchLogIndex;
+import org.seaborne.delta.server.local.patchstores.PatchLogChangedException;
 import org.seaborne.delta.zk.Zk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,24 +62,67 @@ public class PatchLogIndexZk implements PatchLogIndex {
     private final String lockPath;
     private final String versionsPath;
     private final String headersPath;
+    private final String bucketsPath;
+
+    /*
+     * Layout of the version to id index.
+     * null => one zNode per version in "versions" (and one per patch in "header").
+     * Otherwise, bucket zNodes in "buckets" each holding the ids of many versions; the
+     * header information is derived from the index and not stored.
+     */
+    private final VersionBuckets buckets;
+
+    /*
+     * Leader lease mode: one server holds the leadership of the log (a Curator LeaderLatch,
+     * renewed by the ZooKeeper session) and appends without taking the log lock or
+     * re-reading the log state. Every save is a single ZooKeeper transaction, conditional
+     * on the version of the state zNode, so an append based on out-of-date state fails
+     * rather than overwriting another server's append. Servers that are not the leader
+     * append using the log lock and the same conditional transaction.
+     * null => lease mode not in use.
+     */
+    private final LeaderLatch leaderLatch;
+    // The ZooKeeper data version of the state zNode matching the local state.
+    private final AtomicInteger stateZkVersion = new AtomicInteger(-1);
 
     /* Keep head info - the (version, id, prev) is saved in /headers/<id> when a patch is stored in addition to the
      * /versions/NNNN which as just id.
      * This isn't necessary for operation.
      * It can be used to check the patch store.
+     * Not kept with the bucket layout.
      */
-    private final boolean keepHeaderInfo = true;
+    private final boolean keepHeaderInfo;
 
     /*
      * Verification can only happen if basic header information is stored.
      * Requires header information to have been kept.
      */
     // Could write a verifier that went to the PatchStorage to get header info.
-    private final boolean startupVerification = false && keepHeaderInfo ;
+    private static final boolean startupVerification = false;
 
     private Version earliestVersion = Version.UNSET;
     private Id earliestId = null;
 
+    /*
+     * Version to patch id. The id for a version never changes once committed so entries
+     * do not become stale. Loaded at startup, added to by local saves and by the state
+     * watcher, so fetching by version does not need to read ZooKeeper.
+     */
+    private final Map<Long, Id> versionCache = new ConcurrentHashMap<>();
+    // Id to version, for the bucket layout which does not keep header information.
+    private final Map<Id, Long> idCache = new ConcurrentHashMap<>();
+    // Number of background reads outstanding when loading the cache.
+    private static final int LOAD_BATCH = 1000;
+    /*
+     * Versions added by other servers are read into the cache by this executor, not on
+     * the ZooKeeper event thread that runs the state watcher. Owned by the patch store
+     * and shared by its logs. Null for no background reads.
+     */
+    private final Executor fillExecutor;
+    // A fill of the version cache is queued and has not yet started.
+    private final AtomicBoolean fillRequested = new AtomicBoolean(false);
+    private volatile boolean released = false;
+
     // Set by newState
     private volatile long version = Version.UNSET.value();
     private volatile Id current = null;
@@ -87,7 +140,21 @@ public class PatchLogIndexZk implements PatchLogIndex {
      */
 
     public PatchLogIndexZk(CuratorFramework client, String instance, DataSourceDescription dsd, String logPath) {
+        this(client, instance, dsd, logPath, false, null);
+    }
+
+    /**
+     * Create a {@code PatchLogIndexZk}.
+     * The layout of the version index is fixed when the log is created (see
+     * {@link PatchStoreZk}) and is only changed by {@link #migrateToBuckets}, with the
+     * log not in use.
+     * Versions added by other servers are read into the version cache by
+     * {@code fillExecutor}; if it is null, they are read from ZooKeeper when looked up.
+     */
+    public PatchLogIndexZk(CuratorFramework client, String instance, DataSourceDescription dsd, String logPath,
+                           boolean leaderLease, Executor fillExecutor) {
         this.client = client ;
+        this.fillExecutor = fillExecutor;
         this.instance = instance;
         this.dsd = dsd;
         this.logName = dsd.getName();
@@ -95,24 +162,38 @@ public class PatchLogIndexZk implements PatchLogIndex {
         this.lockPath       = zkPath(logPath, ZkConst.nLock);
         this.versionsPath   = zkPath(logPath, ZkConst.nVersions);
         this.headersPath   = zkPath(logPath, ZkConst.nHeaders);
+        this.bucketsPath    = zkPath(logPath, ZkConst.nBuckets);
+        this.leaderLatch    = leaderLease ? new LeaderLatch(client, zkPath(logPath, ZkConst.nLeader), instance) : null;
+        this.buckets        = readBucketsMarker(client, bucketsPath, logName);
+        this.keepHeaderInfo = ( buckets == null );
 
         // Find earliest.
-        List<String> x = Zk.zkSubNodes(client, versionsPath);
+        List<String> x = ( buckets == null ) ? Zk.zkSubNodes(client, versionsPath) : null;
+        if ( buckets == null )
+            loadVersionCache(x);
+        else
+            loadBuckets();
         //Guess: 1
-        if ( x.isEmpty() )
+        if ( buckets != null )
+            earliestVersion = versionCache.keySet().stream().min(Long::compare).map(Version::create).orElse(Version.INIT);
+        else if ( x.isEmpty() )
             earliestVersion = Version.INIT;
         else if ( x.contains("00000001") )
             // Fast-track the "obvious" answer
             earliestVersion = Version.create(1);
         else {
             try {
-                long ver = x.stream().map(this::versionFromName).filter(v->(v>0)).min(Long::compare).get();
+                long ver = x.stream().map(PatchLogIndexZk::versionFromName).filter(v->(v>0)).min(Long::compare).get();
                 earliestVersion = Version.create(ver);
             } catch (NoSuchElementException ex) {  }
         }
         earliestId = versionToId(earliestVersion);
         // Initialize, start watching
         stateOrInit();
+        if ( leaderLatch != null ) {
+            try { leaderLatch.start(); }
+            catch (Exception ex) { throw new DeltaException("Failed to start the leader latch for "+logName, ex); }
+        }
 
         if ( startupVerification ) {
             if ( ! keepHeaderInfo )
@@ -196,6 +277,223 @@ public class PatchLogIndexZk implements PatchLogIndex {
         }
     }
 
+    /** The bucket layout, if the log uses it, or null. */
+    private static VersionBuckets readBucketsMarker(CuratorFramework client, String bucketsPath, String logName) {
+        String x = Zk.zkFetchStr(client, bucketsPath);
+        if ( x == null || x.isEmpty() )
+            return null;
+        try {
+            return new VersionBuckets(Integer.parseInt(x.trim()));
+        } catch (IllegalArgumentException ex) {
+            throw new DeltaException("Bad bucket marker for log "+logName+": '"+x+"'");
+        }
+    }
+
+    /** The content of the bucket marker zNode for a new log using the bucket layout. */
+    /*package*/ static byte[] bucketsMarker() {
+        return StrUtils.asUTF8bytes(Integer.toString(ZkConst.BUCKET_SIZE));
+    }
+
+    // Bucket zNodes written in each transaction when migrating (ZooKeeper requests are limited to 1MB).
+    private static final int MIGRATE_BATCH = 32;
+
+    /**
+     * Convert a log from the one zNode per version layout to the bucket layout.
+     * <p>
+     * This is an offline operation: servers determine the layout of a log when they open
+     * it, so no server may have the log open during the migration. As a safeguard, a
+     * server still using the old layout checks for the bucket marker when it appends, and
+     * fails the append rather than writing to the old layout.
+     * Return false if the log already uses the bucket layout.
+     */
+    public static boolean migrateToBuckets(CuratorFramework client, String logName) {
+        String logPath      = zkPath(ZkConst.pLogs, logName);
+        String versionsPath = zkPath(logPath, ZkConst.nVersions);
+        String headersPath  = zkPath(logPath, ZkConst.nHeaders);
+        String bucketsPath  = zkPath(logPath, ZkConst.nBuckets);
+        String statePath    = zkPath(logPath, ZkConst.nState);
+        if ( ! Zk.zkExists(client, statePath) )
+            throw new DeltaException("No such log: "+logName);
+        Boolean b = Zk.zkLockRtn(client, zkPath(logPath, ZkConst.nLock), ()->{
+            if ( readBucketsMarker(client, bucketsPath, logName) != null )
+                return false;
+            long t1 = System.currentTimeMillis();
+            VersionBuckets vb = new VersionBuckets(ZkConst.BUCKET_SIZE);
+            List<String> versionNames = Zk.zkSubNodes(client, versionsPath);
+            if ( versionNames == null )
+                versionNames = List.of();
+            List<String> paths = ListUtils.toList(versionNames.stream().map(n->zkPath(versionsPath, n)));
+            Map<String, byte[]> data = Zk.zkFetchAll(client, paths, LOAD_BATCH);
+            Map<Long, Id> ids = new HashMap<>();
+            versionNames.forEach(n->{
+                long ver = versionFromName(n);
+                byte[] bytes = data.get(zkPath(versionsPath, n));
+                if ( ver > 0 && bytes != null )
+                    ids.put(ver, Id.fromBytes(bytes));
+            });
+            if ( ids.size() != versionNames.size() )
+                throw new DeltaException("Failed to read all versions of log "+logName+" for migration");
+            // Any partial, earlier attempt.
+            if ( Zk.zkExists(client, bucketsPath) )
+                Zk.zkDelete(client, bucketsPath);
+            Zk.zkCreate(client, bucketsPath);
+            long maxVersion = ids.keySet().stream().max(Long::compare).orElse(0L);
+            SortedSet<Long> bucketNums = new TreeSet<>();
+            ids.keySet().forEach(v->bucketNums.add(vb.bucket(v)));
+            List<CuratorOp> ops = new ArrayList<>();
+            for ( long bucket : bucketNums ) {
+                String path = zkPath(bucketsPath, VersionBuckets.bucketName(bucket));
+                byte[] bytes = vb.encode(bucket, maxVersion, ids::get);
+                ops.add(Zk.zkCalc(()->client.transactionOp().create().forPath(path, bytes)));
+                if ( ops.size() >= MIGRATE_BATCH ) {
+                    migrateCommit(client, ops, logName);
+                    ops.clear();
+                }
+            }
+            migrateCommit(client, ops, logName);
+            // The marker is set last: until then, the log uses the old layout.
+            // Rewriting the state zNode changes its version.
+            byte[] state = Zk.zkFetch(client, statePath);
+            List<CuratorOp> marker = Arrays.asList(
+                Zk.zkCalc(()->client.transactionOp().setData().forPath(bucketsPath, bucketsMarker())),
+                Zk.zkCalc(()->client.transactionOp().setData().forPath(statePath, state)));
+            migrateCommit(client, marker, logName);
+            // Remove the old layout. The header information is only kept with the old layout.
+            Zk.zkDelete(client, versionsPath);
+            Zk.zkCreate(client, versionsPath);
+            Zk.zkDelete(client, headersPath);
+            Zk.zkCreate(client, headersPath);
+            long t2 = System.currentTimeMillis();
+            FmtLog.info(LOG, "[%s] Migrated %d versions to %d buckets in %d ms", logName, ids.size(), bucketNums.size(), (t2-t1));
+            return true;
+        });
+        return b != null && b;
+    }
+
+    private static void migrateCommit(CuratorFramework client, List<CuratorOp> ops, String logName) {
+        if ( ops.isEmpty() )
+            return;
+        if ( ops.contains(null) || ! Zk.zkTransaction(client, ops) )
+            throw new DeltaException("Failed to write buckets for log "+logName);
+    }
+
+    /** Fill the version cache from the bucket zNodes. */
+    private void loadBuckets() {
+        long t1 = System.currentTimeMillis();
+        List<String> names = Zk.zkSubNodes(client, bucketsPath);
+        if ( names == null || names.isEmpty() )
+            return;
+        List<String> paths = ListUtils.toList(names.stream().map(n->zkPath(bucketsPath, n)));
+        Map<String, byte[]> data = Zk.zkFetchAll(client, paths, LOAD_BATCH);
+        names.forEach(n->{
+            long b = VersionBuckets.bucketFromName(n);
+            byte[] bytes = data.get(zkPath(bucketsPath, n));
+            if ( b >= 0 && bytes != null )
+                buckets.forEach(b, bytes, this::cachePut);
+        });
+        long t2 = System.currentTimeMillis();
+        FmtLog.debug(LOG, "[%s] Version cache: %d entries from %d buckets in %dms", logName, versionCache.size(), names.size(), (t2-t1));
+    }
+
+    private void cachePut(long ver, Id id) {
+        versionCache.put(ver, id);
+        if ( buckets != null )
+            idCache.put(id, ver);
+    }
+
+    /** Read the id for a version from ZooKeeper, adding it to the cache. */
+    private Id fetchId(long ver) {
+        if ( buckets == null ) {
+            byte[] b = Zk.zkFetch(client, versionPath(ver));
+            if ( b == null )
+                return null;
+            Id id = Id.fromBytes(b);
+            cachePut(ver, id);
+            return id;
+        }
+        long bucket = buckets.bucket(ver);
+        byte[] bytes = Zk.zkFetch(client, bucketPath(bucket));
+        if ( bytes == null )
+            return null;
+        // Cache all the versions in the bucket.
+        buckets.forEach(bucket, bytes, this::cachePut);
+        return buckets.get(bytes, ver);
+    }
+
+    /** Fill the version cache from the "versions" zNodes. */
+    private void loadVersionCache(List<String> versionNames) {
+        if ( versionNames == null || versionNames.isEmpty() )
+            return;
+        long t1 = System.currentTimeMillis();
+        List<String> paths = ListUtils.toList(versionNames.stream().map(n->zkPath(versionsPath, n)));
+        Map<String, byte[]> data = Zk.zkFetchAll(client, paths, LOAD_BATCH);
+        versionNames.forEach(n->{
+            long ver = versionFromName(n);
+            byte[] b = data.get(zkPath(versionsPath, n));
+            if ( ver > 0 && b != null )
+                cachePut(ver, Id.fromBytes(b));
+        });
+        long t2 = System.currentTimeMillis();
+        FmtLog.debug(LOG, "[%s] Version cache: %d entries in %dms", logName, versionCache.size(), (t2-t1));
+    }
+
+    /**
+     * Fill any gap in the version cache up to the current version; called after a state
+     * change. The head is known from the state; other missing versions are read in the
+     * background. Until then, lookups of those versions read ZooKeeper.
+     */
+    private void fillVersionCache() {
+        long ver = version;
+        Id id = current;
+        if ( id != null && ver > 0 && ! versionCache.containsKey(ver) )
+            cachePut(ver, id);
+        // Another server may have added several versions.
+        if ( fillExecutor != null && ver > DeltaConst.VERSION_FIRST && ! versionCache.containsKey(ver-1)
+             && fillRequested.compareAndSet(false, true) ) {
+            try { fillExecutor.execute(this::fillMissing); }
+            catch (RejectedExecutionException ex) { fillRequested.set(false); }
+        }
+    }
+
+    /** Read the versions missing from the cache below the current version, in one batch of background reads. */
+    private void fillMissing() {
+        fillRequested.set(false);
+        if ( released )
+            return;
+        try {
+            long low = Math.max(DeltaConst.VERSION_FIRST, earliestVersion.value());
+            List<Long> missing = new ArrayList<>();
+            for ( long v = version-1 ; v >= low && ! versionCache.containsKey(v) ; v-- )
+                missing.add(v);
+            if ( missing.isEmpty() )
+                return;
+            long t1 = System.currentTimeMillis();
+            if ( buckets == null ) {
+                List<String> paths = ListUtils.toList(missing.stream().map(this::versionPath));
+                Map<String, byte[]> data = Zk.zkFetchAll(client, paths, LOAD_BATCH);
+                missing.forEach(v->{
+                    byte[] b = data.get(versionPath(v));
+                    if ( b != null )
+                        cachePut(v, Id.fromBytes(b));
+                });
+            } else {
+                SortedSet<Long> bucketNums = new TreeSet<>();
+                missing.forEach(v->bucketNums.add(buckets.bucket(v)));
+                List<String> paths = ListUtils.toList(bucketNums.stream().map(this::bucketPath));
+                Map<String, byte[]> data = Zk.zkFetchAll(client, paths, LOAD_BATCH);
+                bucketNums.forEach(b->{
+                    byte[] bytes = data.get(bucketPath(b));
+                    if ( bytes != null )
+                        buckets.forEach(b, bytes, this::cachePut);
+                });
+            }
+            long t2 = System.currentTimeMillis();
+            FmtLog.debug(LOG, "[%s] Version cache: filled %d versions in %dms", logName, missing.size(), (t2-t1));
+        } catch (RuntimeException ex) {
+            FmtLog.warn(LOG, "[%s] Failed to fill the version cache: %s", logName, ex.getMessage());
+        }
+    }
+
     @Override
     public void delete() {
         // Don't actually delete the state.
@@ -204,6 +502,18 @@ public class PatchLogIndexZk implements PatchLogIndex {
     @Override
     public void release() {
         // Release local resources.
+        released = true;
+        versionCache.clear();
+        idCache.clear();
+        if ( leaderLatch != null ) {
+            try { leaderLatch.close(); }
+            catch (Exception ex) { FmtLog.warn(LOG, "[%s] Leader latch close: %s", logName, ex.getMessage()); }
+        }
+    }
+
+    /** Whether this index holds the leader lease of the log. Always false when lease mode is not in use. */
+    public boolean isLeader() {
+        return leaderLatch != null && leaderLatch.hasLeadership();
     }
 
     @Override
@@ -249,22 +559,109 @@ public class PatchLogIndexZk implements PatchLogIndex {
     @Override
     public void save(Version version, Id patch, Id prev) {
         // Should always be called inside the patch lock.
-        save(version.value(), patch, prev);
+        if ( patch == null ) {
+            saveState(version.value(), patch, prev);
+            return;
+        }
+        save(List.of(new PatchInfo(patch, version, prev)));
     }
 
-    private void save(long version, Id patch, Id prev) {
+    /** Write the state zNode only; used to initialize a log with no patches. */
+    private void saveState(long version, Id patch, Id prev) {
         newState(version, patch, prev);
-        JsonObject x = stateToJson(version, patch, prev);
-        byte[] bytes = JSONX.asBytes(x);
-        if ( patch != null ) {
-            // [META]
-            // Record the basic header - (version, id, prev) - for validation.
-            if ( keepHeaderInfo )
-                Zk.zkCreateSet(client, headerPath(patch), bytes);
-            // Write version->id mapping.
-            Zk.zkCreateSet(client, versionPath(version), patch.asBytes());
+        byte[] bytes = JSONX.asBytes(stateToJson(version, patch, prev));
+        Stat stat = Zk.zkCalc(()->client.setData().forPath(statePath, bytes));
+        if ( stat != null )
+            stateZkVersion.accumulateAndGet(stat.getVersion(), Math::max);
+    }
+
+    /**
+     * Save new entries with one ZooKeeper multi-operation transaction that only commits
+     * if the state zNode has not changed since this index last read or wrote it. Bucket
+     * zNodes are rewritten, not created, so the condition on the state zNode is what
+     * stops two servers both writing the same versions. If the transaction fails, none
+     * of the entries are saved: the local state is resynchronized from ZooKeeper and a
+     * {@link PatchLogChangedException} is thrown.
+     */
+    @Override
+    public void save(List<PatchInfo> entries) {
+        // Should always be called inside the patch lock.
+        if ( entries.isEmpty() )
+            return;
+        PatchInfo last = entries.get(entries.size()-1);
+        if ( entries.get(0).getVersion().value() != version+1 ) {
+            // Not based on the state of the log as this index knows it.
+            syncState();
+            throw new PatchLogChangedException("Patch log changed by another server: "+logName);
+        }
+        int expected = stateZkVersion.get();
+        // The migration to buckets sets the marker and changes the state zNode in one
+        // transaction, so either the marker is seen here or the save below fails.
+        if ( buckets == null && readBucketsMarker(client, bucketsPath, logName) != null )
+            throw new DeltaException("Patch log "+logName+" has been converted to the bucket layout and must be reopened");
+        List<CuratorOp> ops = Zk.zkCalc(()->{
+            List<CuratorOp> x = indexOps(entries);
+            byte[] state = JSONX.asBytes(stateToJson(last.getVersion().value(), last.getPatch(), last.getPrevious()));
+            x.add(client.transactionOp().setData().withVersion(expected).forPath(statePath, state));
+            return x;
+        });
+        if ( ops == null || ! Zk.zkTransaction(client, ops) ) {
+            // Most likely another server has appended. Catch up; the caller can retry.
+            // Do not fall back to non-atomic writes which could publish part of the batch.
+            syncState();
+            throw new PatchLogChangedException("Patch log changed by another server: "+logName);
         }
-        Zk.zkSet(client, statePath, bytes);
+        stateZkVersion.accumulateAndGet(expected+1, Math::max);
+        entries.forEach(e->cachePut(e.getVersion().value(), e.getPatch()));
+        newState(last.getVersion().value(), last.getPatch(), last.getPrevious());
+    }
+
+    /** The transaction operations to add new entries to the version index. */
+    private List<CuratorOp> indexOps(List<PatchInfo> entries) throws Exception {
+        List<CuratorOp> x = new ArrayList<>();
+        for ( PatchInfo e : entries ) {
+            long ver = e.getVersion().value();
+            if ( keepHeaderInfo ) {
+                byte[] header = JSONX.asBytes(stateToJson(ver, e.getPatch(), e.getPrevious()));
+                x.add(client.transactionOp().create().forPath(headerPath(e.getPatch()), header));
+            }
+            if ( buckets == null )
+                x.add(client.transactionOp().create().forPath(versionPath(ver), e.getPatch().asBytes()));
+        }
+        if ( buckets == null )
+            return x;
+        // One write for each bucket touched.
+        long before = this.version;
+        Map<Long, Id> pending = new HashMap<>();
+        SortedSet<Long> touched = new TreeSet<>();
+        entries.forEach(e->{
+            pending.put(e.getVersion().value(), e.getPatch());
+            touched.add(buckets.bucket(e.getVersion().value()));
+        });
+        long lastVersion = entries.get(entries.size()-1).getVersion().value();
+        for ( long b : touched ) {
+            byte[] data = buckets.encode(b, lastVersion, v->pending.containsKey(v) ? pending.get(v) : knownId(v, before));
+            if ( before >= buckets.firstVersion(b) )
+                x.add(client.transactionOp().setData().forPath(bucketPath(b), data));
+            else
+                x.add(client.transactionOp().create().forPath(bucketPath(b), data));
+        }
+        return x;
+    }
+
+    /**
+     * The id of a version already in the log (at or before {@code currentVersion}),
+     * or null if the version is before the start of the log.
+     */
+    private Id knownId(long ver, long currentVersion) {
+        if ( ver > currentVersion || ver < Math.max(DeltaConst.VERSION_FIRST, earliestVersion.value()) )
+            return null;
+        Id id = versionCache.get(ver);
+        if ( id == null )
+            id = fetchId(ver);
+        if ( id == null )
+            throw new DeltaException("No id for version "+ver+" in log "+logName);
+        return id;
     }
 
     // null => no watching.
@@ -278,12 +675,18 @@ public class PatchLogIndexZk implements PatchLogIndex {
 
     private void syncState() {
         JsonObject obj = getWatchedState();
-        if ( obj != null )
+        if ( obj != null ) {
             jsonSetState(obj);
+            fillVersionCache();
+        }
     }
 
     private JsonObject getWatchedState() {
-        return Zk.zkFetchJson(client, logStateWatcher, statePath);
+        Stat stat = new Stat();
+        JsonObject obj = Zk.zkFetchJson(client, logStateWatcher, statePath, stat);
+        if ( obj != null )
+            stateZkVersion.accumulateAndGet(stat.getVersion(), Math::max);
+        return obj;
     }
 
     @Override
@@ -299,7 +702,7 @@ public class PatchLogIndexZk implements PatchLogIndex {
             else
                 initState();
             if ( version == DeltaConst.VERSION_UNSET )
-                save(DeltaConst.VERSION_INIT, current, previous);
+                saveState(DeltaConst.VERSION_INIT, current, previous);
         }
     }
 
@@ -309,7 +712,7 @@ public class PatchLogIndexZk implements PatchLogIndex {
             if ( current == null )
                 earliestVersion = Version.INIT;
             version = DeltaConst.VERSION_INIT;
-            save(version, current, previous);
+            saveState(version, current, previous);
         });
     }
 
@@ -328,7 +731,7 @@ public class PatchLogIndexZk implements PatchLogIndex {
             if ( patch != null )
                 b.pair(fId, patch.asPlainString());
             if ( prev != null )
-                b.pair(fPrevious, patch.asPlainString());
+                b.pair(fPrevious, prev.asPlainString());
         });
     }
 
@@ -373,38 +776,51 @@ public class PatchLogIndexZk implements PatchLogIndex {
 
     @Override
     public Id versionToId(Version ver) {
-        // Cache?
         if ( ! Version.isValid(ver) )
             return null;
-        String p = versionPath(ver);
-        byte[] b = Zk.zkFetch(client, versionPath(ver));
-        if ( b == null )
-            return null;
-        Id id = Id.fromBytes(b);
-        return id;
+        Id id = versionCache.get(ver.value());
+        if ( id != null )
+            return id;
+        // Not seen yet - e.g. the state watcher has not run.
+        return fetchId(ver.value());
     }
 
     @Override
     public PatchInfo getPatchInfo(Id id) {
+        if ( buckets != null ) {
+            // No stored header information: the previous patch is the one at the version before.
+            Long ver = idCache.get(id);
+            if ( ver == null ) {
+                syncState();
+                ver = idCache.get(id);
+            }
+            if ( ver == null )
+                return null;
+            Id prevId = ( ver > DeltaConst.VERSION_FIRST ) ? versionToId(Version.create(ver-1)) : null;
+            return new PatchInfo(id, Version.create(ver), prevId);
+        }
         String p = headerPath(id);
         JsonObject obj = Zk.zkFetchJson(client, p);
+        if ( obj == null )
+            return null;
         Id patchId = getIdOrNull(obj, fId);
         if ( ! Objects.equals(id, patchId) ) { /*msg*/ }
         Id prevId = getIdOrNull(obj, fPrevious);
         long ver = JSONX.getLong(obj, fVersion, -99);
         Version version = ver < 0 ? Version.UNSET : Version.create(ver);
-        return new PatchInfo(patchId, Version.UNSET, prevId);
+        return new PatchInfo(patchId, version, prevId);
     }
 
     private String versionPath(Version ver) { return versionPath(ver.value()) ; }
     private String versionPath(long ver) { return Zk.zkPath(versionsPath, String.format("%08d", ver)); }
     private String headerPath(Id id) { return Zk.zkPath(headersPath, id.asPlainString()); }
+    private String bucketPath(long bucket) { return Zk.zkPath(bucketsPath, VersionBuckets.bucketName(bucket)); }
 
-    private long versionFromName(String name) {
+    private static long versionFromName(String name) {
         try {
             return Long.parseLong(name);
         } catch (NumberFormatException ex) {
-            Log.warn(this, "Attempt to extract the version from '"+name+"'");
+            Log.warn(PatchLogIndexZk.class, "Attempt to extract the version from '"+name+"'");
             return -1;
         }
     }
@@ -418,6 +834,14 @@ public class PatchLogIndexZk implements PatchLogIndex {
 
     @Override
     public void runWithLock(Runnable action) {
+        if ( isLeader() ) {
+            // No other server appends while this one holds the lease; the conditional
+            // save detects the case where that is not true (e.g. a lease change).
+            synchronized(lock) {
+                action.run();
+            }
+            return;
+        }
         synchronized(lock) {
             Zk.zkLock(client, lockPath, ()->{
                 syncVersionInfo();
@@ -436,6 +860,11 @@ public class PatchLogIndexZk implements PatchLogIndex {
 
     @Override
     public <X> X runWithLockRtn(Supplier<X> action) {
+        if ( isLeader() ) {
+            synchronized(lock) {
+                return action.get();
+            }
+        }
         synchronized(lock) {
             return Zk.zkLockRtn(client, lockPath, ()->{
                 syncVersionInfo();
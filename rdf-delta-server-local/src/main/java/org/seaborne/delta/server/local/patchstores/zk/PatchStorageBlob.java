@@ -0,0 +1,291 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.zk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.jena.atlas.logging.FmtLog;
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.delta.server.local.StoredPatch;
+import org.seaborne.delta.server.local.patchstores.PatchStorage;
+import org.seaborne.delta.zk.Zk;
+import org.seaborne.patch.RDFPatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Patch storage with the patch bodies in local files and the index in Apache ZooKeeper.
+ * <p>
+ * Each patch body is written to a file in a directory for the log, named by the SHA-256
+ * of its bytes. ZooKeeper records only the patch id to hash mapping, under
+ * {@code /delta/logs/NAME/blobs/ID}. When a patch is not on the local disk, for example
+ * because it was appended through another server, the bytes are fetched with a
+ * {@link PeerFetch}, checked against the hash, and kept locally.
+ * <p>
+ * A new patch body is written durably to the local disk, and copied to another server
+ * with a {@link PeerCopy}, before the patch is recorded in ZooKeeper, so a committed
+ * patch does not depend on the disk of one server.
+ */
+public class PatchStorageBlob implements PatchStorage {
+    private static Logger LOG = LoggerFactory.getLogger(PatchStorageBlob.class);
+
+    /** Fetch the bytes of a patch body from another server; return null if not available. */
+    @FunctionalInterface
+    public interface PeerFetch {
+        public byte[] fetch(String logName, String hash);
+    }
+
+    /**
+     * Copy the bytes of a new patch body to at least one other server; return false if
+     * no server accepted it. Return true if there are no other servers.
+     */
+    @FunctionalInterface
+    public interface PeerCopy {
+        public boolean copy(String logName, String hash, byte[] bytes);
+    }
+
+    private static final Pattern HashRegex = Pattern.compile("^[0-9a-f]{64}$");
+    private static final String tmpSuffix = ".tmp";
+
+    private final CuratorFramework client;
+    private final String logName;
+    private final String blobs;
+    private final Path directory;
+    private final PatchFormat format;
+    private final PeerFetch peerFetch;
+    private final PeerCopy peerCopy;
+    // Patch id to hash. Entries never change once written.
+    private final Map<Id, String> hashes = new ConcurrentHashMap<>();
+
+    public PatchStorageBlob(CuratorFramework client, String logName, String logPath, Path directory,
+                            PatchFormat format, PeerFetch peerFetch, PeerCopy peerCopy) {
+        this.client = client;
+        this.logName = logName;
+        this.blobs = Zk.zkPath(logPath, ZkConst.nBlobs);
+        this.directory = directory;
+        this.format = format;
+        this.peerFetch = peerFetch;
+        this.peerCopy = peerCopy;
+        Zk.zkEnsure(client, blobs);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    @Override
+    public Stream<Id> find() {
+        List<String> x = Zk.zkSubNodes(client, blobs);
+        return x.stream().map(s-> Id.fromString(s));
+    }
+
+    @Override
+    public void store(Id key, RDFPatch value) {
+        byte[] b = format.toBytes(value);
+        String hash = sha256(b);
+        writeBlob(hash, b);
+        if ( peerCopy != null && ! peerCopy.copy(logName, hash, b) )
+            throw new DeltaException("Failed to copy patch "+key+" to another server");
+        String p = Zk.zkPath(blobs, key.asPlainString());
+        Zk.zkCreateSet(client, p, hash.getBytes(StandardCharsets.UTF_8));
+        hashes.put(key, hash);
+    }
+
+    @Override
+    public RDFPatch fetch(Id key) {
+        String hash = hash(key);
+        if ( hash == null )
+            return null;
+        byte[] b = readBlob(hash);
+        if ( b == null ) {
+            b = fetchFromPeer(hash);
+            if ( b == null ) {
+                FmtLog.warn(LOG, "[%s] fetch(%s) : No local or peer copy of %s", logName, key, hash);
+                return null;
+            }
+        }
+        return PatchFormat.fromBytes(b);
+    }
+
+    /** The local file is sent as it is; a patch only held by a peer is left to {@link #fetch}. */
+    @Override
+    public StoredPatch fetchStored(Id key) {
+        String hash = hash(key);
+        if ( ! isHash(hash) )
+            return null;
+        Path path = directory.resolve(hash);
+        try ( InputStream in = Files.newInputStream(path) ) {
+            int b = in.read();
+            long length = Files.size(path);
+            PatchFormat fmt = ( b < 0 ) ? format : PatchFormat.detect(new byte[] {(byte)b});
+            return StoredPatch.of(key, fmt, path, 0, length);
+        } catch (NoSuchFileException ex) {
+            // Not local.
+            return null;
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    private String hash(Id key) {
+        String hash = hashes.get(key);
+        if ( hash != null )
+            return hash;
+        byte[] x = Zk.zkFetch(client, Zk.zkPath(blobs, key.asPlainString()));
+        if ( x == null )
+            return null;
+        hash = new String(x, StandardCharsets.UTF_8);
+        hashes.put(key, hash);
+        return hash;
+    }
+
+    private byte[] fetchFromPeer(String hash) {
+        if ( peerFetch == null )
+            return null;
+        byte[] b = peerFetch.fetch(logName, hash);
+        if ( b == null )
+            return null;
+        String h = sha256(b);
+        if ( ! hash.equals(h) ) {
+            FmtLog.warn(LOG, "[%s] Peer copy of %s has hash %s : ignored", logName, hash, h);
+            return null;
+        }
+        writeBlob(hash, b);
+        return b;
+    }
+
+    /** Return the bytes of a patch body held in local storage, or null. */
+    public byte[] readBlob(String hash) {
+        return readBlob(directory, hash);
+    }
+
+    /** Return the bytes of a patch body held in the directory for a log, or null. */
+    /*package*/ static byte[] readBlob(Path directory, String hash) {
+        if ( ! isHash(hash) )
+            return null;
+        try {
+            return Files.readAllBytes(directory.resolve(hash));
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Keep a patch body copied from another server. Return false if the bytes do not match the hash. */
+    public boolean copyBlob(String hash, byte[] bytes) {
+        return copyBlob(directory, hash, bytes);
+    }
+
+    /*package*/ static boolean copyBlob(Path directory, String hash, byte[] bytes) {
+        if ( ! isHash(hash) || ! hash.equals(sha256(bytes)) )
+            return false;
+        writeBlob(directory, hash, bytes);
+        return true;
+    }
+
+    private void writeBlob(String hash, byte[] bytes) {
+        writeBlob(directory, hash, bytes);
+    }
+
+    /**
+     * Write the file for a patch body, atomically and durably, if it is not already
+     * present. The file is forced to disk before it is renamed into place, and the
+     * directory after, so the file is complete if it exists after a crash.
+     */
+    private static void writeBlob(Path directory, String hash, byte[] bytes) {
+        Path path = directory.resolve(hash);
+        if ( Files.exists(path) )
+            return;
+        Path tmp = directory.resolve(hash+"-"+Thread.currentThread().getId()+tmpSuffix);
+        try {
+            try ( FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING) ) {
+                ByteBuffer bb = ByteBuffer.wrap(bytes);
+                while ( bb.hasRemaining() )
+                    out.write(bb);
+                out.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(directory);
+        } catch (IOException ex) {
+            try { Files.deleteIfExists(tmp); } catch (IOException ex2) {}
+            throw IOX.exception(ex);
+        }
+    }
+
+    /** Force the entries of a directory to disk. */
+    private static void syncDirectory(Path directory) {
+        try ( FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ) ) {
+            dir.force(true);
+        } catch (IOException ex) {
+            // Some platforms do not support opening a directory.
+        }
+    }
+
+    @Override
+    public void delete(Id id) {
+        String hash = hash(id);
+        String p = Zk.zkPath(blobs, id.asPlainString());
+        Zk.zkRun(()->client.delete().forPath(p));
+        hashes.remove(id);
+        if ( isHash(hash) ) {
+            try {
+                Files.deleteIfExists(directory.resolve(hash));
+            } catch (IOException ex) {
+                FmtLog.warn(LOG, "[%s] Failed to delete %s", logName, hash);
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        find().forEach(this::delete);
+    }
+
+    /*package*/ static boolean isHash(String hash) {
+        return hash != null && HashRegex.matcher(hash).matches();
+    }
+
+    /*package*/ static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder sb = new StringBuilder(2*digest.length);
+            for ( byte b : digest )
+                sb.append(String.format("%02x", b & 0xFF));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new DeltaException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -17,18 +17,19 @@
 
 package org.seaborne.delta.server.local.patchstores.zk;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.stream.Stream;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.web.HttpSC;
+import org.seaborne.delta.DeltaHttpException;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.SpooledPatch;
 import org.seaborne.delta.server.local.patchstores.PatchStorage;
 import org.seaborne.delta.zk.Zk;
 import org.seaborne.patch.RDFPatch;
-import org.seaborne.patch.RDFPatchOps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,14 +40,26 @@ import org.slf4j.LoggerFactory;
  * >not designed for storing large objects</a>.
  * The default maximum is 1M and most data for znodes should be much less that that.
  * They can cause slow startup because ZooKeeper keeps the database in-memory.
+ * Patches larger than {@link ZkConst#MAX_PATCH_SIZE} are rejected (413) before they are
+ * read into memory.
  */
 public class PatchStorageZk implements PatchStorage {
     private static Logger LOG = LoggerFactory.getLogger(PatchStorageZk.class);
     private final CuratorFramework client;
     private final String patches;
+    private final PatchFormat format;
 
     public PatchStorageZk(CuratorFramework client, String instance, String logPath) {
+        this(client, instance, logPath, PatchFormat.TEXT);
+    }
+
+    /**
+     * Patch storage with patches written in {@code format}.
+     * Patches in either format can be read, so the format of a log can be changed.
+     */
+    public PatchStorageZk(CuratorFramework client, String instance, String logPath, PatchFormat format) {
         this.client = client;
+        this.format = format;
         this.patches = Zk.zkPath(logPath, ZkConst.nPatches);
         Zk.zkEnsure(client, patches);
     }
@@ -60,12 +73,19 @@ public class PatchStorageZk implements PatchStorage {
     @Override
     public void store(Id key, RDFPatch value) {
         String p = Zk.zkPath(patches, key.asPlainString());
-        ByteArrayOutputStream out = new ByteArrayOutputStream(10*1024);
-        RDFPatchOps.write(out, value);
-        byte[] b = out.toByteArray();
+        if ( value instanceof SpooledPatch && ((SpooledPatch)value).length() > ZkConst.MAX_PATCH_SIZE )
+            throw tooLarge(key);
+        byte[] b = format.toBytes(value);
+        if ( b.length > ZkConst.MAX_PATCH_SIZE )
+            throw tooLarge(key);
         Zk.zkCreateSet(client, p, b);
     }
 
+    private static DeltaHttpException tooLarge(Id key) {
+        return new DeltaHttpException(HttpSC.REQUEST_ENTITY_TOO_LARGE_413,
+                                      "Patch "+key+" is larger than "+ZkConst.MAX_PATCH_SIZE+" bytes");
+    }
+
     @Override
     public RDFPatch fetch(Id key) {
         String p = Zk.zkPath(patches, key.asPlainString());
@@ -74,7 +94,7 @@ public class PatchStorageZk implements PatchStorage {
             return null;
         if ( b.length == 0 )
             FmtLog.warn(LOG, "fetch(%s) : Zero bytes", key);
-        return RDFPatchOps.read(new ByteArrayInputStream(b));
+        return PatchFormat.fromBytes(b);
     }
 
     @Override
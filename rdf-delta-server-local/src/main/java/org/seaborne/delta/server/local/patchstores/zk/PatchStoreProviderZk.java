@@ -54,14 +54,20 @@ public class PatchStoreProviderZk implements PatchStoreProvider {
     public PatchLogIndex newPatchLogIndex(DataSourceDescription dsd, PatchStore patchStore, LocalServerConfig configuration) {
         PatchStoreZk patchStoreZk = (PatchStoreZk)patchStore;
         String logPath = zkPath(ZkConst.pLogs, dsd.getName());
-        return new PatchLogIndexZk(patchStoreZk.getClient(), patchStoreZk.getInstance(), dsd, logPath);
+        boolean leaderLease = property(configuration, DeltaConst.pDeltaZkLease);
+        return new PatchLogIndexZk(patchStoreZk.getClient(), patchStoreZk.getInstance(), dsd, logPath, leaderLease,
+                                   patchStoreZk.getFillExecutor());
+    }
+
+    /*package*/ static boolean property(LocalServerConfig configuration, String name) {
+        return configuration != null && Boolean.parseBoolean(configuration.getProperty(name));
     }
 
     @Override
     public PatchStorage newPatchStorage(DataSourceDescription dsd, PatchStore patchStore, LocalServerConfig configuration) {
         PatchStoreZk patchStoreZk = (PatchStoreZk)patchStore;
         String logPath = zkPath(ZkConst.pLogs, dsd.getName());
-        return new PatchStorageZk(patchStoreZk.getClient(), patchStoreZk.getInstance(), logPath);
+        return new PatchStorageZk(patchStoreZk.getClient(), patchStoreZk.getInstance(), logPath, configuration.getPatchFormat());
     }
 
     @Override
@@ -0,0 +1,74 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.zk;
+
+import static org.seaborne.delta.zk.Zk.zkPath;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaConfigException;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.server.local.DPS;
+import org.seaborne.delta.server.local.LocalServerConfig;
+import org.seaborne.delta.server.local.PatchStore;
+import org.seaborne.delta.server.local.patchstores.PatchStorage;
+
+/**
+ * Provider for a ZooKeeper indexed patch store with patch bodies in local files.
+ * The configuration has the ZooKeeper connection string ({@link DeltaConst#pDeltaZk}),
+ * the directory for the patch bodies ({@link DeltaConst#pDeltaBlobDir}) and, to serve
+ * patch bodies to the other servers, the URL of this server ({@link DeltaConst#pDeltaBlobURL}).
+ */
+public class PatchStoreProviderZkBlob extends PatchStoreProviderZk {
+
+    public PatchStoreProviderZkBlob() { }
+
+    @Override
+    public PatchStore create(LocalServerConfig config) {
+        String dir = config.getProperty(DeltaConst.pDeltaBlobDir);
+        if ( dir == null )
+            throw new DeltaConfigException("No directory for patch blobs: "+DeltaConst.pDeltaBlobDir);
+        Path blobDir = Paths.get(dir);
+        String url = config.getProperty(DeltaConst.pDeltaBlobURL);
+        CuratorFramework client = curator(config);
+        return new PatchStoreZkBlob(client, this, blobDir, url);
+    }
+
+    @Override
+    public PatchStorage newPatchStorage(DataSourceDescription dsd, PatchStore patchStore, LocalServerConfig configuration) {
+        PatchStoreZkBlob patchStoreZk = (PatchStoreZkBlob)patchStore;
+        String logPath = zkPath(ZkConst.pLogs, dsd.getName());
+        return new PatchStorageBlob(patchStoreZk.getClient(), dsd.getName(), logPath,
+                                    patchStoreZk.getBlobDirectory(dsd.getName()),
+                                    configuration.getPatchFormat(), patchStoreZk::fetchFromPeers,
+                                    patchStoreZk::copyToPeers);
+    }
+
+    @Override
+    public String getProviderName() {
+        return DPS.PatchStoreZkBlobProvider;
+    }
+
+    @Override
+    public String getShortName() {
+        return DPS.pspZkBlob;
+    }
+}
@@ -22,7 +22,13 @@ import static org.seaborne.delta.zk.Zk.*;
 
 import java.io.ByteArrayOutputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -42,7 +48,10 @@ import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.Watcher;
 import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.DeltaBadRequestException;
+import org.seaborne.delta.DeltaConst;
 import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.lib.JSONX;
 import org.seaborne.delta.server.local.LocalServerConfig;
 import org.seaborne.delta.server.local.PatchLog;
 import org.seaborne.delta.server.local.PatchStore;
@@ -70,14 +79,50 @@ public class PatchStoreZk extends PatchStore {
     // Our view of all the patch logs in the store.
     private Map<String, PatchLog> patchLogs = new ConcurrentHashMap<>();
 
+    /*
+     * Logs seen in ZooKeeper and being opened. Opening a log reads its state and
+     * version index, so logs are opened in parallel, on a bounded pool of threads,
+     * not on the ZooKeeper event thread. A log is registered when it is ready.
+     */
+    private static final int OPEN_THREADS = 8;
+    // Number of background reads outstanding when fetching log descriptions.
+    private static final int FETCH_BATCH = 100;
+    private final Map<String, CompletableFuture<PatchLog>> openingLogs = new ConcurrentHashMap<>();
+    // The ids of the logs in openingLogs; updated with openingLogs.
+    private final Map<String, Id> openingIds = new ConcurrentHashMap<>();
+    // Logs deleted in ZooKeeper while being opened. Only holds names that are in openingLogs;
+    // both are updated together, synchronized on openingLogs.
+    private final Set<String> deletedWhileOpening = ConcurrentHashMap.newKeySet();
+    private final ExecutorService openExecutor = Executors.newFixedThreadPool(OPEN_THREADS, PatchStoreZk::openThread);
+    private static final AtomicInteger openThreadCount = new AtomicInteger(0);
+    // Reads versions added by other servers into the version caches of the logs (see PatchLogIndexZk).
+    private final ExecutorService fillExecutor = Executors.newSingleThreadExecutor(PatchStoreZk::fillThread);
+    // Time, in milliseconds, to open each log attached from ZooKeeper.
+    private final Map<String, Long> openTimes = new ConcurrentHashMap<>();
+    // Create new logs with the bucket layout of the version index.
+    private boolean bucketLayout = false;
+
     protected PatchStoreZk(CuratorFramework client, PatchStoreProvider psp) {
         super(psp);
         this.instance = "zk-"+(counter.getAndIncrement());
         this.client = client;
     }
 
+    private static Thread openThread(Runnable r) {
+        Thread t = new Thread(r, "PatchStoreZk-"+openThreadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static Thread fillThread(Runnable r) {
+        Thread t = new Thread(r, "PatchStoreZk-fill");
+        t.setDaemon(true);
+        return t;
+    }
+
     public CuratorFramework getClient() { return client; }
     public String getInstance() { return instance; }
+    /*package*/ Executor getFillExecutor() { return fillExecutor; }
 
     private static void formatPatchStore(CuratorFramework client) throws Exception {
         zkEnsure(client, ZkConst.pRoot);
@@ -93,17 +138,46 @@ public class PatchStoreZk extends PatchStore {
 
     private void init() {
         // Also sets watcher.
+        long t1 = System.currentTimeMillis();
         List<String> names = getWatchLogs();
         updateLogChanges(names, false);
+        long t2 = System.currentTimeMillis();
+        if ( names != null && ! names.isEmpty() )
+            FmtLog.info(LOGZK, "[%s] Attached %d logs in %d ms", instance, names.size(), (t2-t1));
+    }
+
+    /**
+     * The time, in milliseconds, taken to open each patch log attached from ZooKeeper,
+     * by log name.
+     */
+    public Map<String, Long> getLogOpenTimes() {
+        return Collections.unmodifiableMap(openTimes);
+    }
+
+    /** Whether the named log has been seen in ZooKeeper and is still being opened. */
+    @Override
+    public boolean isOpening(String name) {
+        return openingLogs.containsKey(name);
+    }
+
+    @Override
+    public boolean isOpening(Id dsRef) {
+        return openingIds.containsValue(dsRef);
     }
 
     public static final boolean actionsInWatcher = true;
     private Watcher patchLogWatcher = (event)->{
-        synchronized(storeLock) {
-            List<String> names = getWatchLogs();
-            if ( actionsInWatcher )
-                updateLogChanges(names, true);
-        }
+        // Not on the ZooKeeper event thread: reading the log descriptions uses
+        // background operations, which complete on the event thread.
+        try {
+            openExecutor.execute(()->{
+                synchronized(storeLock) {
+                    List<String> names = getWatchLogs();
+                    if ( actionsInWatcher )
+                        updateLogChanges(names, true);
+                }
+            });
+        } catch (RejectedExecutionException ex) { /* Store closing. */ }
     };
 
     private void updateLogChanges(List<String> namesList, boolean watcher) {
@@ -114,6 +188,7 @@ public class PatchStoreZk extends PatchStore {
         }
         Set<String> x = new HashSet<>(namesList);
         FmtLog.info(LOGZK, "[%s] updateLogChanges[%s] -> %s", instance, label, x);
+        // Does not wait for the logs to open; they are registered as they become ready.
         updateLogChanges(x);
     }
 
@@ -127,28 +202,30 @@ public class PatchStoreZk extends PatchStore {
         // as the system settles down, the correct view will in-place.
 
         Set<String> lastSeenLocal = patchLogs.keySet();
-        Set<String> newLogs = SetUtils.difference(names, lastSeenLocal);
+        Set<String> newLogs = SetUtils.difference(SetUtils.difference(names, lastSeenLocal), openingLogs.keySet());
         Set<String> deletedLogs = SetUtils.difference(lastSeenLocal, names);
+        Set<String> deletedOpening = SetUtils.difference(openingLogs.keySet(), names);
 
 //        System.out.printf("[%s] Last=%s Now=%s\n", instance, lastSeenLocal, names);
 //        System.out.printf("[%s] New=%s : Deleted=%s\n", instance, newLogs, deletedLogs);
 
-        if ( newLogs.isEmpty() && deletedLogs.isEmpty() )
+        if ( newLogs.isEmpty() && deletedLogs.isEmpty() && deletedOpening.isEmpty() )
             return;
         FmtLog.debug(LOGZK, "[%s] New=%s : Deleted=%s", instance, newLogs, deletedLogs);
         //FmtLog.info(LOGZK, "[%s] New=%s : Deleted=%s", instance, newLogs, deletedLogs);
 
+        // Read the DSDs.
+        List<String> newLogPaths = ListUtils.toList(newLogs.stream().map(name->zkPath(ZkConst.pActiveLogs, name)));
+        Map<String, byte[]> dsds = Zk.zkFetchAll(client, newLogPaths, FETCH_BATCH);
         newLogs.forEach(name->{
-            // Read DSD.
-            String newLogPath = zkPath(ZkConst.pActiveLogs, name);
-            JsonObject obj = Zk.zkFetchJson(client, newLogPath);
-            if ( obj == null ) {
+            byte[] bytes = dsds.get(zkPath(ZkConst.pActiveLogs, name));
+            if ( bytes == null || bytes.length == 0 ) {
                 FmtLog.info(LOGZK, "[%s] New=%s : DSD not found", instance, name);
                 return;
             }
-            // Create local.
-            DataSourceDescription dsd = DataSourceDescription.fromJson(obj);
-            createPatchLog(dsd);
+            // Create local, in the background.
+            DataSourceDescription dsd = DataSourceDescription.fromJson(JSONX.fromBytes(bytes));
+            openPatchLog(dsd);
         });
 
         deletedLogs.forEach(name->{
@@ -158,7 +235,82 @@ public class PatchStoreZk extends PatchStore {
                 return;
             releasePatchLog(patchLog.getLogId());
         });
+
+        // Logs still being opened are dropped when the open completes.
+        deletedOpening.forEach(this::cancelOpen);
     }
+
+    /** Mark a log being opened as deleted; it is released, not registered, when the open completes. */
+    private void cancelOpen(String name) {
+        synchronized(openingLogs) {
+            if ( openingLogs.containsKey(name) )
+                deletedWhileOpening.add(name);
+        }
+    }
+
+    /** The open of a log has finished. Return true if the log was deleted while it was being opened. */
+    private boolean openFinished(String name) {
+        synchronized(openingLogs) {
+            openingLogs.remove(name);
+            openingIds.remove(name);
+            return deletedWhileOpening.remove(name);
+        }
+    }
+
+    /** Start opening a patch log; it is registered when it is ready. */
+    private void openPatchLog(DataSourceDescription dsd) {
+        String name = dsd.getName();
+        CompletableFuture<PatchLog> future = new CompletableFuture<>();
+        synchronized(openingLogs) {
+            if ( openingLogs.putIfAbsent(name, future) != null )
+                return;
+            openingIds.put(name, dsd.getId());
+        }
+        try {
+            openExecutor.execute(()->{
+                PatchLog patchLog;
+                try {
+                    long t1 = System.currentTimeMillis();
+                    patchLog = super.newPatchLogFromProvider(dsd);
+                    long t2 = System.currentTimeMillis();
+                    openTimes.put(name, t2-t1);
+                    FmtLog.debug(LOGZK, "[%s] Open log '%s' : %d ms", instance, name, (t2-t1));
+                } catch (RuntimeException ex) {
+                    FmtLog.warn(LOGZK, "[%s] Failed to open log '%s': %s", instance, name, ex.getMessage());
+                    openFinished(name);
+                    future.completeExceptionally(ex);
+                    return;
+                }
+                boolean deleted;
+                synchronized(openingLogs) {
+                    deleted = deletedWhileOpening.contains(name);
+                }
+                if ( deleted ) {
+                    // Do not register it: registering a log that is not in ZooKeeper formats it again.
+                    FmtLog.info(LOGZK, "[%s] Log '%s' deleted while opening", instance, name);
+                    openFinished(name);
+                    patchLog.release();
+                    future.completeExceptionally(new DeltaException("Log deleted: "+name));
+                    return;
+                }
+                future.complete(patchLog);
+                try {
+                    // Picks up the opened log from openingLogs.
+                    createPatchLog(dsd);
+                } finally {
+                    deleted = openFinished(name);
+                }
+                // Deleted while it was being registered.
+                if ( deleted )
+                    releasePatchLog(dsd.getId());
+            });
+        } catch (RejectedExecutionException ex) {
+            // Store closing.
+            openFinished(name);
+            future.completeExceptionally(ex);
+        }
+    }
+
     // ---- Watching for logs
 
     private List<String> getWatchLogs() {
@@ -202,6 +354,7 @@ public class PatchStoreZk extends PatchStore {
             return Collections.emptyList();
         }
         connectToZookeeper();
+        bucketLayout = PatchStoreProviderZk.property(config, DeltaConst.pDeltaZkBuckets);
 
         boolean isEmpty = zkCalc(()->client.checkExists().forPath(ZkConst.pRoot)==null);
         try {
@@ -216,7 +369,8 @@ public class PatchStoreZk extends PatchStore {
             LOGZK.error("Failed to initialize from the persistent state: "+ex.getMessage(), ex);
             return Collections.emptyList();
         }
-        return listDataSourcesZk();
+        // Logs still being opened are registered when they are ready.
+        return ListUtils.toList(patchLogs.values().stream().map(PatchLog::getDescription));
     }
 
     private void connectToZookeeper() {
@@ -238,6 +392,8 @@ public class PatchStoreZk extends PatchStore {
 
     @Override
     protected void closeStore() {
+        openExecutor.shutdownNow();
+        fillExecutor.shutdownNow();
         if ( client != null )
             client.close();
     }
@@ -274,9 +430,12 @@ public class PatchStoreZk extends PatchStore {
         List<String> logNames = Zk.zkSubNodes(client, logsPath);
         if ( logNames == null )
             return Collections.emptyList();
+        List<String> dsdPaths = ListUtils.toList(logNames.stream().map(name->zkPath(ZkConst.pLogs, name, ZkConst.nDsd)));
+        Map<String, byte[]> dsds = Zk.zkFetchAll(client, dsdPaths, FETCH_BATCH);
         for ( String name: logNames) {
             String logDsd = zkPath(ZkConst.pLogs, name, ZkConst.nDsd);
-            JsonObject obj = zkFetchJson(client, logDsd);
+            byte[] bytes = dsds.get(logDsd);
+            JsonObject obj = ( bytes == null || bytes.length == 0 ) ? null : JSONX.fromBytes(bytes);
             if ( obj == null ) {
                 FmtLog.info(LOGZK, "[%d] listDataSourcesZkPath: %s: no DSD", instance, name);
                 continue;
@@ -330,6 +489,18 @@ public class PatchStoreZk extends PatchStore {
             return patchLogs.get(dsd.getName());
         }
 
+        // Seen in ZooKeeper and being opened in the background.
+        CompletableFuture<PatchLog> opening = openingLogs.get(dsd.getName());
+        if ( opening != null ) {
+            try {
+                PatchLog patchLog = opening.join();
+                patchLogs.put(dsd.getName(), patchLog);
+                return patchLog;
+            } catch (CompletionException ex) {
+                // Failed to open : try again, below.
+            }
+        }
+
         String dsName = dsd.getName();
         if ( ! validateName(dsName) ) {
             String msg = String.format("Log name '%s' does not match regex '%s'", dsName, LogNameRegex);
@@ -397,6 +568,7 @@ public class PatchStoreZk extends PatchStore {
      *   /delta/logs/NAME/state      -- JSON, initially VERSION_INIT.
      *   /delta/logs/NAME/versions/  -- The versions
      *   /delta/logs/NAME/lock       -- The patch log lock.
+     *   /delta/logs/NAME/buckets    -- The version index, if the store is configured to use buckets.
      * </pre>
      * When formatted,
      * <pre>
@@ -429,6 +601,9 @@ public class PatchStoreZk extends PatchStore {
         zkCreate(client, versionsPath);
         zkCreate(client, headersPath);
         zkCreate(client, lockPath);
+        // The layout of the version index is fixed here, before any server opens the log.
+        if ( bucketLayout )
+            zkCreateSet(client, zkPath(logPath, nBuckets), PatchLogIndexZk.bucketsMarker());
     }
 
     private static byte[] jsonBytes(JsonValue json) {
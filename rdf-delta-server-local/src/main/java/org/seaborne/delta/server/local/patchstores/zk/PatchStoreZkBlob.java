@@ -0,0 +1,186 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.zk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.web.HttpSC;
+import org.apache.zookeeper.CreateMode;
+import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.server.local.LocalServerConfig;
+import org.seaborne.delta.server.local.PatchStoreProvider;
+import org.seaborne.delta.zk.Zk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link PatchStoreZk} where the patch bodies are kept in content-addressed files on
+ * the local disk of each patch server (see {@link PatchStorageBlob}) and ZooKeeper holds
+ * only the index.
+ * <p>
+ * A server that is given its own URL registers it in ZooKeeper, and serves the patch
+ * bodies it holds at {@code $/blob/NAME/HASH}. Missing patch bodies are fetched from the
+ * other registered servers, and a new patch body is copied to one of them
+ * ({@code PUT $/blob/NAME/HASH}) before the patch is committed.
+ */
+public class PatchStoreZkBlob extends PatchStoreZk {
+    private final static Logger LOG = LoggerFactory.getLogger(PatchStoreZkBlob.class);
+
+    private final Path blobDir;
+    private final String serverURL;
+    // zNode registering this server, if it serves patch bodies.
+    private String peerNode = null;
+    private final CloseableHttpClient httpClient = peerClient();
+
+    protected PatchStoreZkBlob(CuratorFramework client, PatchStoreProvider psp, Path blobDir, String serverURL) {
+        super(client, psp);
+        this.blobDir = blobDir;
+        this.serverURL = ( serverURL == null || serverURL.endsWith("/") ) ? serverURL : serverURL+"/";
+    }
+
+    /** Directory for the patch bodies of a log. */
+    public Path getBlobDirectory(String logName) {
+        return blobDir.resolve(logName);
+    }
+
+    @Override
+    protected List<DataSourceDescription> initialize(LocalServerConfig config) {
+        List<DataSourceDescription> x = super.initialize(config);
+        if ( serverURL != null && getClient() != null ) {
+            String p = Zk.zkPath(ZkConst.pPeers, ZkConst.nPeer);
+            peerNode = Zk.zkCreateSet(getClient(), p, serverURL.getBytes(StandardCharsets.UTF_8), CreateMode.EPHEMERAL_SEQUENTIAL);
+            FmtLog.info(LOG, "[%s] Patch bodies served from %s", getInstance(), serverURL);
+        }
+        return x;
+    }
+
+    /** Return the bytes of a patch body held by this server, or null. */
+    public byte[] readBlob(String logName, String hash) {
+        if ( ! DeltaConst.DataSourceRegex.matcher(logName).matches() )
+            return null;
+        return PatchStorageBlob.readBlob(getBlobDirectory(logName), hash);
+    }
+
+    /** Keep a patch body copied from another server. Return false if it is not accepted. */
+    public boolean copyBlob(String logName, String hash, byte[] bytes) {
+        if ( ! DeltaConst.DataSourceRegex.matcher(logName).matches() )
+            return false;
+        return PatchStorageBlob.copyBlob(getBlobDirectory(logName), hash, bytes);
+    }
+
+    /** The URLs of the patch bodies on the other servers. */
+    private List<String> peerURLs(String logName, String hash) {
+        if ( getClient() == null || ! Zk.zkExists(getClient(), ZkConst.pPeers) )
+            return List.of();
+        List<String> peers = Zk.zkSubNodes(getClient(), ZkConst.pPeers);
+        if ( peers == null )
+            return List.of();
+        List<String> urls = new ArrayList<>();
+        for ( String peer : peers ) {
+            String p = Zk.zkPath(ZkConst.pPeers, peer);
+            if ( p.equals(peerNode) )
+                continue;
+            byte[] x = Zk.zkFetch(getClient(), p);
+            if ( x != null )
+                urls.add(new String(x, StandardCharsets.UTF_8)+DeltaConst.EP_Blob+"/"+logName+"/"+hash);
+        }
+        return urls;
+    }
+
+    /** Fetch a patch body from one of the other servers. The caller checks the bytes. */
+    /*package*/ byte[] fetchFromPeers(String logName, String hash) {
+        for ( String url : peerURLs(logName, hash) ) {
+            try ( CloseableHttpResponse response = httpClient.execute(new HttpGet(url)) ) {
+                int sc = response.getStatusLine().getStatusCode();
+                if ( sc == HttpSC.OK_200 && response.getEntity() != null )
+                    return EntityUtils.toByteArray(response.getEntity());
+                FmtLog.debug(LOG, "[%s] %s : %d", getInstance(), url, sc);
+            } catch (Exception ex) {
+                FmtLog.warn(LOG, "[%s] %s : %s", getInstance(), url, ex.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copy a new patch body to one of the other servers. Return true when a server has
+     * accepted it, or if there are no other servers.
+     */
+    /*package*/ boolean copyToPeers(String logName, String hash, byte[] bytes) {
+        List<String> urls = peerURLs(logName, hash);
+        if ( urls.isEmpty() )
+            return true;
+        for ( String url : urls ) {
+            HttpPut put = new HttpPut(url);
+            put.setEntity(new ByteArrayEntity(bytes, ContentType.APPLICATION_OCTET_STREAM));
+            try ( CloseableHttpResponse response = httpClient.execute(put) ) {
+                int sc = response.getStatusLine().getStatusCode();
+                EntityUtils.consume(response.getEntity());
+                if ( HttpSC.isSuccess(sc) )
+                    return true;
+                FmtLog.warn(LOG, "[%s] %s : %d", getInstance(), url, sc);
+            } catch (Exception ex) {
+                FmtLog.warn(LOG, "[%s] %s : %s", getInstance(), url, ex.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /** A pooled HTTP client with timeouts, so that a slow or unreachable server does not hold up appends or fetches. */
+    private static CloseableHttpClient peerClient() {
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(DeltaConst.BLOB_PEER_TIMEOUT)
+            .setConnectionRequestTimeout(DeltaConst.BLOB_PEER_TIMEOUT)
+            .setSocketTimeout(DeltaConst.BLOB_PEER_TIMEOUT)
+            .build();
+        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
+        connManager.setDefaultMaxPerRoute(DeltaConst.HTTP_MAX_CONNECTIONS);
+        connManager.setMaxTotal(2*DeltaConst.HTTP_MAX_CONNECTIONS);
+        connManager.setValidateAfterInactivity(1000);
+        return HttpClients.custom()
+            .setConnectionManager(connManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictExpiredConnections()
+            .evictIdleConnections(DeltaConst.HTTP_IDLE_TIMEOUT, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    @Override
+    protected void closeStore() {
+        try { httpClient.close(); } catch (IOException ex) {}
+        super.closeStore();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.local.patchstores.zk;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.LongFunction;
+
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+
+/**
+ * Packing of the version to id mapping of a patch log into bucket zNodes: each bucket
+ * holds the ids of a fixed number of consecutive versions, as 16 byte UUIDs.
+ * <p>
+ * Bucket {@code b} holds versions {@code b*size+1} to {@code (b+1)*size}. The zNode data
+ * is the ids in version order, up to the last version in the bucket so far. A slot of
+ * all zeros is a version not in the log (before the earliest version).
+ */
+class VersionBuckets {
+    static final int ID_BYTES = 2*Long.BYTES;
+
+    private final int size;
+
+    VersionBuckets(int size) {
+        if ( size <= 0 )
+            throw new IllegalArgumentException("Bucket size: "+size);
+        this.size = size;
+    }
+
+    int size() { return size; }
+
+    long bucket(long version) { return (version-1)/size; }
+
+    int slot(long version) { return (int)((version-1)%size); }
+
+    long firstVersion(long bucket) { return bucket*size+1; }
+
+    static String bucketName(long bucket) { return String.format("%08d", bucket); }
+
+    static long bucketFromName(String name) {
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /** The id for a version from the data of its bucket zNode, or null. */
+    Id get(byte[] data, long version) {
+        int offset = slot(version)*ID_BYTES;
+        if ( data == null || data.length < offset+ID_BYTES )
+            return null;
+        byte[] b = Arrays.copyOfRange(data, offset, offset+ID_BYTES);
+        if ( isZero(b) )
+            return null;
+        return Id.fromBytes(b);
+    }
+
+    /** Call {@code action} on each (version, id) in the data of a bucket zNode. */
+    void forEach(long bucket, byte[] data, BiConsumer<Long, Id> action) {
+        long first = firstVersion(bucket);
+        for ( int i = 0 ; (i+1)*ID_BYTES <= data.length && i < size ; i++ ) {
+            Id id = get(data, first+i);
+            if ( id != null )
+                action.accept(first+i, id);
+        }
+    }
+
+    /**
+     * The data of the bucket zNode for {@code bucket} with versions up to and including
+     * {@code lastVersion}. {@code ids} returns null for a version not in the log.
+     */
+    byte[] encode(long bucket, long lastVersion, LongFunction<Id> ids) {
+        long first = firstVersion(bucket);
+        long last = Math.min(lastVersion, first+size-1);
+        int n = (int)(last-first+1);
+        byte[] data = new byte[Math.max(0, n)*ID_BYTES];
+        for ( int i = 0 ; i < n ; i++ ) {
+            Id id = ids.apply(first+i);
+            if ( id == null )
+                continue;
+            byte[] b = id.asBytes();
+            if ( b.length != ID_BYTES )
+                throw new DeltaException("Patch id is not a UUID: "+id);
+            System.arraycopy(b, 0, data, i*ID_BYTES, ID_BYTES);
+        }
+        return data;
+    }
+
+    private static boolean isZero(byte[] b) {
+        for ( byte x : b ) {
+            if ( x != 0 )
+                return false;
+        }
+        return true;
+    }
+}
@@ -24,18 +24,23 @@ public class ZkConst {
     /* The ZooKeeper naming:
      * /delta/lock                          Store-wide lock
      * /delta/activeLocks/NAME              Indicate a log is active.
+     * /delta/peers/peer-0000000000         Ephemeral; URL of a server holding patch blobs (optional).
      *
      * Per log:
      * /delta/logs/NAME
      * /delta/logs/NAME/dsd
      * /delta/logs/NAME/lock
+     * /delta/logs/NAME/leader              Leader lease (optional).
      * /delta/logs/NAME/state               (first_version: ,  DataSourceDescription)
      * /delta/logs/NAME/versions/00000000   Patch ids.
      * /delta/logs/NAME/header/00000000       Patches, JSON state (optional).
+     * /delta/logs/NAME/buckets/00000000    Patch ids, BUCKET_SIZE versions per zNode (alternative to versions and header).
      *
      *
      * When including patch storage:
      *   /delta/logs/NAME/patches/
+     * or, for patch bodies in local files:
+     *   /delta/logs/NAME/blobs/ID          SHA-256 of the patch body.
      */
 
     // Convention: p* is a path, n* is a zNode name.
@@ -44,14 +49,26 @@ public class ZkConst {
     static final String pLogs           = zkPath(pRoot, "logs");
     static final String pStoreLock      = zkPath(pRoot, "lock");
     static final String pActiveLogs     = zkPath(pRoot, "activeLogs");
+    static final String pPeers          = zkPath(pRoot, "peers");
 
     static final String nDsd            = "dsd";
     static final String nLock           = "lock";
+    static final String nLeader         = "leader";
     static final String nState          = "state";
     static final String nPatches        = "patches";
+    static final String nBlobs          = "blobs";
+    static final String nPeer           = "peer-";
 
     // Version to id.
     static final String nVersions       = "versions";
     // Id to (version, id, prev).
     static final String nHeaders        = "header";
+    // Version to id, packed. The zNode data is the bucket size when the log uses this layout.
+    static final String nBuckets        = "buckets";
+
+    // Number of versions in each "buckets" zNode.
+    static final int BUCKET_SIZE        = 1024;
+
+    // Largest encoded patch kept in a zNode, below the ZooKeeper default limit of 1M.
+    static final int MAX_PATCH_SIZE     = 1000*1000;
 }
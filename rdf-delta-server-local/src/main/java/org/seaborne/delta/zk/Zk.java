@@ -18,6 +18,10 @@
 package org.seaborne.delta.zk;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
@@ -25,6 +29,7 @@ import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.GetDataBuilder;
+import org.apache.curator.framework.api.transaction.CuratorOp;
 import org.apache.curator.framework.recipes.locks.InterProcessLock;
 import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
 import org.apache.curator.retry.ExponentialBackoffRetry;
@@ -33,6 +38,7 @@ import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.lib.StrUtils;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import org.seaborne.delta.DeltaException;
@@ -127,7 +133,12 @@ public class Zk {
     }
 
     public static JsonObject zkFetchJson(CuratorFramework client, Watcher watcher, String path) {
-        byte[] x = zkFetch(client, watcher, path);
+        return zkFetchJson(client, watcher, path, null);
+    }
+
+    /** Fetch a JSON object, and set a watcher if not null, and record the zNode {@link Stat} if not null. */
+    public static JsonObject zkFetchJson(CuratorFramework client, Watcher watcher, String path, Stat stat) {
+        byte[] x = zkFetch(client, watcher, path, stat);
         if ( x == null )
             return null;
         if ( x.length == 0 )
@@ -140,8 +151,14 @@ public class Zk {
     }
 
     public static byte[] zkFetch(CuratorFramework client, Watcher watcher, String path) {
+        return zkFetch(client, watcher, path, null);
+    }
+
+    public static byte[] zkFetch(CuratorFramework client, Watcher watcher, String path, Stat stat) {
         try {
             GetDataBuilder b = client.getData();
+            if ( stat != null )
+                b.storingStatIn(stat);
             if ( watcher != null )
                 b.usingWatcher(watcher);
             return b.forPath(path);
@@ -153,6 +170,42 @@ public class Zk {
         }
     }
 
+    /**
+     * Fetch the data of many zNodes. Reads are issued in the background, with at most
+     * {@code batchSize} outstanding at a time, rather than one round trip per zNode.
+     * Return a map from path to data; zNodes that could not be read are not in the map.
+     * <p>
+     * Background operations complete on the ZooKeeper event thread so this must not be
+     * called from a {@link Watcher}.
+     */
+    public static Map<String, byte[]> zkFetchAll(CuratorFramework client, List<String> paths, int batchSize) {
+        Map<String, byte[]> results = new ConcurrentHashMap<>();
+        for ( int i = 0 ; i < paths.size() ; i += batchSize ) {
+            List<String> batch = paths.subList(i, Math.min(i+batchSize, paths.size()));
+            CountDownLatch latch = new CountDownLatch(batch.size());
+            for ( String path : batch ) {
+                try {
+                    client.getData().inBackground((c, event)->{
+                        if ( event.getResultCode() == Code.OK.intValue() && event.getData() != null )
+                            results.put(event.getPath(), event.getData());
+                        latch.countDown();
+                    }).forPath(path);
+                } catch (Exception ex) {
+                    zkException("zkFetchAll", path, ex);
+                    latch.countDown();
+                }
+            }
+            try {
+                if ( ! latch.await(client.getZookeeperClient().getConnectionTimeoutMs(), TimeUnit.MILLISECONDS) )
+                    LOG.warn("zkFetchAll: timeout waiting for reads");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return results;
+    }
+
     /** Return a list of the children of the node - the names are the sub zNode names, not paths */
     public static List<String> zkSubNodes(CuratorFramework client, String path) {
         try {
@@ -175,7 +228,15 @@ public class Zk {
     }
 
     public static void zkCreate(CuratorFramework client, String path, CreateMode mode) {
-        zkCreateSet(client, path, new byte[0]);
+        zkCreateSet(client, path, new byte[0], mode);
+    }
+
+    /**
+     * Create a zNode with the given {@link CreateMode}, creating parents as necessary.
+     * Return the path of the zNode created, which differs from {@code path} for sequential zNodes.
+     */
+    public static String zkCreateSet(CuratorFramework client, String path, byte[]bytes, CreateMode mode) {
+        return zkCalc(()->client.create().creatingParentsIfNeeded().withMode(mode).forPath(path, bytes));
     }
 
     /** Delete this znode and all nodes below it. */
@@ -264,6 +325,20 @@ public class Zk {
         });
     }
 
+    /**
+     * Execute the operations as one ZooKeeper multi-operation transaction: either all
+     * the operations happen or none do. Return true if the transaction committed.
+     */
+    public static boolean zkTransaction(CuratorFramework client, List<CuratorOp> ops) {
+        try {
+            client.transaction().forOperations(ops);
+            return true;
+        } catch (Exception ex) {
+            zkException(ex);
+            return false;
+        }
+    }
+
     public static void listNodes(CuratorFramework client) {
         listNodes(client, "/");
     }
@@ -29,15 +29,23 @@ import org.seaborne.delta.server.patchstores.*;
     
     , TestPatchStorageMem.class
     , TestPatchStorageZk.class
+    , TestPatchStorageBlob.class
     , TestFileStore.class
+    , TestPatchCache.class
+    , TestSnapshots.class
+    , TestSegmentLog.class
     
     , TestPatchLogMem.class
     , TestPatchLogFile.class
     , TestPatchLogZk.class
+    , TestPatchLogZkLease.class
+    , TestPatchLogZkBuckets.class
+    , TestPatchLogSegment.class
     
     , TestPatchStoreMem.class
     , TestPatchStoreFile.class
     , TestPatchStoreZk.class
+    , TestPatchStoreSegment.class
 
     , TestLocalServer.class
     , TestLocalServerCreateDelete.class
@@ -0,0 +1,105 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server;
+
+import static org.junit.Assert.*;
+
+import org.apache.jena.graph.NodeFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.server.local.PatchCache;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+public class TestPatchCache {
+
+    @After
+    public void afterTest() {
+        PatchCache.get().clear();
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        PatchCache.configure(DeltaConst.PATCH_CACHE_SIZE);
+    }
+
+    private static RDFPatch patch(int n) {
+        return RDFPatchOps.build(c->{
+            c.header("id", Id.create().asNode());
+            c.txnBegin();
+            for ( int i = 0 ; i < n ; i++ )
+                c.add(null, NodeFactory.createURI("http://example/s"+i), NodeFactory.createURI("http://example/p"), NodeFactory.createLiteral("o"+i));
+            c.txnCommit();
+        });
+    }
+
+    @Test
+    public void patchCache_1() {
+        PatchCache cache = PatchCache.get();
+        Id log = Id.create();
+        RDFPatch patch = patch(2);
+        Id patchId = Id.fromNode(patch.getId());
+
+        long misses = cache.missCount();
+        assertNull(cache.get(log, patchId));
+        assertEquals(misses+1, cache.missCount());
+
+        cache.put(log, patchId, patch);
+        long hits = cache.hitCount();
+        assertSame(patch, cache.get(log, patchId));
+        assertEquals(hits+1, cache.hitCount());
+        assertTrue(cache.estimatedBytes() > 0);
+
+        // Same patch id, different log.
+        assertNull(cache.get(Id.create(), patchId));
+    }
+
+    @Test
+    public void patchCache_2_invalidate() {
+        PatchCache cache = PatchCache.get();
+        Id log1 = Id.create();
+        Id log2 = Id.create();
+        RDFPatch patch1 = patch(1);
+        RDFPatch patch2 = patch(1);
+        cache.put(log1, Id.fromNode(patch1.getId()), patch1);
+        cache.put(log2, Id.fromNode(patch2.getId()), patch2);
+        assertEquals(2, cache.size());
+
+        cache.invalidate(log1);
+        assertNull(cache.get(log1, Id.fromNode(patch1.getId())));
+        assertNotNull(cache.get(log2, Id.fromNode(patch2.getId())));
+    }
+
+    @Test
+    public void patchCache_3_bounded() {
+        // Room for a few small patches.
+        PatchCache.configure(4000);
+        PatchCache cache = PatchCache.get();
+        Id log = Id.create();
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            RDFPatch patch = patch(5);
+            cache.put(log, Id.fromNode(patch.getId()), patch);
+        }
+        assertTrue(cache.size() < 100);
+        assertTrue(cache.evictionCount() > 0);
+        assertTrue(cache.estimatedBytes() <= cache.maxBytes());
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.tdb.base.file.Location;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.PatchInfo;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.server.local.filestore.FileStore;
+import org.seaborne.delta.server.local.patchstores.segment.SegmentLog;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+public class TestSegmentLog {
+    private static final String DIR = "target/test/segments";
+    private static final Path PATH = Paths.get(DIR);
+    private static final long SEGMENT_SIZE = 1024*1024;
+
+    private SegmentLog segmentLog = null;
+
+    @Before public void before() {
+        FileOps.ensureDir(DIR);
+        FileOps.clearAll(DIR);
+    }
+
+    @After public void after() {
+        if ( segmentLog != null )
+            segmentLog.release();
+        FileStore.resetTracked();
+    }
+
+    private static List<RDFPatch> patches(int N) {
+        List<RDFPatch> patches = new ArrayList<>();
+        RDFPatch patch = RDFPatchOps.withHeader(RDFPatchOps.emptyPatch(), Id.create().asNode(), null);
+        patches.add(patch);
+        for ( int i = 1 ; i < N ; i++ ) {
+            patch = RDFPatchOps.withHeader(patch, Id.create().asNode(), patch.getId());
+            patches.add(patch);
+        }
+        return patches;
+    }
+
+    private static void commit(SegmentLog segmentLog, RDFPatch patch, long version) {
+        Id id = Id.fromNode(patch.getId());
+        segmentLog.stage(id, patch);
+        segmentLog.commit(Collections.singletonList(new PatchInfo(id, Version.create(version), Id.fromNode(patch.getPrevious()))));
+    }
+
+    private SegmentLog attach(long segmentSize) {
+        return attach(segmentSize, PatchFormat.TEXT);
+    }
+
+    private SegmentLog attach(long segmentSize, PatchFormat format) {
+        if ( segmentLog != null )
+            segmentLog.release();
+        segmentLog = SegmentLog.attach(PATH, segmentSize, format);
+        return segmentLog;
+    }
+
+    private static void check(SegmentLog segmentLog, List<RDFPatch> patches) {
+        assertEquals(patches.size(), segmentLog.size());
+        for ( int i = 0 ; i < patches.size() ; i++ ) {
+            Id id = Id.fromNode(patches.get(i).getId());
+            assertEquals(i+1, segmentLog.get(id).version);
+            assertEquals(id, segmentLog.get(i+1).id);
+            RDFPatch patch = segmentLog.fetch(id);
+            assertNotNull(patch);
+            assertEquals(patches.get(i).getId(), patch.getId());
+            assertEquals(patches.get(i).getPrevious(), patch.getPrevious());
+        }
+    }
+
+    private static long segmentCount() throws IOException {
+        return Files.list(PATH).filter(p->p.getFileName().toString().startsWith("segment-")).count();
+    }
+
+    @Test public void segments_01() {
+        SegmentLog log = attach(SEGMENT_SIZE);
+        assertTrue(log.isEmpty());
+        assertNull(log.getLatest());
+        assertNull(log.fetch(Id.create()));
+    }
+
+    @Test public void segments_02() {
+        List<RDFPatch> patches = patches(3);
+        SegmentLog log = attach(SEGMENT_SIZE);
+        for ( int i = 0 ; i < patches.size() ; i++ )
+            commit(log, patches.get(i), i+1);
+        check(log, patches);
+        // Reattach.
+        check(attach(SEGMENT_SIZE), patches);
+    }
+
+    @Test public void segments_02_binary() {
+        List<RDFPatch> patches = patches(4);
+        SegmentLog log = attach(SEGMENT_SIZE, PatchFormat.BINARY);
+        for ( int i = 0 ; i < 2 ; i++ )
+            commit(log, patches.get(i), i+1);
+        // Change format: the log holds patches in both formats.
+        log = attach(SEGMENT_SIZE, PatchFormat.TEXT);
+        for ( int i = 2 ; i < 4 ; i++ )
+            commit(log, patches.get(i), i+1);
+        check(log, patches);
+        // Reattach, with an index rebuilt from the segments.
+        log.release();
+        segmentLog = null;
+        FileOps.delete(DIR+"/segments.idx");
+        check(attach(SEGMENT_SIZE, PatchFormat.BINARY), patches);
+    }
+
+    @Test public void segments_03_rollover() throws IOException {
+        List<RDFPatch> patches = patches(5);
+        // Small segments - one patch each.
+        SegmentLog log = attach(100);
+        for ( int i = 0 ; i < patches.size() ; i++ )
+            commit(log, patches.get(i), i+1);
+        assertEquals(5, segmentCount());
+        check(log, patches);
+        check(attach(100), patches);
+    }
+
+    @Test public void segments_04_recovery() throws IOException {
+        List<RDFPatch> patches = patches(2);
+        SegmentLog log = attach(SEGMENT_SIZE);
+        for ( int i = 0 ; i < patches.size() ; i++ )
+            commit(log, patches.get(i), i+1);
+        log.release();
+        // Crash during a write: patch data written but not indexed, and part of an index record.
+        Path segment = PATH.resolve("segment-000001");
+        long segmentLength = Files.size(segment);
+        Files.write(segment, new byte[]{1,2,3,4,5,6,7,8,9,10}, StandardOpenOption.APPEND);
+        Files.write(PATH.resolve("segments.idx"), new byte[]{1,2,3}, StandardOpenOption.APPEND);
+
+        log = attach(SEGMENT_SIZE);
+        check(log, patches);
+        assertEquals(segmentLength, Files.size(segment));
+
+        List<RDFPatch> more = patches(1);
+        RDFPatch patch3 = RDFPatchOps.withHeader(more.get(0), more.get(0).getId(), patches.get(1).getId());
+        commit(log, patch3, 3);
+        patches.add(patch3);
+        check(attach(SEGMENT_SIZE), patches);
+    }
+
+    @Test public void segments_05_rebuild_index() throws IOException {
+        List<RDFPatch> patches = patches(4);
+        SegmentLog log = attach(200);
+        for ( int i = 0 ; i < patches.size() ; i++ )
+            commit(log, patches.get(i), i+1);
+        log.release();
+        Files.delete(PATH.resolve("segments.idx"));
+        check(attach(200), patches);
+    }
+
+    @Test public void segments_06_uncommitted() {
+        List<RDFPatch> patches = patches(2);
+        SegmentLog log = attach(SEGMENT_SIZE);
+        commit(log, patches.get(0), 1);
+        // Staged, not committed, is not persistent.
+        Id staged = Id.fromNode(patches.get(1).getId());
+        log.stage(staged, patches.get(1));
+        // Staged, not committed, is not in the log.
+        assertNull(log.fetch(staged));
+        assertNull(log.fetchStored(staged));
+        check(attach(SEGMENT_SIZE), patches.subList(0, 1));
+    }
+
+    @Test public void segments_07_migrate() {
+        List<RDFPatch> patches = patches(3);
+        FileStore fileStore = FileStore.attach(Location.create(DIR), "patch");
+        for ( RDFPatch patch : patches ) {
+            fileStore.writeNewFile(out -> write(out, patch));
+        }
+        SegmentLog log = attach(SEGMENT_SIZE);
+        log.migrate(fileStore, 2);
+        check(log, patches);
+        // Repeat is safe.
+        log.migrate(fileStore, 2);
+        check(attach(SEGMENT_SIZE), patches);
+    }
+
+    private static void write(OutputStream out, RDFPatch patch) {
+        RDFPatchOps.write(out, patch);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.delta.server.local.*;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchConst;
+import org.seaborne.patch.RDFPatchOps;
+
+public class TestSnapshots {
+    private Path dir;
+    private LocalServer server;
+    private DeltaLinkLocal dLink;
+    private Id previous = null;
+
+    @BeforeClass public static void beforeClass() {
+        DPS.resetSystem();
+    }
+
+    @Before public void before() throws Exception {
+        dir = Files.createTempDirectory("snapshots");
+        start("0");
+    }
+
+    @After public void after() {
+        LocalServer.release(server);
+        IOX.deleteAll(dir);
+    }
+
+    private void start(String interval) {
+        if ( server != null )
+            LocalServer.release(server);
+        LocalServerConfig config = LocalServerConfig.create()
+            .setLogProvider(DPS.PatchStoreMemProvider)
+            .setProperty(DeltaConst.pDeltaSnapshotDir, dir.toString())
+            .setProperty(DeltaConst.pDeltaSnapshotInterval, interval)
+            .build();
+        server = LocalServer.create(config);
+        dLink = (DeltaLinkLocal)DeltaLinkLocal.connect(server);
+        previous = null;
+    }
+
+    private static Node node(String x) { return NodeFactory.createURI("http://example/"+x); }
+
+    private void add(Id dsRef, int i) {
+        append(dsRef, false, i);
+    }
+
+    private void delete(Id dsRef, int i) {
+        append(dsRef, true, i);
+    }
+
+    private void append(Id dsRef, boolean delete, int i) {
+        Id id = Id.create();
+        RDFPatch patch = RDFPatchOps.build(c->{
+            c.header(RDFPatchConst.ID, id.asNode());
+            if ( previous != null )
+                c.header(RDFPatchConst.PREV, previous.asNode());
+            c.txnBegin();
+            c.addPrefix(null, "ex", "http://example/");
+            if ( delete )
+                c.delete(null, node("s"+i), node("p"), node("o"));
+            else
+                c.add(null, node("s"+i), node("p"), node("o"));
+            c.txnCommit();
+        });
+        dLink.append(dsRef, patch);
+        previous = id;
+    }
+
+    private DatasetGraph read(Id dsRef, PatchInfo[] info) {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        info[0] = dLink.readSnapshot(dsRef, StreamRDFLib.dataset(dsg));
+        return dsg;
+    }
+
+    private long countFiles(Id dsRef) throws Exception {
+        try ( Stream<Path> files = Files.list(dir.resolve(dsRef.asPlainString())) ) {
+            return files.count();
+        }
+    }
+
+    @Test public void snapshot_none() {
+        Id dsRef = dLink.newDataSource("snapshot_none", "http://example/snapshot_none");
+        assertNull(dLink.getSnapshot(dsRef));
+        // Empty log.
+        assertNull(dLink.createSnapshot(dsRef));
+        PatchInfo[] info = new PatchInfo[1];
+        DatasetGraph dsg = read(dsRef, info);
+        assertNull(info[0]);
+        assertTrue(dsg.isEmpty());
+    }
+
+    @Test public void snapshot_1() {
+        Id dsRef = dLink.newDataSource("snapshot_1", "http://example/snapshot_1");
+        add(dsRef, 1);
+        add(dsRef, 2);
+        add(dsRef, 3);
+        Snapshot snapshot = dLink.createSnapshot(dsRef);
+        assertNotNull(snapshot);
+        assertEquals(3, snapshot.getVersion().value());
+        assertEquals(previous, snapshot.getPatchId());
+
+        PatchInfo[] info = new PatchInfo[1];
+        DatasetGraph dsg = read(dsRef, info);
+        assertEquals(Version.create(3), info[0].getVersion());
+        assertEquals(previous, info[0].getPatch());
+        assertEquals(3, dsg.getDefaultGraph().size());
+        assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex"));
+    }
+
+    @Test public void snapshot_2_incremental() throws Exception {
+        Id dsRef = dLink.newDataSource("snapshot_2", "http://example/snapshot_2");
+        add(dsRef, 1);
+        add(dsRef, 2);
+        dLink.createSnapshot(dsRef);
+        // Built from the previous snapshot and the patches since.
+        delete(dsRef, 1);
+        add(dsRef, 3);
+        Snapshot snapshot = dLink.createSnapshot(dsRef);
+        assertEquals(4, snapshot.getVersion().value());
+        PatchInfo[] info = new PatchInfo[1];
+        DatasetGraph dsg = read(dsRef, info);
+        assertEquals(2, dsg.getDefaultGraph().size());
+        assertFalse(dsg.getDefaultGraph().contains(node("s1"), node("p"), node("o")));
+
+        // No change: same snapshot.
+        assertEquals(snapshot.getPath(), dLink.createSnapshot(dsRef).getPath());
+        // Old snapshots are removed.
+        add(dsRef, 4);
+        dLink.createSnapshot(dsRef);
+        assertEquals(2, countFiles(dsRef));
+    }
+
+    @Test public void snapshot_3_restart() {
+        Id dsRef = dLink.newDataSource("snapshot_3", "http://example/snapshot_3");
+        add(dsRef, 1);
+        dLink.createSnapshot(dsRef);
+        // A new set of snapshots over the same directory finds the existing snapshot.
+        Snapshots snapshots = new Snapshots(dir, 0);
+        Snapshot snapshot = snapshots.latest(dsRef);
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.getVersion().value());
+        snapshots.delete(dsRef);
+        assertNull(snapshots.latest(dsRef));
+    }
+
+    @Test public void snapshot_4_interval() throws Exception {
+        start("2");
+        Id dsRef = dLink.newDataSource("snapshot_4", "http://example/snapshot_4");
+        add(dsRef, 1);
+        assertNull(dLink.getSnapshot(dsRef));
+        add(dsRef, 2);
+        // Made in the background.
+        for ( int i = 0 ; i < 100 && dLink.getSnapshot(dsRef) == null ; i++ )
+            Thread.sleep(50);
+        Snapshot snapshot = dLink.getSnapshot(dsRef);
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.getVersion().value());
+    }
+}
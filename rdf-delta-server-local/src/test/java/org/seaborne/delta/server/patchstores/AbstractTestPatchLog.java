@@ -19,11 +19,22 @@ package org.seaborne.delta.server.patchstores;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
 import org.junit.Test;
+import org.seaborne.delta.DeltaBadPatchException;
 import org.seaborne.delta.Id;
 import org.seaborne.delta.PatchLogInfo;
 import org.seaborne.delta.Version;
 import org.seaborne.delta.server.local.PatchLog;
+import org.seaborne.delta.server.local.StoredPatch;
 import org.seaborne.patch.RDFPatch;
 import org.seaborne.patch.RDFPatchOps;
 
@@ -107,4 +118,91 @@ public abstract class AbstractTestPatchLog {
         assertEquals(version_2, x.getMaxVersion());
         assertEquals(Version.FIRST, x.getMinVersion());
     }
+
+    @Test
+    public void patchLog_4_range() {
+        PatchLog patchLog = patchLog();
+        RDFPatch patch1 = RDFPatchOps.emptyPatch();
+        RDFPatch patch2 = RDFPatchOps.withHeader(patch1, Id.create().asNode(), patch1.getId());
+        RDFPatch patch3 = RDFPatchOps.withHeader(patch1, Id.create().asNode(), patch2.getId());
+        patchLog.append(patch1);
+        patchLog.append(patch2);
+        patchLog.append(patch3);
+
+        List<RDFPatch> all = patchLog.range(version_1, version_3).collect(Collectors.toList());
+        assertEquals(3, all.size());
+        assertEquals(patch1.getId(), all.get(0).getId());
+        assertEquals(patch3.getId(), all.get(2).getId());
+
+        List<RDFPatch> part = patchLog.range(version_2, Version.create(99)).collect(Collectors.toList());
+        assertEquals(2, part.size());
+        assertEquals(patch2.getId(), part.get(0).getId());
+
+        List<RDFPatch> byId = patchLog.range(Id.fromNode(patch2.getId()), Id.fromNode(patch3.getId())).collect(Collectors.toList());
+        assertEquals(2, byId.size());
+        assertEquals(patch3.getId(), byId.get(1).getId());
+    }
+
+    @Test
+    public void patchLog_5_concurrent_append() throws Exception {
+        // Appends from many threads. Each patch is retried until its previous patch is in the log.
+        PatchLog patchLog = patchLog();
+        int N = 20;
+        List<RDFPatch> patches = new ArrayList<>();
+        RDFPatch patch = RDFPatchOps.emptyPatch();
+        patches.add(patch);
+        for ( int i = 1 ; i < N ; i++ ) {
+            patch = RDFPatchOps.withHeader(patch, Id.create().asNode(), patch.getId());
+            patches.add(patch);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Version>> results = new ArrayList<>();
+            for ( RDFPatch p : patches ) {
+                results.add(executor.submit(()->{
+                    for ( ;; ) {
+                        try { return patchLog.append(p); }
+                        catch (DeltaBadPatchException ex) { Thread.sleep(1); }
+                    }
+                }));
+            }
+            for ( int i = 0 ; i < N ; i++ )
+                assertEquals(Version.create(i+1), results.get(i).get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PatchLogInfo x = patchLog.getInfo();
+        assertEquals(Version.create(N), x.getMaxVersion());
+        assertEquals(patches.get(N-1).getId(), x.getLatestPatch().asNode());
+        for ( int i = 0 ; i < N ; i++ )
+            assertEquals(patches.get(i).getId(), patchLog.fetch(Version.create(i+1)).getId());
+    }
+
+    @Test
+    public void patchLog_6_stored() throws Exception {
+        PatchLog patchLog = patchLog();
+        RDFPatch patch1 = RDFPatchOps.emptyPatch();
+        RDFPatch patch2 = RDFPatchOps.withHeader(patch1, Id.create().asNode(), patch1.getId());
+        patchLog.append(patch1);
+        patchLog.append(patch2);
+
+        assertNull(patchLog.fetchStored(version_3));
+        StoredPatch stored = patchLog.fetchStored(version_2);
+        if ( stored == null )
+            // Not supported (e.g. in-memory).
+            return;
+        assertEquals(patch2.getId(), stored.getId().asNode());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stored.writeTo(out);
+        assertEquals(stored.length(), out.size());
+        RDFPatch patch = stored.getFormat().read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(patch2.getId(), patch.getId());
+        assertEquals(patch1.getId(), patch.getPrevious());
+
+        StoredPatch stored1 = patchLog.fetchStored(Id.fromNode(patch1.getId()));
+        assertNotNull(stored1);
+        assertEquals(patch1.getId(), stored1.getId().asNode());
+    }
 }
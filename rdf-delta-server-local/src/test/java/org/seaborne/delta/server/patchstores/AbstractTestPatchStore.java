@@ -50,6 +50,8 @@ public abstract class AbstractTestPatchStore {
     }
     
     @After public void teardown() {
+        if ( patchStore != null )
+            patchStore.shutdown();
         patchStore = null;
     }
     
@@ -17,14 +17,29 @@
 
 package org.seaborne.delta.server.patchstores;
 
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
 import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.tdb.base.file.Location;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 import org.seaborne.delta.DataSourceDescription;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
 import org.seaborne.delta.server.local.*;
 import org.seaborne.delta.server.local.filestore.FileStore;
+import org.seaborne.delta.server.local.patchstores.file.PatchLogFile;
 import org.seaborne.delta.server.local.patchstores.file.PatchStoreProviderFile;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
 
 public class TestPatchLogFile extends AbstractTestPatchLog {
     
@@ -51,4 +66,70 @@ public class TestPatchLogFile extends AbstractTestPatchLog {
         patchLog = patchStore.createLog(dsd);
         return patchLog;
     }
+
+    private static final Path INDEX = Paths.get(LOG, "ABC", "headers.idx");
+
+    // Add patches, then release and attach again.
+    private PatchLog appendAndReattach(int N, Runnable damage) {
+        PatchLog pLog = patchLog();
+        RDFPatch patch = RDFPatchOps.emptyPatch();
+        pLog.append(patch);
+        for ( int i = 1 ; i < N ; i++ ) {
+            patch = RDFPatchOps.withHeader(patch, Id.create().asNode(), patch.getId());
+            pLog.append(patch);
+        }
+        pLog.release();
+        FileStore.resetTracked();
+        damage.run();
+        patchLog = PatchLogFile.attach(pLog.getDescription(), patchStore, Location.create(LOG+"/ABC"));
+        assertEquals(Version.create(N), patchLog.getLatestVersion());
+        assertEquals(pLog.getLatestId(), patchLog.getLatestId());
+        assertEquals(pLog.find(Version.create(1)), patchLog.find(Version.create(1)));
+        return patchLog;
+    }
+
+    @Test public void patchLogFile_index_1() {
+        appendAndReattach(3, ()->{});
+    }
+
+    @Test public void patchLogFile_index_2() {
+        // No index.
+        appendAndReattach(3, ()->delete(INDEX));
+        // Index rebuilt.
+        assertEquals(3*64, size(INDEX));
+    }
+
+    @Test public void patchLogFile_index_3() {
+        // Torn write of an index record.
+        appendAndReattach(3, ()->write(INDEX, new byte[]{1,2,3,4}));
+        assertEquals(3*64, size(INDEX));
+    }
+
+    @Test public void patchLogFile_index_4() {
+        // Index behind the patch files: crash after the patch file was written.
+        appendAndReattach(3, ()->truncate(INDEX, 2*64));
+        assertEquals(3*64, size(INDEX));
+    }
+
+    private static long size(Path path) {
+        try { return Files.size(path); }
+        catch (IOException ex) { throw new RuntimeException(ex); }
+    }
+
+    private static void delete(Path path) {
+        try { Files.delete(path); }
+        catch (IOException ex) { throw new RuntimeException(ex); }
+    }
+
+    private static void write(Path path, byte[] bytes) {
+        try { Files.write(path, bytes, StandardOpenOption.APPEND); }
+        catch (IOException ex) { throw new RuntimeException(ex); }
+    }
+
+    private static void truncate(Path path, long size) {
+        try ( FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE) ) {
+            ch.truncate(size);
+        }
+        catch (IOException ex) { throw new RuntimeException(ex); }
+    }
 }
@@ -17,6 +17,11 @@
 
 package org.seaborne.delta.server.patchstores;
 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
@@ -25,10 +30,18 @@ import org.apache.curator.test.TestingServer;
 import org.apache.jena.atlas.logging.LogCtl;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaException;
 import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchInfo;
+import org.seaborne.delta.Version;
 import org.seaborne.delta.server.local.*;
+import org.seaborne.delta.server.local.patchstores.PatchLogBase;
+import org.seaborne.delta.server.local.patchstores.PatchLogIndex;
 import org.seaborne.delta.server.local.patchstores.zk.PatchStoreProviderZk;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
 
 public class TestPatchLogZk extends AbstractTestPatchLog {
 
@@ -36,10 +49,15 @@ public class TestPatchLogZk extends AbstractTestPatchLog {
     
     private TestingServer server;
     private CuratorFramework client;
+    private PatchStore patchStore;
 
 //    @BeforeClass public static void beforeClass() { }
 //    @AfterClass public static void afterClass() {}
     
+    protected TestingServer server() {
+        return server;
+    }
+
     @Before public void before() {
         try {
             server = new TestingServer();
@@ -51,7 +69,10 @@ public class TestPatchLogZk extends AbstractTestPatchLog {
     }
     
     @After public void after() {
-        client.close();
+        if ( patchStore != null )
+            patchStore.shutdown();
+        if ( client != null )
+            client.close();
         try {
             server.close();
         } catch (Exception ex) {
@@ -60,6 +81,10 @@ public class TestPatchLogZk extends AbstractTestPatchLog {
         }
     }
     
+    protected LocalServerConfig config(String connectString) {
+        return LocalServers.configZk(connectString);
+    }
+
     @Override
     protected PatchLog patchLog() {
         try {
@@ -74,12 +99,12 @@ public class TestPatchLogZk extends AbstractTestPatchLog {
             //client.getConnectionStateListenable().addListener((c, newState)->System.out.println("** STATE CHANGED TO : " + newState));
             client.blockUntilConnected();
 
-            LocalServerConfig config = LocalServers.configZk(connectString);
-            PatchStore ps = new PatchStoreProviderZk().create(config);
-            ps.initialize(new DataRegistry("TestPatchLogZk"), config);
+            LocalServerConfig config = config(connectString);
+            patchStore = new PatchStoreProviderZk().create(config);
+            patchStore.initialize(new DataRegistry("TestPatchLogZk"), config);
 
             DataSourceDescription dsd = new DataSourceDescription(Id.create(), "ABC", "http://example/ABC");
-            PatchLog patchLog = ps.createLog(dsd);
+            PatchLog patchLog = patchStore.createLog(dsd);
             return patchLog;
 
         } catch (Exception ex) {
@@ -88,4 +113,73 @@ public class TestPatchLogZk extends AbstractTestPatchLog {
         }
     }
 
+    @Test
+    public void patchLogZk_versionCache() throws Exception {
+        PatchLog patchLog1 = patchLog();
+        List<RDFPatch> patches = new ArrayList<>();
+        RDFPatch patch = RDFPatchOps.emptyPatch();
+        patches.add(patch);
+        patchLog1.append(patch);
+        for ( int i = 1 ; i < 3 ; i++ ) {
+            patch = RDFPatchOps.withHeader(patch, Id.create().asNode(), patch.getId());
+            patches.add(patch);
+            patchLog1.append(patch);
+        }
+
+        // Second store on the same ZooKeeper: loads existing versions at startup.
+        String connectString = "localhost:" + server.getPort();
+        LocalServerConfig config = config(connectString);
+        PatchStore ps2 = new PatchStoreProviderZk().create(config);
+        ps2.initialize(new DataRegistry("TestPatchLogZk-2"), config);
+        try {
+            PatchLog patchLog2 = ps2.connectLog(patchLog1.getDescription());
+
+            // Appended via the first store: seen by the second store's state watcher.
+            patch = RDFPatchOps.withHeader(patch, Id.create().asNode(), patch.getId());
+            patches.add(patch);
+            patchLog1.append(patch);
+            long limit = System.currentTimeMillis() + 10*1000;
+            while ( ! Version.create(4).equals(patchLog2.getLatestVersion()) && System.currentTimeMillis() < limit )
+                Thread.sleep(10);
+            assertEquals(Version.create(4), patchLog2.getLatestVersion());
+
+            // No ZooKeeper : version to id comes from the cache.
+            server.stop();
+            for ( int i = 0 ; i < patches.size() ; i++ ) {
+                Version ver = Version.create(i+1);
+                assertEquals(Id.fromNode(patches.get(i).getId()), patchLog1.find(ver));
+                assertEquals(Id.fromNode(patches.get(i).getId()), patchLog2.find(ver));
+            }
+        } finally { ps2.shutdown(); }
+    }
+
+    @Test
+    public void patchLogZk_batchConflict() {
+        PatchLog patchLog = patchLog();
+        RDFPatch patch1 = RDFPatchOps.emptyPatch();
+        patchLog.append(patch1);
+        Id id1 = Id.fromNode(patch1.getId());
+
+        // A batch that clashes with version 1, already in the log.
+        PatchLogIndex index = ((PatchLogBase)patchLog).getPatchLogIndex();
+        Id idA = Id.create();
+        Id idB = Id.create();
+        List<PatchInfo> batch = new ArrayList<>();
+        batch.add(new PatchInfo(idA, Version.create(1), null));
+        batch.add(new PatchInfo(idB, Version.create(2), idA));
+        try {
+            index.runWithLock(()->index.save(batch));
+            fail("Expected the batch to fail");
+        } catch (DeltaException ex) {}
+
+        // Nothing of the batch was saved.
+        assertEquals(Version.create(1), patchLog.getLatestVersion());
+        assertEquals(id1, patchLog.getLatestId());
+        assertEquals(id1, patchLog.find(Version.create(1)));
+        assertNull(patchLog.find(Version.create(2)));
+
+        // The log continues.
+        RDFPatch patch2 = RDFPatchOps.withHeader(patch1, Id.create().asNode(), patch1.getId());
+        assertEquals(Version.create(2), patchLog.append(patch2));
+    }
 }
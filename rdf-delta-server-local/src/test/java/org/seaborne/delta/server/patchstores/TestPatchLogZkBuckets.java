@@ -0,0 +1,168 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.patchstores;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.Test;
+import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.server.local.*;
+import org.seaborne.delta.server.local.patchstores.zk.PatchLogIndexZk;
+import org.seaborne.delta.server.local.patchstores.zk.PatchStoreProviderZk;
+import org.seaborne.delta.zk.Zk;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+/** Zookeeper patch logs, with the version index packed into bucket zNodes. */
+public class TestPatchLogZkBuckets extends TestPatchLogZk {
+
+    @Override
+    protected LocalServerConfig config(String connectString) {
+        return config(connectString, true);
+    }
+
+    private static LocalServerConfig config(String connectString, boolean buckets) {
+        return LocalServerConfig.create(LocalServers.configZk(connectString))
+            .setProperty(DeltaConst.pDeltaZkBuckets, Boolean.toString(buckets))
+            .build();
+    }
+
+    private PatchStore patchStore(LocalServerConfig config, String label) {
+        PatchStore ps = new PatchStoreProviderZk().create(config);
+        ps.initialize(new DataRegistry(label), config);
+        return ps;
+    }
+
+    private static List<RDFPatch> append(PatchLog patchLog, RDFPatch start, int N) {
+        List<RDFPatch> patches = new ArrayList<>();
+        RDFPatch patch = start;
+        for ( int i = 0 ; i < N ; i++ ) {
+            patch = ( patch == null )
+                ? RDFPatchOps.emptyPatch()
+                : RDFPatchOps.withHeader(patch, Id.create().asNode(), patch.getId());
+            patchLog.append(patch);
+            patches.add(patch);
+        }
+        return patches;
+    }
+
+    private static void check(PatchLog patchLog, List<RDFPatch> patches, int... versions) {
+        for ( int v : versions ) {
+            Id id = Id.fromNode(patches.get(v-1).getId());
+            assertEquals(id, patchLog.find(Version.create(v)));
+            assertEquals(Version.create(v), patchLog.find(id));
+            assertEquals(id, Id.fromNode(patchLog.fetch(Version.create(v)).getId()));
+        }
+    }
+
+    @Test
+    public void patchLogZk_buckets_reload() {
+        // More than one bucket.
+        PatchLog patchLog1 = patchLog();
+        int N = 1030;
+        List<RDFPatch> patches = append(patchLog1, null, N);
+        check(patchLog1, patches, 1, 1024, 1025, N);
+
+        String connectString = "localhost:" + server().getPort();
+        PatchStore ps2 = patchStore(config(connectString), "TestPatchLogZkBuckets-2");
+        try {
+            PatchLog patchLog2 = ps2.connectLog(patchLog1.getDescription());
+            assertEquals(Version.create(N), patchLog2.getLatestVersion());
+            assertEquals(Version.FIRST, patchLog2.getEarliestVersion());
+            check(patchLog2, patches, 1, 1024, 1025, N);
+
+            CuratorFramework client = Zk.curator(connectString);
+            try {
+                String logPath = "/delta/logs/"+patchLog1.getDescription().getName();
+                assertEquals(2, Zk.zkSubNodes(client, logPath+"/buckets").size());
+                assertTrue(Zk.zkSubNodes(client, logPath+"/versions").isEmpty());
+                assertTrue(Zk.zkSubNodes(client, logPath+"/header").isEmpty());
+            } finally { client.close(); }
+        } finally { ps2.shutdown(); }
+    }
+
+    @Test
+    public void patchLogZk_buckets_migrate() {
+        String connectString = "localhost:" + server().getPort();
+        // One zNode per version.
+        PatchStore ps1 = patchStore(config(connectString, false), "TestPatchLogZkBuckets-1");
+        DataSourceDescription dsd = new DataSourceDescription(Id.create(), "ABC", "http://example/ABC");
+        PatchLog patchLog1 = ps1.createLog(dsd);
+        List<RDFPatch> patches = append(patchLog1, null, 5);
+
+        // Configured for buckets: the layout of an existing log is not changed on open.
+        PatchStore ps2 = patchStore(config(connectString, true), "TestPatchLogZkBuckets-2");
+        PatchLog patchLog2 = ps2.connectLog(dsd);
+        check(patchLog2, patches, 1, 3, 5);
+        ps1.shutdown();
+        ps2.shutdown();
+
+        // Migrate, with the log not in use.
+        CuratorFramework client = Zk.curator(connectString);
+        try {
+            assertTrue(PatchLogIndexZk.migrateToBuckets(client, "ABC"));
+            assertFalse(PatchLogIndexZk.migrateToBuckets(client, "ABC"));
+            assertTrue(Zk.zkSubNodes(client, "/delta/logs/ABC/versions").isEmpty());
+        } finally { client.close(); }
+
+        // Opened after migration with the default configuration: reads the bucket layout.
+        PatchStore ps3 = patchStore(config(connectString, false), "TestPatchLogZkBuckets-3");
+        PatchLog patchLog3 = ps3.connectLog(dsd);
+        assertEquals(Version.create(5), patchLog3.getLatestVersion());
+        check(patchLog3, patches, 1, 3, 5);
+        patches.addAll(append(patchLog3, patches.get(4), 2));
+        check(patchLog3, patches, 1, 5, 6, 7);
+        ps3.shutdown();
+    }
+
+    @Test
+    public void patchLogZk_buckets_migrate_inUse() {
+        // A server that still has the log open in the old layout does not append to it.
+        String connectString = "localhost:" + server().getPort();
+        PatchStore ps1 = patchStore(config(connectString, false), "TestPatchLogZkBuckets-1");
+        DataSourceDescription dsd = new DataSourceDescription(Id.create(), "ABC", "http://example/ABC");
+        PatchLog patchLog1 = ps1.createLog(dsd);
+        List<RDFPatch> patches = append(patchLog1, null, 2);
+
+        CuratorFramework client = Zk.curator(connectString);
+        try {
+            assertTrue(PatchLogIndexZk.migrateToBuckets(client, "ABC"));
+        } finally { client.close(); }
+
+        RDFPatch patch3 = RDFPatchOps.withHeader(patches.get(1), Id.create().asNode(), patches.get(1).getId());
+        try {
+            patchLog1.append(patch3);
+            fail("Expected the append to fail");
+        } catch (DeltaException ex) {}
+        ps1.shutdown();
+
+        PatchStore ps2 = patchStore(config(connectString, false), "TestPatchLogZkBuckets-2");
+        PatchLog patchLog2 = ps2.connectLog(dsd);
+        assertEquals(Version.create(2), patchLog2.getLatestVersion());
+        check(patchLog2, patches, 1, 2);
+        ps2.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.patchstores;
+
+import static org.junit.Assert.*;
+
+import org.apache.jena.web.HttpSC;
+import org.junit.Test;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.DeltaBadPatchException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.server.local.*;
+import org.seaborne.delta.server.local.patchstores.PatchLogBase;
+import org.seaborne.delta.server.local.patchstores.zk.PatchLogIndexZk;
+import org.seaborne.delta.server.local.patchstores.zk.PatchStoreProviderZk;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+/** Zookeeper patch logs, appending using the leader lease. */
+public class TestPatchLogZkLease extends TestPatchLogZk {
+
+    @Override
+    protected LocalServerConfig config(String connectString) {
+        return LocalServerConfig.create(LocalServers.configZk(connectString))
+            .setProperty(DeltaConst.pDeltaZkLease, "true")
+            .build();
+    }
+
+    private static boolean isLeader(PatchLog patchLog) {
+        return ((PatchLogIndexZk)((PatchLogBase)patchLog).getPatchLogIndex()).isLeader();
+    }
+
+    private static void awaitLeader(PatchLog patchLog) throws InterruptedException {
+        long limit = System.currentTimeMillis() + 10*1000;
+        while ( ! isLeader(patchLog) && System.currentTimeMillis() < limit )
+            Thread.sleep(10);
+    }
+
+    @Test
+    public void patchLogZk_lease_two_servers() throws Exception {
+        PatchLog patchLog1 = patchLog();
+        awaitLeader(patchLog1);
+        assertTrue(isLeader(patchLog1));
+
+        String connectString = "localhost:" + server().getPort();
+        LocalServerConfig config = config(connectString);
+        PatchStore ps2 = new PatchStoreProviderZk().create(config);
+        ps2.initialize(new DataRegistry("TestPatchLogZkLease-2"), config);
+        try {
+            PatchLog patchLog2 = ps2.connectLog(patchLog1.getDescription());
+            assertFalse(isLeader(patchLog2));
+
+            // Leader, then non-leader, then leader.
+            RDFPatch patch1 = RDFPatchOps.emptyPatch();
+            RDFPatch patch2 = RDFPatchOps.withHeader(patch1, Id.create().asNode(), patch1.getId());
+            RDFPatch patch3 = RDFPatchOps.withHeader(patch1, Id.create().asNode(), patch2.getId());
+            assertEquals(Version.create(1), patchLog1.append(patch1));
+            assertEquals(Version.create(2), patchLog2.append(patch2));
+
+            // The leader may not have seen the non-leader's append yet: the log catches up
+            // and checks the patch again, so the append succeeds.
+            assertEquals(Version.create(3), patchLog1.append(patch3));
+
+            // A patch that really does not follow the head is rejected as a bad patch.
+            RDFPatch patch4 = RDFPatchOps.withHeader(patch1, Id.create().asNode(), patch2.getId());
+            try {
+                patchLog2.append(patch4);
+                fail("Expected a bad patch exception");
+            } catch (DeltaBadPatchException ex) {
+                assertEquals(HttpSC.BAD_REQUEST_400, ex.getStatusCode());
+            }
+
+            long limit = System.currentTimeMillis() + 10*1000;
+            while ( ! Version.create(3).equals(patchLog2.getLatestVersion()) && System.currentTimeMillis() < limit )
+                Thread.sleep(10);
+            assertEquals(Version.create(3), patchLog2.getLatestVersion());
+            assertEquals(Id.fromNode(patch3.getId()), patchLog2.getLatestId());
+            assertEquals(Id.fromNode(patch2.getId()), patchLog1.find(Version.create(2)));
+        } finally { ps2.shutdown(); }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.server.patchstores;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.test.TestingServer;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.atlas.logging.LogCtl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seaborne.delta.DeltaException;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.PatchFormat;
+import org.seaborne.delta.server.ZkT;
+import org.seaborne.delta.server.local.patchstores.PatchStorage;
+import org.seaborne.delta.server.local.patchstores.zk.PatchStorageBlob;
+import org.seaborne.delta.zk.Zk;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+public class TestPatchStorageBlob extends AbstractTestPatchStorage {
+    static { LogCtl.setJavaLogging(); }
+
+    private static int counter = 0 ;
+    private TestingServer server = null;
+    private CuratorFramework client = null;
+    private String logPath = "/blobs-"+(counter++);
+    private Path dir1 = null;
+    private Path dir2 = null;
+
+    @Before public void before() throws IOException {
+        try {
+            server = ZkT.localServer();
+            server.start();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            throw new RuntimeException(ex);
+        }
+        String connectionString = "localhost:"+server.getPort();
+        client = Zk.curator(connectionString);
+        try {
+            client.blockUntilConnected();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        dir1 = Files.createTempDirectory("blobs1");
+        dir2 = Files.createTempDirectory("blobs2");
+    }
+
+    @After public void after() {
+        client.close();
+        try {
+            server.close();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            throw new RuntimeException(ex);
+        }
+        FileOps.clearAll(dir1.toString());
+        FileOps.delete(dir1.toString());
+        FileOps.clearAll(dir2.toString());
+        FileOps.delete(dir2.toString());
+    }
+
+    @Override
+    protected PatchStorage patchStorage() {
+        return new PatchStorageBlob(client, "log", logPath, dir1, PatchFormat.TEXT, null, null);
+    }
+
+    @Test public void patchStorageBlob_peer() {
+        PatchStorageBlob storage1 = new PatchStorageBlob(client, "log", logPath, dir1, PatchFormat.TEXT, null, null);
+        PatchStorageBlob storage2 = new PatchStorageBlob(client, "log", logPath, dir2, PatchFormat.TEXT,
+                                                         (logName, hash)->storage1.readBlob(hash), null);
+        RDFPatch patch = RDFPatchOps.emptyPatch();
+        Id id = Id.create();
+        storage1.store(id, patch);
+        RDFPatch patch2 = storage2.fetch(id);
+        assertNotNull(patch2);
+        assertEquals(patch.getId(), patch2.getId());
+        // Now held locally.
+        assertEquals(1, dir2.toFile().list().length);
+    }
+
+    @Test public void patchStorageBlob_peer_corrupt() {
+        PatchStorageBlob storage1 = new PatchStorageBlob(client, "log", logPath, dir1, PatchFormat.TEXT, null, null);
+        PatchStorageBlob storage2 = new PatchStorageBlob(client, "log", logPath, dir2, PatchFormat.TEXT,
+                                                         (logName, hash)->new byte[] {'X'}, null);
+        Id id = Id.create();
+        storage1.store(id, RDFPatchOps.emptyPatch());
+        assertNull(storage2.fetch(id));
+        assertEquals(0, dir2.toFile().list().length);
+    }
+
+    @Test public void patchStorageBlob_peer_copy() {
+        PatchStorageBlob storage2 = new PatchStorageBlob(client, "log", logPath, dir2, PatchFormat.TEXT, null, null);
+        PatchStorageBlob storage1 = new PatchStorageBlob(client, "log", logPath, dir1, PatchFormat.TEXT, null,
+                                                         (logName, hash, bytes)->storage2.copyBlob(hash, bytes));
+        Id id = Id.create();
+        storage1.store(id, RDFPatchOps.emptyPatch());
+        // Copied before the commit.
+        assertEquals(1, dir2.toFile().list().length);
+        assertNotNull(storage2.fetch(id));
+    }
+
+    @Test public void patchStorageBlob_peer_copy_fails() {
+        PatchStorageBlob storage1 = new PatchStorageBlob(client, "log", logPath, dir1, PatchFormat.TEXT, null,
+                                                         (logName, hash, bytes)->false);
+        Id id = Id.create();
+        try {
+            storage1.store(id, RDFPatchOps.emptyPatch());
+            fail("Expected the store to fail");
+        } catch (DeltaException ex) {}
+        // Not recorded.
+        assertNull(storage1.fetch(id));
+    }
+}
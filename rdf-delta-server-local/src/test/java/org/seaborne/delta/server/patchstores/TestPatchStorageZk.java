@@ -17,15 +17,31 @@
 
 package org.seaborne.delta.server.patchstores;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.test.TestingServer;
+import org.apache.jena.atlas.lib.StrUtils;
 import org.apache.jena.atlas.logging.LogCtl;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.web.HttpSC;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
+import org.seaborne.delta.DeltaHttpException;
+import org.seaborne.delta.Id;
 import org.seaborne.delta.server.ZkT;
 import org.seaborne.delta.server.local.patchstores.PatchStorage;
 import org.seaborne.delta.server.local.patchstores.zk.PatchStorageZk;
 import org.seaborne.delta.zk.Zk;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchConst;
+import org.seaborne.patch.RDFPatchOps;
 
 public class TestPatchStorageZk extends AbstractTestPatchStorage {
     static { LogCtl.setJavaLogging(); }
@@ -66,4 +82,24 @@ public class TestPatchStorageZk extends AbstractTestPatchStorage {
     protected PatchStorage patchStorage() {
         return new PatchStorageZk(client, "0", patches);
     }
+
+    @Test public void patchStorageZk_tooLarge() {
+        PatchStorage storage = patchStorage();
+        Id id = Id.create();
+        RDFPatch patch = RDFPatchOps.build(c->{
+            c.header(RDFPatchConst.ID, id.asNode());
+            c.txnBegin();
+            Node o = NodeFactory.createLiteral(StrUtils.strjoin("", Collections.nCopies(1000, "x")));
+            for ( int i = 0 ; i < 1000 ; i++ )
+                c.add(null, NodeFactory.createURI("http://example/s"+i), NodeFactory.createURI("http://example/p"), o);
+            c.txnCommit();
+        });
+        try {
+            storage.store(id, patch);
+            fail("Expected 413");
+        } catch (DeltaHttpException ex) {
+            assertEquals(HttpSC.REQUEST_ENTITY_TOO_LARGE_413, ex.getStatusCode());
+        }
+        assertNull(storage.fetch(id));
+    }
 }
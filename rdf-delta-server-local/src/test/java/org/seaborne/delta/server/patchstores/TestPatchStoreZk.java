@@ -17,11 +17,24 @@
 
 package org.seaborne.delta.server.patchstores;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.curator.test.TestingServer;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
+import org.seaborne.delta.DataSourceDescription;
+import org.seaborne.delta.Id;
 import org.seaborne.delta.server.ZkT;
 import org.seaborne.delta.server.local.*;
+import org.seaborne.delta.server.local.patchstores.zk.PatchStoreZk;
+import org.seaborne.patch.RDFPatchOps;
 
 public class TestPatchStoreZk extends AbstractTestPatchStore {
     
@@ -38,4 +51,47 @@ public class TestPatchStoreZk extends AbstractTestPatchStore {
         patchStore.initialize(dataRegistry, config);
         return patchStore;
     }
+
+    private static PatchStore patchStore(DataRegistry dataRegistry, String connectionString) {
+        LocalServerConfig config = LocalServers.configZk(connectionString);
+        PatchStore patchStore = PatchStoreMgr.getPatchStoreProvider(DPS.PatchStoreZkProvider).create(config);
+        patchStore.initialize(dataRegistry, config);
+        return patchStore;
+    }
+
+    @Test public void patchStoreZk_attach() throws Exception {
+        TestingServer server = ZkT.localServer();
+        String connectionString = server.getConnectString();
+        PatchStore ps1 = patchStore(new DataRegistry("attach-1"), connectionString);
+        try {
+            int N = 20;
+            List<DataSourceDescription> dsds = new ArrayList<>();
+            for ( int i = 0 ; i < N ; i++ ) {
+                DataSourceDescription dsd = new DataSourceDescription(Id.create(), "ABC"+i, "http://example/ABC"+i);
+                dsds.add(dsd);
+                ps1.createLog(dsd).append(RDFPatchOps.emptyPatch());
+            }
+
+            // Existing logs are attached, in parallel, in the background after startup.
+            PatchStoreZk ps2 = (PatchStoreZk)patchStore(new DataRegistry("attach-2"), connectionString);
+            try {
+                long limit = System.currentTimeMillis() + 10*1000;
+                while ( ps2.getDataRegistry().dataSources().count() < N && System.currentTimeMillis() < limit )
+                    Thread.sleep(10);
+                assertEquals(N, ps2.getDataRegistry().dataSources().count());
+                dsds.forEach(dsd->assertFalse(ps2.isOpening(dsd.getName())));
+                dsds.forEach(dsd->assertNotNull(ps2.getLog(dsd.getId())));
+                assertEquals(N, ps2.getLogOpenTimes().size());
+
+                // A new log elsewhere is attached by the watcher.
+                DataSourceDescription dsd = new DataSourceDescription(Id.create(), "XYZ", "http://example/XYZ");
+                ps1.createLog(dsd);
+                limit = System.currentTimeMillis() + 10*1000;
+                while ( ps2.getDataRegistry().get(dsd.getId()) == null && System.currentTimeMillis() < limit )
+                    Thread.sleep(10);
+                assertNotNull(ps2.getDataRegistry().get(dsd.getId()));
+                assertTrue(ps2.getLog(dsd.getId()).isEmpty());
+            } finally { ps2.shutdown(); }
+        } finally { ps1.shutdown(); }
+    }
 }
@@ -37,7 +37,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.seaborne.delta.client.*;
 import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.delta.systemtest.Matrix;
 import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchConst;
 import org.seaborne.patch.RDFPatchOps;
 import org.seaborne.patch.changes.RDFChangesCollector;
 
@@ -336,6 +338,273 @@ public abstract class AbstractTestDeltaConnection {
         }
     }
 
+    @Test
+    public void change_notify_1() throws InterruptedException {
+        // SyncPolicy.NOTIFY : a change made directly on the patch log is picked up
+        // without a transaction.
+        String NAME = "change_notify_1";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.NOTIFY);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            assertEquals(Version.INIT, dConn.getLocalVersion());
+            RDFPatch patch = RDFPatchOps.read(DeltaTestLib.TDIR+"test_dlink/patch1.rdfp");
+            getLink().append(dsRef, patch);
+            for ( int i = 0 ; i < 100 && dConn.getLocalVersion().value() < 1 ; i++ )
+                Thread.sleep(50);
+            assertEquals(Version.create(1), dConn.getLocalVersion());
+            assertFalse(Txn.calculateRead(dConn.getStorage(), ()->dConn.getStorage().isEmpty()));
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_background_1() throws InterruptedException {
+        // SyncPolicy.BACKGROUND : a change made directly on the patch log is picked up
+        // by the background thread, not by read transactions.
+        String NAME = "change_background_1";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.BACKGROUND);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            dConn.setSyncInterval(50);
+            assertEquals(Version.INIT, dConn.getLocalVersion());
+            RDFPatch patch = RDFPatchOps.read(DeltaTestLib.TDIR+"test_dlink/patch1.rdfp");
+            getLink().append(dsRef, patch);
+            for ( int i = 0 ; i < 100 && dConn.getLocalVersion().value() < 1 ; i++ )
+                Thread.sleep(50);
+            assertEquals(Version.create(1), dConn.getLocalVersion());
+            assertFalse(Txn.calculateRead(dConn.getStorage(), ()->dConn.getStorage().isEmpty()));
+            assertTrue(dConn.getStaleness() < 10*1000);
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_background_stale_1() throws InterruptedException {
+        // A read transaction on data past the staleness bound waits for the background sync.
+        String NAME = "change_background_stale_1";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.BACKGROUND);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            // No scheduled sync during the test.
+            dConn.setSyncInterval(60*60*1000);
+            dConn.setMaxStaleness(500);
+            DatasetGraph dsg = dConn.getDatasetGraph();
+            RDFPatch patch = RDFPatchOps.read(DeltaTestLib.TDIR+"test_dlink/patch1.rdfp");
+            getLink().append(dsRef, patch);
+            Thread.sleep(600);
+            assertTrue(dConn.isStale());
+            assertFalse(Txn.calculateRead(dsg, ()->dsg.isEmpty()));
+            assertEquals(Version.create(1), dConn.getLocalVersion());
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_background_stale_2() throws InterruptedException {
+        // Not waiting for the background sync: a read transaction on stale data fails.
+        String NAME = "change_background_stale_2";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.BACKGROUND);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            dConn.setSyncInterval(60*60*1000);
+            dConn.setMaxStaleness(500);
+            dConn.setStaleSyncWait(0);
+            DatasetGraph dsg = dConn.getDatasetGraph();
+            Thread.sleep(600);
+            try {
+                Txn.executeRead(dsg, ()->{});
+                fail("Expected the read to fail");
+            } catch (DeltaException ex) {}
+            // The sync asked for happens in the background.
+            Matrix.await(()->!dConn.isStale());
+            Txn.executeRead(dsg, ()->{});
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_catchup_1() {
+        // Catch up over more versions than one prefetch chunk.
+        String NAME = "change_catchup_1";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        int N = 2*DeltaConst.FETCH_CHUNK_SIZE+50;
+        Id prev = null;
+        for ( int i = 0 ; i < N ; i++ ) {
+            Id id = Id.create();
+            Quad quad = SSE.parseQuad("(_ :s :p "+i+")");
+            RDFChangesCollector c = new RDFChangesCollector();
+            c.header(RDFPatchConst.ID, id.asNode());
+            if ( prev != null )
+                c.header(RDFPatchConst.PREV, prev.asNode());
+            c.txnBegin();
+            c.add(quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject());
+            c.txnCommit();
+            getLink().append(dsRef, c.getRDFPatch());
+            prev = id;
+        }
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.NONE);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            dConn.sync();
+            assertEquals(Version.create(N), dConn.getLocalVersion());
+            assertEquals(prev, dConn.getLatestPatchId());
+            DatasetGraph dsg = dConn.getStorage();
+            long count = Txn.calculateRead(dsg, ()->Iter.count(dsg.find()));
+            assertEquals(N, count);
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_catchup_squash_1() {
+        // Catch up with one squashed patch: each patch replaces the triple of the one before.
+        String NAME = "change_catchup_squash_1";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.NONE);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            dConn.setSquashCatchUp(10);
+            int N = 50;
+            Id prev = null;
+            for ( int i = 0 ; i < N ; i++ ) {
+                Id id = Id.create();
+                RDFChangesCollector c = new RDFChangesCollector();
+                c.header(RDFPatchConst.ID, id.asNode());
+                if ( prev != null )
+                    c.header(RDFPatchConst.PREV, prev.asNode());
+                c.txnBegin();
+                if ( i > 0 ) {
+                    Quad quad0 = SSE.parseQuad("(_ :s :p "+(i-1)+")");
+                    c.delete(quad0.getGraph(), quad0.getSubject(), quad0.getPredicate(), quad0.getObject());
+                }
+                Quad quad = SSE.parseQuad("(_ :s :p "+i+")");
+                c.add(quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject());
+                c.txnCommit();
+                getLink().append(dsRef, c.getRDFPatch());
+                prev = id;
+            }
+            dConn.sync();
+            assertEquals(Version.create(N), dConn.getLocalVersion());
+            assertEquals(prev, dConn.getLatestPatchId());
+            DatasetGraph dsg = dConn.getStorage();
+            long count = Txn.calculateRead(dsg, ()->Iter.count(dsg.find()));
+            assertEquals(1, count);
+            Quad quad = SSE.parseQuad("(_ :s :p "+(N-1)+")");
+            assertTrue(Txn.calculateRead(dsg, ()->dsg.contains(quad)));
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_async_commit_1() {
+        String NAME = "change_async_commit_1";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.TXN_RW);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            dConn.setAsyncCommit(true);
+            DatasetGraph dsg = dConn.getDatasetGraph();
+            Quad quad1 = SSE.parseQuad("(_ :s :p 1)");
+            Quad quad2 = SSE.parseQuad("(_ :s :p 2)");
+            Txn.executeWrite(dsg, ()->dsg.add(quad1));
+            Txn.executeWrite(dsg, ()->dsg.add(quad2));
+            // Committed locally.
+            assertTrue(Txn.calculateRead(dsg, ()->dsg.contains(quad2)));
+            assertTrue(dConn.awaitCommits(10*1000));
+            assertEquals(0, dConn.pendingCommits());
+            assertEquals(Version.create(2), dConn.lastCommit().join());
+            assertEquals(Version.create(2), dConn.getLocalVersion());
+            assertEquals(Version.create(2), getLink().getCurrentVersion(dsRef));
+            // In order, chained.
+            RDFPatch patch1 = getLink().fetch(dsRef, Version.create(1));
+            RDFPatch patch2 = getLink().fetch(dsRef, Version.create(2));
+            assertEquals(patch1.getId(), patch2.getPrevious());
+            assertEquals(dConn.getLatestPatchId(), Id.fromNode(patch2.getId()));
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_async_commit_conflict_1() {
+        // Another writer appends while there is a local commit to send.
+        String NAME = "change_async_commit_conflict_1";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.NONE);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            AtomicInteger failures = new AtomicInteger(0);
+            dConn.addAsyncCommitListener(new AsyncCommitListener() {
+                @Override
+                public void failed(Id dsRef, Id patchId, DeltaException ex) { failures.incrementAndGet(); }
+            });
+            RDFPatch patch = RDFPatchOps.read(DeltaTestLib.TDIR+"test_dlink/patch1.rdfp");
+            getLink().append(dsRef, patch);
+            dConn.setAsyncCommit(true);
+            DatasetGraph dsg = dConn.getDatasetGraph();
+            Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ :s :p 1)")));
+            try {
+                dConn.awaitCommits(10*1000);
+                fail("Expected the patch to be rejected");
+            } catch (DeltaException ex) {}
+            assertEquals(1, failures.get());
+            assertTrue(dConn.lastCommit().isCompletedExceptionally());
+            assertEquals(1, dConn.pendingCommits());
+            assertEquals(Version.create(1), getLink().getCurrentVersion(dsRef));
+            // Further commits are refused.
+            long before = Txn.calculateRead(dsg, ()->Iter.count(dsg.find()));
+            Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ :s :p 2)")));
+            assertEquals(before, (long)Txn.calculateRead(dsg, ()->Iter.count(dsg.find())));
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
+    @Test
+    public void change_async_commit_conflict_2() {
+        // Recover from a rejected asynchronous commit.
+        String NAME = "change_async_commit_conflict_2";
+        DeltaClient dClient = createDeltaClient();
+        Id dsRef = dClient.newDataSource(NAME, "http://example/"+NAME);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.NONE);
+        try(DeltaConnection dConn = dClient.get(NAME)) {
+            RDFPatch patch = RDFPatchOps.read(DeltaTestLib.TDIR+"test_dlink/patch1.rdfp");
+            getLink().append(dsRef, patch);
+            dConn.setAsyncCommit(true);
+            DatasetGraph dsg = dConn.getDatasetGraph();
+            Quad quad = SSE.parseQuad("(_ :s :p 1)");
+            Txn.executeWrite(dsg, ()->dsg.add(quad));
+            try {
+                dConn.awaitCommits(10*1000);
+                fail("Expected the patch to be rejected");
+            } catch (DeltaException ex) {}
+
+            assertEquals(1, dConn.discardPendingCommits());
+            assertEquals(0, dConn.pendingCommits());
+            // The local data is that of the patch log.
+            assertEquals(Version.create(1), dConn.getLocalVersion());
+            assertFalse(Txn.calculateRead(dsg, ()->dsg.contains(quad)));
+            assertTrue(Txn.calculateRead(dsg, ()->dsg.find().hasNext()));
+
+            // Commits work again.
+            Txn.executeWrite(dsg, ()->dsg.add(quad));
+            assertTrue(dConn.awaitCommits(10*1000));
+            assertEquals(Version.create(2), getLink().getCurrentVersion(dsRef));
+        } finally {
+            dClient.release(dsRef);
+        }
+    }
+
     // ---- Different dataset each connection. 
     
     @Test
@@ -19,6 +19,7 @@ package org.seaborne.delta;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.List ;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -163,6 +164,98 @@ public abstract class AbstractTestDeltaLink {
         }
     }
 
+    @Test
+    public void patch_range_1() {
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("patch_range_1", "http://example/");
+
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        RDFPatch patch2 = RDFPatchOps.read(FILES_DIR+"/patch2.rdfp");
+        dLink.append(dsRef, patch1);
+        dLink.append(dsRef, patch2);
+
+        List<RDFPatch> patches = new ArrayList<>();
+        dLink.fetch(dsRef, version_1, version_2, patches::add);
+        assertEquals(2, patches.size());
+        assertTrue(equals(patch1, patches.get(0)));
+        assertTrue(equals(patch2, patches.get(1)));
+
+        // Beyond the end of the log.
+        patches.clear();
+        dLink.fetch(dsRef, version_2, Version.create(10), patches::add);
+        assertEquals(1, patches.size());
+        assertTrue(equals(patch2, patches.get(0)));
+    }
+
+    @Test
+    public void patch_range_apply_1() {
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("patch_range_apply_1", "http://example/");
+
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        RDFPatch patch2 = RDFPatchOps.read(FILES_DIR+"/patch2.rdfp");
+        dLink.append(dsRef, patch1);
+        dLink.append(dsRef, patch2);
+
+        RDFChangesCounter expected = new RDFChangesCounter();
+        patch1.apply(expected);
+        patch2.apply(expected);
+
+        RDFChangesCounter counter = new RDFChangesCounter();
+        dLink.applyPatches(dsRef, version_1, version_2, counter);
+        PatchSummary x1 = expected.summary();
+        PatchSummary x2 = counter.summary();
+        assertEquals(x1.countHeader, x2.countHeader);
+        assertEquals(x1.countAddData, x2.countAddData);
+        assertEquals(x1.countDeleteData, x2.countDeleteData);
+        assertEquals(x1.countTxnCommit, x2.countTxnCommit);
+    }
+
+    @Test
+    public void patch_range_squash_1() {
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("patch_range_squash_1", "http://example/");
+
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        RDFPatch patch2 = RDFPatchOps.read(FILES_DIR+"/patch2.rdfp");
+        // Adds the same triple as patch2.
+        RDFPatch patch3 = RDFPatchOps.read(FILES_DIR+"/patch3.rdfp");
+        dLink.append(dsRef, patch1);
+        dLink.append(dsRef, patch2);
+        dLink.append(dsRef, patch3);
+
+        RDFPatch squashed = dLink.fetchSquashed(dsRef, version_1, version_3);
+        assertNotNull(squashed);
+        assertEquals(patch3.getId(), squashed.getId());
+        assertNull(squashed.getPrevious());
+        PatchSummary summary = RDFPatchOps.summary(squashed);
+        assertEquals(2, summary.countAddData);
+        assertEquals(1, summary.countTxnCommit);
+
+        squashed = dLink.fetchSquashed(dsRef, version_2, version_3);
+        assertEquals(patch3.getId(), squashed.getId());
+        assertEquals(patch1.getId(), squashed.getPrevious());
+        assertEquals(1, RDFPatchOps.summary(squashed).countAddData);
+
+        // No patches.
+        assertNull(dLink.fetchSquashed(dsRef, Version.create(10), Version.create(20)));
+    }
+
+    @Test
+    public void patch_range_squash_2() {
+        // Too many versions to squash.
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("patch_range_squash_2", "http://example/");
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        dLink.append(dsRef, patch1);
+        try {
+            dLink.fetchSquashed(dsRef, version_1, Version.create(DeltaConst.SQUASH_MAX_VERSIONS+1));
+            fail("Expected a 413");
+        } catch (DeltaHttpException ex) {
+            assertEquals(HttpSC.REQUEST_ENTITY_TOO_LARGE_413, ex.getStatusCode());
+        }
+    }
+
     @Test
     public void patch_add_add() {
         // patch1 then patch2, checking the versions advance as expected.
@@ -190,6 +283,61 @@ public abstract class AbstractTestDeltaLink {
         assertEquals(version_1, logInfo2.getMinVersion());
     }
 
+    @Test
+    public void await_version_1() {
+        // Already later.
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("await_version_1", "http://example/");
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        dLink.append(dsRef, patch1);
+        PatchLogInfo info = dLink.awaitVersion(dsRef, Version.INIT, 60*1000);
+        assertEquals(version_1, info.getMaxVersion());
+    }
+
+    @Test
+    public void await_version_2() {
+        // Timeout.
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("await_version_2", "http://example/");
+        PatchLogInfo info = dLink.awaitVersion(dsRef, Version.INIT, 100);
+        assertEquals(Version.INIT, info.getMaxVersion());
+    }
+
+    @Test
+    public void await_version_3() throws InterruptedException {
+        // Woken by an append.
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("await_version_3", "http://example/");
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        Thread thread = new Thread(()->{
+            try { Thread.sleep(100); } catch (InterruptedException ex) {}
+            dLink.append(dsRef, patch1);
+        });
+        thread.start();
+        PatchLogInfo info = dLink.awaitVersion(dsRef, Version.INIT, 20*1000);
+        thread.join();
+        assertEquals(version_1, info.getMaxVersion());
+    }
+
+    @Test
+    public void await_version_4() throws InterruptedException {
+        // Woken by removing the data source.
+        DeltaLink dLink = getLink();
+        Id dsRef = dLink.newDataSource("await_version_4", "http://example/");
+        Thread thread = new Thread(()->{
+            try { Thread.sleep(100); } catch (InterruptedException ex) {}
+            dLink.removeDataSource(dsRef);
+        });
+        thread.start();
+        long start = System.currentTimeMillis();
+        try {
+            PatchLogInfo info = dLink.awaitVersion(dsRef, Version.INIT, 20*1000);
+            assertNull(info);
+        } catch (DeltaNotFoundException ex) {}
+        thread.join();
+        assertTrue(System.currentTimeMillis()-start < 10*1000);
+    }
+
     @Test//(expected=DeltaNotFoundException.class)
     public void patch_http404_01() {
         // No such patch.
@@ -148,6 +148,16 @@ public class Setup {
         private DeltaServer server = null;
         private DeltaLink dlink = null;
         private int testPort = -999;
+        private final PatchFormat patchFormat;
+
+        public RemoteSetup() {
+            this(PatchFormat.TEXT);
+        }
+
+        /** Remote setup where the link sends, and asks for, patches in {@code patchFormat}. */
+        public RemoteSetup(PatchFormat patchFormat) {
+            this.patchFormat = patchFormat;
+        }
 
         @Override
         public void beforeClass() {
@@ -217,7 +227,7 @@ public class Setup {
 
         @Override
         public DeltaLink createLink() {
-            return DeltaLinkHTTP.connect("http://localhost:"+testPort+"/");
+            return DeltaLinkHTTP.connect("http://localhost:"+testPort+"/", patchFormat);
         }
 
         private static void resetDefaultHttpClient() {
@@ -35,10 +35,12 @@ import org.junit.runners.Suite.SuiteClasses;
     TestLocalClient.class ,
 
     TestRemoteLink.class ,
+    TestRemoteLinkBinary.class ,
     TestRemoteConnection.class ,
     TestRemoteClient.class ,
 
     TestZone.class ,
+    TestSnapshotBootstrap.class ,
     TestRestart.class ,
 
     TestManagedDatasetBuilder.class,
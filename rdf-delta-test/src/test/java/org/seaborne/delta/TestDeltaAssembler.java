@@ -17,6 +17,7 @@
 
 package org.seaborne.delta;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.seaborne.delta.DeltaConst.symDeltaClient;
@@ -38,6 +39,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.seaborne.delta.client.DeltaConnection;
+import org.seaborne.delta.client.SyncPolicy;
 import org.seaborne.delta.client.Zone;
 import org.seaborne.delta.client.assembler.ManagedDatasetBuilder;
 import org.seaborne.delta.link.DeltaLink;
@@ -132,6 +134,15 @@ public class TestDeltaAssembler {
         }
     }
 
+    @Test public void assembler_delta_4() {
+        // Sync policy settings.
+        Dataset dataset = (Dataset)AssemblerUtils.build("testing/delta-dataset-background.ttl", DatasetAssembler.getType());
+        DeltaConnection conn = connection(dataset);
+        assertEquals(SyncPolicy.BACKGROUND, conn.getSyncPolicy());
+        assertEquals(1000, conn.getSyncInterval());
+        assertEquals(500, conn.getMaxStaleness());
+    }
+
     private static DeltaConnection connection(Dataset dataset) {
         return (DeltaConnection)(dataset.getContext().get(symDeltaConnection));
     }
@@ -17,8 +17,21 @@
 
 package org.seaborne.delta;
 
+import static org.junit.Assert.*;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.jena.atlas.json.JSON;
 import org.apache.jena.atlas.logging.LogCtl;
+import org.apache.jena.riot.web.HttpNames;
+import org.apache.jena.web.HttpSC;
 import org.junit.*;
+import org.seaborne.delta.client.DeltaLinkHTTP;
+import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
 
 public class TestRemoteLink extends AbstractTestDeltaLink {
     @BeforeClass public static void setForTesting() { 
@@ -37,4 +50,159 @@ public class TestRemoteLink extends AbstractTestDeltaLink {
     @AfterClass  public static void afterClass()    { setup.afterClass(); }
     @Before public void beforeTest()                { setup.beforeTest(); }
     @After  public void afterTest()                 { setup.afterTest(); }
+
+    @Test
+    public void patch_fetch_stored() throws Exception {
+        DeltaLinkHTTP dLink = (DeltaLinkHTTP)getLink();
+        Id dsRef = dLink.newDataSource("patch_fetch_stored", "http://example/");
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        dLink.append(dsRef, patch1);
+        Id patchId = Id.fromNode(patch1.getId());
+
+        String url = dLink.getServerURL()+"patch_fetch_stored/"+patchId.asPlainString();
+        try ( CloseableHttpClient client = HttpClients.createDefault() ) {
+            HttpGet get = new HttpGet(url);
+            get.setHeader(HttpNames.hAccept, DeltaConst.contentTypePatchText);
+            try ( CloseableHttpResponse response = client.execute(get) ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                String etag = response.getFirstHeader(DeltaConst.hETag).getValue();
+                assertTrue(etag.contains(patchId.asPlainString()));
+                assertEquals(DeltaConst.cacheControlImmutable, response.getFirstHeader(HttpNames.hCacheControl).getValue());
+                // Sent as stored, with a length.
+                assertNotNull(response.getFirstHeader(HttpNames.hContentLengh));
+                RDFPatch patch = PatchFormat.TEXT.read(response.getEntity().getContent());
+                assertEquals(RDFPatchOps.str(patch1), RDFPatchOps.str(patch));
+            }
+        }
+    }
+
+    @Test
+    public void patch_fetch_conditional() throws Exception {
+        DeltaLinkHTTP dLink = (DeltaLinkHTTP)getLink();
+        Id dsRef = dLink.newDataSource("patch_fetch_conditional", "http://example/");
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        dLink.append(dsRef, patch1);
+        Id patchId = Id.fromNode(patch1.getId());
+
+        String base = dLink.getServerURL()+"patch_fetch_conditional/";
+        try ( CloseableHttpClient client = HttpClients.createDefault() ) {
+            // Canonical version URL: version numbers are reused if the log is recreated,
+            // so it must revalidate.
+            String etag;
+            try ( CloseableHttpResponse response = get(client, base+"version/1", null) ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                assertEquals(DeltaConst.cacheControlRevalidate, response.getFirstHeader(HttpNames.hCacheControl).getValue());
+                etag = response.getFirstHeader(DeltaConst.hETag).getValue();
+                assertTrue(etag.contains(patchId.asPlainString()));
+            }
+            // Short form version URL: must revalidate.
+            try ( CloseableHttpResponse response = get(client, base+"1", null) ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                assertEquals(DeltaConst.cacheControlRevalidate, response.getFirstHeader(HttpNames.hCacheControl).getValue());
+                assertEquals(etag, response.getFirstHeader(DeltaConst.hETag).getValue());
+            }
+            // Conditional GETs.
+            try ( CloseableHttpResponse response = get(client, base+"version/1", etag) ) {
+                assertEquals(HttpSC.NOT_MODIFIED_304, response.getStatusLine().getStatusCode());
+                assertNull(response.getEntity());
+            }
+            try ( CloseableHttpResponse response = get(client, base+"patch/"+patchId.asPlainString(), etag) ) {
+                assertEquals(HttpSC.NOT_MODIFIED_304, response.getStatusLine().getStatusCode());
+            }
+            try ( CloseableHttpResponse response = get(client, base+"patch/"+patchId.asPlainString(), "\"other\"") ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                // Id URL: immutable.
+                assertEquals(DeltaConst.cacheControlImmutable, response.getFirstHeader(HttpNames.hCacheControl).getValue());
+            }
+            // Canonical version URL keyed by the log id: immutable.
+            String byId = dLink.getServerURL()+dsRef.asPlainString()+"/";
+            try ( CloseableHttpResponse response = get(client, byId+"version/1", null) ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                assertEquals(DeltaConst.cacheControlImmutable, response.getFirstHeader(HttpNames.hCacheControl).getValue());
+                assertEquals(etag, response.getFirstHeader(DeltaConst.hETag).getValue());
+            }
+            // Short form keyed by the log id: must revalidate.
+            try ( CloseableHttpResponse response = get(client, byId+"1", null) ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                assertEquals(DeltaConst.cacheControlRevalidate, response.getFirstHeader(HttpNames.hCacheControl).getValue());
+            }
+            // Not yet committed.
+            try ( CloseableHttpResponse response = get(client, base+"version/2", null) ) {
+                assertEquals(HttpSC.NOT_FOUND_404, response.getStatusLine().getStatusCode());
+            }
+            try ( CloseableHttpResponse response = get(client, byId+"version/2", null) ) {
+                assertEquals(HttpSC.NOT_FOUND_404, response.getStatusLine().getStatusCode());
+            }
+            // No such patch: not found, even for a conditional GET.
+            String missing = Id.create().asPlainString();
+            try ( CloseableHttpResponse response = get(client, base+"patch/"+missing, "*") ) {
+                assertEquals(HttpSC.NOT_FOUND_404, response.getStatusLine().getStatusCode());
+            }
+            try ( CloseableHttpResponse response = get(client, base+"patch/"+missing, "\""+missing+"-"+PatchFormat.TEXT.getName()+"\"") ) {
+                assertEquals(HttpSC.NOT_FOUND_404, response.getStatusLine().getStatusCode());
+            }
+            try ( CloseableHttpResponse response = get(client, base+"version/2", "*") ) {
+                assertEquals(HttpSC.NOT_FOUND_404, response.getStatusLine().getStatusCode());
+            }
+        }
+    }
+
+    @Test
+    public void log_info_resource() throws Exception {
+        DeltaLinkHTTP dLink = (DeltaLinkHTTP)getLink();
+        Id dsRef = dLink.newDataSource("log_info_resource", "http://example/");
+        String url = dLink.getServerURL()+"log_info_resource/info";
+        try ( CloseableHttpClient client = HttpClients.createDefault() ) {
+            String etag;
+            try ( CloseableHttpResponse response = get(client, url, null) ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                assertEquals("public, max-age="+DeltaConst.LOG_INFO_MAX_AGE, response.getFirstHeader(HttpNames.hCacheControl).getValue());
+                etag = response.getFirstHeader(DeltaConst.hETag).getValue();
+                PatchLogInfo info = PatchLogInfo.fromJson(JSON.parse(response.getEntity().getContent()));
+                assertEquals(dsRef, info.getDataSourceId());
+            }
+            try ( CloseableHttpResponse response = get(client, url, etag) ) {
+                assertEquals(HttpSC.NOT_MODIFIED_304, response.getStatusLine().getStatusCode());
+            }
+            // Append: the info changes.
+            dLink.append(dsRef, RDFPatchOps.read(FILES_DIR+"/patch1.rdfp"));
+            try ( CloseableHttpResponse response = get(client, url, etag) ) {
+                assertEquals(HttpSC.OK_200, response.getStatusLine().getStatusCode());
+                assertNotEquals(etag, response.getFirstHeader(DeltaConst.hETag).getValue());
+                PatchLogInfo info = PatchLogInfo.fromJson(JSON.parse(response.getEntity().getContent()));
+                assertEquals(1, info.getMaxVersion().value());
+            }
+        }
+    }
+
+    @Test
+    public void link_pooled_connections() {
+        // More requests than pooled connections: connections are reused.
+        DeltaLink dLink = DeltaLinkHTTP.connect(((DeltaLinkHTTP)getLink()).getServerURL(), PatchFormat.TEXT, 2);
+        try {
+            Id dsRef = dLink.newDataSource("link_pooled_connections", "http://example/");
+            RDFPatch patch = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+            Version version = dLink.append(dsRef, patch);
+            assertEquals(1, version.value());
+            for ( int i = 0 ; i < 10 ; i++ ) {
+                assertNotNull(dLink.fetch(dsRef, version));
+                dLink.ping();
+            }
+            // Closing the link releases the connections; restarting it makes new ones.
+            dLink.close();
+            dLink.start();
+            dLink.ping();
+            assertNotNull(dLink.fetch(dsRef, version));
+        } finally {
+            dLink.close();
+        }
+    }
+
+    private static CloseableHttpResponse get(CloseableHttpClient client, String url, String ifNoneMatch) throws Exception {
+        HttpGet get = new HttpGet(url);
+        get.setHeader(HttpNames.hAccept, DeltaConst.contentTypePatchText);
+        if ( ifNoneMatch != null )
+            get.setHeader(DeltaConst.hIfNoneMatch, ifNoneMatch);
+        return client.execute(get);
+    }
 }
@@ -0,0 +1,69 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.jena.atlas.logging.LogCtl;
+import org.apache.jena.atlas.web.TypedInputStream;
+import org.apache.jena.riot.web.HttpOp;
+import org.junit.*;
+import org.seaborne.delta.client.DeltaLinkHTTP;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+/** {@link AbstractTestDeltaLink} over HTTP using binary RDF Patch. */
+public class TestRemoteLinkBinary extends AbstractTestDeltaLink {
+    @BeforeClass public static void setForTesting() { 
+        //LogCtl.setLog4j();
+        LogCtl.setJavaLogging("src/test/resources/logging.properties");
+    }
+    
+    static Setup.LinkSetup setup = new Setup.RemoteSetup(PatchFormat.BINARY);
+    
+    @Override
+    public Setup.LinkSetup getSetup() {
+        return setup;
+    }
+    
+    @BeforeClass public static void beforeClass()   { setup.beforeClass(); }
+    @AfterClass  public static void afterClass()    { setup.afterClass(); }
+    @Before public void beforeTest()                { setup.beforeTest(); }
+    @After  public void afterTest()                 { setup.afterTest(); }
+
+    @Test
+    public void patch_binary_fetch() {
+        DeltaLinkHTTP dLink = (DeltaLinkHTTP)getLink();
+        Id dsRef = dLink.newDataSource("patch_binary_fetch", "http://example/");
+        RDFPatch patch1 = RDFPatchOps.read(FILES_DIR+"/patch1.rdfp");
+        dLink.append(dsRef, patch1);
+
+        String url = dLink.getServerURL()+"patch_binary_fetch/1";
+        try ( TypedInputStream in = HttpOp.execHttpGet(url, DeltaConst.contentTypePatchBinary) ) {
+            assertEquals(DeltaConst.contentTypePatchBinary, in.getContentType());
+            RDFPatch patch = PatchFormat.BINARY.read(in);
+            assertEquals(RDFPatchOps.str(patch1), RDFPatchOps.str(patch));
+        }
+        // Text is still available.
+        try ( TypedInputStream in = HttpOp.execHttpGet(url, DeltaConst.contentTypePatchText) ) {
+            assertEquals(DeltaConst.contentTypePatchText, in.getContentType());
+            RDFPatch patch = PatchFormat.TEXT.read(in);
+            assertEquals(RDFPatchOps.str(patch1), RDFPatchOps.str(patch));
+        }
+    }
+}
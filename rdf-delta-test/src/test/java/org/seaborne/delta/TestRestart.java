@@ -21,6 +21,7 @@ import static org.junit.Assert.*;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CompletionException;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.FileOps;
@@ -33,10 +34,12 @@ import org.junit.*;
 import org.seaborne.delta.client.*;
 import org.seaborne.delta.lib.IOX;
 import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.delta.link.DeltaLinkWrapper;
 import org.seaborne.delta.server.local.DeltaLinkLocal;
 import org.seaborne.delta.server.local.LocalServer;
 import org.seaborne.delta.server.local.LocalServers;
 import org.seaborne.delta.server.local.filestore.FileStore;
+import org.seaborne.patch.RDFPatch;
 
 // There are restart tests in AbstractTestsDeltaConnection as well.
 // Here we are concerned with different ways to restart on the client side
@@ -236,6 +239,41 @@ public class TestRestart {
         test(dsRef, deltaClient, 1);
     }
     
+    @Test public void restart_async_outbox() {
+        // Patches committed locally in asynchronous mode, and not sent, are sent after a restart.
+        setupEmpty();
+        String NAME = "restart_async_outbox";
+        Id dsRef = deltaClient.newDataSource(NAME, "http://example/"+NAME);
+        // A patch log that refuses appends: the patch stays in the outbox.
+        DeltaLink refuseAppend = new DeltaLinkWrapper(deltaLink) {
+            @Override
+            public Version append(Id dsRef, RDFPatch patch) { throw new DeltaBadRequestException("No appends"); }
+        };
+        DeltaClient dClient = DeltaClient.create(zone, refuseAppend);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.NONE);
+        try(DeltaConnection dConn = dClient.get(dsRef)) {
+            dConn.setAsyncCommit(true);
+            DatasetGraph dsg  = dConn.getDatasetGraph();
+            Txn.executeWrite(dsg, ()->dsg.add(quad()));
+            try {
+                dConn.lastCommit().join();
+                fail("Expected the patch to be rejected");
+            } catch (CompletionException ex) {}
+            assertEquals(1, dConn.pendingCommits());
+        }
+        assertEquals(Version.INIT, deltaLink.getCurrentVersion(dsRef));
+
+        shutdown();
+        setup();
+
+        deltaClient.connect(dsRef, SyncPolicy.NONE);
+        try(DeltaConnection dConn = deltaClient.get(dsRef)) {
+            assertTrue(dConn.awaitCommits(10*1000));
+            assertEquals(version_1, dConn.getLocalVersion());
+        }
+        assertEquals(version_1, deltaLink.getCurrentVersion(dsRef));
+    }
+
     @Test public void restart_02() {
         setupEmpty();
         String NAME = "restart_02";
@@ -0,0 +1,162 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.atlas.logging.LogCtl;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.system.Txn;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.seaborne.delta.client.*;
+import org.seaborne.delta.lib.IOX;
+import org.seaborne.delta.lib.LibX;
+import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.delta.link.DeltaLinkWrapper;
+import org.seaborne.delta.server.http.DeltaServer;
+import org.seaborne.delta.server.local.*;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchConst;
+import org.seaborne.patch.RDFPatchOps;
+
+/** A new replica loads the latest snapshot from the patch log server, then plays the patches after it. */
+public class TestSnapshotBootstrap {
+    static String DIR_ZONE = "target/ZoneSnapshot";
+
+    private Path snapshotDir;
+    private LocalServer localServer;
+    private DeltaLinkLocal localLink;
+    private DeltaServer server;
+    private DeltaLink dLink;
+    private Zone zone;
+    private Id previous = null;
+
+    @BeforeClass public static void beforeClass() {
+        LogCtl.setJavaLogging("src/test/resources/logging.properties");
+    }
+
+    @Before public void before() throws Exception {
+        DPS.resetSystem();
+        snapshotDir = Files.createTempDirectory("snapshots");
+        LocalServerConfig config = LocalServerConfig.create()
+            .setLogProvider(DPS.PatchStoreMemProvider)
+            .setProperty(DeltaConst.pDeltaSnapshotDir, snapshotDir.toString())
+            .setProperty(DeltaConst.pDeltaSnapshotInterval, "0")
+            .build();
+        localServer = LocalServer.create(config);
+        localLink = (DeltaLinkLocal)DeltaLinkLocal.connect(localServer);
+        int port = LibX.choosePort();
+        server = DeltaServer.create(port, localLink);
+        server.start();
+        dLink = DeltaLinkHTTP.connect("http://localhost:"+port+"/");
+        FileOps.ensureDir(DIR_ZONE);
+        FileOps.clearAll(DIR_ZONE);
+        zone = Zone.connect(DIR_ZONE);
+    }
+
+    @After public void after() {
+        zone.shutdown();
+        Zone.clearZoneCache();
+        dLink.close();
+        server.stop();
+        LocalServer.release(localServer);
+        IOX.deleteAll(snapshotDir);
+    }
+
+    private static Node node(String x) { return NodeFactory.createURI("http://example/"+x); }
+
+    private void add(Id dsRef, int i) {
+        Id id = Id.create();
+        RDFPatch patch = RDFPatchOps.build(c->{
+            c.header(RDFPatchConst.ID, id.asNode());
+            if ( previous != null )
+                c.header(RDFPatchConst.PREV, previous.asNode());
+            c.txnBegin();
+            c.add(null, node("s"+i), node("p"), node("o"));
+            c.txnCommit();
+        });
+        dLink.append(dsRef, patch);
+        previous = id;
+    }
+
+    @Test public void snapshot_http() {
+        Id dsRef = dLink.newDataSource("snapshot_http", "http://example/snapshot_http");
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        assertNull(dLink.readSnapshot(dsRef, StreamRDFLib.dataset(dsg)));
+
+        add(dsRef, 1);
+        add(dsRef, 2);
+        localLink.createSnapshot(dsRef);
+        PatchInfo info = dLink.readSnapshot(dsRef, StreamRDFLib.dataset(dsg));
+        assertNotNull(info);
+        assertEquals(Version.create(2), info.getVersion());
+        assertEquals(previous, info.getPatch());
+        assertEquals(2, dsg.getDefaultGraph().size());
+    }
+
+    @Test public void snapshot_bootstrap() {
+        Id dsRef = dLink.newDataSource("snapshot_bootstrap", "http://example/snapshot_bootstrap");
+        add(dsRef, 1);
+        add(dsRef, 2);
+        add(dsRef, 3);
+        localLink.createSnapshot(dsRef);
+        add(dsRef, 4);
+
+        // Record the versions patches are played from.
+        List<Version> starts = new ArrayList<>();
+        DeltaLink recording = new DeltaLinkWrapper(dLink) {
+            @Override
+            public void applyPatches(Id dsRef, Version start, Version finish, RDFChanges changes) {
+                starts.add(start);
+                super.applyPatches(dsRef, start, finish, changes);
+            }
+            @Override
+            public void fetch(Id dsRef, Version start, Version finish, Consumer<RDFPatch> action) {
+                starts.add(start);
+                super.fetch(dsRef, start, finish, action);
+            }
+        };
+        DeltaClient dClient = DeltaClient.create(zone, recording);
+        dClient.register(dsRef, LocalStorageType.MEM, SyncPolicy.NONE);
+        DeltaConnection dConn = dClient.get(dsRef);
+        dConn.sync();
+
+        assertEquals(Version.create(4), dConn.getLocalVersion());
+        assertEquals(previous, dConn.getLatestPatchId());
+        // Only the patch after the snapshot was played.
+        assertEquals(1, starts.size());
+        assertEquals(Version.create(4), starts.get(0));
+        DatasetGraph dsg = dConn.getDatasetGraph();
+        Txn.executeRead(dsg, ()->assertEquals(4, dsg.getDefaultGraph().size()));
+    }
+}
@@ -27,6 +27,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestDeltaZk.class
     , TestDeltaZkFuseki.class
+    , TestDeltaZkBlob.class
     })
 
 public class TS_DeltaZk {
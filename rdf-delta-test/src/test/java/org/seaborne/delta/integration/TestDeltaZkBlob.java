@@ -0,0 +1,119 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.delta.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.atlas.lib.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seaborne.delta.DeltaConst;
+import org.seaborne.delta.Id;
+import org.seaborne.delta.Version;
+import org.seaborne.delta.client.DeltaLinkHTTP;
+import org.seaborne.delta.link.DeltaLink;
+import org.seaborne.delta.server.http.DeltaServer;
+import org.seaborne.delta.server.local.DPS;
+import org.seaborne.delta.server.local.LocalServerConfig;
+import org.seaborne.delta.server.local.PatchCache;
+import org.seaborne.delta.systemtest.Matrix;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchOps;
+
+/** Two patch servers with patch bodies in local files, sharing a ZooKeeper index. */
+public class TestDeltaZkBlob {
+    static { DPS.init(); }
+
+    private DeltaServer deltaServer1 = null;
+    private DeltaServer deltaServer2 = null;
+    private String deltaServerURL1 = null;
+    private String deltaServerURL2 = null;
+    private Path dir1 = null;
+    private Path dir2 = null;
+
+    @Before public void before() throws IOException {
+        String connectionString = Matrix.startZooJVM();
+        dir1 = Files.createTempDirectory("blobs1");
+        dir2 = Files.createTempDirectory("blobs2");
+        int port1 = Matrix.choosePort();
+        deltaServerURL1 = "http://localhost:"+port1+"/";
+        deltaServer1 = startDeltaServer(port1, connectionString, dir1, deltaServerURL1);
+        int port2 = Matrix.choosePort();
+        deltaServerURL2 = "http://localhost:"+port2+"/";
+        deltaServer2 = startDeltaServer(port2, connectionString, dir2, deltaServerURL2);
+    }
+
+    private static DeltaServer startDeltaServer(int port, String connectionString, Path dir, String url) {
+        LocalServerConfig config = LocalServerConfig.create()
+            .setLogProvider(DPS.PatchStoreZkBlobProvider)
+            .setProperty(DeltaConst.pDeltaZk, connectionString)
+            .setProperty(DeltaConst.pDeltaBlobDir, dir.toString())
+            .setProperty(DeltaConst.pDeltaBlobURL, url)
+            .build();
+        Pair<DeltaLink, DeltaServer> p = Matrix.startDeltaServer(port, config);
+        return p.getRight();
+    }
+
+    @After public void after() {
+        if ( deltaServer1 != null )
+            deltaServer1.stop();
+        if ( deltaServer2 != null )
+            deltaServer2.stop();
+        Matrix.teardown();
+        FileOps.clearAll(dir1.toString());
+        FileOps.delete(dir1.toString());
+        FileOps.clearAll(dir2.toString());
+        FileOps.delete(dir2.toString());
+    }
+
+    // Append through one server, fetch through the other.
+    @Test
+    public void zkBlob_fetch_from_peer() {
+        String NAME = "ABC";
+        DeltaLink dLink1 = DeltaLinkHTTP.connect(deltaServerURL1);
+        DeltaLink dLink2 = DeltaLinkHTTP.connect(deltaServerURL2);
+
+        Id logId = dLink1.newDataSource(NAME, "http://example/abc");
+        Matrix.await(()->dLink2.existsByName(NAME));
+
+        RDFPatch patch = RDFPatchOps.read("testing/data.rdfp");
+        Version ver = dLink1.append(logId, patch);
+        // The patch body was copied to the other server before the append completed.
+        File[] copies = dir2.resolve(NAME).toFile().listFiles();
+        assertEquals(1, copies.length);
+        // Remove the copy to fetch from the peer.
+        assertTrue(copies[0].delete());
+        // Both servers are in this JVM and share the patch cache.
+        PatchCache.get().clear();
+
+        RDFPatch patch2 = dLink2.fetch(logId, ver);
+        assertNotNull(patch2);
+        assertEquals(patch.getId(), patch2.getId());
+        // The patch body is now held by both servers.
+        assertEquals(1, dir2.resolve(NAME).toFile().list().length);
+    }
+}
@@ -34,14 +34,18 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.thrift.TRDF;
 import org.apache.jena.shared.uuid.JenaUUID;
 import org.apache.jena.sparql.core.DatasetGraph;
+import org.seaborne.patch.binary.RDFChangesWriterBinary;
+import org.seaborne.patch.binary.RDFPatchReaderBinary;
 import org.seaborne.patch.changes.PatchSummary;
 import org.seaborne.patch.changes.RDFChangesApply;
 import org.seaborne.patch.changes.RDFChangesApplyGraph;
 import org.seaborne.patch.changes.RDFChangesCollector;
 import org.seaborne.patch.changes.RDFChangesCounter;
 import org.seaborne.patch.changes.RDFChangesLog;
+import org.seaborne.patch.changes.RDFChangesSquash;
 import org.seaborne.patch.changes.RDFChangesWriter;
 import org.seaborne.patch.system.DatasetGraphChanges;
 import org.seaborne.patch.system.GraphChanges;
@@ -122,7 +126,7 @@ public class RDFPatchOps {
      *  to an external resource like an {@link InputStream}.
      */
     public static RDFPatch collect(RDFPatch patch) {
-        if ( patch instanceof RDFChangesCollector )
+        if ( patch instanceof RDFChangesCollector.RDFPatchStored )
             return patch;
         return build( x-> patch.apply(x));
     }
@@ -136,6 +140,16 @@ public class RDFPatchOps {
         return x.getRDFPatch(); 
     }
     
+    /**
+     * Merge patches, in order, into a single patch of the net changes.
+     * See {@link RDFChangesSquash}.
+     */
+    public static RDFPatch squash(Iterable<RDFPatch> patches) {
+        RDFChangesSquash x = new RDFChangesSquash();
+        patches.forEach(p->p.apply(x));
+        return x.getRDFPatch();
+    }
+
     /** RDF data file to patch.
      * The patch has no Id or Previous - see {@link #withHeader}.
      */
@@ -192,6 +206,24 @@ public class RDFPatchOps {
         } catch (IOException ex) { IO.exception(ex); return null; }
     }
 
+    /**
+     * Read a sequence of {@link RDFPatch}es written one after another, passing each to
+     * {@code action} in order. Each patch must start with a header.
+     * Throws {@link PatchException} on patch parse error.
+     */
+    public static void readPatches(InputStream input, Consumer<RDFPatch> action) {
+        RDFPatchReaderText pr = new RDFPatchReaderText(input);
+        pr.applyPatches(action);
+    }
+
+    /**
+     * Read an {@link RDFPatch} in the binary format.
+     * Throws {@link PatchException} on patch parse error.
+     */
+    public static RDFPatch readBinary(InputStream input) {
+        return RDFPatchReaderBinary.read(input);
+    }
+
     /** Read an {@link RDFPatch} header. */
     public static PatchHeader readHeader(InputStream input) {
         return RDFPatchReaderText.readerHeader(input);
@@ -266,6 +298,32 @@ public class RDFPatchOps {
         tw.flush();
     }
 
+    /** Write an {@link RDFPatch} in the binary format. */
+    public static void writeBinary(OutputStream out, RDFPatch patch) {
+        RDFChanges c = binaryWriter(out);
+        c.start();
+        patch.apply(c);
+        c.finish();
+    }
+
+    /**
+     * An {@link RDFChanges} that writes RDFPatch in binary format to an {@code OutputStream}.
+     * Output is flushed by {@link RDFChanges#finish}.
+     */
+    public static RDFChanges binaryWriter(OutputStream output) {
+        return new RDFChangesWriterBinary(TRDF.protocol(output));
+    }
+
+    /**
+     * An {@link RDFChanges} that writes RDFPatch in binary format to an {@code OutputStream},
+     * with or without compression of the terms of data rows (see {@link RDFChangesWriterBinary}).
+     * Compressed patches can only be read by readers that understand the compression.
+     * Output is flushed by {@link RDFChanges#finish}.
+     */
+    public static RDFChanges binaryWriter(OutputStream output, boolean compress) {
+        return new RDFChangesWriterBinary(TRDF.protocol(output), compress);
+    }
+
     /** Write an {@link StreamRDF} out in {@link RDFPatch} format.
      *  {@link StreamRDF#start} and {@link StreamRDF#finish}
      *  must be called; these bracket the patch in transaction markers
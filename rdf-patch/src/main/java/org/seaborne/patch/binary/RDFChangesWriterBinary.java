@@ -25,6 +25,7 @@ import org.apache.jena.atlas.io.IO;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.datatypes.xsd.impl.RDFLangString;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.riot.thrift.TRDF;
 import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TProtocol;
@@ -37,6 +38,14 @@ import org.seaborne.patch.changes.RDFChangesWriter;
 /**
  * Write RDF PAtch in binary (thrift encoded).
  * <p>
+ * Optionally, the terms of data rows are compressed: terms that repeat the term in the
+ * same position of the previous row are written as {@code RDF_REPEAT}, and IRIs in a
+ * namespace already seen in the patch are written as prefix names (see
+ * {@link TermDictionary}). Each compressed patch starts with a header row marking it
+ * as compressed, which {@link RDFPatchReaderBinary} reads and does not pass on.
+ * Readers from earlier releases can not read compressed patches, so compression is
+ * off unless asked for.
+ * <p>
  * This class is not thread safe.
  *
  * @see RDFChangesWriter
@@ -66,8 +75,31 @@ public class RDFChangesWriterBinary implements RDFChanges {
     private final RDF_Patch_Row row = new RDF_Patch_Row();
 
     private final TProtocol protocol;
+    // Null for no compression.
+    private final TermDictionary dict;
+
+    /** Binary writer, without compression. */
     public RDFChangesWriterBinary(TProtocol protocol) {
+        this(protocol, false);
+    }
+
+    /** Binary writer, with or without compression of the terms in data rows. */
+    public RDFChangesWriterBinary(TProtocol protocol, boolean compress) {
         this.protocol = protocol;
+        this.dict = compress ? new TermDictionary() : null;
+    }
+
+    private void startRow(boolean isHeader) {
+        if ( dict != null && dict.row(isHeader) ) {
+            // First row of a patch: mark it as compressed.
+            header.clear();
+            tv.clear();
+            header.setName(TermDictionary.HEADER);
+            toThrift(NodeFactory.createLiteral(TermDictionary.VERSION), tv);
+            header.setValue(tv);
+            row.setHeader(header);
+            write();
+        }
     }
 
     private void write() {
@@ -86,6 +118,7 @@ public class RDFChangesWriterBinary implements RDFChanges {
 
     @Override
     public void header(String field, Node value) {
+        startRow(true);
         header.clear();
         tv.clear();
         header.setName(field);
@@ -97,6 +130,7 @@ public class RDFChangesWriterBinary implements RDFChanges {
 
     @Override
     public void add(Node g, Node s, Node p, Node o) {
+        startRow(false);
         dataAdd.clear();
         set(g,s,p,o);
         dataAdd.setS(ts);
@@ -109,6 +143,13 @@ public class RDFChangesWriterBinary implements RDFChanges {
     }
 
     private void set(Node g, Node s, Node p, Node o) {
+        if ( dict != null ) {
+            ts.clear(); dict.encode(TermDictionary.SLOT_S, s, ts);
+            tp.clear(); dict.encode(TermDictionary.SLOT_P, p, tp);
+            to.clear(); dict.encode(TermDictionary.SLOT_O, o, to);
+            tg.clear(); dict.encode(TermDictionary.SLOT_G, g, tg);
+            return;
+        }
         ts.clear(); RDFChangesWriterBinary.toThrift(s, ts);
         tp.clear(); RDFChangesWriterBinary.toThrift(p, tp);
         to.clear(); RDFChangesWriterBinary.toThrift(o, to);
@@ -119,6 +160,7 @@ public class RDFChangesWriterBinary implements RDFChanges {
 
     @Override
     public void delete(Node g, Node s, Node p, Node o) {
+        startRow(false);
         dataDel.clear();
         set(g,s,p,o);
         dataDel.setS(ts);
@@ -132,6 +174,7 @@ public class RDFChangesWriterBinary implements RDFChanges {
 
     @Override
     public void addPrefix(Node gn, String prefix, String uriStr) {
+        startRow(false);
         prefixAdd.clear();
         if ( gn != null ) {
             tv.clear();
@@ -146,6 +189,7 @@ public class RDFChangesWriterBinary implements RDFChanges {
 
     @Override
     public void deletePrefix(Node gn, String prefix) {
+        startRow(false);
         prefixDel.clear();
         if ( gn != null ) {
             tv.clear();
@@ -159,24 +203,28 @@ public class RDFChangesWriterBinary implements RDFChanges {
 
     @Override
     public void txnBegin() {
+        startRow(false);
         row.setTxn(Transaction.TX);
         write();
     }
 
     @Override
     public void txnCommit() {
+        startRow(false);
         row.setTxn(Transaction.TC);
         write();
     }
 
     @Override
     public void txnAbort() {
+        startRow(false);
         row.setTxn(Transaction.TA);
         write();
     }
 
     @Override
     public void segment() {
+        startRow(false);
         row.setTxn(Transaction.Segment);
         write();
     }
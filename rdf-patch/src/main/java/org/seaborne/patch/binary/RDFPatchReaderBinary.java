@@ -20,6 +20,7 @@ package org.seaborne.patch.binary;
 import java.io.InputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.jena.datatypes.RDFDatatype;
 import org.apache.jena.graph.Node;
@@ -44,9 +45,12 @@ import org.seaborne.patch.binary.thrift.RDF_Patch_Row;
 import org.seaborne.patch.binary.thrift.RDF_Term;
 import org.seaborne.patch.binary.thrift.Transaction;
 import org.seaborne.patch.changes.RDFChangesCollector;
+import org.seaborne.patch.changes.RDFChangesSplitter;
 
 /**
  * Read a binary patch.
+ * Data rows of patches marked as written with term compression (see
+ * {@link RDFChangesWriterBinary}) are expanded.
  * @see PatchProcessor
  */
 public class RDFPatchReaderBinary implements PatchProcessor {
@@ -109,6 +113,8 @@ public class RDFPatchReaderBinary implements PatchProcessor {
 
             if ( row.isSetHeader() ) {
                 Patch_Header h = row.getHeader();
+                if ( TermDictionary.HEADER.equals(h.getName()) )
+                    continue;
                 Node n = RDFPatchReaderBinary.fromThrift(h.getValue());
                 header.put(h.getName(), n);
                 continue;
@@ -126,6 +132,7 @@ public class RDFPatchReaderBinary implements PatchProcessor {
 
     public static void read(TProtocol protocol, RDFChanges changes) {
         RDF_Patch_Row row = new RDF_Patch_Row();
+        TermDictionary dict = new TermDictionary();
         changes.start();
         for (;;) {
             row.clear();
@@ -141,38 +148,68 @@ public class RDFPatchReaderBinary implements PatchProcessor {
                 throw new PatchException("Thrift exception", e);
             }
 
-            dispatch(row, changes);
+            dispatch(row, changes, dict);
         }
     }
 
-    private static void dispatch(RDF_Patch_Row row, RDFChanges changes) {
+    /**
+     * Read a sequence of patches, one after another in the same input, passing each
+     * patch to the {@code action} as soon as it has been read.
+     * <p>
+     * Patches start with their header. A header row that follows a non-header row,
+     * or a second "id" header row, starts the next patch (see {@link RDFChangesSplitter}).
+     * Patches without a header can not be split apart.
+     */
+    public static void readPatches(InputStream input, Consumer<RDFPatch> action) {
+        TProtocol protocol = TRDF.protocol(input);
+        RDF_Patch_Row row = new RDF_Patch_Row();
+        TermDictionary dict = new TermDictionary();
+        RDFChangesSplitter splitter = new RDFChangesSplitter(action);
+        for (;;) {
+            row.clear();
+            try { row.read(protocol) ; }
+            catch (TTransportException e) {
+                if ( e.getType() == TTransportException.END_OF_FILE )
+                    break;
+                throw new PatchException("Thrift exception", e);
+            }
+            catch (TException e) {
+                throw new PatchException("Thrift exception", e);
+            }
+            dispatch(row, splitter, dict);
+        }
+        splitter.finish();
+    }
+
+    private static void dispatch(RDF_Patch_Row row, RDFChanges changes, TermDictionary dict) {
+        dict.row(row.isSetHeader());
         if ( row.isSetHeader() ) {
             Patch_Header h = row.getHeader();
             Node n = RDFPatchReaderBinary.fromThrift(h.getValue());
+            if ( TermDictionary.HEADER.equals(h.getName()) ) {
+                dict.compression(n.isLiteral() ? n.getLiteralLexicalForm() : n.toString());
+                return;
+            }
             changes.header(h.getName(), n);
             return;
         }
 
         if ( row.isSetDataAdd() ) {
             Patch_Data_Add add = row.getDataAdd();
-            Node s = RDFPatchReaderBinary.fromThrift(add.getS());
-            Node p = RDFPatchReaderBinary.fromThrift(add.getP());
-            Node o = RDFPatchReaderBinary.fromThrift(add.getO());
-            Node g = null;
-            if ( add.isSetG() )
-                g = RDFPatchReaderBinary.fromThrift(add.getG());
+            Node s = dict.decode(TermDictionary.SLOT_S, add.getS());
+            Node p = dict.decode(TermDictionary.SLOT_P, add.getP());
+            Node o = dict.decode(TermDictionary.SLOT_O, add.getO());
+            Node g = dict.decode(TermDictionary.SLOT_G, add.isSetG() ? add.getG() : null);
             changes.add(g, s, p, o);
             return;
         }
 
         if ( row.isSetDataDel() ) {
             Patch_Data_Del del = row.getDataDel();
-            Node s = RDFPatchReaderBinary.fromThrift(del.getS());
-            Node p = RDFPatchReaderBinary.fromThrift(del.getP());
-            Node o = RDFPatchReaderBinary.fromThrift(del.getO());
-            Node g = null;
-            if ( del.isSetG() )
-                g = RDFPatchReaderBinary.fromThrift(del.getG());
+            Node s = dict.decode(TermDictionary.SLOT_S, del.getS());
+            Node p = dict.decode(TermDictionary.SLOT_P, del.getP());
+            Node o = dict.decode(TermDictionary.SLOT_O, del.getO());
+            Node g = dict.decode(TermDictionary.SLOT_G, del.isSetG() ? del.getG() : null);
             changes.delete(g, s, p, o);
             return;
         }
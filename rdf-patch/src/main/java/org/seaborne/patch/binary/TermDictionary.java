@@ -0,0 +1,224 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.patch.binary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.seaborne.patch.PatchException;
+import org.seaborne.patch.binary.thrift.RDF_Literal;
+import org.seaborne.patch.binary.thrift.RDF_PrefixName;
+import org.seaborne.patch.binary.thrift.RDF_REPEAT;
+import org.seaborne.patch.binary.thrift.RDF_Term;
+
+/**
+ * Compression state for the terms of data rows in a binary patch. The writer and the
+ * reader each keep one of these and update it in the same way, so no dictionary is sent.
+ * <ul>
+ * <li>A term that is the same as the term in the same position (S, P, O or G) of the
+ * previous data row is written as {@code RDF_REPEAT}.
+ * <li>IRIs, and literal datatypes, are split into namespace and local name. The first
+ * time a namespace is seen, the IRI is written in full and the namespace is given the
+ * next key in the dictionary. After that, IRIs in the namespace are written as
+ * {@code RDF_PrefixName} with the key as the prefix.
+ * </ul>
+ * The state is reset at the start of each patch: a header row after a non-header row.
+ * Header rows and prefix rows are written without compression.
+ * <p>
+ * The writer starts each compressed patch with a {@link #HEADER} row, giving the
+ * {@link #VERSION} of the compression. A reader only expands the terms of a patch that
+ * starts with one; in any other patch, a compressed term is an error.
+ */
+final class TermDictionary {
+    /*package*/ static final int SLOT_S = 0;
+    /*package*/ static final int SLOT_P = 1;
+    /*package*/ static final int SLOT_O = 2;
+    /*package*/ static final int SLOT_G = 3;
+
+    /** Header row that marks a patch as compressed; it is not passed on by the reader. */
+    /*package*/ static final String HEADER = "binary:compression";
+    /** The compression written by this class. */
+    /*package*/ static final String VERSION = "1";
+
+    // Limit on the dictionary size, to bound memory for very large patches.
+    private static final int MAX_ENTRIES = 16*1024;
+    // Namespaces shorter than this are not worth an entry.
+    private static final int MIN_NAMESPACE = 8;
+    private static final RDF_REPEAT REPEAT = new RDF_REPEAT();
+
+    private final Node[] previous = new Node[4];
+    private final Map<String, String> keys = new HashMap<>();
+    private final List<String> namespaces = new ArrayList<>();
+    private boolean started = false;
+    private boolean inBody = false;
+    // Reading: whether the current patch was marked as compressed.
+    private boolean compressed = false;
+
+    /**
+     * Note the kind of the next row, resetting the state at the start of a patch.
+     * Return true if the row is the first row of a patch.
+     */
+    boolean row(boolean isHeader) {
+        boolean newPatch = ! started || ( isHeader && inBody );
+        if ( isHeader && inBody )
+            reset();
+        started = true;
+        inBody = ! isHeader;
+        return newPatch;
+    }
+
+    void reset() {
+        for ( int i = 0 ; i < previous.length ; i++ )
+            previous[i] = null;
+        keys.clear();
+        namespaces.clear();
+        inBody = false;
+        compressed = false;
+    }
+
+    /** Reading: the current patch has a {@link #HEADER} row with this value. */
+    void compression(String version) {
+        if ( ! VERSION.equals(version) )
+            throw new PatchException("Unsupported binary patch compression: '"+version+"'");
+        compressed = true;
+    }
+
+    /** Encode a term of a data row. */
+    void encode(int slot, Node node, RDF_Term term) {
+        Node prev = previous[slot];
+        previous[slot] = node;
+        if ( node == null )
+            return;
+        if ( node.equals(prev) ) {
+            term.setRepeat(REPEAT);
+            return;
+        }
+        if ( node.isURI() ) {
+            RDF_PrefixName pn = prefixName(node.getURI());
+            if ( pn != null ) {
+                term.setPrefixName(pn);
+                return;
+            }
+        }
+        RDFChangesWriterBinary.toThrift(node, term);
+        if ( term.isSetLiteral() && term.getLiteral().isSetDatatype() ) {
+            RDF_Literal literal = term.getLiteral();
+            RDF_PrefixName pn = prefixName(literal.getDatatype());
+            if ( pn != null ) {
+                literal.unsetDatatype();
+                literal.setDtPrefix(pn);
+            }
+        }
+    }
+
+    /** Decode a term of a data row. */
+    Node decode(int slot, RDF_Term term) {
+        Node node = decode$(slot, term);
+        previous[slot] = node;
+        return node;
+    }
+
+    private Node decode$(int slot, RDF_Term term) {
+        if ( term == null )
+            return null;
+        if ( ! compressed )
+            return RDFPatchReaderBinary.fromThrift(term);
+        if ( term.isSetRepeat() ) {
+            if ( previous[slot] == null )
+                throw new PatchException("Repeat with no previous term");
+            return previous[slot];
+        }
+        if ( term.isSetPrefixName() )
+            return NodeFactory.createURI(expand(term.getPrefixName()));
+        if ( term.isSetIri() ) {
+            String iri = term.getIri().getIri();
+            register(iri);
+            return NodeFactory.createURI(iri);
+        }
+        if ( term.isSetLiteral() ) {
+            RDF_Literal lit = term.getLiteral();
+            String dtString = null;
+            if ( lit.isSetDtPrefix() )
+                dtString = expand(lit.getDtPrefix());
+            else if ( lit.isSetDatatype() ) {
+                dtString = lit.getDatatype();
+                register(dtString);
+            }
+            RDFDatatype dt = NodeFactory.getType(dtString);
+            return NodeFactory.createLiteral(lit.getLex(), lit.getLangtag(), dt);
+        }
+        return RDFPatchReaderBinary.fromThrift(term);
+    }
+
+    /**
+     * Return the prefix name for an IRI in a known namespace; otherwise, register the
+     * namespace and return null so the IRI is written in full.
+     */
+    private RDF_PrefixName prefixName(String iri) {
+        int idx = splitPoint(iri);
+        if ( idx < 0 )
+            return null;
+        String ns = iri.substring(0, idx);
+        String key = keys.get(ns);
+        if ( key == null ) {
+            register(ns);
+            return null;
+        }
+        return new RDF_PrefixName(key, iri.substring(idx));
+    }
+
+    /** Register the namespace of a full IRI read from a patch. */
+    private void register(String iri) {
+        int idx = splitPoint(iri);
+        if ( idx < 0 )
+            return;
+        addNamespace(iri.substring(0, idx));
+    }
+
+    private void addNamespace(String ns) {
+        if ( namespaces.size() >= MAX_ENTRIES || keys.containsKey(ns) )
+            return;
+        keys.put(ns, Integer.toString(namespaces.size(), Character.MAX_RADIX));
+        namespaces.add(ns);
+    }
+
+    private String expand(RDF_PrefixName pn) {
+        int idx;
+        try {
+            idx = Integer.parseInt(pn.getPrefix(), Character.MAX_RADIX);
+        } catch (NumberFormatException ex) {
+            throw new PatchException("Bad prefix name key: "+pn.getPrefix());
+        }
+        if ( idx < 0 || idx >= namespaces.size() )
+            throw new PatchException("Unknown prefix name key: "+pn.getPrefix());
+        return namespaces.get(idx)+pn.getLocalName();
+    }
+
+    /** Index after the last '/', '#' or ':' of an IRI, or -1 if the namespace would be too short. */
+    private static int splitPoint(String iri) {
+        int idx = Math.max(iri.lastIndexOf('/'), Math.max(iri.lastIndexOf('#'), iri.lastIndexOf(':')));
+        if ( idx+1 < MIN_NAMESPACE )
+            return -1;
+        return idx+1;
+    }
+}
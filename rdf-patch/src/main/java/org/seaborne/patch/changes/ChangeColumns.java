@@ -0,0 +1,294 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.patch.changes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.items.*;
+
+/**
+ * Compact, columnar storage for a sequence of changes.
+ * <p>
+ * Each change is a one byte operation code. Its arguments are {@code int} indexes into
+ * a table of the RDF terms and strings used, each distinct term being held once. There
+ * are no per-change objects.
+ * <p>
+ * A {@code ChangeColumns} is filled as an {@link RDFChanges}; {@link #freeze} takes an
+ * immutable copy, trimmed to size.
+ */
+/*package*/ final class ChangeColumns implements RDFChanges {
+    private static final byte ADD           = 1;
+    private static final byte DELETE        = 2;
+    private static final byte ADD_PREFIX    = 3;
+    private static final byte DELETE_PREFIX = 4;
+    private static final byte TXN_BEGIN     = 5;
+    private static final byte TXN_COMMIT    = 6;
+    private static final byte TXN_ABORT     = 7;
+    private static final byte SEGMENT       = 8;
+    private static final byte HEADER        = 9;
+
+    // Argument for a null term (default graph, no prefix graph).
+    private static final int NONE = -1;
+
+    private byte[] ops;
+    private int opCount;
+    private int[] args;
+    private int argCount;
+    private Object[] terms;
+    private int termCount;
+    // Only while being built.
+    private Map<Object, Integer> termIndex;
+
+    /** An empty {@code ChangeColumns}, to be filled. */
+    ChangeColumns() {
+        clear();
+    }
+
+    private ChangeColumns(byte[] ops, int[] args, Object[] terms) {
+        this.ops = ops;
+        this.opCount = ops.length;
+        this.args = args;
+        this.argCount = args.length;
+        this.terms = terms;
+        this.termCount = terms.length;
+        this.termIndex = null;
+    }
+
+    /** Remove all changes. */
+    void clear() {
+        ops = new byte[16];
+        opCount = 0;
+        args = new int[64];
+        argCount = 0;
+        terms = new Object[16];
+        termCount = 0;
+        termIndex = new HashMap<>();
+    }
+
+    /** Return an immutable copy. */
+    ChangeColumns freeze() {
+        return new ChangeColumns(Arrays.copyOf(ops, opCount),
+                                 Arrays.copyOf(args, argCount),
+                                 Arrays.copyOf(terms, termCount));
+    }
+
+    /** Number of changes. */
+    int size() {
+        return opCount;
+    }
+
+    /** Send the changes to {@code changes}. */
+    void play(RDFChanges changes) {
+        int a = 0;
+        for ( int i = 0 ; i < opCount ; i++ ) {
+            switch (ops[i]) {
+                case ADD:
+                    changes.add(node(args[a]), node(args[a+1]), node(args[a+2]), node(args[a+3]));
+                    a += 4;
+                    break;
+                case DELETE:
+                    changes.delete(node(args[a]), node(args[a+1]), node(args[a+2]), node(args[a+3]));
+                    a += 4;
+                    break;
+                case ADD_PREFIX:
+                    changes.addPrefix(node(args[a]), string(args[a+1]), string(args[a+2]));
+                    a += 3;
+                    break;
+                case DELETE_PREFIX:
+                    changes.deletePrefix(node(args[a]), string(args[a+1]));
+                    a += 2;
+                    break;
+                case TXN_BEGIN:     changes.txnBegin();     break;
+                case TXN_COMMIT:    changes.txnCommit();    break;
+                case TXN_ABORT:     changes.txnAbort();     break;
+                case SEGMENT:       changes.segment();      break;
+                case HEADER:
+                    changes.header(string(args[a]), node(args[a+1]));
+                    a += 2;
+                    break;
+                default:
+                    throw new IllegalStateException("Unrecognized operation code: "+ops[i]);
+            }
+        }
+    }
+
+    /** The changes as {@link ChangeItem ChangeItems}. */
+    List<ChangeItem> items() {
+        List<ChangeItem> items = new ArrayList<>(opCount);
+        play(new RDFChanges() {
+            @Override public void header(String field, Node value)                 { items.add(new HeaderItem(field, value)); }
+            @Override public void add(Node g, Node s, Node p, Node o)             { items.add(new AddQuad(g, s, p, o)); }
+            @Override public void delete(Node g, Node s, Node p, Node o)          { items.add(new DeleteQuad(g, s, p, o)); }
+            @Override public void addPrefix(Node gn, String prefix, String uriStr) { items.add(new AddPrefix(gn, prefix, uriStr)); }
+            @Override public void deletePrefix(Node gn, String prefix)            { items.add(new DeletePrefix(gn, prefix)); }
+            @Override public void txnBegin()                                      { items.add(new TxnBegin()); }
+            @Override public void txnCommit()                                     { items.add(new TxnCommit()); }
+            @Override public void txnAbort()                                      { items.add(new TxnAbort()); }
+            @Override public void segment()                                       { items.add(new Segment()); }
+            @Override public void start()                                         {}
+            @Override public void finish()                                        {}
+        });
+        return items;
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void finish() {}
+
+    @Override
+    public void header(String field, Node value) {
+        op(HEADER);
+        arg(term(field));
+        arg(term(value));
+    }
+
+    @Override
+    public void add(Node g, Node s, Node p, Node o) {
+        quad(ADD, g, s, p, o);
+    }
+
+    @Override
+    public void delete(Node g, Node s, Node p, Node o) {
+        quad(DELETE, g, s, p, o);
+    }
+
+    @Override
+    public void addPrefix(Node gn, String prefix, String uriStr) {
+        op(ADD_PREFIX);
+        arg(term(gn));
+        arg(term(prefix));
+        arg(term(uriStr));
+    }
+
+    @Override
+    public void deletePrefix(Node gn, String prefix) {
+        op(DELETE_PREFIX);
+        arg(term(gn));
+        arg(term(prefix));
+    }
+
+    @Override
+    public void txnBegin()  { op(TXN_BEGIN); }
+
+    @Override
+    public void txnCommit() { op(TXN_COMMIT); }
+
+    @Override
+    public void txnAbort()  { op(TXN_ABORT); }
+
+    @Override
+    public void segment()   { op(SEGMENT); }
+
+    private void quad(byte code, Node g, Node s, Node p, Node o) {
+        op(code);
+        if ( argCount + 4 > args.length )
+            args = Arrays.copyOf(args, grow(args.length, argCount + 4));
+        args[argCount++] = term(g);
+        args[argCount++] = term(s);
+        args[argCount++] = term(p);
+        args[argCount++] = term(o);
+    }
+
+    private void op(byte code) {
+        if ( termIndex == null )
+            throw new IllegalStateException("ChangeColumns is read-only");
+        if ( opCount == ops.length )
+            ops = Arrays.copyOf(ops, grow(ops.length, opCount + 1));
+        ops[opCount++] = code;
+    }
+
+    private void arg(int idx) {
+        if ( argCount == args.length )
+            args = Arrays.copyOf(args, grow(args.length, argCount + 1));
+        args[argCount++] = idx;
+    }
+
+    /** Index of a term or string in the table, adding it if new. */
+    private int term(Object x) {
+        if ( x == null )
+            return NONE;
+        Integer idx = termIndex.get(x);
+        if ( idx != null )
+            return idx;
+        if ( termCount == terms.length )
+            terms = Arrays.copyOf(terms, grow(terms.length, termCount + 1));
+        terms[termCount] = x;
+        termIndex.put(x, termCount);
+        return termCount++;
+    }
+
+    private static int grow(int current, int needed) {
+        return Math.max(needed, current + (current >> 1) + 1);
+    }
+
+    private Node node(int idx) {
+        return idx == NONE ? null : (Node)terms[idx];
+    }
+
+    private String string(int idx) {
+        return idx == NONE ? null : (String)terms[idx];
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + hashCode(ops, opCount);
+        result = prime * result + hashCode(args, argCount);
+        return result;
+    }
+
+    private static int hashCode(byte[] a, int len) {
+        int h = 1;
+        for ( int i = 0 ; i < len ; i++ )
+            h = 31 * h + a[i];
+        return h;
+    }
+
+    private static int hashCode(int[] a, int len) {
+        int h = 1;
+        for ( int i = 0 ; i < len ; i++ )
+            h = 31 * h + a[i];
+        return h;
+    }
+
+    // Two sequences of the same changes have the same term tables, because terms are
+    // numbered in order of first use.
+    @Override
+    public boolean equals(Object obj) {
+        if ( this == obj )
+            return true;
+        if ( obj == null )
+            return false;
+        if ( getClass() != obj.getClass() )
+            return false;
+        ChangeColumns other = (ChangeColumns)obj;
+        return opCount == other.opCount && argCount == other.argCount && termCount == other.termCount
+            && Arrays.equals(Arrays.copyOf(ops, opCount), Arrays.copyOf(other.ops, other.opCount))
+            && Arrays.equals(Arrays.copyOf(args, argCount), Arrays.copyOf(other.args, other.argCount))
+            && Arrays.equals(Arrays.copyOf(terms, termCount), Arrays.copyOf(other.terms, other.termCount));
+    }
+}
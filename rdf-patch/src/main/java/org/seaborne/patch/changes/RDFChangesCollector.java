@@ -27,20 +27,32 @@ import org.seaborne.patch.RDFChanges;
 import org.seaborne.patch.RDFPatch;
 import org.seaborne.patch.items.*;
 
-/** Capture a stream of changes, then play it to another {@link RDFChanges} */
+/**
+ * Capture a stream of changes, then play it to another {@link RDFChanges}.
+ * <p>
+ * The changes are held in columnar form (see {@link ChangeColumns}): an operation code
+ * per change and indexes into a table of the distinct RDF terms, not an object per change.
+ */
 public class RDFChangesCollector implements RDFChanges {
     // NB begin - then set headers correctly becomes headers then begin.
     // This is intentional so headers can be set after the patch log starts.
     // But use with care.
     private static final boolean RECORD_HEADER = false;
     private Map<String, Node> header = new LinkedHashMap<>();
-    private List<ChangeItem> actions = new LinkedList<>();
+    private ChangeColumns actions = new ChangeColumns();
 
     public static class RDFPatchStored implements RDFPatch {
         private final PatchHeader header ;
-        private final List<ChangeItem> actions;
+        private final ChangeColumns actions;
 
         public RDFPatchStored(Map<String, Node> header, List<ChangeItem> actions) {
+            this.header = new PatchHeader(header);
+            ChangeColumns columns = new ChangeColumns();
+            actions.forEach(a -> enact(a, columns));
+            this.actions = columns.freeze();
+        }
+
+        private RDFPatchStored(Map<String, Node> header, ChangeColumns actions) {
             this.header = new PatchHeader(header);
             this.actions = actions;
         }
@@ -54,7 +66,7 @@ public class RDFChangesCollector implements RDFChanges {
         public void apply(RDFChanges changes) {
             if ( ! RECORD_HEADER )
                 header.apply(changes);
-            actions.forEach(a -> enact(a, changes));
+            actions.play(changes);
         }
 
         @Override
@@ -62,8 +74,14 @@ public class RDFChangesCollector implements RDFChanges {
             return true;
         }
 
+        /** The changes, as a new list of {@link ChangeItem ChangeItems}. */
         public List<ChangeItem> getActions() {
-            return actions;
+            return actions.items();
+        }
+
+        /** Number of changes. */
+        public int size() {
+            return actions.size();
         }
 
         @Override
@@ -101,7 +119,7 @@ public class RDFChangesCollector implements RDFChanges {
     public RDFChangesCollector() { }
 
     public RDFPatch getRDFPatch() {
-        return new RDFPatchStored(new HashMap<>(header), new ArrayList<>(actions));
+        return new RDFPatchStored(new HashMap<>(header), actions.freeze());
     }
 
 //    /** Play backwards, swapping adds for deletes and delete for adds */
@@ -182,10 +200,6 @@ public class RDFChangesCollector implements RDFChanges {
         FmtLog.warn(RDFChangesCollector.class,  "Unrecognized action: %s : %s", Lib.className(item), item);
     }
 
-    private void collect(ChangeItem object) {
-        actions.add(object);
-    }
-
     @Override
     public void start() {
         internalReset();
@@ -199,7 +213,7 @@ public class RDFChangesCollector implements RDFChanges {
 
     @Override
     public void segment() {
-        actions.add(new Segment());
+        actions.segment();
     }
 
     public void reset() {
@@ -214,7 +228,7 @@ public class RDFChangesCollector implements RDFChanges {
     @Override
     public void header(String field, Node value) {
         if ( RECORD_HEADER )
-            collect(new HeaderItem(field, value));
+            actions.header(field, value);
         // And keep a copy.
         header.put(field, value);
     }
@@ -225,36 +239,36 @@ public class RDFChangesCollector implements RDFChanges {
 
     @Override
     public void add(Node g, Node s, Node p, Node o) {
-        collect(new AddQuad(g, s, p, o));
+        actions.add(g, s, p, o);
     }
 
     @Override
     public void delete(Node g, Node s, Node p, Node o) {
-        collect(new DeleteQuad(g, s, p, o));
+        actions.delete(g, s, p, o);
     }
 
     @Override
     public void addPrefix(Node gn, String prefix, String uriStr) {
-        collect(new AddPrefix(gn, prefix, uriStr));
+        actions.addPrefix(gn, prefix, uriStr);
     }
 
     @Override
     public void deletePrefix(Node gn, String prefix) {
-        collect(new DeletePrefix(gn, prefix)) ;
+        actions.deletePrefix(gn, prefix);
     }
 
     @Override
     public void txnBegin() {
-        collect(new TxnBegin());
+        actions.txnBegin();
     }
 
     @Override
     public void txnCommit() {
-        collect(new TxnCommit());
+        actions.txnCommit();
     }
 
     @Override
     public void txnAbort() {
-        collect(new TxnAbort());
+        actions.txnAbort();
     }
 }
@@ -0,0 +1,128 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.patch.changes;
+
+import java.util.function.Consumer;
+
+import org.apache.jena.graph.Node;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchConst;
+
+/**
+ * Split a stream of changes, for several patches one after another, into patches.
+ * Each patch is passed to the {@code action} as soon as it is complete.
+ * <p>
+ * Patches start with their header. A new patch starts at a header after a non-header
+ * change, or at an "id" header when the current patch already has an id, so a patch
+ * that is only a header is kept as a patch of its own. Patches without a header can
+ * not be split apart.
+ * <p>
+ * {@link #finish} passes on the last patch.
+ */
+public class RDFChangesSplitter implements RDFChanges {
+    private final Consumer<RDFPatch> action;
+    private RDFChangesCollector collector = null;
+    private boolean inBody = false;
+    private boolean hasId = false;
+
+    public RDFChangesSplitter(Consumer<RDFPatch> action) {
+        this.action = action;
+    }
+
+    private RDFChanges header(boolean isId) {
+        if ( collector == null || inBody || ( isId && hasId ) )
+            next();
+        if ( isId )
+            hasId = true;
+        return collector;
+    }
+
+    private RDFChanges body() {
+        if ( collector == null )
+            next();
+        inBody = true;
+        return collector;
+    }
+
+    private void next() {
+        emit();
+        collector = new RDFChangesCollector();
+        inBody = false;
+        hasId = false;
+    }
+
+    private void emit() {
+        if ( collector != null )
+            action.accept(collector.getRDFPatch());
+        collector = null;
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void finish() {
+        emit();
+    }
+
+    @Override
+    public void header(String field, Node value) {
+        header(RDFPatchConst.ID.equals(field)).header(field, value);
+    }
+
+    @Override
+    public void add(Node g, Node s, Node p, Node o) {
+        body().add(g, s, p, o);
+    }
+
+    @Override
+    public void delete(Node g, Node s, Node p, Node o) {
+        body().delete(g, s, p, o);
+    }
+
+    @Override
+    public void addPrefix(Node gn, String prefix, String uriStr) {
+        body().addPrefix(gn, prefix, uriStr);
+    }
+
+    @Override
+    public void deletePrefix(Node gn, String prefix) {
+        body().deletePrefix(gn, prefix);
+    }
+
+    @Override
+    public void txnBegin() {
+        body().txnBegin();
+    }
+
+    @Override
+    public void txnCommit() {
+        body().txnCommit();
+    }
+
+    @Override
+    public void txnAbort() {
+        body().txnAbort();
+    }
+
+    @Override
+    public void segment() {
+        body().segment();
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.patch.changes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
+import org.seaborne.patch.RDFPatchConst;
+
+/**
+ * Merge a sequence of patches into a single patch of the net changes.
+ * <p>
+ * Only the last change to each quad, and to each prefix, is kept: repeated adds become
+ * one add, and a quad added then deleted becomes one delete. Applying the squashed patch
+ * to a dataset has the same effect as applying the patches it came from, whatever the
+ * state of the dataset beforehand. Changes in aborted transactions are dropped.
+ * <p>
+ * If the patches record only "real" changes (see
+ * {@link org.seaborne.patch.system.DatasetGraphRealChanges DatasetGraphRealChanges}) -
+ * every add is of a quad that was not present, every delete of a quad that was - then a
+ * quad that is added then deleted was not present before the first patch, so the pair
+ * can be dropped altogether; likewise a quad deleted then added. Only use
+ * {@code realChanges=true} when that is known of the patches.
+ * <p>
+ * The squashed patch has the id of the last patch and the previous of the first patch,
+ * so it replaces the sequence in a patch log chain. Other header fields take their
+ * latest value. The changes are one transaction: prefix changes, deletes, then adds.
+ * <p>
+ * The net changes are held in memory, so the size is proportional to the number of
+ * distinct quads changed, not the number of changes.
+ */
+public class RDFChangesSquash implements RDFChanges {
+
+    private static final byte ADD = 1;
+    private static final byte DELETE = 2;
+
+    // For each quad: the first and last operation, as (first<<4 | last).
+    private Map<Key, Byte> quads = new LinkedHashMap<>();
+    // For each (graph, prefix): the first and last operation, and the URI if it was last added.
+    private Map<Key, PrefixChange> prefixes = new LinkedHashMap<>();
+    // The changes of the transaction in progress, merged in on commit.
+    private Map<Key, Byte> txnQuads = null;
+    private Map<Key, PrefixChange> txnPrefixes = null;
+
+    private final Map<String, Node> header = new LinkedHashMap<>();
+    // Set once the header of the first patch has been seen.
+    private boolean started = false;
+    private final boolean realChanges;
+    private long changeCount = 0;
+
+    /** Squash, keeping the last change to each quad and each prefix. */
+    public RDFChangesSquash() {
+        this(false);
+    }
+
+    /**
+     * Squash; if {@code realChanges} is true, the patches are assumed to record only
+     * changes that altered the dataset, and changes that cancel out are dropped.
+     */
+    public RDFChangesSquash(boolean realChanges) {
+        this.realChanges = realChanges;
+    }
+
+    /** The squashed patch. */
+    public RDFPatch getRDFPatch() {
+        RDFChangesCollector c = new RDFChangesCollector();
+        play(c);
+        return c.getRDFPatch();
+    }
+
+    /** Send the squashed patch to an {@link RDFChanges}. */
+    public void play(RDFChanges target) {
+        header.forEach(target::header);
+        target.txnBegin();
+        prefixes.forEach((k, v)->{
+            // Added then deleted: not present before, not present after.
+            if ( realChanges && v.first == ADD && v.last == DELETE )
+                return;
+            if ( v.last == ADD )
+                target.addPrefix(k.g, v.prefix, v.uriStr);
+            else
+                target.deletePrefix(k.g, v.prefix);
+        });
+        quads.forEach((k, v)->{
+            if ( ! isNetChange(v) || last(v) != DELETE )
+                return;
+            target.delete(k.g, k.s, k.p, k.o);
+        });
+        quads.forEach((k, v)->{
+            if ( ! isNetChange(v) || last(v) != ADD )
+                return;
+            target.add(k.g, k.s, k.p, k.o);
+        });
+        target.txnCommit();
+    }
+
+    /** Number of quad and prefix changes seen, including those squashed away. */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    /** Number of quad changes in the squashed patch. */
+    public long getNetQuadCount() {
+        return quads.values().stream().filter(this::isNetChange).count();
+    }
+
+    private boolean isNetChange(byte v) {
+        return ! realChanges || first(v) == last(v);
+    }
+
+    private static byte first(byte v) { return (byte)(v >> 4); }
+    private static byte last(byte v)  { return (byte)(v & 0xF); }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void finish() {}
+
+    @Override
+    public void segment() {}
+
+    @Override
+    public void header(String field, Node value) {
+        if ( RDFPatchConst.PREV.equals(field) || RDFPatch.PREVIOUS.equals(field) ) {
+            // The previous of the first patch.
+            if ( ! started )
+                header.put(RDFPatchConst.PREV, value);
+            return;
+        }
+        header.put(field, value);
+    }
+
+    @Override
+    public void add(Node g, Node s, Node p, Node o) {
+        quad(g, s, p, o, ADD);
+    }
+
+    @Override
+    public void delete(Node g, Node s, Node p, Node o) {
+        quad(g, s, p, o, DELETE);
+    }
+
+    @Override
+    public void addPrefix(Node gn, String prefix, String uriStr) {
+        prefix(gn, prefix, uriStr, ADD);
+    }
+
+    @Override
+    public void deletePrefix(Node gn, String prefix) {
+        prefix(gn, prefix, null, DELETE);
+    }
+
+    @Override
+    public void txnBegin() {
+        endPatchHeader();
+        txnQuads = new LinkedHashMap<>();
+        txnPrefixes = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void txnCommit() {
+        endPatchHeader();
+        if ( txnQuads == null )
+            return;
+        txnQuads.forEach((k, v)->mergeQuad(quads, k, v));
+        txnPrefixes.forEach((k, v)->mergePrefix(prefixes, k, v));
+        txnQuads = null;
+        txnPrefixes = null;
+    }
+
+    @Override
+    public void txnAbort() {
+        endPatchHeader();
+        txnQuads = null;
+        txnPrefixes = null;
+    }
+
+    // After the header of a patch, any "previous" belongs to a later patch.
+    private void endPatchHeader() {
+        started = true;
+    }
+
+    private void quad(Node g, Node s, Node p, Node o, byte op) {
+        endPatchHeader();
+        changeCount++;
+        Map<Key, Byte> dest = ( txnQuads != null ) ? txnQuads : quads;
+        mergeQuad(dest, new Key(g, s, p, o), (byte)(op << 4 | op));
+    }
+
+    private void prefix(Node gn, String prefix, String uriStr, byte op) {
+        endPatchHeader();
+        changeCount++;
+        Map<Key, PrefixChange> dest = ( txnPrefixes != null ) ? txnPrefixes : prefixes;
+        mergePrefix(dest, new Key(gn, null, null, prefixKey(prefix)), new PrefixChange(prefix, uriStr, op, op));
+    }
+
+    private static void mergeQuad(Map<Key, Byte> dest, Key key, byte v) {
+        dest.merge(key, v, (v1, v2)->(byte)(v1 & 0xF0 | v2 & 0x0F));
+    }
+
+    private static void mergePrefix(Map<Key, PrefixChange> dest, Key key, PrefixChange v) {
+        dest.merge(key, v, (v1, v2)->new PrefixChange(v2.prefix, v2.uriStr, v1.first, v2.last));
+    }
+
+    private static Node prefixKey(String prefix) {
+        return NodeFactory.createLiteral(prefix);
+    }
+
+    /** A change key: a quad, or a graph and prefix. Any slot may be null. */
+    private static final class Key {
+        final Node g, s, p, o;
+        final int hash;
+
+        Key(Node g, Node s, Node p, Node o) {
+            this.g = g;
+            this.s = s;
+            this.p = p;
+            this.o = o;
+            this.hash = Objects.hash(g, s, p, o);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( this == obj )
+                return true;
+            if ( !(obj instanceof Key) )
+                return false;
+            Key other = (Key)obj;
+            return hash == other.hash && Objects.equals(s, other.s) && Objects.equals(p, other.p)
+                   && Objects.equals(o, other.o) && Objects.equals(g, other.g);
+        }
+    }
+
+    private static final class PrefixChange {
+        final String prefix;
+        final String uriStr;
+        final byte first;
+        final byte last;
+
+        PrefixChange(String prefix, String uriStr, byte first, byte last) {
+            this.prefix = prefix;
+            this.uriStr = uriStr;
+            this.first = first;
+            this.last = last;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.io.InputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
@@ -45,7 +46,9 @@ import org.seaborne.patch.PatchException;
 import org.seaborne.patch.PatchHeader;
 import org.seaborne.patch.PatchProcessor;
 import org.seaborne.patch.RDFChanges;
+import org.seaborne.patch.RDFPatch;
 import org.seaborne.patch.changes.PatchCodes;
+import org.seaborne.patch.changes.RDFChangesSplitter;
 
 /** RDF Patch reader for text format. */
 public class RDFPatchReaderText implements PatchProcessor {
@@ -67,6 +70,21 @@ public class RDFPatchReaderText implements PatchProcessor {
         read(tokenizer, processor);
     }
 
+    /**
+     * Read a sequence of patches, one after another in the same input, passing each
+     * patch to the {@code action} as soon as it has been read.
+     * <p>
+     * Patches start with their header. A header line that follows a non-header line,
+     * or a second "id" header line, starts the next patch (see {@link RDFChangesSplitter}).
+     * Patches without a header can not be split apart.
+     */
+    public void applyPatches(Consumer<RDFPatch> action) {
+        RDFChangesSplitter splitter = new RDFChangesSplitter(action);
+        while( tokenizer.hasNext() )
+            doOneLine(tokenizer, splitter);
+        splitter.finish();
+    }
+
     /**
      * Execute one tuple, skipping blanks and comments.
      * Return true if there is the possibility of more.
@@ -26,6 +26,8 @@ import org.seaborne.patch.filelog.TestRotate;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestRDFChanges.class
+    , TestRDFChangesCollector.class
+    , TestRDFChangesSquash.class
     , TestRDFChangesDataset.class
     , TestRDFChangesGraph.class
     , TestRDFChangesCancel.class
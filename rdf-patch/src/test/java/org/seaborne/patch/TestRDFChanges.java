@@ -20,12 +20,27 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.thrift.TRDF;
 import org.apache.jena.sparql.sse.SSE;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TProtocol;
 import org.junit.Test;
+import org.seaborne.patch.binary.RDFChangesWriterBinary;
+import org.seaborne.patch.binary.RDFPatchReaderBinary;
+import org.seaborne.patch.binary.thrift.Patch_Data_Add;
+import org.seaborne.patch.binary.thrift.RDF_IRI;
+import org.seaborne.patch.binary.thrift.RDF_Patch_Row;
+import org.seaborne.patch.binary.thrift.RDF_PrefixName;
+import org.seaborne.patch.binary.thrift.RDF_Term;
 import org.seaborne.patch.changes.PatchSummary;
 import org.seaborne.patch.changes.RDFChangesCollector;
 import org.seaborne.patch.changes.RDFChangesCounter;
@@ -155,6 +170,185 @@ public class TestRDFChanges {
         assertEquals(1, ps.getCountDeletePrefix());
     }
 
+    @Test public void changes_binary_01() {
+        RDFPatch patch = makePatch((x)->{
+            x.header("id", o1);
+            x.txnBegin();
+            x.addPrefix(g1, "ex", "http://example/");
+            x.add(g1, s1, p1, o1);
+            x.add(null, s2, p2, o2);
+            x.delete(g2, s1, p1, o2);
+            x.deletePrefix(null, "ex");
+            x.txnCommit();
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFPatchOps.writeBinary(out, patch);
+        RDFPatch patch2 = RDFPatchOps.readBinary(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(patch2));
+    }
+
+    @Test public void changes_binary_02() {
+        RDFPatch patch1 = makePatch((x)->{
+            x.header("id", o1);
+            x.txnBegin();
+            x.add(g1, s1, p1, o1);
+            x.txnCommit();
+        });
+        RDFPatch patch2 = makePatch((x)->{
+            x.header("id", o2);
+            x.header("prev", o1);
+            x.txnBegin();
+            x.delete(g1, s1, p1, o1);
+            x.txnCommit();
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFPatchOps.writeBinary(out, patch1);
+        RDFPatchOps.writeBinary(out, patch2);
+        List<RDFPatch> patches = new ArrayList<>();
+        RDFPatchReaderBinary.readPatches(new ByteArrayInputStream(out.toByteArray()), patches::add);
+        assertEquals(2, patches.size());
+        assertEquals(RDFPatchOps.str(patch1), RDFPatchOps.str(patches.get(0)));
+        assertEquals(RDFPatchOps.str(patch2), RDFPatchOps.str(patches.get(1)));
+    }
+
+    // A range of patches, with a patch that is only a header in the middle.
+    private static List<RDFPatch> rangeWithEmptyPatch() {
+        RDFPatch patch1 = makePatch((x)->{
+            x.header("id", o1);
+            x.txnBegin();
+            x.add(g1, s1, p1, o1);
+            x.txnCommit();
+        });
+        RDFPatch patch2 = makePatch((x)->{
+            x.header("id", o2);
+            x.header("prev", o1);
+        });
+        RDFPatch patch3 = makePatch((x)->{
+            x.header("id", s2);
+            x.header("prev", o2);
+            x.txnBegin();
+            x.delete(g1, s1, p1, o1);
+            x.txnCommit();
+        });
+        return Arrays.asList(patch1, patch2, patch3);
+    }
+
+    private static void checkRange(List<RDFPatch> expected, List<RDFPatch> actual) {
+        assertEquals(expected.size(), actual.size());
+        for ( int i = 0 ; i < expected.size() ; i++ )
+            assertEquals(RDFPatchOps.str(expected.get(i)), RDFPatchOps.str(actual.get(i)));
+    }
+
+    @Test public void changes_range_empty_text() {
+        List<RDFPatch> range = rangeWithEmptyPatch();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        range.forEach(p->RDFPatchOps.write(out, p));
+        List<RDFPatch> patches = new ArrayList<>();
+        RDFPatchOps.readPatches(new ByteArrayInputStream(out.toByteArray()), patches::add);
+        checkRange(range, patches);
+    }
+
+    @Test public void changes_range_empty_binary() {
+        List<RDFPatch> range = rangeWithEmptyPatch();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        range.forEach(p->RDFPatchOps.writeBinary(out, p));
+        List<RDFPatch> patches = new ArrayList<>();
+        RDFPatchReaderBinary.readPatches(new ByteArrayInputStream(out.toByteArray()), patches::add);
+        checkRange(range, patches);
+    }
+
+    private static byte[] writeBinary(RDFPatch patch, boolean compress) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFChanges writer = new RDFChangesWriterBinary(TRDF.protocol(out), compress);
+        writer.start();
+        patch.apply(writer);
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static RDFPatch bulkPatch(int N) {
+        return makePatch((x)->{
+            x.header("id", o1);
+            x.txnBegin();
+            for ( int i = 0 ; i < N ; i++ ) {
+                Node s = NodeFactory.createURI("http://example/data/s"+(i/10));
+                Node o = NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger);
+                x.add(g1, s, p1, o);
+                x.add(g1, s, p2, SSE.parseNode("'text'@en"));
+                x.add(null, s, p1, s2);
+            }
+            x.txnCommit();
+        });
+    }
+
+    @Test public void changes_binary_03() {
+        RDFPatch patch = bulkPatch(100);
+        byte[] plain = writeBinary(patch, false);
+        byte[] compact = writeBinary(patch, true);
+        assertTrue(compact.length < plain.length);
+        RDFPatch patch1 = RDFPatchOps.readBinary(new ByteArrayInputStream(plain));
+        RDFPatch patch2 = RDFPatchOps.readBinary(new ByteArrayInputStream(compact));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(patch1));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(patch2));
+    }
+
+    @Test public void changes_binary_03a() {
+        // The default is not compressed, so earlier readers can read it.
+        RDFPatch patch = bulkPatch(10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFPatchOps.writeBinary(out, patch);
+        assertArrayEquals(writeBinary(patch, false), out.toByteArray());
+    }
+
+    @Test public void changes_binary_03b() {
+        // The compression marker is not part of the patch.
+        RDFPatch patch = bulkPatch(10);
+        byte[] compact = writeBinary(patch, true);
+        PatchHeader header = RDFPatchReaderBinary.readHeader(new ByteArrayInputStream(compact));
+        assertNull(header.get("binary:compression"));
+        assertEquals(o1, header.getId());
+        RDFPatch patch2 = RDFPatchOps.readBinary(new ByteArrayInputStream(compact));
+        assertEquals(RDFPatchOps.str(patch), RDFPatchOps.str(patch2));
+    }
+
+    @Test(expected=PatchException.class)
+    public void changes_binary_03c() {
+        // A prefix name in a patch not marked as compressed.
+        RDF_Term term = new RDF_Term();
+        term.setPrefixName(new RDF_PrefixName("0", "s"));
+        RDF_Term iri = new RDF_Term();
+        iri.setIri(new RDF_IRI("http://example/p"));
+        RDF_Patch_Row row = new RDF_Patch_Row();
+        row.setDataAdd(new Patch_Data_Add(term, iri, iri));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TProtocol protocol = TRDF.protocol(out);
+        try { row.write(protocol); }
+        catch (TException ex) { throw new PatchException("Thrift exception", ex); }
+        TRDF.flush(protocol);
+        RDFPatchOps.readBinary(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test public void changes_binary_04() {
+        // The compression state restarts with each patch.
+        RDFPatch patch1 = bulkPatch(5);
+        RDFPatch patch2 = makePatch((x)->{
+            x.header("id", o2);
+            x.txnBegin();
+            x.delete(g1, NodeFactory.createURI("http://example/data/s0"), p1, o1);
+            x.txnCommit();
+        });
+        List<RDFPatch> patches = new ArrayList<>();
+        byte[] bytes1 = writeBinary(patch1, true);
+        byte[] bytes2 = writeBinary(patch2, true);
+        byte[] bytes = new byte[bytes1.length+bytes2.length];
+        System.arraycopy(bytes1, 0, bytes, 0, bytes1.length);
+        System.arraycopy(bytes2, 0, bytes, bytes1.length, bytes2.length);
+        RDFPatchReaderBinary.readPatches(new ByteArrayInputStream(bytes), patches::add);
+        assertEquals(2, patches.size());
+        assertEquals(RDFPatchOps.str(patch1), RDFPatchOps.str(patches.get(0)));
+        assertEquals(RDFPatchOps.str(patch2), RDFPatchOps.str(patches.get(1)));
+    }
+
     // Specific implementations.
 
     @Test public void changesN_01() {
@@ -0,0 +1,119 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.patch;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.Test;
+import org.seaborne.patch.changes.PatchSummary;
+import org.seaborne.patch.changes.RDFChangesCollector;
+import org.seaborne.patch.changes.RDFChangesCollector.RDFPatchStored;
+import org.seaborne.patch.items.AddQuad;
+import org.seaborne.patch.items.ChangeItem;
+import org.seaborne.patch.items.DeletePrefix;
+import org.seaborne.patch.items.TxnCommit;
+
+public class TestRDFChangesCollector {
+    private static Node g1 = SSE.parseNode(":g1");
+    private static Node s1 = SSE.parseNode(":s1");
+    private static Node s2 = SSE.parseNode("_:s2");
+    private static Node p1 = SSE.parseNode("<http://example/p1>");
+    private static Node o1 = SSE.parseNode("'abc'@en");
+    private static Node o2 = SSE.parseNode("123");
+    private static Node id = SSE.parseNode("<urn:uuid:0e7a8f4f-8e8b-4f1c-9b7e-2a1b1c0b7a21>");
+
+    private static RDFPatchStored patch() {
+        RDFChangesCollector c = new RDFChangesCollector();
+        c.header(RDFPatchConst.ID, id);
+        c.txnBegin();
+        c.addPrefix(null, "ex", "http://example/");
+        c.add(null, s1, p1, o1);
+        c.add(g1, s2, p1, o2);
+        c.delete(g1, s1, p1, o1);
+        c.deletePrefix(g1, "ex");
+        c.txnCommit();
+        return (RDFPatchStored)c.getRDFPatch();
+    }
+
+    @Test public void collect_replay() {
+        RDFPatchStored patch = patch();
+        assertEquals(id, patch.getId());
+        assertEquals(7, patch.size());
+        PatchSummary summary = RDFPatchOps.summary(patch);
+        assertEquals(1, summary.getCountHeader());
+        assertEquals(2, summary.getCountAddData());
+        assertEquals(1, summary.getCountDeleteData());
+        assertEquals(1, summary.getCountAddPrefix());
+        assertEquals(1, summary.getCountDeletePrefix());
+        assertEquals(1, summary.getCountTxnCommit());
+        // Write and read back.
+        String text = RDFPatchOps.str(patch);
+        RDFPatch patch2 = RDFPatchOps.read(new ByteArrayInputStream(StrUtils.asUTF8bytes(text)));
+        assertEquals(text, RDFPatchOps.str(patch2));
+    }
+
+    @Test public void collect_items() {
+        List<ChangeItem> items = patch().getActions();
+        assertEquals(7, items.size());
+        AddQuad a = (AddQuad)items.get(2);
+        assertNull(a.g);
+        assertEquals(s1, a.s);
+        assertEquals(o1, a.o);
+        assertEquals(g1, ((DeletePrefix)items.get(5)).gn);
+        assertTrue(items.get(6) instanceof TxnCommit);
+        // Round trip through the list form.
+        RDFPatchStored patch2 = new RDFPatchStored(headerMap(), items);
+        assertEquals(patch(), patch2);
+        assertEquals(patch().hashCode(), patch2.hashCode());
+    }
+
+    @Test public void collect_equals() {
+        assertEquals(patch(), patch());
+        RDFChangesCollector c = new RDFChangesCollector();
+        c.header(RDFPatchConst.ID, id);
+        c.add(null, s1, p1, o2);
+        assertNotEquals(patch(), c.getRDFPatch());
+    }
+
+    @Test public void collect_reset() {
+        RDFChangesCollector c = new RDFChangesCollector();
+        c.add(null, s1, p1, o1);
+        RDFPatch patch1 = c.getRDFPatch();
+        c.reset();
+        c.add(g1, s2, p1, o2);
+        c.add(g1, s2, p1, o2);
+        RDFPatch patch2 = c.getRDFPatch();
+        // Earlier patches are not affected.
+        assertEquals(1, RDFPatchOps.summary(patch1).getCountAddData());
+        assertEquals(2, RDFPatchOps.summary(patch2).getCountAddData());
+    }
+
+    private static Map<String, Node> headerMap() {
+        Map<String, Node> m = new HashMap<>();
+        m.put(RDFPatchConst.ID, id);
+        return m;
+    }
+}
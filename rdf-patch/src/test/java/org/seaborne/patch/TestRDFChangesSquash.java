@@ -0,0 +1,160 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.patch;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+import org.seaborne.patch.changes.PatchSummary;
+import org.seaborne.patch.changes.RDFChangesSquash;
+
+public class TestRDFChangesSquash {
+    private static Node g1 = SSE.parseNode(":g1");
+    private static Node s1 = SSE.parseNode(":s1");
+    private static Node p1 = SSE.parseNode(":p1");
+    private static Node o1 = SSE.parseNode("1");
+    private static Node o2 = SSE.parseNode("2");
+    private static Node id1 = SSE.parseNode("<urn:uuid:6a3e4c44-7f6c-4b4e-8c2f-000000000001>");
+    private static Node id2 = SSE.parseNode("<urn:uuid:6a3e4c44-7f6c-4b4e-8c2f-000000000002>");
+    private static Node id3 = SSE.parseNode("<urn:uuid:6a3e4c44-7f6c-4b4e-8c2f-000000000003>");
+
+    private static RDFPatch patch(Node id, Node prev, String changes) {
+        String x = "H id "+str(id)+" .\n"
+                 + (prev == null ? "" : "H prev "+str(prev)+" .\n")
+                 + "TX .\n"+changes+"TC .\n";
+        return RDFPatchOps.read(new ByteArrayInputStream(StrUtils.asUTF8bytes(x)));
+    }
+
+    private static String str(Node n) {
+        return "<"+n.getURI()+">";
+    }
+
+    @Test public void squash_header() {
+        RDFPatch p1 = patch(id1, null, "");
+        RDFPatch p2 = patch(id2, id1, "");
+        RDFPatch p3 = patch(id3, id2, "");
+        RDFPatch squashed = RDFPatchOps.squash(Arrays.asList(p1, p2, p3));
+        assertEquals(id3, squashed.getId());
+        assertNull(squashed.getPrevious());
+        squashed = RDFPatchOps.squash(Arrays.asList(p2, p3));
+        assertEquals(id3, squashed.getId());
+        assertEquals(id1, squashed.getPrevious());
+    }
+
+    @Test public void squash_add_add() {
+        RDFPatch p1 = patch(id1, null, "A <x:s> <x:p> 1 .\n");
+        RDFPatch p2 = patch(id2, id1, "A <x:s> <x:p> 1 .\nA <x:s> <x:p> 2 .\n");
+        PatchSummary summary = RDFPatchOps.summary(RDFPatchOps.squash(Arrays.asList(p1, p2)));
+        assertEquals(2, summary.getCountAddData());
+        assertEquals(0, summary.getCountDeleteData());
+        assertEquals(1, summary.getCountTxnBegin());
+        assertEquals(1, summary.getCountTxnCommit());
+    }
+
+    @Test public void squash_add_delete() {
+        RDFChangesSquash squash = new RDFChangesSquash();
+        squash.add(g1, s1, p1, o1);
+        squash.delete(g1, s1, p1, o1);
+        squash.add(null, s1, p1, o2);
+        PatchSummary summary = RDFPatchOps.summary(squash.getRDFPatch());
+        // Whatever the dataset was before, the quad is not there afterwards.
+        assertEquals(1, summary.getCountDeleteData());
+        assertEquals(1, summary.getCountAddData());
+        assertEquals(3, squash.getChangeCount());
+        assertEquals(2, squash.getNetQuadCount());
+    }
+
+    @Test public void squash_add_delete_real() {
+        RDFChangesSquash squash = new RDFChangesSquash(true);
+        squash.add(g1, s1, p1, o1);
+        squash.delete(g1, s1, p1, o1);
+        squash.delete(null, s1, p1, o2);
+        squash.add(null, s1, p1, o2);
+        squash.addPrefix(null, "ex", "http://example/");
+        squash.deletePrefix(null, "ex");
+        PatchSummary summary = RDFPatchOps.summary(squash.getRDFPatch());
+        assertEquals(0, summary.getCountDeleteData());
+        assertEquals(0, summary.getCountAddData());
+        assertEquals(0, summary.getCountAddPrefix());
+        assertEquals(0, summary.getCountDeletePrefix());
+        assertEquals(0, squash.getNetQuadCount());
+    }
+
+    @Test public void squash_prefixes() {
+        RDFPatch p1 = patch(id1, null, "PA \"ex\" <http://example/1> .\nPA \"ns\" <http://example/ns#> .\n");
+        RDFPatch p2 = patch(id2, id1, "PD \"ns\" .\nPA \"ex\" <http://example/2> .\n");
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        RDFPatch squashed = RDFPatchOps.squash(Arrays.asList(p1, p2));
+        PatchSummary summary = RDFPatchOps.summary(squashed);
+        assertEquals(1, summary.getCountAddPrefix());
+        assertEquals(1, summary.getCountDeletePrefix());
+        RDFPatchOps.applyChange(dsg, squashed);
+        assertEquals("http://example/2", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex"));
+        assertNull(dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ns"));
+    }
+
+    @Test public void squash_abort() {
+        RDFChangesSquash squash = new RDFChangesSquash();
+        squash.txnBegin();
+        squash.add(g1, s1, p1, o1);
+        squash.txnCommit();
+        squash.txnBegin();
+        squash.delete(g1, s1, p1, o1);
+        squash.add(g1, s1, p1, o2);
+        squash.txnAbort();
+        PatchSummary summary = RDFPatchOps.summary(squash.getRDFPatch());
+        assertEquals(1, summary.getCountAddData());
+        assertEquals(0, summary.getCountDeleteData());
+    }
+
+    // Applying the squashed patch gives the same dataset as applying the patches.
+    @Test public void squash_apply() {
+        RDFPatch p1 = patch(id1, null, "A <x:s> <x:p> 1 .\nA <x:s> <x:p> 2 <x:g> .\nA <x:s> <x:p> 3 .\n");
+        RDFPatch p2 = patch(id2, id1, "D <x:s> <x:p> 1 .\nA <x:s> <x:p> 4 .\nD <x:s> <x:p> 9 .\n");
+        RDFPatch p3 = patch(id3, id2, "A <x:s> <x:p> 1 .\nD <x:s> <x:p> 2 <x:g> .\nD <x:s> <x:p> 4 .\n");
+        DatasetGraph dsgBase = DatasetGraphFactory.createTxnMem();
+        dsgBase.add(SSE.parseQuad("(_ <x:s> <x:p> 9)"));
+        dsgBase.add(SSE.parseQuad("(<x:g> <x:s> <x:p> 2)"));
+
+        DatasetGraph dsg1 = DatasetGraphFactory.createTxnMem();
+        dsgBase.find().forEachRemaining(dsg1::add);
+        RDFPatchOps.applyChange(dsg1, p1);
+        RDFPatchOps.applyChange(dsg1, p2);
+        RDFPatchOps.applyChange(dsg1, p3);
+
+        DatasetGraph dsg2 = DatasetGraphFactory.createTxnMem();
+        dsgBase.find().forEachRemaining(dsg2::add);
+        RDFPatch squashed = RDFPatchOps.squash(Arrays.asList(p1, p2, p3));
+        RDFPatchOps.applyChange(dsg2, squashed);
+
+        assertTrue(IsoMatcher.isomorphic(dsg1, dsg2));
+        PatchSummary summary = RDFPatchOps.summary(squashed);
+        // 1 and 3 added; 2, 4 and 9 deleted.
+        assertEquals(2, summary.getCountAddData());
+        assertEquals(3, summary.getCountDeleteData());
+    }
+}